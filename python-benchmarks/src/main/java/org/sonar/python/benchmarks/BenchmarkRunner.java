@@ -0,0 +1,64 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.benchmarks;
+
+import java.util.stream.StreamSupport;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.python.checks.CheckList;
+
+/**
+ * Runs the benchmarks selected on the command line (all of them by default), accepting the usual JMH options.
+ * Unless specified otherwise:
+ * <ul>
+ *   <li>{@link CheckBenchmark} is run for each rule of {@link CheckList}</li>
+ *   <li>results are written as JSON to "jmh-result.json", so that they can be compared between commits</li>
+ * </ul>
+ */
+public class BenchmarkRunner {
+
+  private BenchmarkRunner() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+    if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList()) {
+      org.openjdk.jmh.Main.main(args);
+      return;
+    }
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+    if (!commandLineOptions.getParameter("ruleKey").hasValue()) {
+      options.param("ruleKey", ruleKeys());
+    }
+    if (!commandLineOptions.getResult().hasValue()) {
+      options.resultFormat(ResultFormatType.JSON).result("jmh-result.json");
+    }
+    new Runner(options.build()).run();
+  }
+
+  private static String[] ruleKeys() {
+    return StreamSupport.stream(CheckList.getChecks().spliterator(), false)
+      .map(CheckBenchmark::ruleKey)
+      .toArray(String[]::new);
+  }
+}
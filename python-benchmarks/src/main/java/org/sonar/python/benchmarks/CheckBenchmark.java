@@ -0,0 +1,99 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.check.Rule;
+import org.sonar.plugins.python.api.PythonCheck;
+import org.sonar.plugins.python.api.PythonCheck.PreciseIssue;
+import org.sonar.plugins.python.api.PythonFile;
+import org.sonar.plugins.python.api.PythonSubscriptionCheck;
+import org.sonar.plugins.python.api.tree.FileInput;
+import org.sonar.python.AnalyzedFileContext;
+import org.sonar.python.SubscriptionVisitor;
+import org.sonar.python.checks.CheckList;
+import org.sonar.python.parser.PythonParser;
+import org.sonar.python.semantic.ProjectLevelSymbolTable;
+import org.sonar.python.tree.PythonTreeMaker;
+
+/**
+ * Execution of a single rule on a file whose symbol table is already computed.
+ * {@link BenchmarkRunner} runs this benchmark for each rule key of {@link CheckList#getChecks()}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CheckBenchmark {
+
+  @Param({"S1854"})
+  public String ruleKey;
+
+  @Param({"REAL_WORLD", "F_STRINGS", "DEEPLY_NESTED", "LARGE_FUNCTIONS"})
+  public Corpus corpus;
+
+  private PythonCheck check;
+  private AnalyzedFileContext context;
+
+  @Setup
+  public void setup() throws ReflectiveOperationException {
+    Class<?> checkClass = StreamSupport.stream(CheckList.getChecks().spliterator(), false)
+      .filter(c -> ruleKey.equals(ruleKey(c)))
+      .findFirst()
+      .orElseThrow(() -> new IllegalArgumentException("Unknown rule key: " + ruleKey));
+    check = (PythonCheck) checkClass.getConstructor().newInstance();
+    PythonFile pythonFile = corpus.pythonFile();
+    FileInput fileInput = new PythonTreeMaker().fileInput(PythonParser.create().parse(corpus.source()));
+    context = new AnalyzedFileContext(fileInput, pythonFile, null, "", ProjectLevelSymbolTable.empty(), null);
+  }
+
+  @Benchmark
+  public List<PreciseIssue> check() {
+    context.getIssues().clear();
+    // control flow graphs are shared between the rules of one analysis, but measured for each rule here
+    context.cfgCache().clear();
+    if (check instanceof PythonSubscriptionCheck) {
+      SubscriptionVisitor.analyze(Collections.singletonList((PythonSubscriptionCheck) check), context);
+    } else {
+      check.scanFile(context);
+    }
+    return context.getIssues();
+  }
+
+  static String ruleKey(Class<?> checkClass) {
+    return checkClass.getAnnotation(Rule.class).key();
+  }
+}
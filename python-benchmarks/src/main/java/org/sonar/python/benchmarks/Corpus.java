@@ -0,0 +1,185 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.io.IOUtils;
+import org.sonar.plugins.python.api.PythonFile;
+
+/**
+ * Fixed set of sources analyzed by the benchmarks. Sources are either read from the jar or generated deterministically,
+ * so that results of two commits can be compared.
+ */
+public enum Corpus {
+
+  /**
+   * Test files of the checks, which exercise most of the syntax in realistic code, concatenated and repeated.
+   */
+  REAL_WORLD {
+    @Override
+    String generate() {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < 10; i++) {
+        for (String fileName : REAL_WORLD_FILES) {
+          sb.append(resource(fileName)).append("\n");
+        }
+      }
+      return sb.toString();
+    }
+  },
+
+  F_STRINGS {
+    @Override
+    String generate() {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < 2000; i++) {
+        sb.append("def format_").append(i).append("(name, value, width):\n")
+          .append("    label = f\"{name!r:>{width}} = {value:.").append(i % 5).append("f}\"\n")
+          .append("    nested = f\"{f'{name}-{value}'} {{escaped}} {value!s}\"\n")
+          .append("    return f'{label} {nested} {[x * 2 for x in range(width)]} {width + ").append(i).append("}'\n\n");
+      }
+      return sb.toString();
+    }
+  },
+
+  DEEPLY_NESTED {
+    @Override
+    String generate() {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < 50; i++) {
+        sb.append("def nested_").append(i).append("(p, items):\n");
+        String indent = "    ";
+        for (int depth = 0; depth < 30; depth++) {
+          switch (depth % 4) {
+            case 0:
+              sb.append(indent).append("if p > ").append(depth).append(":\n");
+              break;
+            case 1:
+              sb.append(indent).append("for x").append(depth).append(" in items:\n");
+              break;
+            case 2:
+              sb.append(indent).append("while p < ").append(depth).append(":\n");
+              break;
+            default:
+              sb.append(indent).append("def inner_").append(depth).append("(q=p):\n");
+              break;
+          }
+          indent += "  ";
+        }
+        sb.append(indent).append("p = ");
+        for (int depth = 0; depth < 50; depth++) {
+          sb.append("(p + [");
+        }
+        sb.append("p");
+        for (int depth = 0; depth < 50; depth++) {
+          sb.append("])");
+        }
+        sb.append("\n").append(indent).append("return p\n\n");
+      }
+      return sb.toString();
+    }
+  },
+
+  /**
+   * Functions with thousands of statements and branches, as found in generated code.
+   */
+  LARGE_FUNCTIONS {
+    @Override
+    String generate() {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < 3; i++) {
+        sb.append("def generated_").append(i).append("(p, q):\n")
+          .append("    x0 = 0\n");
+        for (int j = 1; j <= 1000; j++) {
+          sb.append("    if p == ").append(j).append(":\n")
+            .append("        x").append(j).append(" = x").append(j - 1).append(" + q\n")
+            .append("    else:\n")
+            .append("        q = x").append(j - 1).append("\n");
+          if (j % 100 == 0) {
+            sb.append("    while q > ").append(j).append(":\n")
+              .append("        q = q - x").append(j).append("\n");
+          }
+        }
+        sb.append("    return q\n\n");
+      }
+      return sb.toString();
+    }
+  };
+
+  private static final List<String> REAL_WORLD_FILES = Arrays.asList(
+    "deadStore.py",
+    "functionUsingLoopVariable.py",
+    "infiniteRecursion.py",
+    "invariantReturn.py",
+    "iterationOnNonIterable.py",
+    "redundantJump.py",
+    "undeclaredNameUsage.py");
+
+  private String source;
+
+  abstract String generate();
+
+  public synchronized String source() {
+    if (source == null) {
+      source = generate();
+    }
+    return source;
+  }
+
+  public PythonFile pythonFile() {
+    String content = source();
+    String fileName = name().toLowerCase() + ".py";
+    return new PythonFile() {
+      @Override
+      public String content() {
+        return content;
+      }
+
+      @Override
+      public String fileName() {
+        return fileName;
+      }
+
+      @Override
+      public URI uri() {
+        return URI.create("file:///corpus/" + fileName);
+      }
+
+      @Override
+      public String toString() {
+        return fileName;
+      }
+    };
+  }
+
+  private static String resource(String fileName) {
+    try (InputStream inputStream = Corpus.class.getResourceAsStream("corpus/" + fileName)) {
+      return IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.plugins.python.api.PythonFile;
+import org.sonar.plugins.python.api.cfg.ControlFlowGraph;
+import org.sonar.plugins.python.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.python.api.tree.FileInput;
+import org.sonar.plugins.python.api.tree.FunctionDef;
+import org.sonar.plugins.python.api.tree.Name;
+import org.sonar.plugins.python.api.tree.ReturnStatement;
+import org.sonar.python.cfg.fixpoint.DefinedVariablesAnalysis;
+import org.sonar.python.cfg.fixpoint.LiveVariablesAnalysis;
+import org.sonar.python.cfg.fixpoint.ReachingDefinitionsAnalysis;
+import org.sonar.python.parser.PythonParser;
+import org.sonar.python.semantic.SymbolTableBuilder;
+import org.sonar.python.tree.PythonTreeMaker;
+
+/**
+ * Control flow graphs and dataflow analyses of all the functions of a file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DataflowBenchmark {
+
+  @Param({"REAL_WORLD", "LARGE_FUNCTIONS"})
+  public Corpus corpus;
+
+  private PythonFile pythonFile;
+  private final List<FunctionDef> functionDefs = new ArrayList<>();
+  private final List<ControlFlowGraph> cfgs = new ArrayList<>();
+  // names of the returned values, whose values are looked for by the reaching definitions analysis
+  private final List<Name> returnedNames = new ArrayList<>();
+
+  @Setup
+  public void setup() {
+    pythonFile = corpus.pythonFile();
+    FileInput fileInput = new PythonTreeMaker().fileInput(PythonParser.create().parse(corpus.source()));
+    new SymbolTableBuilder(pythonFile).visitFileInput(fileInput);
+    fileInput.accept(new BaseTreeVisitor() {
+      @Override
+      public void visitFunctionDef(FunctionDef functionDef) {
+        ControlFlowGraph cfg = ControlFlowGraph.build(functionDef, pythonFile);
+        if (cfg != null) {
+          functionDefs.add(functionDef);
+          cfgs.add(cfg);
+        }
+        super.visitFunctionDef(functionDef);
+      }
+
+      @Override
+      public void visitReturnStatement(ReturnStatement returnStatement) {
+        returnStatement.expressions().stream()
+          .filter(Name.class::isInstance)
+          .forEach(expression -> returnedNames.add((Name) expression));
+        super.visitReturnStatement(returnStatement);
+      }
+    });
+  }
+
+  @Benchmark
+  public void cfg(Blackhole blackhole) {
+    functionDefs.forEach(functionDef -> blackhole.consume(ControlFlowGraph.build(functionDef, pythonFile)));
+  }
+
+  @Benchmark
+  public void liveVariables(Blackhole blackhole) {
+    cfgs.forEach(cfg -> blackhole.consume(LiveVariablesAnalysis.analyze(cfg)));
+  }
+
+  @Benchmark
+  public void definedVariables(Blackhole blackhole) {
+    for (int i = 0; i < cfgs.size(); i++) {
+      blackhole.consume(DefinedVariablesAnalysis.analyze(cfgs.get(i), functionDefs.get(i).localVariables()));
+    }
+  }
+
+  @Benchmark
+  public void reachingDefinitions(Blackhole blackhole) {
+    ReachingDefinitionsAnalysis analysis = new ReachingDefinitionsAnalysis(pythonFile);
+    returnedNames.forEach(name -> blackhole.consume(analysis.valuesAtLocation(name)));
+  }
+}
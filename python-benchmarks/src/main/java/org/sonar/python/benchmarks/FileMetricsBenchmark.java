@@ -0,0 +1,108 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.plugins.python.api.PythonVisitorContext;
+import org.sonar.plugins.python.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.python.api.tree.FileInput;
+import org.sonar.plugins.python.api.tree.FunctionDef;
+import org.sonar.python.metrics.CognitiveComplexityVisitor;
+import org.sonar.python.metrics.ComplexityVisitor;
+import org.sonar.python.metrics.FileComplexities;
+import org.sonar.python.metrics.FileLinesVisitor;
+import org.sonar.python.metrics.FileMetrics;
+import org.sonar.python.parser.PythonParser;
+import org.sonar.python.tree.PythonTreeMaker;
+
+/**
+ * File level measures, computed with one tree traversal per visitor as before or with the subscription
+ * visitor of {@link FileMetrics}, which shares the traversal of the rules during the analysis.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FileMetricsBenchmark {
+
+  @Param({"REAL_WORLD", "F_STRINGS", "DEEPLY_NESTED", "LARGE_FUNCTIONS"})
+  public Corpus corpus;
+
+  private PythonVisitorContext context;
+
+  @Setup
+  public void setup() {
+    FileInput fileInput = new PythonTreeMaker().fileInput(PythonParser.create().parse(corpus.source()));
+    context = new PythonVisitorContext(fileInput, corpus.pythonFile(), null, "");
+  }
+
+  @Benchmark
+  public void separateTraversals(Blackhole blackhole) {
+    FileInput fileInput = context.rootTree();
+    FileLinesVisitor fileLinesVisitor = new FileLinesVisitor();
+    fileLinesVisitor.scanFile(context);
+    blackhole.consume(fileLinesVisitor.getLinesOfCode());
+    blackhole.consume(ComplexityVisitor.complexity(fileInput));
+    blackhole.consume(CognitiveComplexityVisitor.complexity(fileInput, null));
+    List<Integer> functionComplexities = new ArrayList<>();
+    fileInput.accept(new BaseTreeVisitor() {
+      @Override
+      public void visitFunctionDef(FunctionDef functionDef) {
+        functionComplexities.add(ComplexityVisitor.complexity(functionDef));
+        super.visitFunctionDef(functionDef);
+      }
+    });
+    blackhole.consume(functionComplexities);
+  }
+
+  /**
+   * Complexities of the file and of all its classes and functions, which the separate traversals compute again for
+   * each nested function.
+   */
+  @Benchmark
+  public FileComplexities bottomUpComplexities() {
+    return FileComplexities.compute(context.rootTree());
+  }
+
+  @Benchmark
+  public void sharedTraversal(Blackhole blackhole) {
+    FileMetrics fileMetrics = new FileMetrics(context);
+    blackhole.consume(fileMetrics.fileLinesVisitor().getLinesOfCode());
+    blackhole.consume(fileMetrics.complexity());
+    blackhole.consume(fileMetrics.cognitiveComplexity());
+    blackhole.consume(fileMetrics.functionComplexities());
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.plugins.python.api.PythonFile;
+import org.sonar.plugins.python.api.tree.FileInput;
+import org.sonar.python.parser.PythonParser;
+import org.sonar.python.semantic.SymbolTableBuilder;
+import org.sonar.python.tree.PythonTreeMaker;
+import org.sonar.python.tree.SymbolsCleaner;
+import org.sonar.python.types.TypeInference;
+import org.sonar.python.types.TypeShed;
+
+/**
+ * Symbol table construction, which ends with the type inference, and the type inference alone.
+ * The same tree is reused by all invocations, its symbols being cleaned before being computed again.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SymbolTableBenchmark {
+
+  @Param({"REAL_WORLD", "F_STRINGS", "DEEPLY_NESTED", "LARGE_FUNCTIONS"})
+  public Corpus corpus;
+
+  private PythonFile pythonFile;
+  private FileInput fileInput;
+
+  @Setup
+  public void setup() {
+    // loading of builtin symbols is not measured
+    TypeShed.builtinSymbols();
+    pythonFile = corpus.pythonFile();
+    fileInput = new PythonTreeMaker().fileInput(PythonParser.create().parse(corpus.source()));
+    new SymbolTableBuilder(pythonFile).visitFileInput(fileInput);
+  }
+
+  @Benchmark
+  public FileInput symbolTable() {
+    SymbolsCleaner.clean(fileInput);
+    new SymbolTableBuilder(pythonFile).visitFileInput(fileInput);
+    return fileInput;
+  }
+
+  @Benchmark
+  public FileInput typeInference() {
+    TypeInference.inferTypes(fileInput, pythonFile);
+    return fileInput;
+  }
+}
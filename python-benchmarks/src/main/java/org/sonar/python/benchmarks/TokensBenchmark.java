@@ -0,0 +1,100 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.plugins.python.api.tree.FileInput;
+import org.sonar.plugins.python.api.tree.Token;
+import org.sonar.plugins.python.api.tree.Tree;
+import org.sonar.python.parser.PythonParser;
+import org.sonar.python.tree.PythonTreeMaker;
+import org.sonar.python.tree.TreeUtils;
+
+/**
+ * Tokens of the file and of each of its trees, as requested by CPD and by token based rules, taken from the tokens
+ * recorded for the file or collected recursively from the children of each tree.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TokensBenchmark {
+
+  @Param({"REAL_WORLD", "F_STRINGS", "DEEPLY_NESTED", "LARGE_FUNCTIONS"})
+  public Corpus corpus;
+
+  private List<Tree> trees;
+
+  @Setup
+  public void setup() {
+    FileInput fileInput = new PythonTreeMaker().fileInput(PythonParser.create().parse(corpus.source()));
+    trees = new ArrayList<>();
+    addTrees(fileInput, trees);
+  }
+
+  private static void addTrees(Tree tree, List<Tree> trees) {
+    trees.add(tree);
+    if (!tree.is(Tree.Kind.STRING_ELEMENT)) {
+      tree.children().forEach(child -> addTrees(child, trees));
+    }
+  }
+
+  @Benchmark
+  public void recordedTokens(Blackhole blackhole) {
+    for (Tree tree : trees) {
+      blackhole.consume(TreeUtils.tokens(tree).size());
+    }
+  }
+
+  @Benchmark
+  public void recursiveTokens(Blackhole blackhole) {
+    for (Tree tree : trees) {
+      List<Token> tokens = new ArrayList<>();
+      collectTokens(tree, tokens);
+      blackhole.consume(tokens.size());
+    }
+  }
+
+  private static void collectTokens(Tree tree, List<Token> tokens) {
+    if (tree.is(Tree.Kind.TOKEN)) {
+      tokens.add((Token) tree);
+    } else if (tree.is(Tree.Kind.STRING_ELEMENT)) {
+      tokens.add(tree.firstToken());
+    } else {
+      tree.children().forEach(child -> collectTokens(child, tokens));
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.python.types.TypeShed;
+
+/**
+ * Cold start of {@link TypeShed}: builtin symbols and the symbols of a few modules, loaded from the index of stub
+ * files or computed by parsing the stub files. Symbols are cached by {@link TypeShed} for the lifetime of the JVM, so
+ * each measurement is a single invocation in a fresh fork.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+@State(Scope.Benchmark)
+public class TypeShedBenchmark {
+
+  private static final List<String> MODULES = Arrays.asList("typing", "os", "collections", "re");
+
+  @Param({"true", "false"})
+  public boolean index;
+
+  @Setup
+  public void setup() {
+    if (!index) {
+      TypeShed.disableIndex();
+    }
+  }
+
+  @Benchmark
+  public void coldStart(Blackhole blackhole) {
+    blackhole.consume(TypeShed.builtinSymbols());
+    for (String module : MODULES) {
+      blackhole.consume(TypeShed.symbolsForModule(module));
+    }
+  }
+}
@@ -24,7 +24,7 @@ import org.sonar.check.RuleProperty;
 import org.sonar.plugins.python.api.PythonSubscriptionCheck;
 import org.sonar.plugins.python.api.tree.ClassDef;
 import org.sonar.plugins.python.api.tree.Tree;
-import org.sonar.python.metrics.ComplexityVisitor;
+import org.sonar.python.metrics.FileComplexities;
 
 @Rule(key = "ClassComplexity")
 public class ClassComplexityCheck extends PythonSubscriptionCheck {
@@ -41,7 +41,7 @@ public class ClassComplexityCheck extends PythonSubscriptionCheck {
   public void initialize(Context context) {
     context.registerSyntaxNodeConsumer(Tree.Kind.CLASSDEF, ctx -> {
       ClassDef classDef = (ClassDef) ctx.syntaxNode();
-      int complexity = ComplexityVisitor.complexity(classDef);
+      int complexity = FileComplexities.of(ctx).complexity(classDef);
       if (complexity > maximumClassComplexityThreshold) {
         String message = String.format(MESSAGE, complexity, maximumClassComplexityThreshold);
         ctx.addIssue(classDef.name(), message).withCost(complexity - maximumClassComplexityThreshold);
@@ -28,6 +28,7 @@ import org.sonar.plugins.python.api.PythonSubscriptionCheck;
 import org.sonar.plugins.python.api.tree.FunctionDef;
 import org.sonar.plugins.python.api.tree.Tree;
 import org.sonar.python.metrics.CognitiveComplexityVisitor;
+import org.sonar.python.metrics.FileComplexities;
 
 @Rule(key = CognitiveComplexityFunctionCheck.CHECK_KEY)
 public class CognitiveComplexityFunctionCheck extends PythonSubscriptionCheck {
@@ -49,9 +50,11 @@ public class CognitiveComplexityFunctionCheck extends PythonSubscriptionCheck {
       if (isInnerFunction(functionDef)) {
         return;
       }
-      List<IssueLocation> secondaryLocations = new ArrayList<>();
-      int complexity = CognitiveComplexityVisitor.complexity(functionDef, (node, message) -> secondaryLocations.add(IssueLocation.preciseLocation(node, message)));
+      int complexity = FileComplexities.of(ctx).cognitiveComplexity(functionDef);
       if (complexity > threshold){
+        // secondary locations are only computed for the functions with an issue
+        List<IssueLocation> secondaryLocations = new ArrayList<>();
+        CognitiveComplexityVisitor.complexity(functionDef, (node, message) -> secondaryLocations.add(IssueLocation.preciseLocation(node, message)));
         String message = String.format(MESSAGE, complexity, threshold);
         PreciseIssue issue = ctx.addIssue(functionDef.name(), message)
           .withCost(complexity - threshold);
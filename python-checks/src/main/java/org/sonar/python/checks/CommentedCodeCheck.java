@@ -43,7 +43,8 @@ public class CommentedCodeCheck extends PythonSubscriptionCheck {
   public static final String MESSAGE = "Remove this commented out code.";
   // Regex coming from https://www.python.org/dev/peps/pep-0263/#defining-the-encoding
   private static final Pattern ENCODING_PATTERN = Pattern.compile(".*?coding[:=][ \\t]*([-_.a-zA-Z0-9]+)\n");
-  private static final PythonParser parser = PythonParser.create();
+  // one parser per thread, as this check may be executed by concurrent analyses
+  private static final ThreadLocal<PythonParser> parser = ThreadLocal.withInitial(PythonParser::create);
 
   @Override
   public void initialize(Context context) {
@@ -124,7 +125,7 @@ public class CommentedCodeCheck extends PythonSubscriptionCheck {
 
   private static boolean isTextParsedAsCode(String text) {
     try {
-      AstNode astNode = parser.parse(text);
+      AstNode astNode = parser.get().parse(text);
       FileInput parse = new PythonTreeMaker().fileInput(astNode);
       return parse.statements() != null && !isSimpleExpression(parse);
     } catch (Exception e) {
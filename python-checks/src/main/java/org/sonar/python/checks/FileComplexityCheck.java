@@ -24,7 +24,7 @@ import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
 import org.sonar.plugins.python.api.PythonSubscriptionCheck;
 import org.sonar.plugins.python.api.tree.Tree;
-import org.sonar.python.metrics.ComplexityVisitor;
+import org.sonar.python.metrics.FileComplexities;
 
 @Rule(key = "FileComplexity")
 public class FileComplexityCheck extends PythonSubscriptionCheck {
@@ -39,7 +39,7 @@ public class FileComplexityCheck extends PythonSubscriptionCheck {
   @Override
   public void initialize(Context context) {
     context.registerSyntaxNodeConsumer(Tree.Kind.FILE_INPUT, ctx -> {
-      int complexity = ComplexityVisitor.complexity(ctx.syntaxNode());
+      int complexity = FileComplexities.of(ctx).complexity(ctx.syntaxNode());
       if (complexity > maximumFileComplexityThreshold) {
         String message = MessageFormat.format(
           "File has a complexity of {0,number,integer} which is greater than {1,number,integer} authorized.",
@@ -24,7 +24,7 @@ import org.sonar.check.RuleProperty;
 import org.sonar.plugins.python.api.PythonSubscriptionCheck;
 import org.sonar.plugins.python.api.tree.FunctionDef;
 import org.sonar.plugins.python.api.tree.Tree;
-import org.sonar.python.metrics.ComplexityVisitor;
+import org.sonar.python.metrics.FileComplexities;
 
 @Rule(key = "FunctionComplexity")
 public class FunctionComplexityCheck extends PythonSubscriptionCheck {
@@ -41,7 +41,7 @@ public class FunctionComplexityCheck extends PythonSubscriptionCheck {
   public void initialize(Context context) {
     context.registerSyntaxNodeConsumer(Tree.Kind.FUNCDEF, ctx -> {
       FunctionDef funcDef = (FunctionDef) ctx.syntaxNode();
-      int complexity = ComplexityVisitor.complexity(funcDef);
+      int complexity = FileComplexities.of(ctx).complexity(funcDef);
       if (complexity > maximumFunctionComplexityThreshold) {
         String message = String.format(MESSAGE, complexity, maximumFunctionComplexityThreshold);
         ctx.addIssue(funcDef.name(), message)
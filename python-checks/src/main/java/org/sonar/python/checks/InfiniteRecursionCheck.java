@@ -52,10 +52,11 @@ import org.sonar.plugins.python.api.tree.Parameter;
 import org.sonar.plugins.python.api.tree.ParameterList;
 import org.sonar.plugins.python.api.tree.QualifiedExpression;
 import org.sonar.plugins.python.api.tree.Tree;
-import org.sonar.plugins.python.api.PythonFile;
+import org.sonar.plugins.python.api.SubscriptionContext;
 import org.sonar.python.api.PythonKeyword;
 import org.sonar.plugins.python.api.symbols.Symbol;
 import org.sonar.plugins.python.api.symbols.Usage;
+import org.sonar.python.cfg.CfgCache;
 import org.sonar.python.tree.DictCompExpressionImpl;
 import org.sonar.python.tree.TreeUtils;
 
@@ -69,7 +70,7 @@ public class InfiniteRecursionCheck extends PythonSubscriptionCheck {
     context.registerSyntaxNodeConsumer(Tree.Kind.FUNCDEF, ctx -> {
       FunctionDef functionDef = (FunctionDef) ctx.syntaxNode();
       List<Tree> allRecursiveCalls = new ArrayList<>();
-      boolean endBlockIsReachable = collectRecursiveCallsAndCheckIfEndBlockIsReachable(functionDef, ctx.pythonFile(), allRecursiveCalls);
+      boolean endBlockIsReachable = collectRecursiveCallsAndCheckIfEndBlockIsReachable(functionDef, ctx, allRecursiveCalls);
       if (!allRecursiveCalls.isEmpty() && !endBlockIsReachable) {
         String message = String.format(MESSAGE, functionDef.isMethodDefinition() ? "method" : "function");
         PreciseIssue issue = ctx.addIssue(functionDef.name(), message);
@@ -78,12 +79,12 @@ public class InfiniteRecursionCheck extends PythonSubscriptionCheck {
     });
   }
 
-  private static boolean collectRecursiveCallsAndCheckIfEndBlockIsReachable(FunctionDef functionDef, PythonFile pythonFile, List<Tree> allRecursiveCalls) {
+  private static boolean collectRecursiveCallsAndCheckIfEndBlockIsReachable(FunctionDef functionDef, SubscriptionContext ctx, List<Tree> allRecursiveCalls) {
     Symbol functionSymbol = functionDef.name().symbol();
     if (functionSymbol == null) {
       return true;
     }
-    ControlFlowGraph cfg = ControlFlowGraph.build(functionDef, pythonFile);
+    ControlFlowGraph cfg = CfgCache.of(ctx).cfg(functionDef);
     if (cfg == null) {
       return true;
     }
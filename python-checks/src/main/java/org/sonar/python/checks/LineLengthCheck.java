@@ -24,6 +24,7 @@ import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
 import org.sonar.plugins.python.api.PythonSubscriptionCheck;
 import org.sonar.plugins.python.api.tree.Tree;
+import org.sonar.python.LineIndex;
 
 @Rule(key = LineLengthCheck.CHECK_KEY)
 public class LineLengthCheck extends PythonSubscriptionCheck {
@@ -40,13 +41,13 @@ public class LineLengthCheck extends PythonSubscriptionCheck {
   @Override
   public void initialize(Context context) {
     context.registerSyntaxNodeConsumer(Tree.Kind.FILE_INPUT, ctx -> {
-      String[] lines = ctx.pythonFile().content().split("\r?\n|\r", -1);
-      for (int i = 0; i < lines.length; i++) {
-        String line = lines[i];
-        if (line.length() > maximumLineLength) {
+      LineIndex lines = LineIndex.of(ctx);
+      for (int line = 1; line <= lines.lineCount(); line++) {
+        int length = lines.lineLength(line);
+        if (length > maximumLineLength) {
           String message = MessageFormat.format("The line contains {0,number,integer} characters which is greater than {1,number,integer} authorized.",
-            line.length(), maximumLineLength);
-          ctx.addLineIssue(message, i + 1);
+            length, maximumLineLength);
+          ctx.addLineIssue(message, line);
         }
       }
     });
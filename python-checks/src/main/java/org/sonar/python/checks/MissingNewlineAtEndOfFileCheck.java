@@ -22,6 +22,7 @@ package org.sonar.python.checks;
 import org.sonar.check.Rule;
 import org.sonar.plugins.python.api.PythonSubscriptionCheck;
 import org.sonar.plugins.python.api.tree.Tree;
+import org.sonar.python.LineIndex;
 
 @Rule(key = "S113")
 public class MissingNewlineAtEndOfFileCheck extends PythonSubscriptionCheck {
@@ -30,7 +31,7 @@ public class MissingNewlineAtEndOfFileCheck extends PythonSubscriptionCheck {
   @Override
   public void initialize(Context context) {
     context.registerSyntaxNodeConsumer(Tree.Kind.FILE_INPUT, ctx -> {
-      String fileContent = ctx.pythonFile().content();
+      String fileContent = LineIndex.of(ctx).content();
       if (fileContent.length() > 0 && !fileContent.endsWith("\n") && !fileContent.endsWith("\r")) {
         ctx.addFileIssue(String.format(MESSAGE, ctx.pythonFile().fileName()));
       }
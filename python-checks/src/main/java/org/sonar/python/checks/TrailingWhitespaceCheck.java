@@ -24,6 +24,7 @@ import org.sonar.check.Rule;
 import org.sonar.plugins.python.api.IssueLocation;
 import org.sonar.plugins.python.api.PythonCheck;
 import org.sonar.plugins.python.api.PythonVisitorContext;
+import org.sonar.python.LineIndex;
 
 @Rule(key = "S1131")
 public class TrailingWhitespaceCheck implements PythonCheck {
@@ -33,10 +34,10 @@ public class TrailingWhitespaceCheck implements PythonCheck {
 
   @Override
   public void scanFile(PythonVisitorContext ctx) {
-    String[] lines = ctx.pythonFile().content().split("\r\n|\n|\r", -1);
-    for (int i = 0; i < lines.length; i++) {
-      if (TRAILING_WS.matcher(lines[i]).find()) {
-        ctx.addIssue(new PreciseIssue(this, IssueLocation.atLineLevel(MESSAGE, i + 1)));
+    LineIndex lines = LineIndex.of(ctx);
+    for (int line = 1; line <= lines.lineCount(); line++) {
+      if (TRAILING_WS.matcher(lines.line(line)).find()) {
+        ctx.addIssue(new PreciseIssue(this, IssueLocation.atLineLevel(MESSAGE, line)));
       }
     }
   }
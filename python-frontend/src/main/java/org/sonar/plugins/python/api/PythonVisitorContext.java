@@ -56,6 +56,16 @@ public class PythonVisitorContext {
     new SymbolTableBuilder(packageName, pythonFile, projectLevelSymbolTable).visitFileInput(rootTree);
   }
 
+  /**
+   * Symbols of the tree are left to the subclass.
+   */
+  protected PythonVisitorContext(FileInput rootTree, PythonFile pythonFile, @Nullable File workingDirectory) {
+    this.rootTree = rootTree;
+    this.pythonFile = pythonFile;
+    this.workingDirectory = workingDirectory;
+    this.parsingException = null;
+  }
+
   public PythonVisitorContext(PythonFile pythonFile, RecognitionException parsingException) {
     this.rootTree = null;
     this.pythonFile = pythonFile;
@@ -0,0 +1,99 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python;
+
+import com.sonar.sslr.api.RecognitionException;
+import java.io.File;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.plugins.python.api.PythonFile;
+import org.sonar.plugins.python.api.PythonVisitorContext;
+import org.sonar.plugins.python.api.SubscriptionContext;
+import org.sonar.plugins.python.api.tree.FileInput;
+import org.sonar.python.cfg.CfgCache;
+import org.sonar.python.metrics.FileComplexities;
+import org.sonar.python.semantic.ProjectLevelSymbolLookup;
+import org.sonar.python.semantic.SymbolTableBuilder;
+
+/**
+ * Context of a file analyzed by the analyzer, which also holds the results shared between the checks of the file.
+ * These results are internal: they are reached through helpers such as {@link CfgCache#of(SubscriptionContext)} or
+ * {@link LineIndex#of(PythonVisitorContext)}, not through {@link PythonVisitorContext}.
+ */
+public class AnalyzedFileContext extends PythonVisitorContext {
+
+  private final CfgCache cfgCache;
+  private LineIndex lines = null;
+  private FileComplexities complexities = null;
+
+  /**
+   * When a profiler is provided, the computation of the symbols and the type inference are measured.
+   */
+  public AnalyzedFileContext(FileInput rootTree, PythonFile pythonFile, @Nullable File workingDirectory, String packageName,
+    ProjectLevelSymbolLookup projectLevelSymbolTable, @Nullable ExecutionProfiler profiler) {
+    super(rootTree, pythonFile, workingDirectory);
+    SymbolTableBuilder symbolTableBuilder = new SymbolTableBuilder(packageName, pythonFile, projectLevelSymbolTable, profiler);
+    symbolTableBuilder.visitFileInput(rootTree);
+    this.cfgCache = symbolTableBuilder.cfgCache();
+  }
+
+  public AnalyzedFileContext(PythonFile pythonFile, RecognitionException parsingException) {
+    super(pythonFile, parsingException);
+    this.cfgCache = new CfgCache(pythonFile);
+  }
+
+  /**
+   * Returns the context of the file analyzed in {@code ctx}, or null when its results are not shared.
+   */
+  @CheckForNull
+  public static AnalyzedFileContext of(SubscriptionContext ctx) {
+    PythonVisitorContext visitorContext = SubscriptionVisitor.visitorContext(ctx);
+    return visitorContext instanceof AnalyzedFileContext ? (AnalyzedFileContext) visitorContext : null;
+  }
+
+  /**
+   * Control flow graphs and dataflow analyses of the file, shared between the checks.
+   */
+  public CfgCache cfgCache() {
+    return cfgCache;
+  }
+
+  /**
+   * Lines of the content of the file, indexed on first request and shared between the checks.
+   */
+  public LineIndex lines() {
+    if (lines == null) {
+      lines = new LineIndex(pythonFile().content());
+    }
+    return lines;
+  }
+
+  /**
+   * Complexities of the file, of its classes and of its functions, computed on first request and shared between
+   * the checks and the metrics. Null when the file cannot be parsed.
+   */
+  @CheckForNull
+  public FileComplexities complexities() {
+    if (complexities == null && rootTree() != null) {
+      complexities = FileComplexities.compute(rootTree());
+    }
+    return complexities;
+  }
+}
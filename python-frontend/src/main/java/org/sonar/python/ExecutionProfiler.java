@@ -0,0 +1,202 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.plugins.python.api.PythonCheck;
+
+/**
+ * Cumulative wall time, number of invocations and, when the JVM supports it, allocated bytes of the phases of the
+ * analysis and of the rules. Measurements can be recorded concurrently by several threads.
+ */
+public class ExecutionProfiler {
+
+  public static final String PARSE = "parse";
+  public static final String TREE = "tree";
+  public static final String SYMBOLS = "symbols";
+  public static final String TYPE_INFERENCE = "type inference";
+  public static final String METRICS = "metrics";
+  public static final String CPD = "cpd";
+  public static final String HIGHLIGHTING = "highlighting";
+
+  @Nullable
+  private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN = allocationBean();
+
+  private final Map<String, Measure> phases = new ConcurrentHashMap<>();
+  private final Map<String, Measure> rules = new ConcurrentHashMap<>();
+  private final Map<PythonCheck, String> ruleKeys = new ConcurrentHashMap<>();
+  private final Map<PythonCheck, String> checkPhases = new ConcurrentHashMap<>();
+
+  /**
+   * Rule key under which executions of the given check instance are reported.
+   */
+  public void register(PythonCheck check, String ruleKey) {
+    ruleKeys.put(check, ruleKey);
+  }
+
+  /**
+   * Phase under which executions of the given check instance are reported, for the visitors of the analyzer which
+   * are run as checks.
+   */
+  public void registerPhase(PythonCheck check, String phase) {
+    checkPhases.put(check, phase);
+  }
+
+  public void unregister(PythonCheck check) {
+    ruleKeys.remove(check);
+    checkPhases.remove(check);
+  }
+
+  public String ruleKey(PythonCheck check) {
+    return ruleKeys.getOrDefault(check, check.getClass().getName());
+  }
+
+  /**
+   * Phase of the given check, or null when its executions are reported under its rule key.
+   */
+  @CheckForNull
+  public String phase(PythonCheck check) {
+    return checkPhases.get(check);
+  }
+
+  /**
+   * Runs the execution of the given check, measured as its phase or as its rule.
+   */
+  public void measureCheck(PythonCheck check, Runnable execution) {
+    String phase = phase(check);
+    if (phase != null) {
+      measurePhase(phase, execution);
+    } else {
+      measureRule(ruleKey(check), execution);
+    }
+  }
+
+  public <T> T measurePhase(String phase, Supplier<T> execution) {
+    return measure(phases.computeIfAbsent(phase, p -> new Measure(phase)), execution);
+  }
+
+  public void measurePhase(String phase, Runnable execution) {
+    measure(phases.computeIfAbsent(phase, p -> new Measure(phase)), execution);
+  }
+
+  public void measureRule(String ruleKey, Runnable execution) {
+    measure(rules.computeIfAbsent(ruleKey, k -> new Measure(ruleKey)), execution);
+  }
+
+  /**
+   * Runs the execution, measured as the given phase if a profiler is provided.
+   */
+  public static <T> T measurePhase(@Nullable ExecutionProfiler profiler, String phase, Supplier<T> execution) {
+    return profiler == null ? execution.get() : profiler.measurePhase(phase, execution);
+  }
+
+  public static void measurePhase(@Nullable ExecutionProfiler profiler, String phase, Runnable execution) {
+    if (profiler == null) {
+      execution.run();
+    } else {
+      profiler.measurePhase(phase, execution);
+    }
+  }
+
+  private static <T> T measure(Measure measure, Supplier<T> execution) {
+    long startTime = System.nanoTime();
+    long startAllocatedBytes = allocatedBytes();
+    try {
+      return execution.get();
+    } finally {
+      measure.add(System.nanoTime() - startTime, allocatedBytes() - startAllocatedBytes);
+    }
+  }
+
+  private static void measure(Measure measure, Runnable execution) {
+    measure(measure, () -> {
+      execution.run();
+      return null;
+    });
+  }
+
+  /**
+   * Phases then rules, each sorted by decreasing cumulative time.
+   */
+  public String report() {
+    StringBuilder report = new StringBuilder();
+    appendTable(report, "Phase", phases);
+    report.append('\n');
+    appendTable(report, "Rule", rules);
+    if (ALLOCATION_BEAN == null) {
+      report.append("\nAllocated bytes are not measured by this JVM\n");
+    }
+    return report.toString();
+  }
+
+  private static void appendTable(StringBuilder report, String title, Map<String, Measure> measures) {
+    List<Measure> sorted = new ArrayList<>(measures.values());
+    sorted.sort(Comparator.comparingLong((Measure m) -> m.nanos.sum()).reversed().thenComparing(m -> m.name));
+    report.append(String.format(Locale.ENGLISH, "%-20s %12s %12s %16s%n", title, "Time (ms)", "Calls", "Allocated (KB)"));
+    for (Measure measure : sorted) {
+      report.append(String.format(Locale.ENGLISH, "%-20s %12d %12d %16d%n",
+        measure.name, measure.nanos.sum() / 1_000_000, measure.calls.sum(), measure.allocatedBytes.sum() / 1024));
+    }
+  }
+
+  private static long allocatedBytes() {
+    return ALLOCATION_BEAN == null ? 0 : ALLOCATION_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  @Nullable
+  private static com.sun.management.ThreadMXBean allocationBean() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+      if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+        return allocationBean;
+      }
+    }
+    return null;
+  }
+
+  private static class Measure {
+    private final String name;
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    private Measure(String name) {
+      this.name = name;
+    }
+
+    private void add(long elapsedNanos, long allocated) {
+      nanos.add(elapsedNanos);
+      calls.increment();
+      allocatedBytes.add(allocated);
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import org.sonar.plugins.python.api.PythonVisitorContext;
+import org.sonar.plugins.python.api.SubscriptionContext;
+
+/**
+ * Lines of the content of a file, indexed once so that they can be read without copying the content and that offsets
+ * can be converted to lines and columns. Lines are separated by "\r\n", "\n" or "\r", and the content ending with a
+ * line terminator has a last empty line, like {@code content.split("\r\n|\n|\r", -1)}.
+ * Lines are numbered from 1 and columns from 0, like tokens.
+ */
+public class LineIndex {
+
+  private final String content;
+  private final int[] lineStarts;
+  // line ends exclude the line terminators
+  private final int[] lineEnds;
+
+  public LineIndex(String content) {
+    this.content = content;
+    int[] starts = new int[16];
+    int[] ends = new int[16];
+    int count = 0;
+    int start = 0;
+    int length = content.length();
+    for (int i = 0; i < length; i++) {
+      char c = content.charAt(i);
+      if (c == '\n' || c == '\r') {
+        if (count + 1 == starts.length) {
+          starts = Arrays.copyOf(starts, starts.length * 2);
+          ends = Arrays.copyOf(ends, ends.length * 2);
+        }
+        starts[count] = start;
+        ends[count] = i;
+        count++;
+        if (c == '\r' && i + 1 < length && content.charAt(i + 1) == '\n') {
+          i++;
+        }
+        start = i + 1;
+      }
+    }
+    starts[count] = start;
+    ends[count] = length;
+    count++;
+    this.lineStarts = Arrays.copyOf(starts, count);
+    this.lineEnds = Arrays.copyOf(ends, count);
+  }
+
+  /**
+   * Returns the lines of the file analyzed in {@code ctx}, shared with the other checks of the file when possible.
+   */
+  public static LineIndex of(SubscriptionContext ctx) {
+    AnalyzedFileContext fileContext = AnalyzedFileContext.of(ctx);
+    return fileContext != null ? fileContext.lines() : new LineIndex(ctx.pythonFile().content());
+  }
+
+  /**
+   * Returns the lines of the file analyzed in {@code ctx}, shared with the other checks of the file when possible.
+   */
+  public static LineIndex of(PythonVisitorContext ctx) {
+    return ctx instanceof AnalyzedFileContext ? ((AnalyzedFileContext) ctx).lines() : new LineIndex(ctx.pythonFile().content());
+  }
+
+  public String content() {
+    return content;
+  }
+
+  public int lineCount() {
+    return lineStarts.length;
+  }
+
+  /**
+   * Characters of the line, without its terminator, as a view of the content.
+   */
+  public CharSequence line(int line) {
+    return CharBuffer.wrap(content, lineStarts[line - 1], lineEnds[line - 1]);
+  }
+
+  /**
+   * Number of characters of the line, without its terminator.
+   */
+  public int lineLength(int line) {
+    return lineEnds[line - 1] - lineStarts[line - 1];
+  }
+
+  /**
+   * Offset in the content of the first character of the line.
+   */
+  public int lineStartOffset(int line) {
+    return lineStarts[line - 1];
+  }
+
+  public int offset(int line, int column) {
+    return lineStarts[line - 1] + column;
+  }
+
+  /**
+   * Line of the character at the given offset. The terminator of a line belongs to this line.
+   */
+  public int lineOf(int offset) {
+    int index = Arrays.binarySearch(lineStarts, offset);
+    return index >= 0 ? (index + 1) : -(index + 1);
+  }
+
+  public int columnOf(int offset) {
+    return offset - lineStarts[lineOf(offset) - 1];
+  }
+}
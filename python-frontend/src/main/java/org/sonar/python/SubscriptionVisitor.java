@@ -36,6 +36,7 @@ import org.sonar.plugins.python.api.PythonCheck;
 import org.sonar.plugins.python.api.PythonFile;
 import org.sonar.plugins.python.api.PythonSubscriptionCheck;
 import org.sonar.plugins.python.api.PythonVisitorContext;
+import org.sonar.plugins.python.api.SubscriptionCheck;
 import org.sonar.plugins.python.api.SubscriptionContext;
 import org.sonar.plugins.python.api.symbols.Symbol;
 import org.sonar.plugins.python.api.tree.FileInput;
@@ -48,24 +49,58 @@ public class SubscriptionVisitor {
 
   private final EnumMap<Kind, List<SubscriptionContextImpl>> consumers = new EnumMap<>(Kind.class);
   private final PythonVisitorContext pythonVisitorContext;
+  @Nullable
+  private final ExecutionProfiler profiler;
   private Tree currentElement;
 
   public static void analyze(Collection<PythonSubscriptionCheck> checks, PythonVisitorContext pythonVisitorContext) {
-    SubscriptionVisitor subscriptionVisitor = new SubscriptionVisitor(checks, pythonVisitorContext);
+    analyze(checks, pythonVisitorContext, null);
+  }
+
+  /**
+   * When a profiler is provided, the time spent in each check is recorded under the rule key of the check, or under
+   * its phase for the visitors of the analyzer registered with {@link ExecutionProfiler#registerPhase}.
+   */
+  public static void analyze(Collection<PythonSubscriptionCheck> checks, PythonVisitorContext pythonVisitorContext, @Nullable ExecutionProfiler profiler) {
+    SubscriptionVisitor subscriptionVisitor = new SubscriptionVisitor(checks, pythonVisitorContext, profiler);
     FileInput rootTree = pythonVisitorContext.rootTree();
     if (rootTree != null) {
       subscriptionVisitor.scan(rootTree);
-      checks.forEach(PythonSubscriptionCheck::leaveFile);
+      if (profiler == null) {
+        checks.forEach(PythonSubscriptionCheck::leaveFile);
+      } else {
+        checks.forEach(check -> profiler.measureCheck(check, check::leaveFile));
+      }
+    }
+  }
+
+  /**
+   * Returns the context of the file analyzed by the visitor which created {@code ctx}, giving access to the results shared
+   * between the checks of the file. Returns null when {@code ctx} was created elsewhere.
+   */
+  @CheckForNull
+  public static PythonVisitorContext visitorContext(SubscriptionContext ctx) {
+    if (ctx instanceof SubscriptionContextImpl) {
+      return ((SubscriptionContextImpl) ctx).visitorContext();
     }
+    return null;
   }
 
-  private SubscriptionVisitor(Collection<PythonSubscriptionCheck> checks, PythonVisitorContext pythonVisitorContext) {
+  private SubscriptionVisitor(Collection<PythonSubscriptionCheck> checks, PythonVisitorContext pythonVisitorContext, @Nullable ExecutionProfiler profiler) {
     this.pythonVisitorContext = pythonVisitorContext;
+    this.profiler = profiler;
     for (PythonSubscriptionCheck check : checks) {
-      check.initialize((elementType, consumer) -> {
+      String phase = profiler == null ? null : profiler.phase(check);
+      String ruleKey = profiler == null || phase != null ? null : profiler.ruleKey(check);
+      SubscriptionCheck.Context initContext = (elementType, consumer) -> {
         List<SubscriptionContextImpl> elementConsumers = consumers.computeIfAbsent(elementType, c -> new ArrayList<>());
-        elementConsumers.add(new SubscriptionContextImpl(check, consumer));
-      });
+        elementConsumers.add(new SubscriptionContextImpl(check, consumer, phase, ruleKey));
+      };
+      if (profiler == null) {
+        check.initialize(initContext);
+      } else {
+        profiler.measureCheck(check, () -> check.initialize(initContext));
+      }
     }
   }
 
@@ -86,14 +121,30 @@ public class SubscriptionVisitor {
   private class SubscriptionContextImpl implements SubscriptionContext {
     private final PythonCheck check;
     private final Consumer<SubscriptionContext> consumer;
+    @Nullable
+    private final String phase;
+    @Nullable
+    private final String ruleKey;
 
-    SubscriptionContextImpl(PythonCheck check, Consumer<SubscriptionContext> consumer) {
+    SubscriptionContextImpl(PythonCheck check, Consumer<SubscriptionContext> consumer, @Nullable String phase, @Nullable String ruleKey) {
       this.check = check;
       this.consumer = consumer;
+      this.phase = phase;
+      this.ruleKey = ruleKey;
     }
 
     public void execute() {
-      consumer.accept(this);
+      if (profiler == null) {
+        consumer.accept(this);
+      } else if (phase != null) {
+        profiler.measurePhase(phase, () -> consumer.accept(this));
+      } else {
+        profiler.measureRule(ruleKey, () -> consumer.accept(this));
+      }
+    }
+
+    PythonVisitorContext visitorContext() {
+      return pythonVisitorContext;
     }
 
     @Override
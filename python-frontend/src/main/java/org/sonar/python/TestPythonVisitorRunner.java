@@ -63,7 +63,7 @@ public class TestPythonVisitorRunner {
     TestPythonFile pythonFile = new TestPythonFile(file);
     AstNode astNode = parser.parse(pythonFile.content());
     FileInput rootTree = new PythonTreeMaker().fileInput(astNode);
-    return new PythonVisitorContext(rootTree, pythonFile, workingDirectory, packageName, projectLevelSymbolTable);
+    return new AnalyzedFileContext(rootTree, pythonFile, workingDirectory, packageName, projectLevelSymbolTable, null);
   }
 
   public static ProjectLevelSymbolTable globalSymbols(List<File> files, File baseDir) {
@@ -33,15 +33,26 @@ public class TokenLocation {
     this.startLineOffset = token.column();
 
     String value = token.value();
-    String[] lines = value.split("\r\n|\n|\r", -1);
+    int lineCount = 0;
+    int lastLineStart = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\n' || c == '\r') {
+        if (c == '\r' && i + 1 < value.length() && value.charAt(i + 1) == '\n') {
+          i++;
+        }
+        lineCount++;
+        lastLineStart = i + 1;
+      }
+    }
 
-    if (lines.length > 1) {
-      endLine = token.line() + lines.length - 1;
-      endLineOffset = lines[lines.length - 1].length();
+    if (lineCount > 0) {
+      endLine = token.line() + lineCount;
+      endLineOffset = value.length() - lastLineStart;
 
     } else {
       this.endLine = this.startLine;
-      this.endLineOffset = this.startLineOffset + token.value().length();
+      this.endLineOffset = this.startLineOffset + value.length();
     }
   }
 
@@ -0,0 +1,120 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.cfg;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import org.sonar.plugins.python.api.PythonFile;
+import org.sonar.plugins.python.api.SubscriptionContext;
+import org.sonar.plugins.python.api.cfg.ControlFlowGraph;
+import org.sonar.plugins.python.api.symbols.Symbol;
+import org.sonar.plugins.python.api.tree.FileInput;
+import org.sonar.plugins.python.api.tree.FunctionDef;
+import org.sonar.plugins.python.api.tree.Tree;
+import org.sonar.python.AnalyzedFileContext;
+import org.sonar.python.cfg.fixpoint.DefinedVariablesAnalysis;
+import org.sonar.python.cfg.fixpoint.LiveVariablesAnalysis;
+
+/**
+ * Control flow graphs and dataflow analyses of one file, computed at most once and shared between the type inference and the checks.
+ * Not thread-safe: a file is analyzed by a single thread.
+ */
+public class CfgCache {
+
+  private final PythonFile pythonFile;
+  // null values are kept for trees whose control flow graph cannot be built
+  private final Map<Tree, ControlFlowGraph> cfgs = new IdentityHashMap<>();
+  private final Map<ControlFlowGraph, LiveVariablesAnalysis> liveVariables = new IdentityHashMap<>();
+  private final Map<ControlFlowGraph, DefinedVariablesAnalysis> definedVariables = new IdentityHashMap<>();
+  private int computations = 0;
+  private int savedComputations = 0;
+
+  public CfgCache(PythonFile pythonFile) {
+    this.pythonFile = pythonFile;
+  }
+
+  /**
+   * Returns the cache of the file analyzed in {@code ctx}, or a cache for this only context when the results
+   * of the file are not shared.
+   */
+  public static CfgCache of(SubscriptionContext ctx) {
+    AnalyzedFileContext fileContext = AnalyzedFileContext.of(ctx);
+    return fileContext != null ? fileContext.cfgCache() : new CfgCache(ctx.pythonFile());
+  }
+
+  @CheckForNull
+  public ControlFlowGraph cfg(FunctionDef functionDef) {
+    return get(cfgs, functionDef, () -> ControlFlowGraph.build(functionDef, pythonFile));
+  }
+
+  @CheckForNull
+  public ControlFlowGraph cfg(FileInput fileInput) {
+    return get(cfgs, fileInput, () -> ControlFlowGraph.build(fileInput, pythonFile));
+  }
+
+  public LiveVariablesAnalysis liveVariables(ControlFlowGraph cfg) {
+    return get(liveVariables, cfg, () -> LiveVariablesAnalysis.analyze(cfg));
+  }
+
+  /**
+   * {@code localVariables} are expected to be the local variables of the tree for which {@code cfg} was built,
+   * as the analysis is computed only for the first call on a given control flow graph.
+   */
+  public DefinedVariablesAnalysis definedVariables(ControlFlowGraph cfg, Set<Symbol> localVariables) {
+    return get(definedVariables, cfg, () -> DefinedVariablesAnalysis.analyze(cfg, localVariables));
+  }
+
+  private <K, V> V get(Map<K, V> map, K key, Supplier<V> computation) {
+    if (map.containsKey(key)) {
+      savedComputations++;
+      return map.get(key);
+    }
+    computations++;
+    V value = computation.get();
+    map.put(key, value);
+    return value;
+  }
+
+  /**
+   * Drops the cached results, keeping the counters.
+   */
+  public void clear() {
+    cfgs.clear();
+    liveVariables.clear();
+    definedVariables.clear();
+  }
+
+  /**
+   * Number of control flow graphs and dataflow analyses which have been computed.
+   */
+  public int computations() {
+    return computations;
+  }
+
+  /**
+   * Number of control flow graphs and dataflow analyses which have been requested again and taken from the cache.
+   */
+  public int savedComputations() {
+    return savedComputations;
+  }
+}
@@ -19,6 +19,7 @@
  */
 package org.sonar.python.cfg.fixpoint;
 
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -43,6 +44,11 @@ public abstract class CfgBlockState {
    */
   protected final Set<Symbol> kill = new HashSet<>();
 
+  /**
+   * 'gen' and 'kill' as bitsets over the symbols numbered by the analysis
+   */
+  protected BitSet genBits;
+  protected BitSet killBits;
 
   CfgBlockState(CfgBlock block) {
     this.block = block;
@@ -53,7 +59,7 @@ public abstract class CfgBlockState {
     return variableReadWritesPerElement.get(tree);
   }
 
-  protected void init(CfgBlock block) {
+  void init(CfgBlock block, SymbolIndex symbolIndex) {
     // 'writtenOnly' has variables that are WRITE-ONLY inside at least one element
     // (as opposed to 'kill' which can have a variable that inside an element is both READ and WRITTEN)
     Set<Symbol> writtenOnly = new HashSet<>();
@@ -63,6 +69,8 @@ public abstract class CfgBlockState {
       variableReadWritesPerElement.put(element, readWriteVisitor.symbolToUsages());
       computeGenAndKill(writtenOnly, readWriteVisitor.symbolToUsages());
     }
+    genBits = symbolIndex.bitSet(gen);
+    killBits = symbolIndex.bitSet(kill);
   }
 
   /**
@@ -19,10 +19,8 @@
  */
 package org.sonar.python.cfg.fixpoint;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import org.sonar.plugins.python.api.cfg.CfgBlock;
@@ -41,14 +39,18 @@ public class DefinedVariablesAnalysis {
   }
 
   private void compute(ControlFlowGraph cfg, Set<Symbol> localVariables) {
-    Map<Symbol, VariableDefinition> initialState = new HashMap<>();
+    // program states are represented by the bitset of the defined variables: variables which are not local are always defined
+    SymbolIndex symbolIndex = new SymbolIndex();
+    BitSet initialState = new BitSet();
     for (Symbol variable : localVariables) {
+      int index = symbolIndex.indexOf(variable);
       boolean isParameter = variable.usages().stream().anyMatch(u -> u.kind() == Usage.Kind.PARAMETER);
-      initialState.put(variable, isParameter ? VariableDefinition.DEFINED : VariableDefinition.UNDEFINED);
+      if (isParameter) {
+        initialState.set(index);
+      }
     }
-    Set<CfgBlock> blocks = cfg.blocks();
-    blocks.forEach(block -> definedVariablesPerBlock.put(block, DefinedVariables.build(block, initialState)));
-    Deque<CfgBlock> workList = new ArrayDeque<>(blocks);
+    cfg.blocks().forEach(block -> definedVariablesPerBlock.put(block, DefinedVariables.build(block, initialState, symbolIndex, localVariables)));
+    Worklist workList = Worklist.forward(cfg);
     while (!workList.isEmpty()) {
       CfgBlock currentBlock = workList.pop();
       DefinedVariables definedVariables = this.definedVariablesPerBlock.get(currentBlock);
@@ -65,69 +67,69 @@ public class DefinedVariablesAnalysis {
 
   public enum VariableDefinition {
     UNDEFINED,
-    DEFINED;
-
-    static VariableDefinition join(VariableDefinition v1, VariableDefinition v2) {
-      if (v1 == UNDEFINED && v2 == UNDEFINED) {
-        return UNDEFINED;
-      }
-      return DEFINED;
-    }
+    DEFINED
   }
 
   public static class DefinedVariables extends CfgBlockState {
 
-    private Map<Symbol, VariableDefinition> in = new HashMap<>();
+    private final BitSet in;
+
+    private final BitSet out = new BitSet();
 
-    private Map<Symbol, VariableDefinition> out = new HashMap<>();
+    private final SymbolIndex symbolIndex;
 
-    private DefinedVariables(CfgBlock block) {
+    private final Set<Symbol> localVariables;
+
+    private DefinedVariables(CfgBlock block, BitSet initialState, SymbolIndex symbolIndex, Set<Symbol> localVariables) {
       super(block);
+      this.in = (BitSet) initialState.clone();
+      this.symbolIndex = symbolIndex;
+      this.localVariables = localVariables;
     }
 
     /**
      * Builds a new DefinedVariables instance for the given block and initializes the 'kill' symbol sets.
      */
-    public static DefinedVariables build(CfgBlock block, Map<Symbol, VariableDefinition> initialState) {
-      DefinedVariables instance = new DefinedVariables(block);
-      instance.in = initialState;
-      instance.init(block);
+    static DefinedVariables build(CfgBlock block, BitSet initialState, SymbolIndex symbolIndex, Set<Symbol> localVariables) {
+      DefinedVariables instance = new DefinedVariables(block, initialState, symbolIndex, localVariables);
+      instance.init(block, symbolIndex);
       return instance;
     }
 
     /**
      * Propagates forward: first computes the in set from all predecessors, then the out set.
+     * A variable is defined as soon as it is defined in one of the predecessors, hence the join is a union.
      */
     private boolean propagate(Map<CfgBlock, DefinedVariables> definedVariablesPerBlock) {
-      block.predecessors().stream()
-        .map(definedVariablesPerBlock::get)
-        .map(DefinedVariables::getOut)
-        .forEach(predecessorOuts -> in = join(in, predecessorOuts));
-      Map<Symbol, VariableDefinition> newOut = new HashMap<>(in);
-      kill.forEach(symbol -> newOut.put(symbol, VariableDefinition.DEFINED));
-      boolean outHasChanged = !newOut.equals(out);
-      out = newOut;
-      return outHasChanged;
-    }
-
-    private static Map<Symbol, VariableDefinition> join(Map<Symbol, VariableDefinition> programState1, Map<Symbol, VariableDefinition> programState2) {
-      Map<Symbol, VariableDefinition> result = new HashMap<>();
-      Set<Symbol> allKeys = new HashSet<>(programState1.keySet());
-      allKeys.addAll(programState2.keySet());
-      for (Symbol key : allKeys) {
-        VariableDefinition varDef1 = programState1.getOrDefault(key, VariableDefinition.UNDEFINED);
-        VariableDefinition varDef2 = programState2.getOrDefault(key, VariableDefinition.UNDEFINED);
-        result.put(key, VariableDefinition.join(varDef1, varDef2));
+      for (CfgBlock predecessor : block.predecessors()) {
+        in.or(definedVariablesPerBlock.get(predecessor).out);
       }
-      return result;
+      int previousCardinality = out.cardinality();
+      out.or(in);
+      out.or(killBits);
+      // 'out' can only grow
+      return out.cardinality() != previousCardinality;
     }
 
+    /**
+     * Returns a new map on each call. Variables which are not local are only present when they are defined.
+     */
     public Map<Symbol, VariableDefinition> getIn() {
-      return in;
+      return toMap(in);
     }
 
+    /**
+     * Returns a new map on each call. Variables which are not local are only present when they are defined.
+     */
     public Map<Symbol, VariableDefinition> getOut() {
-      return out;
+      return toMap(out);
+    }
+
+    private Map<Symbol, VariableDefinition> toMap(BitSet definedVariables) {
+      Map<Symbol, VariableDefinition> result = new HashMap<>();
+      localVariables.forEach(symbol -> result.put(symbol, VariableDefinition.UNDEFINED));
+      symbolIndex.symbols(definedVariables).forEach(symbol -> result.put(symbol, VariableDefinition.DEFINED));
+      return result;
     }
   }
 }
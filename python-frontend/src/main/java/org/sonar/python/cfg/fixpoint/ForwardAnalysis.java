@@ -19,8 +19,6 @@
  */
 package org.sonar.python.cfg.fixpoint;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -43,7 +41,7 @@ public abstract class ForwardAnalysis {
     ProgramState initialState = initialState();
     Set<CfgBlock> blocks = cfg.blocks();
     blocks.forEach(block -> programStateByBlock.put(block, new ProgramStateAtBlock(block, initialState)));
-    Deque<CfgBlock> workList = new ArrayDeque<>(blocks);
+    Worklist workList = Worklist.forward(cfg);
     while (!workList.isEmpty()) {
       CfgBlock currentBlock = workList.pop();
       ProgramStateAtBlock programStateAtBlock = programStateByBlock.get(currentBlock);
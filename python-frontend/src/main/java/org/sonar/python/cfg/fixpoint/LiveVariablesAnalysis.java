@@ -19,8 +19,7 @@
  */
 package org.sonar.python.cfg.fixpoint;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -33,6 +32,7 @@ import org.sonar.plugins.python.api.symbols.Symbol;
 public class LiveVariablesAnalysis {
 
   private final Map<CfgBlock, LiveVariables> liveVariablesPerBlock = new HashMap<>();
+  private final SymbolIndex symbolIndex = new SymbolIndex();
 
   public static LiveVariablesAnalysis analyze(ControlFlowGraph cfg) {
     LiveVariablesAnalysis instance = new LiveVariablesAnalysis();
@@ -45,12 +45,13 @@ public class LiveVariablesAnalysis {
    * An alternative terminology for "kill/gen" is "def/use"
    */
   private void compute(ControlFlowGraph cfg) {
-    cfg.blocks().forEach(block -> liveVariablesPerBlock.put(block, LiveVariables.build(block)));
-    Deque<CfgBlock> workList = new ArrayDeque<>(cfg.blocks());
+    cfg.blocks().forEach(block -> liveVariablesPerBlock.put(block, LiveVariables.build(block, symbolIndex)));
+    Worklist workList = Worklist.backward(cfg);
+    BitSet newIn = new BitSet(symbolIndex.size());
     while (!workList.isEmpty()) {
       CfgBlock currentBlock = workList.pop();
       LiveVariables liveVariables = liveVariablesPerBlock.get(currentBlock);
-      boolean liveInHasChanged = liveVariables.propagate(liveVariablesPerBlock);
+      boolean liveInHasChanged = liveVariables.propagate(liveVariablesPerBlock, newIn);
       if (liveInHasChanged) {
         currentBlock.predecessors().forEach(workList::push);
       }
@@ -82,56 +83,63 @@ public class LiveVariablesAnalysis {
      * OR
      * - are needed by a successor block and are not killed in this block.
      */
-    private Set<Symbol> in = new HashSet<>();
+    private final BitSet in = new BitSet();
 
     /**
      * The Live-Out variables are variables which are needed by successors.
      */
-    private Set<Symbol> out = new HashSet<>();
+    private final BitSet out = new BitSet();
 
-    private LiveVariables(CfgBlock block) {
+    private final SymbolIndex symbolIndex;
+
+    private LiveVariables(CfgBlock block, SymbolIndex symbolIndex) {
       super(block);
+      this.symbolIndex = symbolIndex;
     }
 
     /**
      * Builds a new LiveVariables instance for the given block and initializes the 'kill' and 'gen' symbol sets.
      */
-    public static LiveVariables build(CfgBlock block) {
-      LiveVariables instance = new LiveVariables(block);
-      instance.init(block);
+    static LiveVariables build(CfgBlock block, SymbolIndex symbolIndex) {
+      LiveVariables instance = new LiveVariables(block, symbolIndex);
+      instance.init(block, symbolIndex);
       return instance;
     }
 
     /**
      * Propagates backwards: first computes the 'out' set, then the 'in' set.
+     * 'newIn' is only used as a buffer, to avoid allocating a new bitset at each iteration.
      */
-    private boolean propagate(Map<CfgBlock, LiveVariables> liveVariablesPerBlock) {
+    private boolean propagate(Map<CfgBlock, LiveVariables> liveVariablesPerBlock, BitSet newIn) {
       out.clear();
-      block.successors().stream()
-        .map(liveVariablesPerBlock::get)
-        .map(LiveVariables::getIn)
-        .forEach(out::addAll);
+      for (CfgBlock successor : block.successors()) {
+        out.or(liveVariablesPerBlock.get(successor).in);
+      }
       // in = gen + (out - kill)
-      Set<Symbol> newIn = new HashSet<>(gen);
-      newIn.addAll(difference(out, kill));
-      boolean inHasChanged = !newIn.equals(in);
-      in = newIn;
-      return inHasChanged;
-    }
-
-    private static Set<Symbol> difference(Set<Symbol> out, Set<Symbol> kill) {
-      Set<Symbol> result = new HashSet<>(out);
-      result.removeIf(kill::contains);
-      return result;
+      newIn.clear();
+      newIn.or(out);
+      newIn.andNot(killBits);
+      newIn.or(genBits);
+      if (newIn.equals(in)) {
+        return false;
+      }
+      in.clear();
+      in.or(newIn);
+      return true;
     }
 
-
+    /**
+     * Returns a new set on each call.
+     */
     public Set<Symbol> getIn() {
-      return in;
+      return symbolIndex.symbols(in);
     }
 
+    /**
+     * Returns a new set on each call.
+     */
     public Set<Symbol> getOut() {
-      return out;
+      return symbolIndex.symbols(out);
     }
   }
 }
@@ -19,14 +19,13 @@
  */
 package org.sonar.python.cfg.fixpoint;
 
-import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.sonar.plugins.python.api.PythonFile;
@@ -49,15 +48,17 @@ import static org.sonar.plugins.python.api.tree.Tree.Kind.TRY_STMT;
 /**
  * https://en.wikipedia.org/wiki/Reaching_definition
  * Data flow analysis to determinate what definitions may reach a given point in the code.
- * Program state is represented by a map where:
- *  - key is symbol
- *  - value is set of possible expressions that symbol may have been assigned to
+ * Each definition, i.e. the assignment of an expression to a symbol, is numbered: the program state is the bitset
+ * of the definitions which may reach a given point.
  */
 public class ReachingDefinitionsAnalysis {
   private final Map<CfgBlock, ProgramStateAtBlock> programStateByBlock = new HashMap<>();
   private final Map<Name, Set<Expression>> assignedExpressionByName = new HashMap<>();
   private final PythonFile pythonFile;
   private final Map<Symbol, Set<Name>> assignedNamesBySymbol = new HashMap<>();
+  private final List<Definition> definitions = new ArrayList<>();
+  private final Map<Tree, Definition> definitionByElement = new HashMap<>();
+  private final Map<Symbol, BitSet> definitionsBySymbol = new HashMap<>();
 
   public ReachingDefinitionsAnalysis(PythonFile pythonFile) {
     this.pythonFile = pythonFile;
@@ -81,11 +82,11 @@ public class ReachingDefinitionsAnalysis {
     if (cfg == null) {
       return Collections.emptySet();
     }
-    compute(cfg, enclosingFunction.localVariables());
+    compute(cfg);
     return assignedExpressionByName.getOrDefault(variable, Collections.emptySet());
   }
 
-  private Set<Expression> getAssignedExpressions(Name variable, ProgramStateAtElement programStateAtElement) {
+  private Set<Expression> getAssignedExpressions(Name variable, BitSet programState) {
     Symbol symbol = variable.symbol();
     if (symbol == null) {
       return Collections.emptySet();
@@ -96,18 +97,24 @@ public class ReachingDefinitionsAnalysis {
     if (hasMissingBindingUsage) {
       return Collections.emptySet();
     }
-    return Optional.ofNullable(programStateAtElement.out.get(symbol))
-      .orElse(Collections.emptySet());
+    BitSet symbolDefinitions = definitionsBySymbol.get(symbol);
+    if (symbolDefinitions == null) {
+      return Collections.emptySet();
+    }
+    Set<Expression> assignedExpressions = new HashSet<>();
+    for (int i = symbolDefinitions.nextSetBit(0); i >= 0; i = symbolDefinitions.nextSetBit(i + 1)) {
+      if (programState.get(i)) {
+        assignedExpressions.add(definitions.get(i).assignedValue);
+      }
+    }
+    return assignedExpressions;
   }
 
-  private void compute(ControlFlowGraph cfg, Set<Symbol> localVariables) {
-    Map<Symbol, Set<Expression>> initialState = new HashMap<>();
-    for (Symbol variable : localVariables) {
-      initialState.put(variable, new HashSet<>());
-    }
-    Set<CfgBlock> blocks = cfg.blocks();
-    blocks.forEach(block -> programStateByBlock.put(block, new ProgramStateAtBlock(block, initialState)));
-    Deque<CfgBlock> workList = new ArrayDeque<>(blocks);
+  private void compute(ControlFlowGraph cfg) {
+    // all definitions have to be known before the 'kill' sets can be computed
+    cfg.blocks().forEach(block -> block.elements().forEach(this::addDefinition));
+    cfg.blocks().forEach(block -> programStateByBlock.put(block, new ProgramStateAtBlock(block)));
+    Worklist workList = Worklist.forward(cfg);
     while (!workList.isEmpty()) {
       CfgBlock currentBlock = workList.pop();
       ProgramStateAtBlock programStateAtBlock = programStateByBlock.get(currentBlock);
@@ -121,9 +128,9 @@ public class ReachingDefinitionsAnalysis {
 
   private void updateProgramStateByElement(ControlFlowGraph cfg) {
     for (CfgBlock block : cfg.blocks()) {
-      Map<Symbol, Set<Expression>> inputState = programStateByBlock.get(block).in;
+      BitSet programState = (BitSet) programStateByBlock.get(block).in.clone();
       for (Tree element : block.elements()) {
-        ProgramStateAtElement programStateAtElement = new ProgramStateAtElement(inputState, element);
+        updateProgramState(element, programState);
         element.accept(new BaseTreeVisitor() {
           @Override
           public void visitFunctionDef(FunctionDef pyFunctionDefTree) {
@@ -131,10 +138,9 @@ public class ReachingDefinitionsAnalysis {
           }
           @Override
           public void visitName(Name name) {
-            assignedExpressionByName.put(name, getAssignedExpressions(name, programStateAtElement));
+            assignedExpressionByName.put(name, getAssignedExpressions(name, programState));
           }
         });
-        inputState = programStateAtElement.out;
       }
     }
   }
@@ -142,52 +148,47 @@ public class ReachingDefinitionsAnalysis {
   private class ProgramStateAtBlock {
 
     private final CfgBlock block;
-    private Map<Symbol, Set<Expression>> in;
-    private Map<Symbol, Set<Expression>> out = new HashMap<>();
-
-    private ProgramStateAtBlock(CfgBlock block, Map<Symbol, Set<Expression>> initialState) {
+    private final BitSet in = new BitSet();
+    private final BitSet out = new BitSet();
+    // definitions which reach the end of the block
+    private final BitSet gen = new BitSet();
+    // definitions of the symbols which are assigned in the block
+    private final BitSet kill = new BitSet();
+
+    private ProgramStateAtBlock(CfgBlock block) {
       this.block = block;
-      this.in = initialState;
-      this.block.elements().forEach(element -> updateProgramState(element, out));
+      for (Tree element : block.elements()) {
+        Definition definition = definitionByElement.get(element);
+        if (definition != null) {
+          BitSet symbolDefinitions = definitionsBySymbol.get(definition.symbol);
+          gen.andNot(symbolDefinitions);
+          gen.set(definition.index);
+          kill.or(symbolDefinitions);
+        }
+      }
     }
 
     /**
      * Propagates forward: first computes the in set from all predecessors, then the out set.
      */
     private boolean propagate() {
-      block.predecessors().forEach(predecessor -> in = join(in, programStateByBlock.get(predecessor).out));
-      Map<Symbol, Set<Expression>> newOut = new HashMap<>(in);
-      block.elements().forEach(element -> updateProgramState(element, newOut));
-      boolean outHasChanged = !newOut.equals(out);
-      out = newOut;
-      return outHasChanged;
-    }
-  }
-
-  private class ProgramStateAtElement {
-    private final Map<Symbol, Set<Expression>> out;
-
-    public ProgramStateAtElement(Map<Symbol, Set<Expression>> in, Tree element) {
-      out = join(in, Collections.emptyMap());
-      updateProgramState(element, out);
-    }
-  }
-
-  private static Map<Symbol, Set<Expression>> join(Map<Symbol, Set<Expression>> programState1, Map<Symbol, Set<Expression>> programState2) {
-    Map<Symbol, Set<Expression>> result = new HashMap<>();
-    Set<Symbol> allKeys = new HashSet<>(programState1.keySet());
-    allKeys.addAll(programState2.keySet());
-    for (Symbol key : allKeys) {
-      Set<Expression> union = new HashSet<>();
-      union.addAll(programState1.getOrDefault(key, Collections.emptySet()));
-      union.addAll(programState2.getOrDefault(key, Collections.emptySet()));
-      result.put(key, union);
+      block.predecessors().forEach(predecessor -> in.or(programStateByBlock.get(predecessor).out));
+      // out = gen + (in - kill)
+      BitSet newOut = (BitSet) in.clone();
+      newOut.andNot(kill);
+      newOut.or(gen);
+      if (newOut.equals(out)) {
+        return false;
+      }
+      out.clear();
+      out.or(newOut);
+      return true;
     }
-    return result;
   }
 
-  private void updateProgramState(Tree element, Map<Symbol, Set<Expression>> programState) {
-    if (element.is(ASSIGNMENT_STMT)) {
+  private void addDefinition(Tree element) {
+    // the same function is analyzed again when looking for the values of a name located outside of its body, e.g. in a decorator
+    if (element.is(ASSIGNMENT_STMT) && !definitionByElement.containsKey(element)) {
       AssignmentStatement assignmentStatement = (AssignmentStatement) element;
       List<Expression> lhsExpressions = assignmentStatement.lhsExpressions().stream()
         .flatMap(exprList -> exprList.expressions().stream())
@@ -201,11 +202,34 @@ public class ReachingDefinitionsAnalysis {
       }
       TreeUtils.getSymbolFromTree(lhsExpression).ifPresent(symbol -> {
         assignedNamesBySymbol.computeIfAbsent(symbol, s -> new HashSet<>()).add(((Name) lhsExpression));
-        Set<Expression> assignedValues = new HashSet<>();
-        assignedValues.add(assignmentStatement.assignedValue());
-        // performing a strong update
-        programState.put(symbol, assignedValues);
+        Definition definition = new Definition(definitions.size(), symbol, assignmentStatement.assignedValue());
+        definitions.add(definition);
+        definitionByElement.put(element, definition);
+        definitionsBySymbol.computeIfAbsent(symbol, s -> new BitSet()).set(definition.index);
       });
     }
   }
+
+  /**
+   * Performs a strong update: the definition replaces all the other definitions of the same symbol.
+   */
+  private void updateProgramState(Tree element, BitSet programState) {
+    Definition definition = definitionByElement.get(element);
+    if (definition != null) {
+      programState.andNot(definitionsBySymbol.get(definition.symbol));
+      programState.set(definition.index);
+    }
+  }
+
+  private static class Definition {
+    private final int index;
+    private final Symbol symbol;
+    private final Expression assignedValue;
+
+    private Definition(int index, Symbol symbol, Expression assignedValue) {
+      this.index = index;
+      this.symbol = symbol;
+      this.assignedValue = assignedValue;
+    }
+  }
 }
@@ -0,0 +1,117 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.cfg.fixpoint;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.sonar.plugins.python.api.cfg.CfgBlock;
+import org.sonar.plugins.python.api.cfg.ControlFlowGraph;
+
+/**
+ * Blocks waiting to be (re)visited by a dataflow analysis, each block being pending at most once.
+ * Blocks are popped following a fixed order rather than the order in which they were pushed: in reverse postorder,
+ * a forward analysis visits the predecessors of a block before the block itself (except along loop back edges), and in postorder
+ * a backward analysis visits the successors first. This usually reaches the fixpoint in very few passes over the blocks.
+ */
+class Worklist {
+
+  private final List<CfgBlock> blocks;
+  private final Map<CfgBlock, Integer> positions = new HashMap<>();
+  private final BitSet pending = new BitSet();
+
+  private Worklist(List<CfgBlock> blocks) {
+    this.blocks = blocks;
+    for (int i = 0; i < blocks.size(); i++) {
+      positions.put(blocks.get(i), i);
+    }
+    pending.set(0, blocks.size());
+  }
+
+  /**
+   * All the blocks of the graph, in reverse postorder.
+   */
+  static Worklist forward(ControlFlowGraph cfg) {
+    List<CfgBlock> order = postOrder(cfg);
+    Collections.reverse(order);
+    return new Worklist(order);
+  }
+
+  /**
+   * All the blocks of the graph, in postorder.
+   */
+  static Worklist backward(ControlFlowGraph cfg) {
+    return new Worklist(postOrder(cfg));
+  }
+
+  boolean isEmpty() {
+    return pending.isEmpty();
+  }
+
+  CfgBlock pop() {
+    int position = pending.nextSetBit(0);
+    pending.clear(position);
+    return blocks.get(position);
+  }
+
+  void push(CfgBlock block) {
+    pending.set(positions.get(block));
+  }
+
+  /**
+   * Blocks which are not reachable from the start block come first, hence last in reverse postorder.
+   */
+  private static List<CfgBlock> postOrder(ControlFlowGraph cfg) {
+    List<CfgBlock> result = new ArrayList<>(cfg.blocks().size());
+    Set<CfgBlock> unreachable = new LinkedHashSet<>(cfg.blocks());
+    Set<CfgBlock> visited = new HashSet<>();
+    Deque<CfgBlock> path = new ArrayDeque<>();
+    Deque<Iterator<CfgBlock>> remainingSuccessors = new ArrayDeque<>();
+    visited.add(cfg.start());
+    path.push(cfg.start());
+    remainingSuccessors.push(cfg.start().successors().iterator());
+    while (!path.isEmpty()) {
+      Iterator<CfgBlock> successors = remainingSuccessors.peek();
+      if (successors.hasNext()) {
+        CfgBlock successor = successors.next();
+        if (visited.add(successor)) {
+          path.push(successor);
+          remainingSuccessors.push(successor.successors().iterator());
+        }
+      } else {
+        CfgBlock block = path.pop();
+        remainingSuccessors.pop();
+        result.add(block);
+        unreachable.remove(block);
+      }
+    }
+    result.addAll(0, unreachable);
+    return result;
+  }
+}
@@ -0,0 +1,651 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.lexer;
+
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
+import com.sonar.sslr.api.Trivia;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.sonar.python.api.PythonKeyword;
+import org.sonar.python.api.PythonPunctuator;
+import org.sonar.python.api.PythonTokenType;
+
+/**
+ * Single pass lexer producing the same tokens as {@link PythonLexer}, without the overhead of the SSLR channels and
+ * of their regular expressions: the channels are tried in the same order at each position, but the candidates are
+ * selected by a table lookup on the current character and literals are matched by hand.
+ * Not thread-safe: the state of the lexer is shared by all the calls on an instance.
+ */
+public final class PythonTokenizer {
+
+  // URI of the tokens created by the SSLR lexer from a string
+  private static final URI TOKENS_URI = URI.create("tests://unittest");
+  private static final char EOF = (char) -1;
+
+  private static final int IDENTIFIER_START = 1;
+  private static final int IDENTIFIER_PART = 1 << 1;
+  private static final int DIGIT = 1 << 2;
+  private static final int SPACE = 1 << 3;
+  private static final int ASCII_LIMIT = 128;
+  private static final String DIGIT_RANGE = "0123456789";
+  private static final String OCTAL_RANGE = "01234567";
+  private static final String HEXADECIMAL_RANGE = "0123456789abcdefABCDEF";
+  private static final String BINARY_RANGE = "01";
+  private static final String ZERO_RANGE = "0";
+
+  private static final int[] ASCII_CLASSES = new int[ASCII_LIMIT];
+  private static final PythonPunctuator[][] PUNCTUATORS_BY_FIRST_CHAR = new PythonPunctuator[ASCII_LIMIT][];
+  private static final Map<String, TokenType> KEYWORDS = new HashMap<>();
+
+  static {
+    for (char c = 'a'; c <= 'z'; c++) {
+      ASCII_CLASSES[c] = IDENTIFIER_START | IDENTIFIER_PART;
+      ASCII_CLASSES[Character.toUpperCase(c)] = IDENTIFIER_START | IDENTIFIER_PART;
+    }
+    ASCII_CLASSES['_'] = IDENTIFIER_START | IDENTIFIER_PART;
+    for (char c = '0'; c <= '9'; c++) {
+      ASCII_CLASSES[c] = DIGIT | IDENTIFIER_PART;
+    }
+    for (char c : new char[] {' ', '\t', '\u000B', '\f'}) {
+      ASCII_CLASSES[c] = SPACE;
+    }
+    // longest punctuators first, as the SSLR punctuator channel
+    PythonPunctuator[] punctuators = PythonPunctuator.values();
+    Arrays.sort(punctuators, Comparator.comparingInt((PythonPunctuator punctuator) -> punctuator.getValue().length()).reversed());
+    for (PythonPunctuator punctuator : punctuators) {
+      char firstChar = punctuator.getValue().charAt(0);
+      PythonPunctuator[] sameFirstChar = PUNCTUATORS_BY_FIRST_CHAR[firstChar];
+      if (sameFirstChar == null) {
+        PUNCTUATORS_BY_FIRST_CHAR[firstChar] = new PythonPunctuator[] {punctuator};
+      } else {
+        PythonPunctuator[] extended = Arrays.copyOf(sameFirstChar, sameFirstChar.length + 1);
+        extended[sameFirstChar.length] = punctuator;
+        PUNCTUATORS_BY_FIRST_CHAR[firstChar] = extended;
+      }
+    }
+    for (PythonKeyword keyword : PythonKeyword.values()) {
+      KEYWORDS.put(keyword.getValue(), keyword);
+    }
+  }
+
+  private final LexerState lexerState;
+  private final boolean fString;
+  private final List<Trivia> trivia = new ArrayList<>();
+  private List<Token> tokens = new ArrayList<>();
+  private String source = "";
+  private int length;
+  private int position;
+  private int line;
+  private int column;
+
+  private PythonTokenizer(LexerState lexerState, boolean fString) {
+    this.lexerState = lexerState;
+    this.fString = fString;
+  }
+
+  /**
+   * Equivalent of {@link PythonLexer#create(LexerState)}.
+   */
+  public static PythonTokenizer create(LexerState lexerState) {
+    return new PythonTokenizer(lexerState, false);
+  }
+
+  /**
+   * Equivalent of {@link PythonLexer#fStringLexer(LexerState)}.
+   */
+  public static PythonTokenizer fStringTokenizer(LexerState lexerState) {
+    return new PythonTokenizer(lexerState, true);
+  }
+
+  public List<Token> lex(String source) {
+    this.source = source;
+    length = source.length();
+    position = 0;
+    line = 1;
+    column = 0;
+    tokens = new ArrayList<>();
+    trivia.clear();
+    if (fString && length > 0) {
+      line = lexerState.initialLine;
+      column = lexerState.initialColumn;
+    }
+    while (position < length) {
+      consume(source.charAt(position));
+    }
+    addToken(GenericTokenType.EOF, "EOF", line, column);
+    return tokens;
+  }
+
+  /**
+   * Lexes a whole file: the DEDENT tokens of the blocks which are still open at the end of the file are added before the EOF token.
+   */
+  public List<Token> lexFile(String source) {
+    lex(source);
+    Token eofToken = tokens.remove(tokens.size() - 1);
+    while (lexerState.indentationStack.peek() > 0) {
+      lexerState.indentationStack.pop();
+      addToken(PythonTokenType.DEDENT, "", eofToken.getLine(), eofToken.getColumn());
+    }
+    tokens.add(eofToken);
+    return tokens;
+  }
+
+  /**
+   * Tries the equivalent of each channel of {@link PythonLexer} in turn, until one of them consumes characters.
+   */
+  private void consume(char c) {
+    if (fString && consumeFStringLiteral(c)) {
+      return;
+    }
+    if (consumeNewLine(c) || consumeIndentation()) {
+      return;
+    }
+    int asciiClass = c < ASCII_LIMIT ? ASCII_CLASSES[c] : 0;
+    if ((asciiClass & SPACE) != 0) {
+      // the spaces following the first one are consumed one by one by the SSLR lexer, without any side effect
+      do {
+        position++;
+        column++;
+      } while (position < length && isSpace(source.charAt(position)));
+    } else if (c == '#') {
+      consumeComment();
+    } else if (!consumeString(c) && !consumeNumber(c) && !consumeIdentifier(c, asciiClass) && !consumePunctuator(c)) {
+      addToken(GenericTokenType.UNKNOWN_CHAR, String.valueOf(c), line, column);
+      pop();
+    }
+  }
+
+  /**
+   * See {@link FStringChannel}.
+   */
+  private boolean consumeFStringLiteral(char c) {
+    if (c == '#') {
+      addToken(GenericTokenType.UNKNOWN_CHAR, "#", line, column);
+      pop();
+      return true;
+    }
+    if (lexerState.brackets == 0) {
+      int start = position;
+      int startLine = line;
+      int startColumn = column;
+      while (charAt(0) != EOF) {
+        if (charAt(0) != '{') {
+          pop();
+        } else if (charAt(1) == '{') {
+          pop();
+          pop();
+        } else {
+          break;
+        }
+      }
+      if (position > start) {
+        addToken(GenericTokenType.UNKNOWN_CHAR, source.substring(start, position), startLine, startColumn);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * See {@link NewLineChannel}.
+   */
+  private boolean consumeNewLine(char c) {
+    if (c == '[' || c == '(' || c == '{') {
+      lexerState.brackets++;
+    } else if (c == ']' || c == ')' || c == '}') {
+      lexerState.brackets--;
+    }
+    if (c == '\\' && isNewLine(charAt(1))) {
+      // explicit line joining
+      pop();
+      consumeEOL();
+      lexerState.joined = true;
+      return true;
+    }
+    if (!isNewLine(c)) {
+      return false;
+    }
+    if (lexerState.brackets > 0) {
+      // implicit line joining
+      while (position < length && Character.isWhitespace(source.charAt(position))) {
+        pop();
+      }
+      lexerState.joined = true;
+    } else if (tokens.isEmpty() || tokens.get(tokens.size() - 1).getType() == PythonTokenType.NEWLINE) {
+      // blank line
+      consumeEOL();
+    } else {
+      tokens.add(newToken(PythonTokenType.NEWLINE, "\n", line, column).setGeneratedCode(true).build());
+      consumeEOL();
+    }
+    return true;
+  }
+
+  private void consumeEOL() {
+    if (charAt(0) == '\r' && charAt(1) == '\n') {
+      pop();
+    }
+    pop();
+  }
+
+  /**
+   * See {@link IndentationChannel}.
+   */
+  private boolean consumeIndentation() {
+    if (lexerState.joined) {
+      lexerState.joined = false;
+      return false;
+    }
+    if (column != 0) {
+      return false;
+    }
+    int whiteSpaces = 0;
+    char ch = charAt(0);
+    while (ch == ' ' || ch == '\t') {
+      whiteSpaces++;
+      ch = charAt(whiteSpaces);
+    }
+    if (ch == '\n' || ch == '\r' || ch == '#' || ch == EOF) {
+      return false;
+    }
+    int startLine = line;
+    int startColumn = column;
+    int indentationLevel = 0;
+    for (int i = 0; i < whiteSpaces; i++) {
+      indentationLevel += source.charAt(position + i) == '\t' ? (8 - indentationLevel % 8) : 1;
+    }
+    String value = source.substring(position, position + whiteSpaces);
+    position += whiteSpaces;
+    column += whiteSpaces;
+    if (indentationLevel > lexerState.indentationStack.peek()) {
+      lexerState.indentationStack.push(indentationLevel);
+      addToken(PythonTokenType.INDENT, value, startLine, startColumn);
+    } else {
+      while (indentationLevel < lexerState.indentationStack.peek()) {
+        lexerState.indentationStack.pop();
+        addToken(PythonTokenType.DEDENT, value, startLine, startColumn);
+      }
+    }
+    return whiteSpaces != 0;
+  }
+
+  private void consumeComment() {
+    int end = position + 1;
+    while (end < length && !isNewLine(source.charAt(end))) {
+      end++;
+    }
+    Token comment = newToken(GenericTokenType.COMMENT, source.substring(position, end), line, column).build();
+    trivia.add(Trivia.createComment(comment));
+    column += end - position;
+    position = end;
+  }
+
+  /**
+   * See {@link StringLiteralsChannel}, and the regular expressions channels of prefixed strings which only match
+   * when the string literals channel cannot find the end of the string.
+   */
+  private boolean consumeString(char c) {
+    int index = 0;
+    char ch = Character.toUpperCase(c);
+    if (isStringPrefix(ch)) {
+      index++;
+      ch = Character.toUpperCase(charAt(index));
+    }
+    if (isStringPrefix(ch)) {
+      index++;
+      ch = charAt(index);
+    }
+    if (ch != '\'' && ch != '"') {
+      return false;
+    }
+    int end = stringLiteralEnd(index, ch);
+    if (end < 0) {
+      end = prefixedStringEnd();
+      if (end < 0) {
+        return false;
+      }
+    }
+    int startLine = line;
+    int startColumn = column;
+    String value = source.substring(position, position + end);
+    for (int i = 0; i < end; i++) {
+      pop();
+    }
+    addToken(PythonTokenType.STRING, value, startLine, startColumn);
+    return true;
+  }
+
+  private int stringLiteralEnd(int quoteIndex, char quote) {
+    int index = quoteIndex;
+    if (isLookingOnLongString(index, quote)) {
+      index += 3;
+      while (!isLookingOnLongString(index, quote)) {
+        if (charAt(index) == EOF) {
+          return -1;
+        }
+        if (charAt(index) == '\\') {
+          index++;
+        }
+        index++;
+      }
+      return index + 3;
+    }
+    index++;
+    while (charAt(index) != quote) {
+      if (charAt(index) == EOF) {
+        return -1;
+      }
+      if (charAt(index) == '\\') {
+        index++;
+      }
+      index++;
+    }
+    return index + 1;
+  }
+
+  private boolean isLookingOnLongString(int index, char quote) {
+    return charAt(index) == quote && charAt(index + 1) == quote && charAt(index + 2) == quote;
+  }
+
+  /**
+   * Bytes and formatted strings: ([bB][Rr]?|[rR][bB]?|[fF][rR]?|[rR][fF]?) followed by a quoted string.
+   */
+  private int prefixedStringEnd() {
+    char first = charAt(0);
+    char second = charAt(1);
+    int index;
+    if (first == 'b' || first == 'B' || first == 'f' || first == 'F') {
+      index = (second == 'r' || second == 'R') ? 2 : 1;
+    } else if (first == 'r' || first == 'R') {
+      index = (second == 'b' || second == 'B' || second == 'f' || second == 'F') ? 2 : 1;
+    } else {
+      return -1;
+    }
+    char quote = charAt(index);
+    if (quote != '\'' && quote != '"') {
+      return -1;
+    }
+    index++;
+    while (position + index < length) {
+      char c = source.charAt(position + index);
+      if (c == quote) {
+        return index + 1;
+      }
+      index += c == '\\' ? 2 : 1;
+    }
+    return -1;
+  }
+
+  /**
+   * See the numbers regular expressions of {@link PythonLexer}, tried in the same order.
+   */
+  private boolean consumeNumber(char c) {
+    int end;
+    if (c == '.') {
+      end = isDigit(at(position + 1)) ? optionalImaginary(optionalExponent(digitGroups(position + 1, DIGIT_RANGE))) : -1;
+    } else if (isDigit(c)) {
+      end = integerOrFloatEnd(c);
+    } else {
+      end = -1;
+    }
+    if (end < 0) {
+      return false;
+    }
+    addToken(PythonTokenType.NUMBER, source.substring(position, end), line, column);
+    column += end - position;
+    position = end;
+    return true;
+  }
+
+  private int integerOrFloatEnd(char c) {
+    int integerEnd = digitGroups(position, DIGIT_RANGE);
+    if (at(integerEnd) == '.') {
+      return optionalImaginary(optionalExponent(digitGroups(integerEnd + 1, DIGIT_RANGE)));
+    }
+    int exponentEnd = exponentEnd(integerEnd);
+    if (exponentEnd >= 0) {
+      return optionalImaginary(exponentEnd);
+    }
+    if (isImaginarySuffix(at(integerEnd))) {
+      return integerEnd + 1;
+    }
+    if (c != '0') {
+      return optionalLong(integerEnd);
+    }
+    char second = at(position + 1);
+    int digitsStart = (second == 'o' || second == 'O') ? (position + 2) : (position + 1);
+    int end = digitGroups(digitsStart, OCTAL_RANGE);
+    if (end > digitsStart) {
+      return optionalLong(end);
+    }
+    if (second == 'x' || second == 'X' || second == 'b' || second == 'B') {
+      end = digitGroups(position + 2, (second == 'x' || second == 'X') ? HEXADECIMAL_RANGE : BINARY_RANGE);
+      if (end > position + 2) {
+        return optionalLong(end);
+      }
+    }
+    return optionalLong(digitGroups(position + 1, ZERO_RANGE));
+  }
+
+  /**
+   * (_?[digits])*+
+   */
+  private int digitGroups(int start, String digits) {
+    int index = start;
+    while (true) {
+      char c = at(index);
+      if (c == '_' && digits.indexOf(at(index + 1)) >= 0) {
+        index += 2;
+      } else if (digits.indexOf(c) >= 0) {
+        index++;
+      } else {
+        return index;
+      }
+    }
+  }
+
+  /**
+   * [Ee][+-]?+[0-9_]++
+   */
+  private int exponentEnd(int start) {
+    char c = at(start);
+    if (c != 'e' && c != 'E') {
+      return -1;
+    }
+    int index = start + 1;
+    if (at(index) == '+' || at(index) == '-') {
+      index++;
+    }
+    if (!isDigit(at(index)) && at(index) != '_') {
+      return -1;
+    }
+    while (isDigit(at(index)) || at(index) == '_') {
+      index++;
+    }
+    return index;
+  }
+
+  private int optionalExponent(int start) {
+    int end = exponentEnd(start);
+    return end < 0 ? start : end;
+  }
+
+  private int optionalImaginary(int start) {
+    return isImaginarySuffix(at(start)) ? (start + 1) : start;
+  }
+
+  private int optionalLong(int start) {
+    char c = at(start);
+    return (c == 'l' || c == 'L') ? (start + 1) : start;
+  }
+
+  private boolean consumeIdentifier(char c, int asciiClass) {
+    int end;
+    if ((asciiClass & IDENTIFIER_START) != 0) {
+      end = position + 1;
+    } else if (c >= ASCII_LIMIT && isIdentifierStart(source.codePointAt(position))) {
+      end = position + Character.charCount(source.codePointAt(position));
+    } else {
+      return false;
+    }
+    while (end < length) {
+      char next = source.charAt(end);
+      if (next < ASCII_LIMIT) {
+        if ((ASCII_CLASSES[next] & IDENTIFIER_PART) == 0) {
+          break;
+        }
+        end++;
+      } else {
+        int codePoint = source.codePointAt(end);
+        if (!isIdentifierPart(codePoint)) {
+          break;
+        }
+        end += Character.charCount(codePoint);
+      }
+    }
+    String value = source.substring(position, end);
+    TokenType keyword = KEYWORDS.get(value);
+    addToken(keyword == null ? GenericTokenType.IDENTIFIER : keyword, value, line, column);
+    column += end - position;
+    position = end;
+    return true;
+  }
+
+  private boolean consumePunctuator(char c) {
+    PythonPunctuator[] candidates = c < ASCII_LIMIT ? PUNCTUATORS_BY_FIRST_CHAR[c] : null;
+    if (candidates == null) {
+      return false;
+    }
+    for (PythonPunctuator punctuator : candidates) {
+      String value = punctuator.getValue();
+      if (source.startsWith(value, position)) {
+        addToken(punctuator, value, line, column);
+        position += value.length();
+        column += value.length();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void addToken(TokenType type, String value, int line, int column) {
+    tokens.add(newToken(type, value, line, column).build());
+  }
+
+  private Token.Builder newToken(TokenType type, String value, int line, int column) {
+    Token.Builder builder = Token.builder()
+      .setType(type)
+      .setValueAndOriginalValue(value)
+      .setURI(TOKENS_URI)
+      .setLine(line)
+      .setColumn(column);
+    if (!trivia.isEmpty() && type != GenericTokenType.COMMENT) {
+      builder.setTrivia(new ArrayList<>(trivia));
+      trivia.clear();
+    }
+    return builder;
+  }
+
+  /**
+   * Same as {@link org.sonar.sslr.channel.CodeReader#pop()}: the column is the number of characters since the start of
+   * the line, whatever they are.
+   */
+  private void pop() {
+    char c = source.charAt(position);
+    position++;
+    if (c == '\n' || (c == '\r' && (position == length || source.charAt(position) != '\n'))) {
+      line++;
+      column = 0;
+    } else {
+      column++;
+    }
+  }
+
+  /**
+   * Same as {@link org.sonar.sslr.channel.CodeReader#charAt(int)}: relative to the current position, with
+   * {@code (char) -1} after the end of the source.
+   */
+  private char charAt(int offset) {
+    return at(position + offset);
+  }
+
+  private char at(int index) {
+    return index < length ? source.charAt(index) : EOF;
+  }
+
+  private static boolean isSpace(char c) {
+    return c < ASCII_LIMIT && (ASCII_CLASSES[c] & SPACE) != 0;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isNewLine(char c) {
+    return c == '\n' || c == '\r';
+  }
+
+  private static boolean isStringPrefix(char upperCase) {
+    return upperCase == 'R' || upperCase == 'F' || upperCase == 'U' || upperCase == 'B';
+  }
+
+  private static boolean isImaginarySuffix(char c) {
+    return c == 'j' || c == 'J';
+  }
+
+  /**
+   * [\p{Lu}\p{Ll}\p{Lt}\p{Lm}\p{Lo}\p{Nl}_]
+   */
+  private static boolean isIdentifierStart(int codePoint) {
+    switch (Character.getType(codePoint)) {
+      case Character.UPPERCASE_LETTER:
+      case Character.LOWERCASE_LETTER:
+      case Character.TITLECASE_LETTER:
+      case Character.MODIFIER_LETTER:
+      case Character.OTHER_LETTER:
+      case Character.LETTER_NUMBER:
+        return true;
+      default:
+        return codePoint == '_';
+    }
+  }
+
+  /**
+   * Identifier start, or [\p{Mn}\p{Mc}\p{Nd}\p{Pc}]
+   */
+  private static boolean isIdentifierPart(int codePoint) {
+    switch (Character.getType(codePoint)) {
+      case Character.NON_SPACING_MARK:
+      case Character.COMBINING_SPACING_MARK:
+      case Character.DECIMAL_DIGIT_NUMBER:
+      case Character.CONNECTOR_PUNCTUATION:
+        return true;
+      default:
+        return isIdentifierStart(codePoint);
+    }
+  }
+}
@@ -191,7 +191,7 @@ public class CognitiveComplexityVisitor extends BaseTreeVisitor {
     incrementComplexity(secondaryLocation, 1);
   }
 
-  private void incrementComplexity(Token secondaryLocation, int currentNodeComplexity) {
+  void incrementComplexity(Token secondaryLocation, int currentNodeComplexity) {
     if (secondaryLocationConsumer != null) {
       secondaryLocationConsumer.consume(secondaryLocation, secondaryMessage(currentNodeComplexity));
     }
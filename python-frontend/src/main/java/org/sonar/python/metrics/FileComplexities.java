@@ -0,0 +1,221 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.metrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.sonar.plugins.python.api.SubscriptionContext;
+import org.sonar.plugins.python.api.tree.BinaryExpression;
+import org.sonar.plugins.python.api.tree.ClassDef;
+import org.sonar.plugins.python.api.tree.ComprehensionIf;
+import org.sonar.plugins.python.api.tree.ConditionalExpression;
+import org.sonar.plugins.python.api.tree.FileInput;
+import org.sonar.plugins.python.api.tree.ForStatement;
+import org.sonar.plugins.python.api.tree.FunctionDef;
+import org.sonar.plugins.python.api.tree.IfStatement;
+import org.sonar.plugins.python.api.tree.Token;
+import org.sonar.plugins.python.api.tree.Tree;
+import org.sonar.plugins.python.api.tree.WhileStatement;
+import org.sonar.python.AnalyzedFileContext;
+
+/**
+ * Cyclomatic complexity of a file, of each of its classes and functions, and cognitive complexity of the file and
+ * of each function which is not nested in another function, all computed in a single traversal of the file.
+ * The complexity of a tree is accumulated when leaving it and added to the enclosing class, function or file,
+ * instead of traversing the tree again for each enclosing one.
+ * Values are the same as {@link ComplexityVisitor#complexity(Tree)} and {@link CognitiveComplexityVisitor#complexity}.
+ */
+public class FileComplexities {
+
+  private final Map<Tree, Integer> complexities = new IdentityHashMap<>();
+  private final Map<Tree, Integer> cognitiveComplexities = new IdentityHashMap<>();
+  private final List<FunctionDef> functionDefs = new ArrayList<>();
+
+  private FileComplexities() {
+  }
+
+  public static FileComplexities compute(FileInput fileInput) {
+    FileComplexities fileComplexities = new FileComplexities();
+    fileComplexities.new Visitor().visit(fileInput);
+    return fileComplexities;
+  }
+
+  /**
+   * Returns the complexities of the file analyzed in {@code ctx}, shared with the other checks of the file when possible.
+   */
+  public static FileComplexities of(SubscriptionContext ctx) {
+    AnalyzedFileContext fileContext = AnalyzedFileContext.of(ctx);
+    FileComplexities sharedComplexities = fileContext != null ? fileContext.complexities() : null;
+    if (sharedComplexities != null) {
+      return sharedComplexities;
+    }
+    Tree root = ctx.syntaxNode();
+    while (root.parent() != null) {
+      root = root.parent();
+    }
+    return compute((FileInput) root);
+  }
+
+  /**
+   * Cyclomatic complexity of the file, of a class or of a function, without the functions nested in a function.
+   */
+  public int complexity(Tree tree) {
+    Integer complexity = complexities.get(tree);
+    if (complexity == null) {
+      throw new IllegalArgumentException("No complexity for tree of kind " + tree.getKind());
+    }
+    return complexity;
+  }
+
+  /**
+   * Cognitive complexity of the file or of a function which is not nested in another function.
+   */
+  public int cognitiveComplexity(Tree tree) {
+    Integer complexity = cognitiveComplexities.get(tree);
+    if (complexity == null) {
+      throw new IllegalArgumentException("No cognitive complexity for tree of kind " + tree.getKind());
+    }
+    return complexity;
+  }
+
+  /**
+   * Cyclomatic complexities of the functions of the file, in the order of their definition.
+   */
+  public List<Integer> functionComplexities() {
+    List<Integer> result = new ArrayList<>(functionDefs.size());
+    functionDefs.forEach(functionDef -> result.add(complexities.get(functionDef)));
+    return result;
+  }
+
+  private static class Scope {
+    // complexity without the nested functions, as counted for a function
+    private int own = 0;
+    // complexity including the nested functions, as counted for a class or the file
+    private int total = 0;
+
+    private void increment() {
+      own++;
+      total++;
+    }
+  }
+
+  private class Visitor extends CognitiveComplexityVisitor {
+
+    private final Deque<Scope> scopes = new ArrayDeque<>();
+    @Nullable
+    private Tree outermostFunction = null;
+
+    private Visitor() {
+      super(null);
+    }
+
+    private void visit(FileInput fileInput) {
+      scopes.push(new Scope());
+      scan(fileInput);
+      complexities.put(fileInput, scopes.pop().total);
+      cognitiveComplexities.put(fileInput, getComplexity());
+    }
+
+    @Override
+    public void visitFunctionDef(FunctionDef functionDef) {
+      functionDefs.add(functionDef);
+      boolean isOutermostFunction = outermostFunction == null;
+      if (isOutermostFunction) {
+        outermostFunction = functionDef;
+        cognitiveComplexities.put(functionDef, 0);
+      }
+      Scope scope = new Scope();
+      scope.increment();
+      scopes.push(scope);
+      super.visitFunctionDef(functionDef);
+      scopes.pop();
+      complexities.put(functionDef, scope.own);
+      scopes.peek().total += scope.total;
+      if (isOutermostFunction) {
+        outermostFunction = null;
+      }
+    }
+
+    @Override
+    public void visitClassDef(ClassDef classDef) {
+      Scope scope = new Scope();
+      scopes.push(scope);
+      super.visitClassDef(classDef);
+      scopes.pop();
+      complexities.put(classDef, scope.total);
+      Scope parent = scopes.peek();
+      parent.own += scope.own;
+      parent.total += scope.total;
+    }
+
+    @Override
+    public void visitForStatement(ForStatement forStatement) {
+      scopes.peek().increment();
+      super.visitForStatement(forStatement);
+    }
+
+    @Override
+    public void visitWhileStatement(WhileStatement whileStatement) {
+      scopes.peek().increment();
+      super.visitWhileStatement(whileStatement);
+    }
+
+    @Override
+    public void visitIfStatement(IfStatement ifStatement) {
+      if (!ifStatement.isElif()) {
+        scopes.peek().increment();
+      }
+      super.visitIfStatement(ifStatement);
+    }
+
+    @Override
+    public void visitConditionalExpression(ConditionalExpression conditionalExpression) {
+      scopes.peek().increment();
+      super.visitConditionalExpression(conditionalExpression);
+    }
+
+    @Override
+    public void visitBinaryExpression(BinaryExpression binaryExpression) {
+      if (binaryExpression.is(Tree.Kind.AND, Tree.Kind.OR)) {
+        scopes.peek().increment();
+      }
+      super.visitBinaryExpression(binaryExpression);
+    }
+
+    @Override
+    public void visitComprehensionIf(ComprehensionIf comprehensionIf) {
+      scopes.peek().increment();
+      super.visitComprehensionIf(comprehensionIf);
+    }
+
+    @Override
+    void incrementComplexity(Token secondaryLocation, int currentNodeComplexity) {
+      super.incrementComplexity(secondaryLocation, currentNodeComplexity);
+      if (outermostFunction != null) {
+        cognitiveComplexities.merge(outermostFunction, currentNodeComplexity, Integer::sum);
+      }
+    }
+  }
+}
@@ -122,10 +122,14 @@ public class FileLinesVisitor extends PythonSubscriptionCheck {
 
     if (!token.type().equals(PythonTokenType.DEDENT) && !token.type().equals(PythonTokenType.INDENT) && !token.type().equals(PythonTokenType.NEWLINE)) {
       // Handle all the lines of the token
-      String[] tokenLines = token.value().split("\n", -1);
-      int tokenLine = token.line();
-      for (int line = tokenLine; line < tokenLine + tokenLines.length; line++) {
-        linesOfCode.add(line);
+      String value = token.value();
+      int line = token.line();
+      linesOfCode.add(line);
+      for (int i = 0; i < value.length(); i++) {
+        if (value.charAt(i) == '\n') {
+          line++;
+          linesOfCode.add(line);
+        }
       }
     }
 
@@ -19,43 +19,58 @@
  */
 package org.sonar.python.metrics;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import org.sonar.plugins.python.api.PythonSubscriptionCheck;
 import org.sonar.plugins.python.api.PythonVisitorContext;
-import org.sonar.plugins.python.api.tree.FileInput;
-import org.sonar.plugins.python.api.tree.FunctionDef;
-import org.sonar.plugins.python.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.python.api.tree.Tree;
+import org.sonar.python.SubscriptionVisitor;
 
 public class FileMetrics {
 
-  private int numberOfStatements;
-  private int numberOfClasses;
-  private final ComplexityVisitor complexityVisitor = new ComplexityVisitor();
-  private final CognitiveComplexityVisitor cognitiveComplexityVisitor = new CognitiveComplexityVisitor(null);
-  private final FileLinesVisitor fileLinesVisitor;
-  private List<Integer> functionComplexities = new ArrayList<>();
+  private final FileLinesVisitor fileLinesVisitor = new FileLinesVisitor();
+  private final MetricsVisitor visitor = new MetricsVisitor();
+  private int complexity = 0;
+  private int cognitiveComplexity = 0;
+  private List<Integer> functionComplexities = Collections.emptyList();
+
+  /**
+   * The metrics are computed when {@link #visitor()} is run on the file, so that they can share the
+   * {@link SubscriptionVisitor} traversal of the file with other checks.
+   */
+  public FileMetrics() {
+    // computed by the visitor
+  }
 
   public FileMetrics(PythonVisitorContext context) {
-    FileInput fileInput = context.rootTree();
-    fileLinesVisitor = new FileLinesVisitor();
-    fileLinesVisitor.scanFile(context);
-    numberOfStatements = fileLinesVisitor.getStatements();
-    numberOfClasses = fileLinesVisitor.getClassDefs();
-    fileInput.accept(complexityVisitor);
-    fileInput.accept(cognitiveComplexityVisitor);
-    fileInput.accept(new FunctionVisitor());
+    SubscriptionVisitor.analyze(Collections.singletonList(visitor), context);
+  }
+
+  public PythonSubscriptionCheck visitor() {
+    return visitor;
   }
 
-  private class FunctionVisitor extends BaseTreeVisitor {
+  private class MetricsVisitor extends PythonSubscriptionCheck {
+
+    @Override
+    public void initialize(Context context) {
+      fileLinesVisitor.initialize(context);
+      context.registerSyntaxNodeConsumer(Tree.Kind.FILE_INPUT, ctx -> {
+        FileComplexities complexities = FileComplexities.of(ctx);
+        complexity = complexities.complexity(ctx.syntaxNode());
+        cognitiveComplexity = complexities.cognitiveComplexity(ctx.syntaxNode());
+        functionComplexities = complexities.functionComplexities();
+      });
+    }
+
     @Override
-    public void visitFunctionDef(FunctionDef pyFunctionDefTree) {
-      functionComplexities.add(ComplexityVisitor.complexity(pyFunctionDefTree));
-      super.visitFunctionDef(pyFunctionDefTree);
+    public void leaveFile() {
+      fileLinesVisitor.leaveFile();
     }
   }
 
   public int numberOfStatements() {
-    return numberOfStatements;
+    return fileLinesVisitor.getStatements();
   }
 
   public int numberOfFunctions() {
@@ -63,15 +78,15 @@ public class FileMetrics {
   }
 
   public int numberOfClasses() {
-    return numberOfClasses;
+    return fileLinesVisitor.getClassDefs();
   }
 
   public int complexity() {
-    return complexityVisitor.getComplexity();
+    return complexity;
   }
 
   public int cognitiveComplexity() {
-    return cognitiveComplexityVisitor.getComplexity();
+    return cognitiveComplexity;
   }
 
   public List<Integer> functionComplexities() {
@@ -22,24 +22,26 @@ package org.sonar.python.parser;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.Grammar;
 import com.sonar.sslr.api.Token;
-import com.sonar.sslr.impl.Lexer;
 import com.sonar.sslr.impl.Parser;
 import java.util.List;
 import org.sonar.python.api.PythonGrammar;
 import org.sonar.python.lexer.LexerState;
-import org.sonar.python.lexer.PythonLexer;
+import org.sonar.python.lexer.PythonTokenizer;
 import org.sonar.python.tree.StringElementImpl;
 import org.sonar.python.tree.TokenImpl;
 
+/**
+ * Not thread-safe: the lexer and its state are shared by all the calls on an instance.
+ */
 public class FStringParser {
 
   private final LexerState lexerState;
-  private final Lexer lexer;
+  private final PythonTokenizer lexer;
   private final Parser<Grammar> internalParser = Parser.builder(PythonGrammar.create()).build();
 
   public FStringParser() {
     this.lexerState = new LexerState();
-    this.lexer = PythonLexer.fStringLexer(lexerState);
+    this.lexer = PythonTokenizer.fStringTokenizer(lexerState);
     this.internalParser.setRootRule(internalParser.getGrammar().rule(PythonGrammar.F_STRING_CONTENT));
   }
 
@@ -47,8 +49,7 @@ public class FStringParser {
     StringElementImpl element = new StringElementImpl(new TokenImpl(fStringToken));
     String literalValue = element.trimmedQuotesValue();
     lexerState.reset(fStringToken.getLine(), fStringToken.getColumn() + element.contentStartIndex());
-    lexer.lex(literalValue);
-    List<Token> tokens = lexer.getTokens();
+    List<Token> tokens = lexer.lex(literalValue);
     AstNode astNode = internalParser.parse(tokens);
     return astNode.getChildren(PythonGrammar.FORMATTED_EXPR);
   }
@@ -22,16 +22,11 @@ package org.sonar.python.parser;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.Grammar;
 import com.sonar.sslr.api.Rule;
-import com.sonar.sslr.api.Token;
-import com.sonar.sslr.impl.Lexer;
 import com.sonar.sslr.impl.Parser;
 import com.sonar.sslr.impl.matcher.RuleDefinition;
-import java.util.ArrayList;
-import java.util.List;
 import org.sonar.python.api.PythonGrammar;
-import org.sonar.python.api.PythonTokenType;
 import org.sonar.python.lexer.LexerState;
-import org.sonar.python.lexer.PythonLexer;
+import org.sonar.python.lexer.PythonTokenizer;
 
 public final class PythonParser {
 
@@ -61,46 +56,23 @@ public final class PythonParser {
     return sslrParser.getRootRule();
   }
 
-  // We can't use com.sonar.sslr.impl.Parser directly because we need to add
-  // DEDENT tokens before the EOF token (without using SSLR deprecated preprocessor API)
-  // and we can't create a subclass of com.sonar.sslr.impl.Lexer.
-  // The only solution seems to subclass com.sonar.sslr.impl.Parser.
+  // We can't use com.sonar.sslr.impl.Parser directly because the tokens come from PythonTokenizer,
+  // which adds DEDENT tokens before the EOF token, and not from a com.sonar.sslr.impl.Lexer.
   private static class SslrPythonParser extends Parser<Grammar> {
     private final LexerState lexerState;
-    private final Lexer lexer;
+    private final PythonTokenizer lexer;
 
     private SslrPythonParser() {
       super(PythonGrammar.create());
       super.setRootRule(super.getGrammar().getRootRule());
       this.lexerState = new LexerState();
-      this.lexer = PythonLexer.create(lexerState);
+      this.lexer = PythonTokenizer.create(lexerState);
     }
 
     @Override
     public AstNode parse(String source) {
       lexerState.reset();
-      lexer.lex(source);
-      return super.parse(tokens());
-    }
-
-    private List<Token> tokens() {
-      List<Token> tokens = lexer.getTokens();
-      if (lexerState.indentationStack.peek() > 0) {
-        Token eofToken = tokens.get(tokens.size() - 1);
-        tokens = new ArrayList<>(tokens.subList(0, tokens.size() - 1));
-        while (lexerState.indentationStack.peek() > 0) {
-          lexerState.indentationStack.pop();
-          tokens.add(Token.builder()
-            .setURI(eofToken.getURI())
-            .setType(PythonTokenType.DEDENT)
-            .setLine(eofToken.getLine())
-            .setColumn(eofToken.getColumn())
-            .setValueAndOriginalValue("")
-            .build());
-        }
-        tokens.add(eofToken);
-      }
-      return tokens;
+      return super.parse(lexer.lexFile(source));
     }
   }
 
@@ -47,11 +47,11 @@ import static org.sonar.python.tree.TreeUtils.locationInFile;
 public class ClassSymbolImpl extends SymbolImpl implements ClassSymbol {
 
   private final List<Symbol> superClasses = new ArrayList<>();
-  private Set<Symbol> allSuperClasses = null;
-  private Set<Symbol> allSuperClassesIncludingAmbiguousSymbols = null;
+  private volatile Set<Symbol> allSuperClasses = null;
+  private volatile Set<Symbol> allSuperClassesIncludingAmbiguousSymbols = null;
   private boolean hasSuperClassWithoutSymbol = false;
   private final Set<Symbol> members = new HashSet<>();
-  private Map<String, Symbol> membersByName = null;
+  private volatile Map<String, Symbol> membersByName = null;
   private boolean hasAlreadyReadSuperClasses = false;
   private boolean hasAlreadyReadMembers = false;
   private boolean hasDecorators = false;
@@ -253,16 +253,20 @@ public class ClassSymbolImpl extends SymbolImpl implements ClassSymbol {
   }
 
   private Set<Symbol> allSuperClasses(boolean includeAmbiguousSymbols) {
+    // symbols coming from stub files are shared between files which may be analyzed concurrently:
+    // lazily computed sets are only published once complete
     if (!includeAmbiguousSymbols) {
       if (allSuperClasses == null) {
-        allSuperClasses = new LinkedHashSet<>();
-        exploreSuperClasses(this, allSuperClasses, false);
+        Set<Symbol> superClassesSet = new LinkedHashSet<>();
+        exploreSuperClasses(this, superClassesSet, false);
+        allSuperClasses = superClassesSet;
       }
       return allSuperClasses;
     }
     if (allSuperClassesIncludingAmbiguousSymbols == null) {
-      allSuperClassesIncludingAmbiguousSymbols = new LinkedHashSet<>();
-      exploreSuperClasses(this, allSuperClassesIncludingAmbiguousSymbols, true);
+      Set<Symbol> superClassesSet = new LinkedHashSet<>();
+      exploreSuperClasses(this, superClassesSet, true);
+      allSuperClassesIncludingAmbiguousSymbols = superClassesSet;
     }
     return allSuperClassesIncludingAmbiguousSymbols;
   }
@@ -288,7 +292,7 @@ public class ClassSymbolImpl extends SymbolImpl implements ClassSymbol {
     members.forEach(symbol -> ((SymbolImpl) symbol).removeUsages());
   }
 
-  boolean hasSuperClassWithoutSymbol() {
+  public boolean hasSuperClassWithoutSymbol() {
     return hasSuperClassWithoutSymbol;
   }
 }
@@ -108,6 +108,21 @@ public class FunctionSymbolImpl extends SymbolImpl implements FunctionSymbol {
     this.isStub = true;
   }
 
+  public FunctionSymbolImpl(String name, @Nullable String fullyQualifiedName, @Nullable LocationInFile definitionLocation, List<String> decorators,
+                            boolean hasVariadicParameter, boolean isInstanceMethod, boolean isAsynchronous, boolean hasDecorators, boolean isStub,
+                            @Nullable String annotatedReturnTypeName) {
+    super(name, fullyQualifiedName);
+    setKind(Kind.FUNCTION);
+    this.functionDefinitionLocation = definitionLocation;
+    this.decorators = decorators;
+    this.hasVariadicParameter = hasVariadicParameter;
+    this.isInstanceMethod = isInstanceMethod;
+    this.isAsynchronous = isAsynchronous;
+    this.hasDecorators = hasDecorators;
+    this.isStub = isStub;
+    this.annotatedReturnTypeName = annotatedReturnTypeName;
+  }
+
   @Override
   FunctionSymbolImpl copyWithoutUsages() {
     FunctionSymbolImpl copy = new FunctionSymbolImpl(name(), this);
@@ -178,6 +193,14 @@ public class FunctionSymbolImpl extends SymbolImpl implements FunctionSymbol {
     }
   }
 
+  public void addParameter(@Nullable String name, InferredType declaredType, boolean hasDefaultValue, boolean isVariadic,
+                           boolean isKeywordOnly, boolean isPositionalOnly, @Nullable LocationInFile location) {
+    ParameterState parameterState = new ParameterState();
+    parameterState.keywordOnly = isKeywordOnly;
+    parameterState.positionalOnly = isPositionalOnly;
+    parameters.add(new ParameterImpl(name, declaredType, hasDefaultValue, isVariadic, parameterState, location));
+  }
+
   @Override
   public List<String> decorators() {
     return decorators;
@@ -19,14 +19,15 @@
  */
 package org.sonar.python.semantic;
 
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.plugins.python.api.PythonFile;
@@ -35,10 +36,16 @@ import org.sonar.plugins.python.api.symbols.Symbol;
 import org.sonar.plugins.python.api.symbols.Usage;
 import org.sonar.plugins.python.api.tree.FileInput;
 
-public class ProjectLevelSymbolTable {
+/**
+ * Global symbols of the modules of the project. Modules are added by a single thread, in a deterministic order: symbols
+ * having the same fully qualified name are merged into ambiguous symbols whose alternatives follow that order.
+ * Once {@link #freeze() frozen}, the table can be read by several threads.
+ */
+public class ProjectLevelSymbolTable implements ProjectLevelSymbolLookup {
 
   private final Map<String, Set<Symbol>> globalSymbolsByModuleName;
-  private Map<String, Symbol> globalSymbolsByFQN;
+  private volatile FqnIndex globalSymbolsByFQN;
+  private boolean frozen = false;
 
   public static ProjectLevelSymbolTable empty() {
     return new ProjectLevelSymbolTable(Collections.emptyMap());
@@ -49,15 +56,40 @@ public class ProjectLevelSymbolTable {
   }
 
   public ProjectLevelSymbolTable() {
-    this.globalSymbolsByModuleName = new HashMap<>();
+    this.globalSymbolsByModuleName = new LinkedHashMap<>();
   }
 
   private ProjectLevelSymbolTable(Map<String, Set<Symbol>> globalSymbolsByModuleName) {
-    this.globalSymbolsByModuleName = new HashMap<>(globalSymbolsByModuleName);
+    this.globalSymbolsByModuleName = new LinkedHashMap<>(globalSymbolsByModuleName);
   }
 
   public void addModule(FileInput fileInput, String packageName, PythonFile pythonFile) {
-    SymbolTableBuilder symbolTableBuilder = new SymbolTableBuilder(packageName, pythonFile);
+    addModule(SymbolUtils.fullyQualifiedModuleName(packageName, pythonFile.fileName()), exportedSymbols(fileInput, packageName, pythonFile));
+  }
+
+  /**
+   * Adds symbols computed by {@link #exportedSymbols(FileInput, String, PythonFile)}, replacing the symbols of a
+   * module having the same name.
+   */
+  public void addModule(String fullyQualifiedModuleName, Set<Symbol> globalSymbols) {
+    if (frozen) {
+      throw new IllegalStateException("Modules cannot be added to a frozen project level symbol table");
+    }
+    // the module takes the position of the last added module, which is the order of the ambiguous symbols alternatives
+    globalSymbolsByModuleName.remove(fullyQualifiedModuleName);
+    globalSymbolsByModuleName.put(fullyQualifiedModuleName, globalSymbols);
+  }
+
+  /**
+   * Global symbols of a module which can be imported by the other modules of the project. They only depend on the
+   * given file, so that the symbols of several files can be computed concurrently. Only the declarations of the file
+   * are resolved: the symbols of the tree must be cleaned before building its complete symbol table.
+   */
+  public static Set<Symbol> exportedSymbols(FileInput fileInput, String packageName, PythonFile pythonFile) {
+    return exportedSymbols(fileInput, packageName, pythonFile, SymbolTableBuilder.declarationsOnly(packageName, pythonFile));
+  }
+
+  static Set<Symbol> exportedSymbols(FileInput fileInput, String packageName, PythonFile pythonFile, SymbolTableBuilder symbolTableBuilder) {
     String fullyQualifiedModuleName = SymbolUtils.fullyQualifiedModuleName(packageName, pythonFile.fileName());
     fileInput.accept(symbolTableBuilder);
     Set<Symbol> globalSymbols = new HashSet<>();
@@ -76,27 +108,124 @@ public class ProjectLevelSymbolTable {
         globalSymbols.add(new SymbolImpl(globalVariable.name(), fullyQualifiedModuleName + "." + globalVariable.name(), globalVariable.annotatedTypeName()));
       }
     }
-    globalSymbolsByModuleName.put(fullyQualifiedModuleName, globalSymbols);
+    return globalSymbols;
   }
 
-  private Map<String, Symbol> globalSymbolsByFQN() {
-    if (globalSymbolsByFQN == null) {
-      globalSymbolsByFQN = globalSymbolsByModuleName.values()
-        .stream()
-        .flatMap(Collection::stream)
-        .filter(symbol -> symbol.fullyQualifiedName() != null)
-        .collect(Collectors.toMap(Symbol::fullyQualifiedName, Function.identity(), AmbiguousSymbolImpl::create));
+  /**
+   * Computes the index of the symbols by fully qualified name and prevents further modifications of the table.
+   */
+  public void freeze() {
+    if (!frozen) {
+      globalSymbolsByModuleName.replaceAll((moduleName, symbols) -> Collections.unmodifiableSet(symbols));
+      frozen = true;
+      globalSymbolsByFQN = computeGlobalSymbolsByFQN();
+    }
+  }
+
+  private FqnIndex globalSymbolsByFQN() {
+    FqnIndex result = globalSymbolsByFQN;
+    if (result == null) {
+      // the table can be queried by several threads once all modules have been added
+      synchronized (this) {
+        result = globalSymbolsByFQN;
+        if (result == null) {
+          result = computeGlobalSymbolsByFQN();
+          globalSymbolsByFQN = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  private FqnIndex computeGlobalSymbolsByFQN() {
+    Map<String, Set<Symbol>> symbolsByFQN = new HashMap<>();
+    Map<String, List<String>> moduleNamesByFQN = new HashMap<>();
+    for (Map.Entry<String, Set<Symbol>> module : globalSymbolsByModuleName.entrySet()) {
+      for (Symbol symbol : module.getValue()) {
+        String fullyQualifiedName = symbol.fullyQualifiedName();
+        if (fullyQualifiedName != null) {
+          symbolsByFQN.computeIfAbsent(fullyQualifiedName, fqn -> new LinkedHashSet<>()).add(symbol);
+          List<String> moduleNames = moduleNamesByFQN.computeIfAbsent(fullyQualifiedName, fqn -> new ArrayList<>(1));
+          if (!moduleNames.contains(module.getKey())) {
+            moduleNames.add(module.getKey());
+          }
+        }
+      }
     }
-    return globalSymbolsByFQN;
+    Map<String, Symbol> result = new HashMap<>(symbolsByFQN.size());
+    symbolsByFQN.forEach((fqn, symbols) -> result.put(fqn, symbols.size() == 1 ? symbols.iterator().next() : AmbiguousSymbolImpl.create(symbols)));
+    return new FqnIndex(result, moduleNamesByFQN);
   }
 
   @CheckForNull
+  @Override
   public Symbol getSymbol(@Nullable String fullyQualifiedName) {
-    return globalSymbolsByFQN().get(fullyQualifiedName);
+    return globalSymbolsByFQN().symbols.get(fullyQualifiedName);
+  }
+
+  /**
+   * Names of the modules which provided the symbols having the given fully qualified name, in the order they were added.
+   */
+  List<String> moduleNamesOfSymbol(String fullyQualifiedName) {
+    return globalSymbolsByFQN().moduleNames.getOrDefault(fullyQualifiedName, Collections.emptyList());
   }
 
   @CheckForNull
+  @Override
   public Set<Symbol> getSymbolsFromModule(@Nullable String moduleName) {
     return globalSymbolsByModuleName.get(moduleName);
   }
+
+  /**
+   * View of this table adding to the given set the names of the modules whose symbols are looked up, whether they
+   * exist or not: a file analyzed with the view only depends on these modules of the project.
+   */
+  public ProjectLevelSymbolLookup recordingLookups(Set<String> lookedUpModules) {
+    return new RecordingSymbolLookup(this, lookedUpModules);
+  }
+
+  private static class FqnIndex {
+    private final Map<String, Symbol> symbols;
+    private final Map<String, List<String>> moduleNames;
+
+    private FqnIndex(Map<String, Symbol> symbols, Map<String, List<String>> moduleNames) {
+      this.symbols = Collections.unmodifiableMap(symbols);
+      this.moduleNames = Collections.unmodifiableMap(moduleNames);
+    }
+  }
+
+  private static class RecordingSymbolLookup implements ProjectLevelSymbolLookup {
+    private final ProjectLevelSymbolTable table;
+    private final Set<String> lookedUpModules;
+
+    private RecordingSymbolLookup(ProjectLevelSymbolTable table, Set<String> lookedUpModules) {
+      this.table = table;
+      this.lookedUpModules = lookedUpModules;
+    }
+
+    @CheckForNull
+    @Override
+    public Symbol getSymbol(@Nullable String fullyQualifiedName) {
+      if (fullyQualifiedName != null) {
+        List<String> moduleNames = table.moduleNamesOfSymbol(fullyQualifiedName);
+        if (moduleNames.isEmpty()) {
+          // only the module named by the qualifier can export a global symbol with this name
+          int lastDot = fullyQualifiedName.lastIndexOf('.');
+          lookedUpModules.add(lastDot < 0 ? "" : fullyQualifiedName.substring(0, lastDot));
+        } else {
+          lookedUpModules.addAll(moduleNames);
+        }
+      }
+      return table.getSymbol(fullyQualifiedName);
+    }
+
+    @CheckForNull
+    @Override
+    public Set<Symbol> getSymbolsFromModule(@Nullable String moduleName) {
+      if (moduleName != null) {
+        lookedUpModules.add(moduleName);
+      }
+      return table.getSymbolsFromModule(moduleName);
+    }
+  }
 }
@@ -46,7 +46,7 @@ class Scope {
   final Tree rootTree;
   private PythonFile pythonFile;
   private String fullyQualifiedModuleName;
-  private final ProjectLevelSymbolTable projectLevelSymbolTable;
+  private final ProjectLevelSymbolLookup projectLevelSymbolTable;
   private final Scope parent;
   final Map<String, Symbol> symbolsByName = new HashMap<>();
   private final Set<Symbol> symbols = new HashSet<>();
@@ -55,7 +55,7 @@ class Scope {
   private final Set<String> nonlocalNames = new HashSet<>();
   final Map<String, SymbolImpl> instanceAttributesByName = new HashMap<>();
 
-  Scope(@Nullable Scope parent, Tree rootTree, PythonFile pythonFile, String fullyQualifiedModuleName, ProjectLevelSymbolTable projectLevelSymbolTable) {
+  Scope(@Nullable Scope parent, Tree rootTree, PythonFile pythonFile, String fullyQualifiedModuleName, ProjectLevelSymbolLookup projectLevelSymbolTable) {
     this.parent = parent;
     this.rootTree = rootTree;
     this.pythonFile = pythonFile;
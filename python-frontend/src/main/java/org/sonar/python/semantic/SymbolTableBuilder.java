@@ -73,6 +73,8 @@ import org.sonar.plugins.python.api.tree.Tree;
 import org.sonar.plugins.python.api.tree.Tree.Kind;
 import org.sonar.plugins.python.api.tree.TupleParameter;
 import org.sonar.plugins.python.api.tree.WithItem;
+import org.sonar.python.ExecutionProfiler;
+import org.sonar.python.cfg.CfgCache;
 import org.sonar.python.tree.ClassDefImpl;
 import org.sonar.python.tree.ComprehensionExpressionImpl;
 import org.sonar.python.tree.DictCompExpressionImpl;
@@ -92,11 +94,15 @@ import static org.sonar.python.semantic.SymbolUtils.resolveTypeHierarchy;
 public class SymbolTableBuilder extends BaseTreeVisitor {
   private String fullyQualifiedModuleName;
   private List<String> filePath;
-  private final ProjectLevelSymbolTable projectLevelSymbolTable;
+  private final ProjectLevelSymbolLookup projectLevelSymbolTable;
   private Map<Tree, Scope> scopesByRootTree;
   private FileInput fileInput = null;
   private Set<Tree> assignmentLeftHandSides = new HashSet<>();
   private final PythonFile pythonFile;
+  private final CfgCache cfgCache;
+  @Nullable
+  private final ExecutionProfiler profiler;
+  private boolean declarationsOnly = false;
   private static final List<String> BASE_MODULES = Arrays.asList("", "typing", "typing_extensions");
 
   public SymbolTableBuilder(PythonFile pythonFile) {
@@ -104,13 +110,22 @@ public class SymbolTableBuilder extends BaseTreeVisitor {
     filePath = null;
     projectLevelSymbolTable = ProjectLevelSymbolTable.empty();
     this.pythonFile = pythonFile;
+    this.cfgCache = new CfgCache(pythonFile);
+    this.profiler = null;
   }
 
   public SymbolTableBuilder(String packageName, PythonFile pythonFile) {
     this(packageName, pythonFile, ProjectLevelSymbolTable.empty());
   }
 
-  public SymbolTableBuilder(String packageName, PythonFile pythonFile, ProjectLevelSymbolTable projectLevelSymbolTable) {
+  public SymbolTableBuilder(String packageName, PythonFile pythonFile, ProjectLevelSymbolLookup projectLevelSymbolTable) {
+    this(packageName, pythonFile, projectLevelSymbolTable, null);
+  }
+
+  /**
+   * When a profiler is provided, the computation of the symbols and the type inference are measured as separate phases.
+   */
+  public SymbolTableBuilder(String packageName, PythonFile pythonFile, ProjectLevelSymbolLookup projectLevelSymbolTable, @Nullable ExecutionProfiler profiler) {
     this.pythonFile = pythonFile;
     String fileName = pythonFile.fileName();
     fullyQualifiedModuleName = SymbolUtils.fullyQualifiedModuleName(packageName, fileName);
@@ -119,19 +134,42 @@ public class SymbolTableBuilder extends BaseTreeVisitor {
       filePath.add("");
     }
     this.projectLevelSymbolTable = projectLevelSymbolTable;
+    this.cfgCache = new CfgCache(pythonFile);
+    this.profiler = profiler;
+  }
+
+  /**
+   * Builder computing only what is needed by {@link ProjectLevelSymbolTable#exportedSymbols}: module symbols and class
+   * members are the same as with a complete symbol table, but the bodies of the functions which are not methods are
+   * not visited after the binding usages are collected, usages of class members are not recorded and types are not
+   * inferred. The symbols of the names of the tree are therefore incomplete.
+   */
+  static SymbolTableBuilder declarationsOnly(String packageName, PythonFile pythonFile) {
+    SymbolTableBuilder symbolTableBuilder = new SymbolTableBuilder(packageName, pythonFile);
+    symbolTableBuilder.declarationsOnly = true;
+    return symbolTableBuilder;
+  }
+
+  /**
+   * Control flow graphs built by the type inference, which can be reused by the checks.
+   */
+  public CfgCache cfgCache() {
+    return cfgCache;
   }
 
   @Override
   public void visitFileInput(FileInput fileInput) {
     this.fileInput = fileInput;
-    scopesByRootTree = new HashMap<>();
-    fileInput.accept(new FirstPhaseVisitor());
-    fileInput.accept(new SecondPhaseVisitor());
-    createAmbiguousSymbols();
-    addSymbolsToTree((FileInputImpl) fileInput);
-    fileInput.accept(new ThirdPhaseVisitor());
-    if (!isTypeShedFile(pythonFile)) {
-      TypeInference.inferTypes(fileInput, pythonFile);
+    ExecutionProfiler.measurePhase(profiler, ExecutionProfiler.SYMBOLS, () -> {
+      scopesByRootTree = new HashMap<>();
+      fileInput.accept(new FirstPhaseVisitor());
+      fileInput.accept(new SecondPhaseVisitor());
+      createAmbiguousSymbols();
+      addSymbolsToTree((FileInputImpl) fileInput);
+      fileInput.accept(new ThirdPhaseVisitor());
+    });
+    if (!declarationsOnly && !isTypeShedFile(pythonFile)) {
+      ExecutionProfiler.measurePhase(profiler, ExecutionProfiler.TYPE_INFERENCE, () -> TypeInference.inferTypes(fileInput, cfgCache));
     }
   }
 
@@ -246,6 +284,7 @@ public class SymbolTableBuilder extends BaseTreeVisitor {
 
     private Deque<Tree> scopeRootTrees = new LinkedList<>();
     protected Scope moduleScope;
+    private int methodDepth = 0;
 
     Tree currentScopeRootTree() {
       return scopeRootTrees.peek();
@@ -262,6 +301,20 @@ public class SymbolTableBuilder extends BaseTreeVisitor {
     Scope currentScope() {
       return scopesByRootTree.get(currentScopeRootTree());
     }
+
+    /**
+     * Binding usages of instance attributes can appear in the bodies of methods and of the functions they contain:
+     * the other function bodies don't define module symbols nor class members once binding usages are collected.
+     */
+    void scanFunctionBody(FunctionDef functionDef) {
+      boolean isMethod = functionDef.isMethodDefinition();
+      if (declarationsOnly && methodDepth == 0 && !isMethod) {
+        return;
+      }
+      methodDepth += isMethod ? 1 : 0;
+      scan(functionDef.body());
+      methodDepth -= isMethod ? 1 : 0;
+    }
   }
 
   private class FirstPhaseVisitor extends ScopeVisitor {
@@ -572,7 +625,7 @@ public class SymbolTableBuilder extends BaseTreeVisitor {
       scan(pyFunctionDefTree.name());
       scan(pyFunctionDefTree.parameters());
       scan(pyFunctionDefTree.returnTypeAnnotation());
-      scan(pyFunctionDefTree.body());
+      scanFunctionBody(pyFunctionDefTree);
       leaveScope();
     }
 
@@ -670,7 +723,7 @@ public class SymbolTableBuilder extends BaseTreeVisitor {
     }
   }
 
-  private class ThirdPhaseVisitor extends BaseTreeVisitor {
+  private class ThirdPhaseVisitor extends ScopeVisitor {
 
     @Override
     public void visitFunctionDef(FunctionDef functionDef) {
@@ -680,7 +733,11 @@ public class SymbolTableBuilder extends BaseTreeVisitor {
         FunctionSymbolImpl functionSymbolImpl = (FunctionSymbolImpl) functionSymbol;
         functionSymbolImpl.setParametersWithType(parameters);
       }
-      super.visitFunctionDef(functionDef);
+      scan(functionDef.decorators());
+      scan(functionDef.name());
+      scan(parameters);
+      scan(functionDef.returnTypeAnnotation());
+      scanFunctionBody(functionDef);
     }
 
     /**
@@ -694,6 +751,9 @@ public class SymbolTableBuilder extends BaseTreeVisitor {
     @Override
     public void visitQualifiedExpression(QualifiedExpression qualifiedExpression) {
       super.visitQualifiedExpression(qualifiedExpression);
+      if (declarationsOnly) {
+        return;
+      }
       TreeUtils.getSymbolFromTree(qualifiedExpression.qualifier())
         .filter(symbol -> symbol.kind() == Symbol.Kind.CLASS)
         .map(ClassSymbol.class::cast)
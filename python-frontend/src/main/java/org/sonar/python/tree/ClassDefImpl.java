@@ -149,6 +149,11 @@ public class ClassDefImpl extends PyTree implements ClassDef {
     instanceFields.add(field);
   }
 
+  void clearFields() {
+    classFields.clear();
+    instanceFields.clear();
+  }
+
   @Override
   public List<Tree> computeChildren() {
     return Stream.of(decorators, Arrays.asList(classKeyword, name, leftPar, args, rightPar, colon, newLine, indent, body, dedent))
@@ -88,6 +88,10 @@ public class ComprehensionExpressionImpl extends PyTree implements Comprehension
     symbols.add(symbol);
   }
 
+  void clearLocalVariableSymbols() {
+    symbols.clear();
+  }
+
   @Override
   public InferredType type() {
     switch (kind) {
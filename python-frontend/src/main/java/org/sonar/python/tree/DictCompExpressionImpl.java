@@ -99,6 +99,10 @@ public class DictCompExpressionImpl extends PyTree implements DictCompExpression
     symbols.add(symbol);
   }
 
+  void clearLocalVariableSymbols() {
+    symbols.clear();
+  }
+
   @Override
   public InferredType type() {
     return InferredTypes.DICT;
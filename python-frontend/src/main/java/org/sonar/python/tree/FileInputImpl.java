@@ -74,6 +74,10 @@ public class FileInputImpl extends PyTree implements FileInput {
     globalVariables.add(globalVariable);
   }
 
+  void clearGlobalVariables() {
+    globalVariables.clear();
+  }
+
   @Override
   public void accept(TreeVisitor visitor) {
     visitor.visitFileInput(this);
@@ -156,6 +156,11 @@ public class FunctionDefImpl extends PyTree implements FunctionDef {
     symbols.add(symbol);
   }
 
+  void clearSymbols() {
+    symbols.clear();
+    functionSymbol = null;
+  }
+
   @Override
   public Kind getKind() {
     return Kind.FUNCDEF;
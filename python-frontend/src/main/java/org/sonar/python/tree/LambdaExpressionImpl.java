@@ -84,6 +84,10 @@ public class LambdaExpressionImpl extends PyTree implements LambdaExpression {
     symbols.add(symbol);
   }
 
+  void clearLocalVariableSymbols() {
+    symbols.clear();
+  }
+
   @Override
   public Kind getKind() {
     return Kind.LAMBDA;
@@ -113,4 +113,10 @@ public class NameImpl extends PyTree implements Name {
   public void setInferredType(InferredType inferredType) {
     this.inferredType = inferredType;
   }
+
+  void clearSymbol() {
+    symbol = null;
+    usage = null;
+    inferredType = InferredTypes.anyType();
+  }
 }
@@ -28,6 +28,9 @@ public abstract class PyTree implements Tree {
   protected Token lastToken;
   private List<Tree> childs;
   private Tree parent = null;
+  // range of the tokens of this tree in the tokens of its file, see TreeUtils#tokens
+  private int firstTokenIndex = -1;
+  private int lastTokenIndex = -1;
 
   protected PyTree() {
   }
@@ -81,6 +84,25 @@ public abstract class PyTree implements Tree {
     this.parent = parent;
   }
 
+  void setTokenRange(int firstTokenIndex, int lastTokenIndex) {
+    this.firstTokenIndex = firstTokenIndex;
+    this.lastTokenIndex = lastTokenIndex;
+  }
+
+  /**
+   * Index of the first token of this tree in the tokens of its file, or -1 if the tokens of the file are not recorded.
+   */
+  int firstTokenIndex() {
+    return firstTokenIndex;
+  }
+
+  /**
+   * Index of the last token of this tree in the tokens of its file, lower than {@link #firstTokenIndex()} when the tree has no token.
+   */
+  int lastTokenIndex() {
+    return lastTokenIndex;
+  }
+
   abstract List<Tree> computeChildren();
 
   public List<Tree> children() {
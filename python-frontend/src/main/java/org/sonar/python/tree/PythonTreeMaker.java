@@ -97,7 +97,8 @@ import org.sonar.python.parser.FStringParser;
 
 public class PythonTreeMaker {
 
-  private static final FStringParser F_STRING_PARSER = new FStringParser();
+  // f-string parsers are not thread-safe: each thread building trees uses its own instance
+  private static final ThreadLocal<FStringParser> F_STRING_PARSER = ThreadLocal.withInitial(FStringParser::new);
 
 
   public FileInput fileInput(AstNode astNode) {
@@ -120,15 +121,47 @@ public class PythonTreeMaker {
     return tokens.stream().map(TokenImpl::new).collect(Collectors.toList());
   }
 
+  /**
+   * Also records the tokens of a file, in the same traversal, so that {@link TreeUtils#tokens(Tree)} returns
+   * a view of them instead of collecting the tokens of each tree again.
+   */
   public void setParents(Tree root) {
+    if (root.is(Tree.Kind.FILE_INPUT)) {
+      List<Token> tokens = new ArrayList<>();
+      setParents(root, tokens, Collections.unmodifiableList(tokens));
+      ((PyTree) root).setTokenRange(0, tokens.size() - 1);
+    } else {
+      setParents(root, null, null);
+    }
+  }
+
+  private static void setParents(Tree root, @Nullable List<Token> tokens, @Nullable List<Token> fileTokens) {
     for (Tree child : root.children()) {
       if (child != null) {
         ((PyTree) child).setParent(root);
-        setParents(child);
+        if (tokens == null) {
+          setParents(child, null, null);
+        } else if (child.is(Tree.Kind.TOKEN)) {
+          addToken((TokenImpl) child, tokens, fileTokens);
+        } else if (child.is(Tree.Kind.STRING_ELEMENT)) {
+          // the tokens of the expressions of an f-string are not tokens of the file: they are part of the string token
+          addToken((TokenImpl) child.firstToken(), tokens, fileTokens);
+          setParents(child, null, null);
+        } else {
+          int firstTokenIndex = tokens.size();
+          setParents(child, tokens, fileTokens);
+          ((PyTree) child).setTokenRange(firstTokenIndex, tokens.size() - 1);
+        }
       }
     }
   }
 
+  private static void addToken(TokenImpl token, List<Token> tokens, List<Token> fileTokens) {
+    token.setFileTokens(fileTokens);
+    token.setTokenRange(tokens.size(), tokens.size());
+    tokens.add(token);
+  }
+
   private Statement statement(StatementWithSeparator statementWithSeparator) {
     AstNode astNode = statementWithSeparator.statement();
     if (astNode.is(PythonGrammar.IF_STMT)) {
@@ -882,10 +915,7 @@ public class PythonTreeMaker {
   private Expression assignmentExpression(AstNode astNode) {
     AstNode nameNode = astNode.getFirstChild(PythonGrammar.TEST);
     Expression nameExpression = expression(nameNode);
-    if (!nameExpression.is(Tree.Kind.NAME)) {
-      int line = nameNode.getTokenLine();
-      throw new RecognitionException(line, "Parse error at line " + line + ": The left-hand side of an assignment expression must be a name.");
-    }
+    checkAssignmentExpressionTarget(nameExpression);
     Name name = (Name) nameExpression;
     AstNode operatorNode = astNode.getFirstChild(PythonPunctuator.WALRUS_OPERATOR);
     Token operatorToken = toPyToken(operatorNode.getToken());
@@ -893,6 +923,13 @@ public class PythonTreeMaker {
     return new AssignmentExpressionImpl(name, operatorToken, expression);
   }
 
+  static void checkAssignmentExpressionTarget(Expression target) {
+    if (!target.is(Tree.Kind.NAME)) {
+      int line = target.firstToken().line();
+      throw new RecognitionException(line, "Parse error at line " + line + ": The left-hand side of an assignment expression must be a name.");
+    }
+  }
+
   private Expression repr(AstNode astNode) {
     Token openingBacktick = toPyToken(astNode.getFirstChild(PythonPunctuator.BACKTICK).getToken());
     Token closingBacktick = toPyToken(astNode.getLastChild(PythonPunctuator.BACKTICK).getToken());
@@ -1140,7 +1177,7 @@ public class PythonTreeMaker {
    * Post Condition on Generator Expression: parentheses can be omitted on calls with only one argument.
    * https://docs.python.org/3/reference/expressions.html#grammar-token-generator-expression
    */
-  private static void checkGeneratorExpressionInArgument(List<Argument> arguments) {
+  static void checkGeneratorExpressionInArgument(List<Argument> arguments) {
     List<Argument> nonParenthesizedGeneratorExpressions = arguments.stream()
       .filter(arg -> arg.is(Tree.Kind.REGULAR_ARGUMENT))
       .map(RegularArgument.class::cast)
@@ -1279,7 +1316,7 @@ public class PythonTreeMaker {
       com.sonar.sslr.api.Token token = elementNode.getToken();
       StringElementImpl element = new StringElementImpl(toPyToken(token));
       if (element.isInterpolated()) {
-        F_STRING_PARSER.fStringExpressions(token).forEach(
+        F_STRING_PARSER.get().fStringExpressions(token).forEach(
           expressionNode -> element.addFormattedExpression(formattedExpression(expressionNode))
         );
       }
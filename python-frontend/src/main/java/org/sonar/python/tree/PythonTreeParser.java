@@ -0,0 +1,1664 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.tree;
+
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.TokenType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.plugins.python.api.tree.AliasedName;
+import org.sonar.plugins.python.api.tree.AnyParameter;
+import org.sonar.plugins.python.api.tree.ArgList;
+import org.sonar.plugins.python.api.tree.Argument;
+import org.sonar.plugins.python.api.tree.ComprehensionClause;
+import org.sonar.plugins.python.api.tree.ComprehensionFor;
+import org.sonar.plugins.python.api.tree.ConditionalExpression;
+import org.sonar.plugins.python.api.tree.Decorator;
+import org.sonar.plugins.python.api.tree.DictionaryLiteralElement;
+import org.sonar.plugins.python.api.tree.DottedName;
+import org.sonar.plugins.python.api.tree.ElseClause;
+import org.sonar.plugins.python.api.tree.ExceptClause;
+import org.sonar.plugins.python.api.tree.Expression;
+import org.sonar.plugins.python.api.tree.ExpressionList;
+import org.sonar.plugins.python.api.tree.FileInput;
+import org.sonar.plugins.python.api.tree.FinallyClause;
+import org.sonar.plugins.python.api.tree.FormatSpecifier;
+import org.sonar.plugins.python.api.tree.FormattedExpression;
+import org.sonar.plugins.python.api.tree.IfStatement;
+import org.sonar.plugins.python.api.tree.Name;
+import org.sonar.plugins.python.api.tree.ParameterList;
+import org.sonar.plugins.python.api.tree.Statement;
+import org.sonar.plugins.python.api.tree.StatementList;
+import org.sonar.plugins.python.api.tree.StringElement;
+import org.sonar.plugins.python.api.tree.Token;
+import org.sonar.plugins.python.api.tree.Tree;
+import org.sonar.plugins.python.api.tree.TypeAnnotation;
+import org.sonar.plugins.python.api.tree.WithItem;
+import org.sonar.plugins.python.api.tree.YieldExpression;
+import org.sonar.python.DocstringExtractor;
+import org.sonar.python.api.PythonKeyword;
+import org.sonar.python.api.PythonPunctuator;
+import org.sonar.python.api.PythonTokenType;
+import org.sonar.python.lexer.LexerState;
+import org.sonar.python.lexer.PythonTokenizer;
+import org.sonar.python.parser.PythonParser;
+
+/**
+ * Builds the strongly typed tree of a file directly from its tokens, without the intermediate {@link com.sonar.sslr.api.AstNode}
+ * tree of {@link org.sonar.python.parser.PythonParser} which is then converted by {@link PythonTreeMaker}.
+ * <p>
+ * It is a recursive descent parser of {@link org.sonar.python.api.PythonGrammar}: each rule keeps the ordered choice
+ * semantics of the grammar and builds the same tree as {@link PythonTreeMaker}. Most alternatives are selected from the
+ * next token, the parser only backtracks where alternatives share a prefix which can't be decided up front (conditional
+ * expressions, "exec" and "await" used as names and the formatted expressions of f-strings).
+ * <p>
+ * Files with syntax errors are rare: they are parsed again with the SSLR parser, which reports the error with the same
+ * {@link RecognitionException}. The checks of {@link PythonTreeMaker} are reported only once the whole file is parsed,
+ * so that syntax errors take precedence like in the SSLR pipeline. Where {@link PythonTreeMaker} fails with an unexpected
+ * exception, a {@link RecognitionException} is reported.
+ * <p>
+ * Not thread-safe: the state of the file being parsed is kept in the instance.
+ */
+public final class PythonTreeParser {
+
+  private static final ParseFailure PARSE_FAILURE = new ParseFailure();
+
+  private static final Set<String> AUGMENTED_ASSIGNMENTS = new HashSet<>(Arrays.asList(
+    "+=", "-=", "*=", "/=", "//=", "%=", "**=", ">>=", "<<=", "&=", "^=", "|=", "@="));
+  private static final Set<String> COMPARISON_OPERATORS = new HashSet<>(Arrays.asList("<", ">", "==", ">=", "<=", "!=", "<>"));
+  private static final Set<String> TERM_OPERATORS = new HashSet<>(Arrays.asList("*", "//", "/", "%", "@"));
+  private static final Set<String> EXPRESSION_FIRST_PUNCTUATORS = new HashSet<>(Arrays.asList("+", "-", "~", "(", "[", "{", "`", "."));
+
+  private final LexerState lexerState = new LexerState();
+  private final PythonTokenizer tokenizer = PythonTokenizer.create(lexerState);
+  private final LexerState fStringLexerState = new LexerState();
+  private final PythonTokenizer fStringTokenizer = PythonTokenizer.fStringTokenizer(fStringLexerState);
+
+  private List<com.sonar.sslr.api.Token> tokens;
+  private int pos;
+  private RecognitionException deferredError;
+  private boolean inClass;
+
+  // last parsed OR_TEST, which is parsed twice when a conditional expression is attempted and not found
+  private int orTestStart;
+  private int orTestEnd;
+  private Expression orTest;
+  private RecognitionException orTestError;
+
+  private PythonParser sslrParser;
+
+  public FileInput parse(String source) {
+    FileInput fileInput = parseDirectly(source);
+    if (fileInput == null) {
+      if (sslrParser == null) {
+        sslrParser = PythonParser.create();
+      }
+      return new PythonTreeMaker().fileInput(sslrParser.parse(source));
+    }
+    return fileInput;
+  }
+
+  /**
+   * Returns null when the file has a syntax error.
+   */
+  @CheckForNull
+  FileInput parseDirectly(String source) {
+    lexerState.reset();
+    tokens = tokenizer.lexFile(source);
+    pos = 0;
+    deferredError = null;
+    inClass = false;
+    orTestStart = -1;
+    try {
+      FileInput fileInput = fileInput();
+      if (deferredError != null) {
+        throw deferredError;
+      }
+      new PythonTreeMaker().setParents(fileInput);
+      return fileInput;
+    } catch (ParseFailure e) {
+      return null;
+    } finally {
+      tokens = null;
+      deferredError = null;
+      orTest = null;
+      orTestError = null;
+    }
+  }
+
+  private FileInput fileInput() {
+    List<Statement> statements = new ArrayList<>();
+    while (!atType(GenericTokenType.EOF)) {
+      if (atType(PythonTokenType.NEWLINE)) {
+        pos++;
+      } else {
+        statement(statements);
+      }
+    }
+    StatementListImpl statementList = statements.isEmpty() ? null : new StatementListImpl(statements);
+    return new FileInputImpl(statementList, consumeToken(), DocstringExtractor.extractDocstring(statementList));
+  }
+
+  // Statements
+
+  private void statement(List<Statement> statements) {
+    Statement compoundStatement = compoundStatement();
+    if (compoundStatement != null) {
+      statements.add(compoundStatement);
+    } else {
+      simpleStatements(statements);
+    }
+  }
+
+  @CheckForNull
+  private Statement compoundStatement() {
+    switch (tokens.get(pos).getValue()) {
+      case "if":
+        return ifStatement();
+      case "while":
+        return whileStatement();
+      case "for":
+        return forStatement(null);
+      case "try":
+        return tryStatement();
+      case "with":
+        return withStatement(null);
+      case "def":
+        return functionDef(Collections.emptyList());
+      case "class":
+        return classDef(Collections.emptyList());
+      case "@":
+        return decorated();
+      case "async":
+        return asyncStatement();
+      default:
+        return null;
+    }
+  }
+
+  @CheckForNull
+  private Statement asyncStatement() {
+    if (at(1, "def")) {
+      return functionDef(Collections.emptyList());
+    }
+    if (at(1, "with")) {
+      return withStatement(consumeToken());
+    }
+    if (at(1, "for")) {
+      return forStatement(consumeToken());
+    }
+    return null;
+  }
+
+  private void simpleStatements(List<Statement> statements) {
+    do {
+      statements.add(simpleStatement());
+      // the statement ends with a semicolon which is not the last token of the line: another statement follows
+    } while (";".equals(tokens.get(pos - 1).getValue()) && !atType(GenericTokenType.EOF) && !atType(PythonTokenType.DEDENT));
+  }
+
+  private Statement simpleStatement() {
+    switch (tokens.get(pos).getValue()) {
+      case "print":
+        if (!at(1, "=") && !at(1, "(")) {
+          return printStatement();
+        }
+        break;
+      case "exec":
+        if (!at(1, "(")) {
+          Statement execStatement = execStatement();
+          if (execStatement != null) {
+            return execStatement;
+          }
+        }
+        break;
+      case "assert":
+        return assertStatement();
+      case "pass":
+        return new PassStatementImpl(consumeToken(), separators());
+      case "del":
+        return delStatement();
+      case "return":
+        return returnStatement();
+      case "yield":
+        return new YieldStatementImpl(yieldExpression(), separators());
+      case "raise":
+        return raiseStatement();
+      case "break":
+        return new BreakStatementImpl(consumeToken(), separators());
+      case "continue":
+        return new ContinueStatementImpl(consumeToken(), separators());
+      case "import":
+        return importName();
+      case "from":
+        return importFrom();
+      case "global":
+        return new GlobalStatementImpl(consumeToken(), variables(), separators());
+      case "nonlocal":
+        return new NonlocalStatementImpl(consumeToken(), variables(), separators());
+      default:
+        break;
+    }
+    return expressionStatement();
+  }
+
+  private Separators separators() {
+    Token separator = at(";") ? consumeToken() : null;
+    if (separator != null && !atLineEnd()) {
+      return new Separators(separator, null);
+    }
+    if (atType(PythonTokenType.NEWLINE)) {
+      return new Separators(separator, consumeToken());
+    }
+    if (atType(GenericTokenType.EOF) || atType(PythonTokenType.DEDENT)) {
+      return new Separators(separator, null);
+    }
+    throw failure();
+  }
+
+  private boolean atLineEnd() {
+    return atType(PythonTokenType.NEWLINE) || atType(GenericTokenType.EOF) || atType(PythonTokenType.DEDENT);
+  }
+
+  private Statement printStatement() {
+    Token printKeyword = consumeToken();
+    List<Expression> expressions = new ArrayList<>();
+    if (at(">>")) {
+      pos++;
+      expressions.add(test());
+      int count = 0;
+      while (at(",") && startsTest(1)) {
+        pos++;
+        expressions.add(test());
+        count++;
+      }
+      if (count > 0 && at(",")) {
+        pos++;
+      }
+    } else if (startsTest(0)) {
+      expressions.add(test());
+      while (at(",")) {
+        pos++;
+        if (!startsTest(0)) {
+          break;
+        }
+        expressions.add(test());
+      }
+    }
+    return new PrintStatementImpl(printKeyword, expressions, separators());
+  }
+
+  @CheckForNull
+  private Statement execStatement() {
+    int start = pos;
+    RecognitionException previousDeferredError = deferredError;
+    Token execKeyword = consumeToken();
+    Expression expression;
+    try {
+      expression = expr();
+    } catch (ParseFailure e) {
+      // "exec" is a name
+      pos = start;
+      deferredError = previousDeferredError;
+      return null;
+    }
+    if (!at("in")) {
+      return new ExecStatementImpl(execKeyword, expression, separators());
+    }
+    Token inKeyword = consumeToken();
+    Expression globals = test();
+    Token comma = null;
+    Expression locals = null;
+    if (at(",")) {
+      comma = consumeToken();
+      locals = test();
+    }
+    return new ExecStatementImpl(execKeyword, expression, inKeyword, globals, comma, locals, separators());
+  }
+
+  private Statement assertStatement() {
+    Token assertKeyword = consumeToken();
+    Expression condition = test();
+    Expression message = null;
+    if (at(",")) {
+      pos++;
+      message = test();
+    }
+    return new AssertStatementImpl(assertKeyword, condition, message, separators());
+  }
+
+  private Statement delStatement() {
+    Token delKeyword = consumeToken();
+    return new DelStatementImpl(delKeyword, exprList().expressions(), separators());
+  }
+
+  private Statement returnStatement() {
+    Token returnKeyword = consumeToken();
+    List<Expression> expressions = startsTestOrStar(0) ? testListStarExpr().expressions() : Collections.emptyList();
+    return new ReturnStatementImpl(returnKeyword, expressions, separators());
+  }
+
+  private Statement raiseStatement() {
+    Token raiseKeyword = consumeToken();
+    List<Expression> expressions = new ArrayList<>();
+    Token fromKeyword = null;
+    Expression fromExpression = null;
+    if (startsTest(0)) {
+      expressions.add(test());
+      if (at("from")) {
+        fromKeyword = consumeToken();
+        fromExpression = test();
+      } else if (at(",")) {
+        pos++;
+        expressions.add(test());
+        if (at(",")) {
+          pos++;
+          expressions.add(test());
+        }
+      }
+    }
+    return new RaiseStatementImpl(raiseKeyword, expressions, fromKeyword, fromExpression, separators());
+  }
+
+  private Statement importName() {
+    Token importKeyword = consumeToken();
+    List<AliasedName> aliasedNames = new ArrayList<>();
+    aliasedNames.add(aliasedName(dottedName()));
+    while (at(",")) {
+      pos++;
+      aliasedNames.add(aliasedName(dottedName()));
+    }
+    return new ImportNameImpl(importKeyword, aliasedNames, separators());
+  }
+
+  private Statement importFrom() {
+    Token fromKeyword = consumeToken();
+    List<Token> dottedPrefixForModule = new ArrayList<>();
+    while (at(".")) {
+      dottedPrefixForModule.add(consumeToken());
+    }
+    DottedName moduleName = null;
+    if (dottedPrefixForModule.isEmpty() || atType(GenericTokenType.IDENTIFIER)) {
+      moduleName = dottedName();
+    }
+    Token importKeyword = expect("import");
+    List<AliasedName> aliasedNames = null;
+    Token wildcard = null;
+    if (at("*")) {
+      wildcard = consumeToken();
+    } else if (at("(")) {
+      pos++;
+      aliasedNames = importAsNames();
+      expect(")");
+    } else {
+      aliasedNames = importAsNames();
+    }
+    return new ImportFromImpl(fromKeyword, dottedPrefixForModule, moduleName, importKeyword, aliasedNames, wildcard, separators());
+  }
+
+  private List<AliasedName> importAsNames() {
+    List<AliasedName> aliasedNames = new ArrayList<>();
+    aliasedNames.add(aliasedName(new DottedNameImpl(Collections.singletonList(name(false)))));
+    while (at(",")) {
+      pos++;
+      if (!atType(GenericTokenType.IDENTIFIER)) {
+        break;
+      }
+      aliasedNames.add(aliasedName(new DottedNameImpl(Collections.singletonList(name(false)))));
+    }
+    return aliasedNames;
+  }
+
+  private AliasedName aliasedName(DottedName dottedName) {
+    if (at("as")) {
+      Token asKeyword = consumeToken();
+      return new AliasedNameImpl(asKeyword, dottedName, name(false));
+    }
+    return new AliasedNameImpl(dottedName);
+  }
+
+  private DottedName dottedName() {
+    List<Name> names = new ArrayList<>();
+    names.add(name(false));
+    while (at(".")) {
+      pos++;
+      names.add(name(false));
+    }
+    return new DottedNameImpl(names);
+  }
+
+  private List<Name> variables() {
+    List<Name> variables = new ArrayList<>();
+    variables.add(name(true));
+    while (at(",")) {
+      pos++;
+      variables.add(name(true));
+    }
+    return variables;
+  }
+
+  private Statement expressionStatement() {
+    ExpressionListImpl expressions = testListStarExpr();
+    if (at(":")) {
+      Token colon = consumeToken();
+      TypeAnnotation annotation = new TypeAnnotationImpl(colon, test(), Tree.Kind.VARIABLE_TYPE_ANNOTATION);
+      Token equalToken = null;
+      Expression assignedValue = null;
+      if (at("=")) {
+        equalToken = consumeToken();
+        assignedValue = test();
+      }
+      return new AnnotatedAssignmentImpl(exprListOrTestList(expressions), annotation, equalToken, assignedValue, separators());
+    }
+    if (AUGMENTED_ASSIGNMENTS.contains(tokens.get(pos).getValue())) {
+      Token augAssignToken = consumeToken();
+      Expression rhsExpression = at("yield") ? yieldExpression() : exprListOrTestList(testList());
+      return new CompoundAssignmentStatementImpl(exprListOrTestList(expressions), augAssignToken, rhsExpression, separators());
+    }
+    if (!at("=")) {
+      return new ExpressionStatementImpl(expressions.expressions(), separators());
+    }
+    List<Token> assignTokens = new ArrayList<>();
+    List<ExpressionList> lhsExpressions = new ArrayList<>();
+    Expression assignedValue = null;
+    ExpressionListImpl assignedExpressions = expressions;
+    while (at("=")) {
+      assignTokens.add(consumeToken());
+      lhsExpressions.add(assignedValue != null ? new ExpressionListImpl(Collections.singletonList(assignedValue), Collections.emptyList()) : assignedExpressions);
+      if (at("yield")) {
+        assignedValue = yieldExpression();
+      } else {
+        assignedValue = null;
+        assignedExpressions = testListStarExpr();
+      }
+    }
+    if (assignedValue == null) {
+      assignedValue = exprListOrTestList(assignedExpressions);
+    }
+    return new AssignmentStatementImpl(assignTokens, lhsExpressions, assignedValue, separators());
+  }
+
+  private IfStatement ifStatement() {
+    Token ifKeyword = consumeToken();
+    Expression condition = namedExprTest();
+    Token colon = expect(":");
+    Suite suite = suite();
+    List<IfStatement> elifBranches = new ArrayList<>();
+    while (at("elif")) {
+      Token elifKeyword = consumeToken();
+      Expression elifCondition = namedExprTest();
+      Token elifColon = expect(":");
+      Suite elifSuite = suite();
+      elifBranches.add(new IfStatementImpl(elifKeyword, elifCondition, elifColon, elifSuite.newLine, elifSuite.indent, elifSuite.body, elifSuite.dedent));
+    }
+    ElseClause elseClause = at("else") ? elseClause() : null;
+    return new IfStatementImpl(ifKeyword, condition, colon, suite.newLine, suite.indent, suite.body, suite.dedent, elifBranches, elseClause);
+  }
+
+  private Statement whileStatement() {
+    Token whileKeyword = consumeToken();
+    Expression condition = namedExprTest();
+    Token colon = expect(":");
+    Suite suite = suite();
+    ElseClause elseClause = at("else") ? elseClause() : null;
+    return new WhileStatementImpl(whileKeyword, condition, colon, suite.newLine, suite.indent, suite.body, suite.dedent, elseClause);
+  }
+
+  private Statement forStatement(@Nullable Token asyncKeyword) {
+    Token forKeyword = consumeToken();
+    List<Expression> expressions = exprList().expressions();
+    Token inKeyword = expect("in");
+    List<Expression> testExpressions = testList().expressions();
+    Token colon = expect(":");
+    Suite suite = suite();
+    ElseClause elseClause = at("else") ? elseClause() : null;
+    return new ForStatementImpl(forKeyword, expressions, inKeyword, testExpressions, colon, suite.newLine, suite.indent, suite.body, suite.dedent,
+      elseClause, asyncKeyword);
+  }
+
+  private ElseClause elseClause() {
+    Token elseKeyword = consumeToken();
+    Token colon = expect(":");
+    Suite suite = suite();
+    return new ElseClauseImpl(elseKeyword, colon, suite.newLine, suite.indent, suite.body, suite.dedent);
+  }
+
+  private Statement tryStatement() {
+    Token tryKeyword = consumeToken();
+    Token colon = expect(":");
+    Suite suite = suite();
+    List<ExceptClause> exceptClauses = new ArrayList<>();
+    ElseClause elseClause = null;
+    FinallyClause finallyClause = null;
+    if (at("except")) {
+      do {
+        exceptClauses.add(exceptClause());
+      } while (at("except"));
+      if (at("else")) {
+        elseClause = elseClause();
+      }
+      if (at("finally")) {
+        finallyClause = finallyClause();
+      }
+    } else if (at("finally")) {
+      finallyClause = finallyClause();
+    } else {
+      throw failure();
+    }
+    return new TryStatementImpl(tryKeyword, colon, suite.newLine, suite.indent, suite.body, suite.dedent, exceptClauses, finallyClause, elseClause);
+  }
+
+  private ExceptClause exceptClause() {
+    Token exceptKeyword = consumeToken();
+    Expression exception = null;
+    Token asKeyword = null;
+    Token comma = null;
+    Expression exceptionInstance = null;
+    if (startsTest(0)) {
+      exception = test();
+      if (at("as")) {
+        asKeyword = consumeToken();
+        exceptionInstance = test();
+      } else if (at(",")) {
+        comma = consumeToken();
+        exceptionInstance = test();
+      }
+    }
+    Token colon = expect(":");
+    Suite suite = suite();
+    if (exception == null) {
+      return new ExceptClauseImpl(exceptKeyword, colon, suite.newLine, suite.indent, suite.body, suite.dedent);
+    }
+    if (exceptionInstance == null) {
+      return new ExceptClauseImpl(exceptKeyword, colon, suite.newLine, suite.indent, suite.body, suite.dedent, exception);
+    }
+    return new ExceptClauseImpl(exceptKeyword, colon, suite.newLine, suite.indent, suite.body, suite.dedent, exception, asKeyword, comma, exceptionInstance);
+  }
+
+  private FinallyClause finallyClause() {
+    Token finallyKeyword = consumeToken();
+    Token colon = expect(":");
+    Suite suite = suite();
+    return new FinallyClauseImpl(finallyKeyword, colon, suite.newLine, suite.indent, suite.body, suite.dedent);
+  }
+
+  private Statement withStatement(@Nullable Token asyncKeyword) {
+    Token withKeyword = consumeToken();
+    List<WithItem> withItems = new ArrayList<>();
+    List<Token> commas = new ArrayList<>();
+    withItems.add(withItem());
+    while (at(",")) {
+      commas.add(consumeToken());
+      withItems.add(withItem());
+    }
+    Token colon = expect(":");
+    Suite suite = suite();
+    return new WithStatementImpl(withKeyword, withItems, commas, colon, suite.newLine, suite.indent, suite.body, suite.dedent, asyncKeyword);
+  }
+
+  private WithItem withItem() {
+    Expression test = test();
+    if (at("as")) {
+      Token asKeyword = consumeToken();
+      return new WithStatementImpl.WithItemImpl(test, asKeyword, expr());
+    }
+    return new WithStatementImpl.WithItemImpl(test, null, null);
+  }
+
+  private Statement decorated() {
+    List<Decorator> decorators = new ArrayList<>();
+    do {
+      decorators.add(decorator());
+    } while (at("@"));
+    return at("class") ? classDef(decorators) : functionDef(decorators);
+  }
+
+  private Decorator decorator() {
+    Token atToken = consumeToken();
+    DottedName dottedName = dottedName();
+    Token lPar = null;
+    ArgList argList = null;
+    Token rPar = null;
+    if (at("(")) {
+      lPar = consumeToken();
+      if (!at(")")) {
+        argList = argList();
+      }
+      rPar = expect(")");
+    }
+    return new DecoratorImpl(atToken, dottedName, lPar, argList, rPar, expectType(PythonTokenType.NEWLINE));
+  }
+
+  private Statement functionDef(List<Decorator> decorators) {
+    boolean isMethodDefinition = inClass;
+    Token asyncKeyword = at("async") ? consumeToken() : null;
+    Token defKeyword = expect("def");
+    Name name = name(false);
+    Token lPar = expect("(");
+    ParameterList parameters = at(")") ? null : typedArgsList();
+    Token rPar = expect(")");
+    TypeAnnotation returnType = null;
+    if (at("-")) {
+      Token dash = consumeToken();
+      Token gt = expect(">");
+      returnType = new TypeAnnotationImpl(dash, gt, test());
+    }
+    Token colon = expect(":");
+    inClass = false;
+    Suite suite = suite();
+    inClass = isMethodDefinition;
+    return new FunctionDefImpl(decorators, asyncKeyword, defKeyword, name, lPar, parameters, rPar, returnType, colon,
+      suite.newLine, suite.indent, suite.body, suite.dedent, isMethodDefinition, DocstringExtractor.extractDocstring(suite.body));
+  }
+
+  private Statement classDef(List<Decorator> decorators) {
+    Token classKeyword = consumeToken();
+    Name name = name(false);
+    Token lPar = null;
+    ArgList args = null;
+    Token rPar = null;
+    if (at("(")) {
+      lPar = consumeToken();
+      if (!at(")")) {
+        args = argList();
+      }
+      rPar = expect(")");
+    }
+    Token colon = expect(":");
+    boolean wasInClass = inClass;
+    inClass = true;
+    Suite suite = suite();
+    inClass = wasInClass;
+    return new ClassDefImpl(decorators, classKeyword, name, lPar, args, rPar, colon, suite.newLine, suite.indent, suite.body, suite.dedent,
+      DocstringExtractor.extractDocstring(suite.body));
+  }
+
+  private Suite suite() {
+    List<Statement> statements = new ArrayList<>();
+    if (!atType(PythonTokenType.NEWLINE)) {
+      simpleStatements(statements);
+      return new Suite(null, null, new StatementListImpl(statements), null);
+    }
+    Token newLine = consumeToken();
+    Token indent = expectType(PythonTokenType.INDENT);
+    do {
+      statement(statements);
+    } while (!atType(PythonTokenType.DEDENT));
+    return new Suite(newLine, indent, new StatementListImpl(statements), consumeToken());
+  }
+
+  private static class Suite {
+    private final Token newLine;
+    private final Token indent;
+    private final StatementList body;
+    private final Token dedent;
+
+    private Suite(@Nullable Token newLine, @Nullable Token indent, StatementList body, @Nullable Token dedent) {
+      this.newLine = newLine;
+      this.indent = indent;
+      this.body = body;
+      this.dedent = dedent;
+    }
+  }
+
+  // Parameters
+
+  private ParameterList typedArgsList() {
+    List<AnyParameter> parameters = new ArrayList<>();
+    List<Token> commas = new ArrayList<>();
+    if (at("**")) {
+      parameters.add(typedParameter(consumeToken(), false));
+      if (at(",")) {
+        commas.add(consumeToken());
+      }
+    } else if (at("*")) {
+      starTypedParameters(parameters, commas);
+      if (at(",")) {
+        commas.add(consumeToken());
+      }
+    } else {
+      parameters.add(typedParameter(null, true));
+      defaultTypedParameters(parameters, commas);
+      if (at(",") && at(1, "/")) {
+        commas.add(consumeToken());
+        parameters.add(new ParameterImpl(consumeToken()));
+        defaultTypedParameters(parameters, commas);
+      }
+      if (at(",")) {
+        commas.add(consumeToken());
+        if (at("**") || at("*")) {
+          if (at("**")) {
+            parameters.add(typedParameter(consumeToken(), false));
+          } else {
+            starTypedParameters(parameters, commas);
+          }
+          if (at(",")) {
+            commas.add(consumeToken());
+          }
+        }
+      }
+    }
+    return new ParameterListImpl(parameters, commas);
+  }
+
+  private void starTypedParameters(List<AnyParameter> parameters, List<Token> commas) {
+    Token star = consumeToken();
+    parameters.add(startsParameter(0) ? typedParameter(star, false) : new ParameterImpl(star));
+    defaultTypedParameters(parameters, commas);
+    if (at(",") && at(1, "**")) {
+      commas.add(consumeToken());
+      parameters.add(typedParameter(consumeToken(), false));
+    }
+  }
+
+  private void defaultTypedParameters(List<AnyParameter> parameters, List<Token> commas) {
+    while (at(",") && startsParameter(1)) {
+      commas.add(consumeToken());
+      parameters.add(typedParameter(null, true));
+    }
+  }
+
+  /**
+   * TFPDEF, with its default value when allowed. As in {@link PythonTreeMaker}, tuple parameters have no star and no default value.
+   */
+  private AnyParameter typedParameter(@Nullable Token star, boolean withDefault) {
+    if (at("(")) {
+      Token lPar = consumeToken();
+      List<AnyParameter> parameters = new ArrayList<>();
+      List<Token> commas = new ArrayList<>();
+      parameters.add(typedParameter(null, false));
+      while (at(",")) {
+        commas.add(consumeToken());
+        if (!startsParameter(0)) {
+          break;
+        }
+        parameters.add(typedParameter(null, false));
+      }
+      AnyParameter tupleParameter = new TupleParameterImpl(lPar, parameters, commas, expect(")"));
+      if (withDefault && at("=")) {
+        pos++;
+        test();
+      }
+      return tupleParameter;
+    }
+    Name name = name(false);
+    TypeAnnotation annotation = null;
+    if (at(":")) {
+      Token colon = consumeToken();
+      annotation = new TypeAnnotationImpl(colon, test(), Tree.Kind.PARAMETER_TYPE_ANNOTATION);
+    }
+    Token assignToken = null;
+    Expression defaultValue = null;
+    if (withDefault && at("=")) {
+      assignToken = consumeToken();
+      defaultValue = test();
+    }
+    return new ParameterImpl(star, name, annotation, assignToken, defaultValue);
+  }
+
+  private ParameterList varArgsList() {
+    List<AnyParameter> parameters = new ArrayList<>();
+    List<Token> commas = new ArrayList<>();
+    if (at("**") && atType(1, GenericTokenType.IDENTIFIER)) {
+      Token starStar = consumeToken();
+      parameters.add(new ParameterImpl(starStar, name(false), null, null, null));
+      if (at(",")) {
+        commas.add(consumeToken());
+      }
+    } else if (at("*")) {
+      starParameters(parameters, commas);
+      if (at(",")) {
+        commas.add(consumeToken());
+      }
+    } else if (startsParameter(0)) {
+      parameters.add(parameter(true));
+      defaultParameters(parameters, commas);
+      if (at(",") && at(1, "/")) {
+        commas.add(consumeToken());
+        parameters.add(new ParameterImpl(consumeToken()));
+        defaultParameters(parameters, commas);
+      }
+      if (at(",") && at(1, "**") && atType(2, GenericTokenType.IDENTIFIER)) {
+        commas.add(consumeToken());
+        Token starStar = consumeToken();
+        parameters.add(new ParameterImpl(starStar, name(false), null, null, null));
+      } else if (at(",") && at(1, "*")) {
+        commas.add(consumeToken());
+        starParameters(parameters, commas);
+      }
+    } else if (at(",")) {
+      commas.add(consumeToken());
+    }
+    return new ParameterListImpl(parameters, commas);
+  }
+
+  private void starParameters(List<AnyParameter> parameters, List<Token> commas) {
+    Token star = consumeToken();
+    parameters.add(atType(GenericTokenType.IDENTIFIER) ? new ParameterImpl(star, name(false), null, null, null) : new ParameterImpl(star));
+    defaultParameters(parameters, commas);
+    if (at(",") && at(1, "**") && atType(2, GenericTokenType.IDENTIFIER)) {
+      commas.add(consumeToken());
+      Token starStar = consumeToken();
+      parameters.add(new ParameterImpl(starStar, name(false), null, null, null));
+    }
+  }
+
+  private void defaultParameters(List<AnyParameter> parameters, List<Token> commas) {
+    while (at(",") && startsParameter(1)) {
+      commas.add(consumeToken());
+      parameters.add(parameter(true));
+    }
+  }
+
+  /**
+   * FPDEF of lambdas, with its default value when allowed.
+   */
+  private AnyParameter parameter(boolean withDefault) {
+    if (at("(")) {
+      Token lPar = consumeToken();
+      List<AnyParameter> parameters = new ArrayList<>();
+      List<Token> commas = new ArrayList<>();
+      parameters.add(parameter(false));
+      while (at(",")) {
+        commas.add(consumeToken());
+        if (!startsParameter(0)) {
+          break;
+        }
+        parameters.add(parameter(false));
+      }
+      AnyParameter tupleParameter = new TupleParameterImpl(lPar, parameters, commas, expect(")"));
+      if (withDefault && at("=")) {
+        pos++;
+        test();
+      }
+      return tupleParameter;
+    }
+    Name name = name(false);
+    Token assignToken = null;
+    Expression defaultValue = null;
+    if (withDefault && at("=")) {
+      assignToken = consumeToken();
+      defaultValue = test();
+    }
+    return new ParameterImpl(null, name, null, assignToken, defaultValue);
+  }
+
+  // Expressions
+
+  private ExpressionListImpl testListStarExpr() {
+    List<Expression> expressions = new ArrayList<>();
+    List<Token> commas = new ArrayList<>();
+    expressions.add(at("*") ? starExpr() : test());
+    while (at(",")) {
+      commas.add(consumeToken());
+      if (!startsTestOrStar(0)) {
+        break;
+      }
+      expressions.add(at("*") ? starExpr() : test());
+    }
+    return new ExpressionListImpl(expressions, commas);
+  }
+
+  private ExpressionListImpl testList() {
+    List<Expression> expressions = new ArrayList<>();
+    List<Token> commas = new ArrayList<>();
+    expressions.add(test());
+    while (at(",")) {
+      commas.add(consumeToken());
+      if (!startsTest(0)) {
+        break;
+      }
+      expressions.add(test());
+    }
+    return new ExpressionListImpl(expressions, commas);
+  }
+
+  private ExpressionListImpl exprList() {
+    List<Expression> expressions = new ArrayList<>();
+    List<Token> commas = new ArrayList<>();
+    expressions.add(at("*") ? starExpr() : expr());
+    while (at(",")) {
+      commas.add(consumeToken());
+      if (!at("*") && !startsExpression(0)) {
+        break;
+      }
+      expressions.add(at("*") ? starExpr() : expr());
+    }
+    return new ExpressionListImpl(expressions, commas);
+  }
+
+  private static Expression exprListOrTestList(ExpressionListImpl expressionList) {
+    if (expressionList.commas().isEmpty()) {
+      return expressionList.expressions().get(0);
+    }
+    return new TupleImpl(null, expressionList.expressions(), expressionList.commas(), null);
+  }
+
+  private Expression namedExprTest() {
+    Expression test = test();
+    if (at(":=")) {
+      return assignmentExpression(test);
+    }
+    return test;
+  }
+
+  private Expression assignmentExpression(Expression target) {
+    try {
+      PythonTreeMaker.checkAssignmentExpressionTarget(target);
+    } catch (RecognitionException e) {
+      deferError(e);
+    }
+    Token walrus = consumeToken();
+    Expression expression = test();
+    return target.is(Tree.Kind.NAME) ? new AssignmentExpressionImpl((Name) target, walrus, expression) : target;
+  }
+
+  private Expression test() {
+    if (at("lambda")) {
+      return lambda(false);
+    }
+    Expression expression = orTest();
+    if (at("if")) {
+      int start = pos;
+      RecognitionException previousDeferredError = deferredError;
+      try {
+        Token ifKeyword = consumeToken();
+        Expression condition = orTest();
+        Token elseKeyword = expect("else");
+        return new ConditionalExpressionImpl(expression, ifKeyword, condition, elseKeyword, test());
+      } catch (ParseFailure e) {
+        // not a conditional expression, "if" belongs to a comprehension
+        pos = start;
+        deferredError = previousDeferredError;
+      }
+    }
+    return expression;
+  }
+
+  private Expression testNoCond() {
+    return at("lambda") ? lambda(true) : orTest();
+  }
+
+  private Expression lambda(boolean noCond) {
+    Token lambdaKeyword = consumeToken();
+    ParameterList parameters = varArgsList();
+    Token colon = expect(":");
+    Expression body = noCond ? testNoCond() : test();
+    return new LambdaExpressionImpl(lambdaKeyword, colon, body, parameters);
+  }
+
+  private Expression orTest() {
+    int start = pos;
+    if (start == orTestStart) {
+      pos = orTestEnd;
+      if (deferredError == null) {
+        deferredError = orTestError;
+      }
+      return orTest;
+    }
+    RecognitionException previousDeferredError = deferredError;
+    Expression result = andTest();
+    while (at("or")) {
+      Token operator = consumeToken();
+      result = new BinaryExpressionImpl(result, operator, andTest());
+    }
+    orTestStart = start;
+    orTestEnd = pos;
+    orTest = result;
+    orTestError = previousDeferredError == null ? deferredError : null;
+    return result;
+  }
+
+  private Expression andTest() {
+    Expression result = notTest();
+    while (at("and")) {
+      Token operator = consumeToken();
+      result = new BinaryExpressionImpl(result, operator, notTest());
+    }
+    return result;
+  }
+
+  private Expression notTest() {
+    if (at("not")) {
+      Token notKeyword = consumeToken();
+      return new UnaryExpressionImpl(notKeyword, notTest());
+    }
+    return comparison();
+  }
+
+  private Expression comparison() {
+    Expression result = expr();
+    while (true) {
+      String value = tokens.get(pos).getValue();
+      if (COMPARISON_OPERATORS.contains(value)) {
+        Token operator = consumeToken();
+        result = new BinaryExpressionImpl(result, operator, expr());
+      } else if ("is".equals(value)) {
+        Token isKeyword = consumeToken();
+        Token notKeyword = at("not") ? consumeToken() : null;
+        result = new IsExpressionImpl(result, isKeyword, notKeyword, expr());
+      } else if ("in".equals(value)) {
+        Token inKeyword = consumeToken();
+        result = new InExpressionImpl(result, null, inKeyword, expr());
+      } else if ("not".equals(value)) {
+        Token notKeyword = consumeToken();
+        Token inKeyword = expect("in");
+        result = new InExpressionImpl(result, notKeyword, inKeyword, expr());
+      } else {
+        return result;
+      }
+    }
+  }
+
+  private Expression starExpr() {
+    Token star = consumeToken();
+    return new UnpackingExpressionImpl(star, expr());
+  }
+
+  private Expression expr() {
+    Expression result = xorExpr();
+    while (at("|")) {
+      Token operator = consumeToken();
+      result = new BinaryExpressionImpl(result, operator, xorExpr());
+    }
+    return result;
+  }
+
+  private Expression xorExpr() {
+    Expression result = andExpr();
+    while (at("^")) {
+      Token operator = consumeToken();
+      result = new BinaryExpressionImpl(result, operator, andExpr());
+    }
+    return result;
+  }
+
+  private Expression andExpr() {
+    Expression result = shiftExpr();
+    while (at("&")) {
+      Token operator = consumeToken();
+      result = new BinaryExpressionImpl(result, operator, shiftExpr());
+    }
+    return result;
+  }
+
+  private Expression shiftExpr() {
+    Expression result = arithmeticExpr();
+    while (at("<<") || at(">>")) {
+      Token operator = consumeToken();
+      result = new BinaryExpressionImpl(result, operator, arithmeticExpr());
+    }
+    return result;
+  }
+
+  private Expression arithmeticExpr() {
+    Expression result = term();
+    while (at("+") || at("-")) {
+      Token operator = consumeToken();
+      result = new BinaryExpressionImpl(result, operator, term());
+    }
+    return result;
+  }
+
+  private Expression term() {
+    Expression result = factor();
+    while (TERM_OPERATORS.contains(tokens.get(pos).getValue())) {
+      Token operator = consumeToken();
+      result = new BinaryExpressionImpl(result, operator, factor());
+    }
+    return result;
+  }
+
+  private Expression factor() {
+    if (at("+") || at("-") || at("~")) {
+      Token operator = consumeToken();
+      return new UnaryExpressionImpl(operator, factor());
+    }
+    return power();
+  }
+
+  private Expression power() {
+    Token awaitKeyword = null;
+    Expression result;
+    if (at("await")) {
+      int start = pos;
+      RecognitionException previousDeferredError = deferredError;
+      pos++;
+      try {
+        result = atom();
+        awaitKeyword = new TokenImpl(tokens.get(start));
+      } catch (ParseFailure e) {
+        // "await" is a name, which PythonTreeMaker can't translate
+        pos = start;
+        deferredError = previousDeferredError;
+        Token await = consumeToken();
+        deferError(new RecognitionException(await.line(), "Parse error at line " + await.line() + ": \"await\" must be followed by an expression."));
+        return new NameImpl(await, true);
+      }
+    } else {
+      result = atom();
+    }
+    result = trailers(result);
+    if (awaitKeyword != null) {
+      result = new AwaitExpressionImpl(awaitKeyword, result);
+    }
+    if (at("**")) {
+      Token operator = consumeToken();
+      result = new BinaryExpressionImpl(result, operator, factor());
+    }
+    return result;
+  }
+
+  private Expression trailers(Expression expression) {
+    Expression result = expression;
+    while (true) {
+      if (at("(")) {
+        Token lPar = consumeToken();
+        ArgList argList = at(")") ? null : argList();
+        Token rPar = expect(")");
+        if (argList != null) {
+          checkGeneratorExpressionInArgument(argList.arguments());
+        }
+        result = new CallExpressionImpl(result, argList, lPar, rPar);
+      } else if (at("[")) {
+        result = subscriptionOrSlicing(result);
+      } else if (at(".") && atType(1, GenericTokenType.IDENTIFIER)) {
+        Token dot = consumeToken();
+        result = new QualifiedExpressionImpl(name(false), result, dot);
+      } else {
+        return result;
+      }
+    }
+  }
+
+  private Expression subscriptionOrSlicing(Expression object) {
+    Token lBracket = consumeToken();
+    List<Tree> slices = new ArrayList<>();
+    List<Token> commas = new ArrayList<>();
+    slices.add(subscript());
+    while (at(",")) {
+      commas.add(consumeToken());
+      if (at("]")) {
+        break;
+      }
+      slices.add(subscript());
+    }
+    Token rBracket = expect("]");
+    if (slices.stream().anyMatch(slice -> slice.is(Tree.Kind.SLICE_ITEM))) {
+      return new SliceExpressionImpl(object, lBracket, new SliceListImpl(slices, commas), rBracket);
+    }
+    List<Expression> expressions = new ArrayList<>();
+    slices.forEach(slice -> expressions.add((Expression) slice));
+    return new SubscriptionExpressionImpl(object, lBracket, new ExpressionListImpl(expressions, commas), rBracket);
+  }
+
+  private Tree subscript() {
+    Expression lowerBound = null;
+    if (!at(":")) {
+      lowerBound = test();
+      if (!at(":")) {
+        return lowerBound;
+      }
+    }
+    Token boundSeparator = consumeToken();
+    Expression upperBound = startsTest(0) ? test() : null;
+    Token strideSeparator = null;
+    Expression stride = null;
+    if (at(":")) {
+      strideSeparator = consumeToken();
+      stride = startsTest(0) ? test() : null;
+    }
+    return new SliceItemImpl(lowerBound, boundSeparator, upperBound, strideSeparator, stride);
+  }
+
+  private Expression atom() {
+    com.sonar.sslr.api.Token token = tokens.get(pos);
+    TokenType type = token.getType();
+    if (type == GenericTokenType.IDENTIFIER) {
+      return new NameImpl(consumeToken(), true);
+    } else if (type == PythonTokenType.NUMBER) {
+      return new NumericLiteralImpl(consumeToken());
+    } else if (type == PythonTokenType.STRING) {
+      return stringLiteral();
+    } else if (type == PythonKeyword.NONE) {
+      return new NoneExpressionImpl(consumeToken());
+    }
+    switch (token.getValue()) {
+      case "(":
+        return parenthesized();
+      case "[":
+        return listLiteral();
+      case "{":
+        return dictOrSetLiteral();
+      case "`":
+        return repr();
+      case ".":
+        List<Token> ellipsis = new ArrayList<>();
+        ellipsis.add(consumeToken());
+        ellipsis.add(expect("."));
+        ellipsis.add(expect("."));
+        return new EllipsisExpressionImpl(ellipsis);
+      default:
+        throw failure();
+    }
+  }
+
+  private Expression parenthesized() {
+    Token lPar = consumeToken();
+    if (at(")")) {
+      return new TupleImpl(lPar, Collections.emptyList(), Collections.emptyList(), consumeToken());
+    }
+    if (at("yield")) {
+      YieldExpression yieldExpression = yieldExpression();
+      return new ParenthesizedExpressionImpl(lPar, yieldExpression, expect(")"));
+    }
+    Expression first = at("*") ? starExpr() : namedExprTest();
+    if (startsCompFor()) {
+      ComprehensionFor compFor = compFor();
+      return new ComprehensionExpressionImpl(Tree.Kind.GENERATOR_EXPR, lPar, first, compFor, expect(")"));
+    }
+    ExpressionListImpl expressions = testListComp(first, ")");
+    Token rPar = expect(")");
+    if (expressions.commas().isEmpty()) {
+      return new ParenthesizedExpressionImpl(lPar, first, rPar);
+    }
+    return new TupleImpl(lPar, expressions.expressions(), expressions.commas(), rPar);
+  }
+
+  private Expression listLiteral() {
+    Token lBracket = consumeToken();
+    if (at("]")) {
+      return new ListLiteralImpl(lBracket, new ExpressionListImpl(Collections.emptyList(), Collections.emptyList()), consumeToken());
+    }
+    Expression first = at("*") ? starExpr() : namedExprTest();
+    if (startsCompFor()) {
+      ComprehensionFor compFor = compFor();
+      return new ComprehensionExpressionImpl(Tree.Kind.LIST_COMPREHENSION, lBracket, first, compFor, expect("]"));
+    }
+    ExpressionListImpl elements = testListComp(first, "]");
+    return new ListLiteralImpl(lBracket, elements, expect("]"));
+  }
+
+  private ExpressionListImpl testListComp(Expression first, String closingBracket) {
+    List<Expression> expressions = new ArrayList<>();
+    List<Token> commas = new ArrayList<>();
+    expressions.add(first);
+    while (at(",")) {
+      commas.add(consumeToken());
+      if (at(closingBracket)) {
+        break;
+      }
+      expressions.add(at("*") ? starExpr() : namedExprTest());
+    }
+    return new ExpressionListImpl(expressions, commas);
+  }
+
+  private Expression dictOrSetLiteral() {
+    Token lCurlyBrace = consumeToken();
+    if (at("}")) {
+      return new DictionaryLiteralImpl(lCurlyBrace, Collections.emptyList(), Collections.emptyList(), consumeToken());
+    }
+    if (at("**")) {
+      return dictionary(lCurlyBrace, dictionaryElement());
+    }
+    Expression first = at("*") ? starExpr() : test();
+    if (!first.is(Tree.Kind.UNPACKING_EXPR) && at(":")) {
+      Token colon = consumeToken();
+      return dictionary(lCurlyBrace, new KeyValuePairImpl(first, colon, test()));
+    }
+    if (startsCompFor()) {
+      ComprehensionFor compFor = compFor();
+      return new ComprehensionExpressionImpl(Tree.Kind.SET_COMPREHENSION, lCurlyBrace, first, compFor, expect("}"));
+    }
+    List<Expression> elements = new ArrayList<>();
+    List<Token> commas = new ArrayList<>();
+    elements.add(first);
+    while (at(",")) {
+      commas.add(consumeToken());
+      if (at("}")) {
+        break;
+      }
+      elements.add(at("*") ? starExpr() : test());
+    }
+    return new SetLiteralImpl(lCurlyBrace, elements, commas, expect("}"));
+  }
+
+  private Expression dictionary(Token lCurlyBrace, DictionaryLiteralElement first) {
+    if (startsCompFor()) {
+      ComprehensionFor compFor = compFor();
+      Token rCurlyBrace = expect("}");
+      if (first.is(Tree.Kind.KEY_VALUE_PAIR)) {
+        KeyValuePairImpl keyValuePair = (KeyValuePairImpl) first;
+        return new DictCompExpressionImpl(lCurlyBrace, keyValuePair.key(), keyValuePair.colon(), keyValuePair.value(), compFor, rCurlyBrace);
+      }
+      // PythonTreeMaker can't translate an unpacking followed by a comprehension
+      int line = lCurlyBrace.line();
+      deferError(new RecognitionException(line, "Parse error at line " + line + ": Dict unpacking cannot be used in dict comprehension."));
+      return new DictionaryLiteralImpl(lCurlyBrace, Collections.emptyList(), Collections.singletonList(first), rCurlyBrace);
+    }
+    List<DictionaryLiteralElement> elements = new ArrayList<>();
+    List<Token> commas = new ArrayList<>();
+    elements.add(first);
+    while (at(",")) {
+      commas.add(consumeToken());
+      if (at("}")) {
+        break;
+      }
+      elements.add(dictionaryElement());
+    }
+    return new DictionaryLiteralImpl(lCurlyBrace, commas, elements, expect("}"));
+  }
+
+  private DictionaryLiteralElement dictionaryElement() {
+    if (at("**")) {
+      Token starStar = consumeToken();
+      return new UnpackingExpressionImpl(starStar, expr());
+    }
+    Expression key = test();
+    Token colon = expect(":");
+    return new KeyValuePairImpl(key, colon, test());
+  }
+
+  private Expression repr() {
+    Token openingBacktick = consumeToken();
+    List<Expression> expressions = new ArrayList<>();
+    List<Token> commas = new ArrayList<>();
+    expressions.add(test());
+    while (at(",")) {
+      commas.add(consumeToken());
+      expressions.add(test());
+    }
+    return new ReprExpressionImpl(openingBacktick, new ExpressionListImpl(expressions, commas), expect("`"));
+  }
+
+  private YieldExpression yieldExpression() {
+    Token yieldKeyword = consumeToken();
+    if (at("from")) {
+      Token fromKeyword = consumeToken();
+      return new YieldExpressionImpl(yieldKeyword, fromKeyword, Collections.singletonList(test()));
+    }
+    List<Expression> expressions = startsTestOrStar(0) ? testListStarExpr().expressions() : Collections.emptyList();
+    return new YieldExpressionImpl(yieldKeyword, null, expressions);
+  }
+
+  private boolean startsCompFor() {
+    return at("for") || (at("async") && at(1, "for"));
+  }
+
+  private ComprehensionFor compFor() {
+    Token asyncToken = at("async") ? consumeToken() : null;
+    Token forToken = consumeToken();
+    Expression loopExpression = exprListOrTestList(exprList());
+    Token inToken = expect("in");
+    Expression iterable = exprListOrTestList(testList());
+    return new ComprehensionForImpl(asyncToken, forToken, loopExpression, inToken, iterable, compIter());
+  }
+
+  @CheckForNull
+  private ComprehensionClause compIter() {
+    if (startsCompFor()) {
+      return compFor();
+    }
+    if (at("if")) {
+      Token ifToken = consumeToken();
+      Expression condition = testNoCond();
+      return new ComprehensionIfImpl(ifToken, condition, compIter());
+    }
+    return null;
+  }
+
+  private ArgList argList() {
+    List<Argument> arguments = new ArrayList<>();
+    List<Token> commas = new ArrayList<>();
+    arguments.add(argument());
+    while (at(",")) {
+      commas.add(consumeToken());
+      if (at(")")) {
+        break;
+      }
+      arguments.add(argument());
+    }
+    return new ArgListImpl(arguments, commas);
+  }
+
+  private Argument argument() {
+    if (at("*") || at("**")) {
+      Token star = consumeToken();
+      return new UnpackingExpressionImpl(star, test());
+    }
+    Expression test = test();
+    if (at(":=")) {
+      return new RegularArgumentImpl(assignmentExpression(test));
+    }
+    if (at("=")) {
+      Name keyword = keywordArgument(test);
+      Token equalToken = consumeToken();
+      return new RegularArgumentImpl(keyword, equalToken, test());
+    }
+    if (startsCompFor()) {
+      return new RegularArgumentImpl(new ComprehensionExpressionImpl(Tree.Kind.GENERATOR_EXPR, null, test, compFor(), null));
+    }
+    return new RegularArgumentImpl(test);
+  }
+
+  private Name keywordArgument(Expression test) {
+    if (test.is(Tree.Kind.NAME)) {
+      return (Name) test;
+    }
+    if (test.is(Tree.Kind.CONDITIONAL_EXPR) && ((ConditionalExpression) test).trueExpression().is(Tree.Kind.NAME)) {
+      return (Name) ((ConditionalExpression) test).trueExpression();
+    }
+    // PythonTreeMaker can't translate a keyword which is not a name
+    int line = test.firstToken().line();
+    deferError(new RecognitionException(line, "Parse error at line " + line + ": Keyword argument must be a name."));
+    return new NameImpl(test.firstToken(), true);
+  }
+
+  private void checkGeneratorExpressionInArgument(List<Argument> arguments) {
+    try {
+      PythonTreeMaker.checkGeneratorExpressionInArgument(arguments);
+    } catch (RecognitionException e) {
+      deferError(e);
+    }
+  }
+
+  private Name name(boolean isVariable) {
+    return new NameImpl(expectType(GenericTokenType.IDENTIFIER), isVariable);
+  }
+
+  // Strings
+
+  private Expression stringLiteral() {
+    List<StringElement> elements = new ArrayList<>();
+    do {
+      com.sonar.sslr.api.Token token = tokens.get(pos);
+      StringElementImpl element = new StringElementImpl(consumeToken());
+      if (element.isInterpolated()) {
+        formattedExpressions(token, element);
+      }
+      elements.add(element);
+    } while (atType(PythonTokenType.STRING));
+    return new StringLiteralImpl(elements);
+  }
+
+  /**
+   * Equivalent of {@link org.sonar.python.parser.FStringParser}: the formatted expressions are parsed until the first one
+   * which is not valid.
+   */
+  private void formattedExpressions(com.sonar.sslr.api.Token token, StringElementImpl element) {
+    fStringLexerState.reset(token.getLine(), token.getColumn() + element.contentStartIndex());
+    List<com.sonar.sslr.api.Token> fileTokens = tokens;
+    int filePos = pos;
+    tokens = fStringTokenizer.lex(element.trimmedQuotesValue());
+    pos = 0;
+    orTestStart = -1;
+    while (true) {
+      if (atType(GenericTokenType.UNKNOWN_CHAR)) {
+        pos++;
+      } else if (atType(PythonPunctuator.LCURLYBRACE)) {
+        RecognitionException previousDeferredError = deferredError;
+        try {
+          element.addFormattedExpression(formattedExpression());
+        } catch (ParseFailure e) {
+          deferredError = previousDeferredError;
+          break;
+        }
+      } else {
+        break;
+      }
+    }
+    tokens = fileTokens;
+    pos = filePos;
+    orTestStart = -1;
+  }
+
+  private FormattedExpression formattedExpression() {
+    pos++;
+    Expression expression = expr();
+    Token equalToken = at("=") ? consumeToken() : null;
+    if (at("!")) {
+      pos++;
+      if (!at("s") && !at("r") && !at("a")) {
+        throw failure();
+      }
+      pos++;
+    }
+    FormatSpecifier formatSpecifier = at(":") ? formatSpecifier() : null;
+    expectType(PythonPunctuator.RCURLYBRACE);
+    return new FormattedExpressionImpl(expression, equalToken, formatSpecifier);
+  }
+
+  private FormatSpecifier formatSpecifier() {
+    Token colon = consumeToken();
+    List<FormattedExpression> nestedExpressions = new ArrayList<>();
+    int start = pos;
+    while (!atType(PythonPunctuator.RCURLYBRACE)) {
+      if (atType(GenericTokenType.EOF)) {
+        throw failure();
+      }
+      if (atType(PythonPunctuator.LCURLYBRACE)) {
+        int expressionStart = pos;
+        RecognitionException previousDeferredError = deferredError;
+        try {
+          nestedExpressions.add(formattedExpression());
+          continue;
+        } catch (ParseFailure e) {
+          pos = expressionStart;
+          deferredError = previousDeferredError;
+        }
+      }
+      pos++;
+    }
+    if (pos == start) {
+      throw failure();
+    }
+    return new FormatSpecifierImpl(colon, nestedExpressions);
+  }
+
+  // Tokens
+
+  private boolean at(String value) {
+    return at(0, value);
+  }
+
+  private boolean at(int offset, String value) {
+    int index = pos + offset;
+    return index < tokens.size() && value.equals(tokens.get(index).getValue());
+  }
+
+  private boolean atType(TokenType type) {
+    return atType(0, type);
+  }
+
+  private boolean atType(int offset, TokenType type) {
+    int index = pos + offset;
+    return index < tokens.size() && tokens.get(index).getType() == type;
+  }
+
+  private boolean startsExpression(int offset) {
+    int index = pos + offset;
+    if (index >= tokens.size()) {
+      return false;
+    }
+    com.sonar.sslr.api.Token token = tokens.get(index);
+    TokenType type = token.getType();
+    return type == GenericTokenType.IDENTIFIER || type == PythonTokenType.NUMBER || type == PythonTokenType.STRING || type == PythonKeyword.NONE
+      || EXPRESSION_FIRST_PUNCTUATORS.contains(token.getValue());
+  }
+
+  private boolean startsTest(int offset) {
+    return startsExpression(offset) || at(offset, "not") || at(offset, "lambda");
+  }
+
+  private boolean startsTestOrStar(int offset) {
+    return startsTest(offset) || at(offset, "*");
+  }
+
+  private boolean startsParameter(int offset) {
+    return atType(offset, GenericTokenType.IDENTIFIER) || at(offset, "(");
+  }
+
+  private Token consumeToken() {
+    Token token = new TokenImpl(tokens.get(pos));
+    pos++;
+    return token;
+  }
+
+  private Token expect(String value) {
+    if (!at(value)) {
+      throw failure();
+    }
+    return consumeToken();
+  }
+
+  private Token expectType(TokenType type) {
+    if (!atType(type)) {
+      throw failure();
+    }
+    return consumeToken();
+  }
+
+  private static ParseFailure failure() {
+    return PARSE_FAILURE;
+  }
+
+  private void deferError(RecognitionException error) {
+    if (deferredError == null) {
+      deferredError = error;
+    }
+  }
+
+  /**
+   * Thrown when a rule doesn't match: the stack trace is never used.
+   */
+  private static class ParseFailure extends RuntimeException {
+    private ParseFailure() {
+      super(null, null, false, false);
+    }
+  }
+
+}
@@ -29,7 +29,7 @@ import javax.annotation.Nullable;
 import org.sonar.plugins.python.api.tree.Token;
 
 public class Separators {
-  public static final Separators EMPTY = new Separators(null, null);
+  public static final Separators EMPTY = new Separators((Token) null, null);
   @Nullable
   private final Token separator;
   @Nullable
@@ -37,8 +37,12 @@ public class Separators {
   private final List<Token> elements;
 
   Separators(@Nullable AstNode separator, @Nullable AstNode newline){
-    this.separator = separator == null ? null : new TokenImpl(separator.getToken());
-    this.newline = newline == null ? null : new TokenImpl(newline.getToken());
+    this(separator == null ? null : new TokenImpl(separator.getToken()), newline == null ? null : new TokenImpl(newline.getToken()));
+  }
+
+  Separators(@Nullable Token separator, @Nullable Token newline){
+    this.separator = separator;
+    this.newline = newline;
     this.elements = Stream.of(this.separator, this.newline).filter(Objects::nonNull).collect(Collectors.toList());
   }
 
@@ -0,0 +1,63 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.tree;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import org.sonar.plugins.python.api.tree.Tree;
+
+/**
+ * Removes the symbols, usages and inferred types attached to a tree by a previous symbol table computation,
+ * so that the tree can be analyzed again as if it had just been parsed.
+ */
+public class SymbolsCleaner {
+
+  private SymbolsCleaner() {
+    // empty constructor
+  }
+
+  public static void clean(Tree root) {
+    Deque<Tree> stack = new ArrayDeque<>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      Tree tree = stack.pop();
+      clearNode(tree);
+      tree.children().forEach(stack::push);
+    }
+  }
+
+  private static void clearNode(Tree tree) {
+    if (tree instanceof NameImpl) {
+      ((NameImpl) tree).clearSymbol();
+    } else if (tree instanceof FunctionDefImpl) {
+      ((FunctionDefImpl) tree).clearSymbols();
+    } else if (tree instanceof ClassDefImpl) {
+      ((ClassDefImpl) tree).clearFields();
+    } else if (tree instanceof LambdaExpressionImpl) {
+      ((LambdaExpressionImpl) tree).clearLocalVariableSymbols();
+    } else if (tree instanceof ComprehensionExpressionImpl) {
+      ((ComprehensionExpressionImpl) tree).clearLocalVariableSymbols();
+    } else if (tree instanceof DictCompExpressionImpl) {
+      ((DictCompExpressionImpl) tree).clearLocalVariableSymbols();
+    } else if (tree instanceof FileInputImpl) {
+      ((FileInputImpl) tree).clearGlobalVariables();
+    }
+  }
+}
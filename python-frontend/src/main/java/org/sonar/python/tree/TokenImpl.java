@@ -23,6 +23,7 @@ import com.sonar.sslr.api.TokenType;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
 import org.sonar.plugins.python.api.tree.Token;
 import org.sonar.plugins.python.api.tree.Tree;
 import org.sonar.plugins.python.api.tree.TreeVisitor;
@@ -32,6 +33,8 @@ public class TokenImpl extends PyTree implements Token {
 
   private com.sonar.sslr.api.Token token;
   private List<Trivia> trivia;
+  // tokens of the file containing this token, see TreeUtils#tokens
+  private List<Token> fileTokens = null;
 
   public TokenImpl(com.sonar.sslr.api.Token token) {
     this.token = token;
@@ -58,6 +61,15 @@ public class TokenImpl extends PyTree implements Token {
     return trivia;
   }
 
+  void setFileTokens(List<Token> fileTokens) {
+    this.fileTokens = fileTokens;
+  }
+
+  @CheckForNull
+  List<Token> fileTokens() {
+    return fileTokens;
+  }
+
   public TokenType type() {
     return token.getType();
   }
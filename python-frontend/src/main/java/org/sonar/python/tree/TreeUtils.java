@@ -79,21 +79,42 @@ public class TreeUtils {
     return firstAncestor(tree, t -> t.is(kinds));
   }
 
+  /**
+   * Tokens of the tree, without the tokens of the expressions of f-strings. The returned list is unmodifiable.
+   * For a tree of a parsed file, it is a view of the tokens recorded for the whole file, which costs no traversal.
+   */
   public static List<Token> tokens(Tree tree) {
     if (tree.is(Kind.TOKEN)) {
       return Collections.singletonList((Token) tree);
     } else if (tree.is(Kind.STRING_ELEMENT)) {
       return Collections.singletonList(tree.firstToken());
     }
+    if (tree instanceof PyTree && ((PyTree) tree).firstTokenIndex() >= 0) {
+      PyTree pyTree = (PyTree) tree;
+      if (pyTree.lastTokenIndex() < pyTree.firstTokenIndex()) {
+        return Collections.emptyList();
+      }
+      Token firstToken = tree.firstToken();
+      List<Token> fileTokens = firstToken instanceof TokenImpl ? ((TokenImpl) firstToken).fileTokens() : null;
+      if (fileTokens != null) {
+        return fileTokens.subList(pyTree.firstTokenIndex(), pyTree.lastTokenIndex() + 1);
+      }
+    }
     List<Token> tokens = new ArrayList<>();
+    collectTokens(tree, tokens);
+    return Collections.unmodifiableList(tokens);
+  }
+
+  private static void collectTokens(Tree tree, List<Token> tokens) {
     for (Tree child : tree.children()) {
       if (child.is(Kind.TOKEN)) {
         tokens.add(((Token) child));
+      } else if (child.is(Kind.STRING_ELEMENT)) {
+        tokens.add(child.firstToken());
       } else {
-        tokens.addAll(tokens(child));
+        collectTokens(child, tokens);
       }
     }
-    return tokens;
   }
 
   public static List<Token> nonWhitespaceTokens(Tree tree) {
@@ -0,0 +1,88 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.types;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import org.sonar.plugins.python.api.symbols.Symbol;
+
+/**
+ * Symbols of the stub modules loaded so far, readable from any thread without locking.
+ * When soft references are used, the symbols of a module can be reclaimed by the garbage collector when memory runs
+ * low: they are then computed again the next time they are requested.
+ */
+class ModuleSymbolsCache {
+
+  private final boolean softReferences;
+  private final Map<String, Supplier<Set<Symbol>>> symbolsByModule = new ConcurrentHashMap<>();
+
+  ModuleSymbolsCache(boolean softReferences) {
+    this.softReferences = softReferences;
+  }
+
+  boolean usesSoftReferences() {
+    return softReferences;
+  }
+
+  @CheckForNull
+  Set<Symbol> get(String moduleName) {
+    Supplier<Set<Symbol>> entry = symbolsByModule.get(moduleName);
+    if (entry == null) {
+      return null;
+    }
+    Set<Symbol> symbols = entry.get();
+    if (symbols == null) {
+      symbolsByModule.remove(moduleName, entry);
+    }
+    return symbols;
+  }
+
+  void put(String moduleName, Set<Symbol> symbols) {
+    if (softReferences) {
+      symbolsByModule.put(moduleName, new SoftReference<>(symbols)::get);
+    } else {
+      symbolsByModule.put(moduleName, () -> symbols);
+    }
+  }
+
+  /**
+   * Symbols of the modules which are currently in the cache.
+   */
+  List<Set<Symbol>> values() {
+    List<Set<Symbol>> values = new ArrayList<>();
+    for (Supplier<Set<Symbol>> entry : symbolsByModule.values()) {
+      Set<Symbol> symbols = entry.get();
+      if (symbols != null) {
+        values.add(symbols);
+      }
+    }
+    return values;
+  }
+
+  int size() {
+    return symbolsByModule.size();
+  }
+}
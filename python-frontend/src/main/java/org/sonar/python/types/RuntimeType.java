@@ -31,8 +31,8 @@ import org.sonar.python.semantic.ClassSymbolImpl;
 class RuntimeType implements InferredType {
 
   private final ClassSymbol typeClass;
-  private Set<String> typeClassSuperClassesFQN = null;
-  private Set<String> typeClassMembersFQN = null;
+  private volatile Set<String> typeClassSuperClassesFQN = null;
+  private volatile Set<String> typeClassMembersFQN = null;
 
   RuntimeType(ClassSymbol typeClass) {
     this.typeClass = typeClass;
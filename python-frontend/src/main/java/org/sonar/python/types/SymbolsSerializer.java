@@ -0,0 +1,552 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.types;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.plugins.python.api.LocationInFile;
+import org.sonar.plugins.python.api.symbols.AmbiguousSymbol;
+import org.sonar.plugins.python.api.symbols.ClassSymbol;
+import org.sonar.plugins.python.api.symbols.FunctionSymbol;
+import org.sonar.plugins.python.api.symbols.Symbol;
+import org.sonar.plugins.python.api.types.InferredType;
+import org.sonar.python.semantic.AmbiguousSymbolImpl;
+import org.sonar.python.semantic.ClassSymbolImpl;
+import org.sonar.python.semantic.FunctionSymbolImpl;
+import org.sonar.python.semantic.SymbolImpl;
+
+/**
+ * Binary form of the graph of symbols reachable from a collection of stub file symbols.
+ *
+ * Symbols are written once, even when they are referenced several times, and are read in three passes: symbols are
+ * first created, then linked to each other (children, super classes, members, alternatives), and finally typed, as
+ * comparing types requires the class hierarchies to be complete.
+ *
+ * Symbols owned by another graph, such as the TypeShed symbols referenced by project symbols, can be written as
+ * external references: only their module and fully qualified name are written, and they are resolved when read.
+ */
+class SymbolsSerializer {
+
+  private static final int NO_ID = -1;
+
+  private static final byte OTHER = 0;
+  private static final byte CLASS = 1;
+  private static final byte FUNCTION = 2;
+  private static final byte AMBIGUOUS = 3;
+  private static final byte EXTERNAL = 4;
+
+  private static final byte ANY_TYPE = 0;
+  private static final byte RUNTIME_TYPE = 1;
+  private static final byte UNION_TYPE = 2;
+
+  private SymbolsSerializer() {
+  }
+
+  static byte[] serialize(Collection<Symbol> roots) {
+    return serialize(roots, symbol -> null);
+  }
+
+  /**
+   * @param externalModules returns the module of the symbols which have to be written as external references, null
+   *                        for the symbols to write
+   */
+  static byte[] serialize(Collection<Symbol> roots, Function<Symbol, String> externalModules) {
+    try {
+      return new Writer(roots, externalModules).write();
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to serialize symbols", e);
+    }
+  }
+
+  static List<Symbol> deserialize(byte[] bytes, int offset, int length) {
+    return deserialize(bytes, offset, length, (moduleName, fullyQualifiedName) -> {
+      throw new IllegalStateException("Unexpected reference to external symbol " + fullyQualifiedName);
+    });
+  }
+
+  /**
+   * @param externalSymbols returns the symbol referenced by an external reference, given its module and its fully
+   *                        qualified name, or null when it does not exist anymore
+   */
+  static List<Symbol> deserialize(byte[] bytes, int offset, int length, BiFunction<String, String, Symbol> externalSymbols) {
+    try {
+      return new Reader(new DataInputStream(new ByteArrayInputStream(bytes, offset, length)), externalSymbols).read();
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to deserialize symbols", e);
+    }
+  }
+
+  private static class Writer {
+    private final Collection<Symbol> roots;
+    private final Function<Symbol, String> externalModules;
+    private final Map<Symbol, String> externalSymbols = new IdentityHashMap<>();
+    private final List<SymbolImpl> symbols = new ArrayList<>();
+    private final Map<Symbol, Integer> symbolIds = new IdentityHashMap<>();
+    private final List<InferredType> types = new ArrayList<>();
+    private final Map<InferredType, Integer> typeIds = new IdentityHashMap<>();
+    private final Deque<SymbolImpl> symbolsToVisit = new ArrayDeque<>();
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+
+    private Writer(Collection<Symbol> roots, Function<Symbol, String> externalModules) {
+      this.roots = roots;
+      this.externalModules = externalModules;
+    }
+
+    private byte[] write() throws IOException {
+      roots.forEach(this::register);
+      while (!symbolsToVisit.isEmpty()) {
+        visit(symbolsToVisit.removeFirst());
+      }
+
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(body);
+      writeInt(out, symbols.size());
+      for (SymbolImpl symbol : symbols) {
+        writeSymbol(out, symbol);
+      }
+      for (SymbolImpl symbol : symbols) {
+        writeLinks(out, symbol);
+      }
+      writeInt(out, types.size());
+      for (InferredType type : types) {
+        writeType(out, type);
+      }
+      for (SymbolImpl symbol : symbols) {
+        writeTypedFields(out, symbol);
+      }
+      writeInt(out, roots.size());
+      for (Symbol root : roots) {
+        writeInt(out, symbolIds.get(root));
+      }
+      out.flush();
+
+      ByteArrayOutputStream result = new ByteArrayOutputStream();
+      DataOutputStream resultOut = new DataOutputStream(result);
+      writeInt(resultOut, strings.size());
+      for (String string : strings) {
+        resultOut.writeUTF(string);
+      }
+      body.writeTo(resultOut);
+      resultOut.flush();
+      return result.toByteArray();
+    }
+
+    private int register(Symbol symbol) {
+      Integer id = symbolIds.get(symbol);
+      if (id == null) {
+        id = symbols.size();
+        symbolIds.put(symbol, id);
+        symbols.add((SymbolImpl) symbol);
+        String externalModule = externalModules.apply(symbol);
+        if (externalModule != null) {
+          externalSymbols.put(symbol, externalModule);
+        } else {
+          symbolsToVisit.addLast((SymbolImpl) symbol);
+        }
+      }
+      return id;
+    }
+
+    private int register(InferredType type) {
+      Integer id = typeIds.get(type);
+      if (id == null) {
+        if (type instanceof UnionType) {
+          // alternatives are registered first, so that they are read before the union
+          ((UnionType) type).types().forEach(this::register);
+        } else if (type instanceof RuntimeType) {
+          register(((RuntimeType) type).getTypeClass());
+        }
+        id = types.size();
+        typeIds.put(type, id);
+        types.add(type);
+      }
+      return id;
+    }
+
+    private void visit(SymbolImpl symbol) {
+      symbol.getChildrenSymbolByName().values().forEach(this::register);
+      register(symbol.inferredType());
+      if (symbol instanceof ClassSymbolImpl) {
+        ClassSymbol classSymbol = (ClassSymbol) symbol;
+        classSymbol.superClasses().forEach(this::register);
+        classSymbol.declaredMembers().forEach(this::register);
+      } else if (symbol instanceof FunctionSymbolImpl) {
+        FunctionSymbolImpl functionSymbol = (FunctionSymbolImpl) symbol;
+        if (functionSymbol.owner() != null) {
+          register(functionSymbol.owner());
+        }
+        register(functionSymbol.declaredReturnType());
+        functionSymbol.parameters().forEach(parameter -> register(parameter.declaredType()));
+      } else if (symbol instanceof AmbiguousSymbolImpl) {
+        ((AmbiguousSymbol) symbol).alternatives().forEach(this::register);
+      }
+    }
+
+    private void writeSymbol(DataOutputStream out, SymbolImpl symbol) throws IOException {
+      String externalModule = externalSymbols.get(symbol);
+      if (externalModule != null) {
+        out.writeByte(EXTERNAL);
+        writeString(out, externalModule);
+        writeString(out, symbol.fullyQualifiedName());
+      } else if (symbol instanceof ClassSymbolImpl) {
+        ClassSymbolImpl classSymbol = (ClassSymbolImpl) symbol;
+        out.writeByte(CLASS);
+        writeCommonFields(out, symbol);
+        writeLocation(out, classSymbol.definitionLocation());
+        out.writeBoolean(classSymbol.hasDecorators());
+        out.writeBoolean(classSymbol.hasMetaClass());
+        writeString(out, classSymbol.metaclassFQN());
+        out.writeBoolean(classSymbol.hasSuperClassWithoutSymbol());
+      } else if (symbol instanceof FunctionSymbolImpl) {
+        FunctionSymbol functionSymbol = (FunctionSymbol) symbol;
+        out.writeByte(FUNCTION);
+        writeCommonFields(out, symbol);
+        writeLocation(out, functionSymbol.definitionLocation());
+        writeInt(out, functionSymbol.decorators().size());
+        for (String decorator : functionSymbol.decorators()) {
+          writeString(out, decorator);
+        }
+        out.writeBoolean(functionSymbol.hasVariadicParameter());
+        out.writeBoolean(functionSymbol.isInstanceMethod());
+        out.writeBoolean(functionSymbol.isAsynchronous());
+        out.writeBoolean(functionSymbol.hasDecorators());
+        out.writeBoolean(functionSymbol.isStub());
+        writeString(out, functionSymbol.annotatedReturnTypeName());
+      } else if (symbol instanceof AmbiguousSymbolImpl) {
+        out.writeByte(AMBIGUOUS);
+        writeCommonFields(out, symbol);
+      } else {
+        out.writeByte(OTHER);
+        writeCommonFields(out, symbol);
+      }
+    }
+
+    private void writeCommonFields(DataOutputStream out, SymbolImpl symbol) throws IOException {
+      out.writeByte(symbol.kind().ordinal());
+      writeString(out, symbol.name());
+      writeString(out, symbol.fullyQualifiedName());
+      writeString(out, symbol.annotatedTypeName());
+    }
+
+    private void writeLinks(DataOutputStream out, SymbolImpl symbol) throws IOException {
+      if (externalSymbols.containsKey(symbol)) {
+        return;
+      }
+      writeSymbols(out, symbol.getChildrenSymbolByName().values());
+      if (symbol instanceof ClassSymbolImpl) {
+        writeSymbols(out, ((ClassSymbol) symbol).superClasses());
+        writeSymbols(out, ((ClassSymbol) symbol).declaredMembers());
+      } else if (symbol instanceof FunctionSymbolImpl) {
+        Symbol owner = ((FunctionSymbolImpl) symbol).owner();
+        writeInt(out, owner == null ? NO_ID : symbolIds.get(owner));
+      } else if (symbol instanceof AmbiguousSymbolImpl) {
+        writeSymbols(out, ((AmbiguousSymbol) symbol).alternatives());
+      }
+    }
+
+    private void writeType(DataOutputStream out, InferredType type) throws IOException {
+      if (type instanceof RuntimeType) {
+        out.writeByte(RUNTIME_TYPE);
+        writeInt(out, symbolIds.get(((RuntimeType) type).getTypeClass()));
+      } else if (type instanceof UnionType) {
+        Set<InferredType> alternatives = ((UnionType) type).types();
+        out.writeByte(UNION_TYPE);
+        writeInt(out, alternatives.size());
+        for (InferredType alternative : alternatives) {
+          writeInt(out, typeIds.get(alternative));
+        }
+      } else {
+        out.writeByte(ANY_TYPE);
+      }
+    }
+
+    private void writeTypedFields(DataOutputStream out, SymbolImpl symbol) throws IOException {
+      if (externalSymbols.containsKey(symbol)) {
+        return;
+      }
+      writeInt(out, typeIds.get(symbol.inferredType()));
+      if (symbol instanceof FunctionSymbolImpl) {
+        FunctionSymbolImpl functionSymbol = (FunctionSymbolImpl) symbol;
+        writeInt(out, typeIds.get(functionSymbol.declaredReturnType()));
+        writeInt(out, functionSymbol.parameters().size());
+        for (FunctionSymbol.Parameter parameter : functionSymbol.parameters()) {
+          writeString(out, parameter.name());
+          writeInt(out, typeIds.get(parameter.declaredType()));
+          out.writeBoolean(parameter.hasDefaultValue());
+          out.writeBoolean(parameter.isVariadic());
+          out.writeBoolean(parameter.isKeywordOnly());
+          out.writeBoolean(parameter.isPositionalOnly());
+          writeLocation(out, parameter.location());
+        }
+      }
+    }
+
+    private void writeSymbols(DataOutputStream out, Collection<Symbol> symbolsToWrite) throws IOException {
+      writeInt(out, symbolsToWrite.size());
+      for (Symbol symbol : symbolsToWrite) {
+        writeInt(out, symbolIds.get(symbol));
+      }
+    }
+
+    private void writeLocation(DataOutputStream out, @Nullable LocationInFile location) throws IOException {
+      out.writeBoolean(location != null);
+      if (location != null) {
+        writeString(out, location.fileId());
+        writeInt(out, location.startLine());
+        writeInt(out, location.startLineOffset());
+        writeInt(out, location.endLine());
+        writeInt(out, location.endLineOffset());
+      }
+    }
+
+    private void writeString(DataOutputStream out, @Nullable String string) throws IOException {
+      if (string == null) {
+        writeInt(out, NO_ID);
+        return;
+      }
+      Integer id = stringIds.get(string);
+      if (id == null) {
+        id = strings.size();
+        stringIds.put(string, id);
+        strings.add(string);
+      }
+      writeInt(out, id);
+    }
+  }
+
+  private static class Reader {
+    private final DataInputStream in;
+    private final BiFunction<String, String, Symbol> externalSymbols;
+    private final Set<Symbol> resolvedExternalSymbols = Collections.newSetFromMap(new IdentityHashMap<>());
+    private String[] strings;
+    private SymbolImpl[] symbols;
+    private InferredType[] types;
+
+    private Reader(DataInputStream in, BiFunction<String, String, Symbol> externalSymbols) {
+      this.in = in;
+      this.externalSymbols = externalSymbols;
+    }
+
+    private List<Symbol> read() throws IOException {
+      strings = new String[readInt(in)];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = in.readUTF();
+      }
+      symbols = new SymbolImpl[readInt(in)];
+      Map<AmbiguousSymbolImpl, Set<Symbol>> alternatives = new IdentityHashMap<>();
+      for (int i = 0; i < symbols.length; i++) {
+        symbols[i] = readSymbol(alternatives);
+      }
+      List<FunctionSymbolImpl> functions = new ArrayList<>();
+      Map<FunctionSymbolImpl, Symbol> owners = new IdentityHashMap<>();
+      for (SymbolImpl symbol : symbols) {
+        readLinks(symbol, alternatives, functions, owners);
+      }
+      // members have been added to their classes, which sets the owner of the methods: the serialized one prevails
+      functions.forEach(function -> function.setOwner(owners.get(function)));
+      types = new InferredType[readInt(in)];
+      for (int i = 0; i < types.length; i++) {
+        types[i] = readType();
+      }
+      for (SymbolImpl symbol : symbols) {
+        readTypedFields(symbol);
+      }
+      int numberOfRoots = readInt(in);
+      List<Symbol> roots = new ArrayList<>(numberOfRoots);
+      for (int i = 0; i < numberOfRoots; i++) {
+        roots.add(symbols[readInt(in)]);
+      }
+      return roots;
+    }
+
+    private SymbolImpl readSymbol(Map<AmbiguousSymbolImpl, Set<Symbol>> alternatives) throws IOException {
+      byte tag = in.readByte();
+      if (tag == EXTERNAL) {
+        return readExternalSymbol();
+      }
+      Symbol.Kind kind = Symbol.Kind.values()[in.readByte()];
+      String name = readString();
+      String fullyQualifiedName = readString();
+      String annotatedTypeName = readString();
+      SymbolImpl symbol;
+      if (tag == CLASS) {
+        ClassSymbolImpl classSymbol = new ClassSymbolImpl(name, fullyQualifiedName, readLocation(), in.readBoolean(), in.readBoolean(), readString());
+        if (in.readBoolean()) {
+          classSymbol.setHasSuperClassWithoutSymbol();
+        }
+        symbol = classSymbol;
+      } else if (tag == FUNCTION) {
+        LocationInFile location = readLocation();
+        int numberOfDecorators = readInt(in);
+        List<String> decorators = new ArrayList<>(numberOfDecorators);
+        for (int i = 0; i < numberOfDecorators; i++) {
+          decorators.add(readString());
+        }
+        symbol = new FunctionSymbolImpl(name, fullyQualifiedName, location, decorators,
+          in.readBoolean(), in.readBoolean(), in.readBoolean(), in.readBoolean(), in.readBoolean(), readString());
+      } else if (tag == AMBIGUOUS) {
+        Set<Symbol> ambiguousSymbolAlternatives = new HashSet<>();
+        AmbiguousSymbolImpl ambiguousSymbol = new AmbiguousSymbolImpl(name, fullyQualifiedName, ambiguousSymbolAlternatives);
+        alternatives.put(ambiguousSymbol, ambiguousSymbolAlternatives);
+        symbol = ambiguousSymbol;
+      } else {
+        symbol = new SymbolImpl(name, fullyQualifiedName, annotatedTypeName);
+      }
+      symbol.setKind(kind);
+      return symbol;
+    }
+
+    private SymbolImpl readExternalSymbol() throws IOException {
+      String moduleName = readString();
+      String fullyQualifiedName = readString();
+      Symbol symbol = externalSymbols.apply(moduleName, fullyQualifiedName);
+      if (symbol == null) {
+        throw new IllegalStateException("Unable to resolve external symbol " + fullyQualifiedName);
+      }
+      resolvedExternalSymbols.add(symbol);
+      return (SymbolImpl) symbol;
+    }
+
+    private void readLinks(SymbolImpl symbol, Map<AmbiguousSymbolImpl, Set<Symbol>> alternatives, List<FunctionSymbolImpl> functions,
+      Map<FunctionSymbolImpl, Symbol> owners) throws IOException {
+      if (resolvedExternalSymbols.contains(symbol)) {
+        return;
+      }
+      readSymbols().forEach(symbol::addChildSymbol);
+      if (symbol instanceof ClassSymbolImpl) {
+        ClassSymbolImpl classSymbol = (ClassSymbolImpl) symbol;
+        readSymbols().forEach(classSymbol::addSuperClass);
+        classSymbol.addMembers(readSymbols());
+      } else if (symbol instanceof FunctionSymbolImpl) {
+        FunctionSymbolImpl functionSymbol = (FunctionSymbolImpl) symbol;
+        functions.add(functionSymbol);
+        owners.put(functionSymbol, readSymbol());
+      } else if (symbol instanceof AmbiguousSymbolImpl) {
+        alternatives.get(symbol).addAll(readSymbols());
+      }
+    }
+
+    private InferredType readType() throws IOException {
+      byte tag = in.readByte();
+      if (tag == RUNTIME_TYPE) {
+        return InferredTypes.runtimeType(symbols[readInt(in)]);
+      }
+      if (tag == UNION_TYPE) {
+        int numberOfAlternatives = readInt(in);
+        List<InferredType> alternatives = new ArrayList<>(numberOfAlternatives);
+        for (int i = 0; i < numberOfAlternatives; i++) {
+          alternatives.add(types[readInt(in)]);
+        }
+        return InferredTypes.union(alternatives.stream());
+      }
+      return InferredTypes.anyType();
+    }
+
+    private void readTypedFields(SymbolImpl symbol) throws IOException {
+      if (resolvedExternalSymbols.contains(symbol)) {
+        return;
+      }
+      symbol.setInferredType(types[readInt(in)]);
+      if (symbol instanceof FunctionSymbolImpl) {
+        FunctionSymbolImpl functionSymbol = (FunctionSymbolImpl) symbol;
+        functionSymbol.setDeclaredReturnType(types[readInt(in)]);
+        int numberOfParameters = readInt(in);
+        for (int i = 0; i < numberOfParameters; i++) {
+          String name = readString();
+          InferredType declaredType = types[readInt(in)];
+          functionSymbol.addParameter(name, declaredType, in.readBoolean(), in.readBoolean(), in.readBoolean(), in.readBoolean(), readLocation());
+        }
+      }
+    }
+
+    private List<Symbol> readSymbols() throws IOException {
+      int size = readInt(in);
+      List<Symbol> result = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        result.add(symbols[readInt(in)]);
+      }
+      return result;
+    }
+
+    @CheckForNull
+    private Symbol readSymbol() throws IOException {
+      int id = readInt(in);
+      return id == NO_ID ? null : symbols[id];
+    }
+
+    @CheckForNull
+    private LocationInFile readLocation() throws IOException {
+      if (!in.readBoolean()) {
+        return null;
+      }
+      return new LocationInFile(readString(), readInt(in), readInt(in), readInt(in), readInt(in));
+    }
+
+    @CheckForNull
+    private String readString() throws IOException {
+      int id = readInt(in);
+      return id == NO_ID ? null : strings[id];
+    }
+  }
+
+  /**
+   * Variable length encoding: most of the written integers are small identifiers, stored on a single byte.
+   * -1 is stored as 0, so that all the values are positive.
+   */
+  static void writeInt(DataOutputStream out, int value) throws IOException {
+    int remaining = value + 1;
+    while ((remaining & ~0x7F) != 0) {
+      out.writeByte((remaining & 0x7F) | 0x80);
+      remaining >>>= 7;
+    }
+    out.writeByte(remaining);
+  }
+
+  static int readInt(DataInputStream in) throws IOException {
+    int value = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = in.readUnsignedByte();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value - 1;
+  }
+}
@@ -43,6 +43,7 @@ import org.sonar.plugins.python.api.tree.Name;
 import org.sonar.plugins.python.api.tree.QualifiedExpression;
 import org.sonar.plugins.python.api.tree.Tree;
 import org.sonar.plugins.python.api.types.InferredType;
+import org.sonar.python.cfg.CfgCache;
 import org.sonar.python.semantic.SymbolImpl;
 import org.sonar.python.tree.NameImpl;
 import org.sonar.python.tree.TreeUtils;
@@ -59,11 +60,15 @@ public class TypeInference extends BaseTreeVisitor {
   private final Map<AssignmentStatement, Assignment> assignmentsByAssignmentStatement = new HashMap<>();
 
   public static void inferTypes(FileInput fileInput, PythonFile pythonFile) {
+    inferTypes(fileInput, new CfgCache(pythonFile));
+  }
+
+  public static void inferTypes(FileInput fileInput, CfgCache cfgCache) {
     fileInput.accept(new BaseTreeVisitor() {
       @Override
       public void visitFunctionDef(FunctionDef funcDef) {
         super.visitFunctionDef(funcDef);
-        inferTypesAndMemberAccessSymbols(funcDef, pythonFile);
+        inferTypesAndMemberAccessSymbols(funcDef, cfgCache);
       }
     });
 
@@ -81,7 +86,7 @@ public class TypeInference extends BaseTreeVisitor {
     });
   }
 
-  private static void inferTypesAndMemberAccessSymbols(FunctionDef functionDef, PythonFile pythonFile) {
+  private static void inferTypesAndMemberAccessSymbols(FunctionDef functionDef, CfgCache cfgCache) {
     TypeInference visitor = new TypeInference();
     functionDef.accept(visitor);
     Set<Symbol> trackedVars = new HashSet<>();
@@ -110,7 +115,7 @@ public class TypeInference extends BaseTreeVisitor {
         }
       });
     } else {
-      ControlFlowGraph cfg = ControlFlowGraph.build(functionDef, pythonFile);
+      ControlFlowGraph cfg = cfgCache.cfg(functionDef);
       if (cfg == null) {
         return;
       }
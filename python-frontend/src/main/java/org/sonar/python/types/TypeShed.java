@@ -20,6 +20,7 @@
 package org.sonar.python.types;
 
 import com.sonar.sslr.api.AstNode;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collection;
@@ -29,10 +30,13 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.plugins.python.api.PythonFile;
 import org.sonar.plugins.python.api.symbols.ClassSymbol;
 import org.sonar.plugins.python.api.symbols.FunctionSymbol;
@@ -59,12 +63,15 @@ import static org.sonar.plugins.python.api.types.BuiltinTypes.NONE_TYPE;
 
 public class TypeShed {
 
+  private static final Logger LOG = Loggers.get(TypeShed.class);
   private static final String TYPING = "typing";
   private static final String TYPING_EXTENSIONS = "typing_extensions";
-  private static Map<String, Symbol> builtins;
-  private static final Map<String, Set<Symbol>> typeShedSymbols = new HashMap<>();
-  private static final Map<String, Set<Symbol>> builtinGlobalSymbols = new HashMap<>();
+  private static volatile Map<String, Symbol> builtins;
+  private static volatile ModuleSymbolsCache moduleSymbols = new ModuleSymbolsCache(false);
+  private static final Map<String, Set<Symbol>> builtinGlobalSymbols = new ConcurrentHashMap<>();
   private static final Set<String> modulesInProgress = new HashSet<>();
+  private static TypeShedIndex index;
+  private static boolean isIndexLoaded = false;
 
   private static final String STDLIB_2AND3 = "typeshed/stdlib/2and3/";
   private static final String STDLIB_2 = "typeshed/stdlib/2/";
@@ -78,9 +85,25 @@ public class TypeShed {
   }
 
   public static Map<String, Symbol> builtinSymbols() {
+    Map<String, Symbol> computedBuiltins = builtins;
+    if (computedBuiltins != null) {
+      return computedBuiltins;
+    }
+    return computeBuiltinSymbols();
+  }
+
+  private static synchronized Map<String, Symbol> computeBuiltinSymbols() {
     // InferredTypes class initialization requires builtInSymbols to be computed. Calling dummy method
     // from it explicitly to overcome the issue of TypeShed.builtins being assigned twice
     if (TypeShed.builtins == null && !InferredTypes.isInitialized()) {
+      TypeShedIndex typeShedIndex = index();
+      if (typeShedIndex != null) {
+        Map<String, Symbol> builtins = typeShedIndex.builtinSymbols();
+        TypeShed.builtins = Collections.unmodifiableMap(builtins);
+        InferredTypes.setBuiltinSymbols(builtins);
+        TypeShed.builtinGlobalSymbols.put("", new HashSet<>(builtins.values()));
+        return TypeShed.builtins;
+      }
       Map<String, Symbol> builtins = new HashMap<>();
       builtins.put(NONE_TYPE, new ClassSymbolImpl(NONE_TYPE, NONE_TYPE));
       InputStream resource = TypeShed.class.getResourceAsStream("typeshed/stdlib/2and3/builtins.pyi");
@@ -105,6 +128,33 @@ public class TypeShed {
     return builtins;
   }
 
+  @CheckForNull
+  private static TypeShedIndex index() {
+    if (!isIndexLoaded) {
+      isIndexLoaded = true;
+      try {
+        index = TypeShedIndex.load(TypeShed.class.getResourceAsStream(TypeShedIndex.RESOURCE_NAME));
+      } catch (IOException e) {
+        LOG.debug("Unable to load the index of stub files symbols, stub files will be parsed: " + e.getMessage());
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Stub files are parsed, even when their symbols are available in the index: used to generate the index, and to
+   * compare loading the index with parsing the stub files.
+   */
+  public static synchronized void disableIndex() {
+    isIndexLoaded = true;
+    index = null;
+  }
+
+  // visible for testing
+  static synchronized void enableIndex() {
+    isIndexLoaded = false;
+  }
+
   private static void setDeclaredReturnType(Symbol symbol, FunctionDef functionDef) {
     TypeAnnotation returnTypeAnnotation = functionDef.returnTypeAnnotation();
     if (returnTypeAnnotation == null) {
@@ -154,13 +204,50 @@ public class TypeShed {
     return new HashSet<>(typingExtensionSymbols.values());
   }
 
+  /**
+   * Symbols of a module are computed once, while holding the lock of this class: stub files importing each other are
+   * computed by the same thread, which detects import cycles. Once computed, they are read without locking.
+   */
   public static Set<Symbol> symbolsForModule(String moduleName) {
-    if (!TypeShed.typeShedSymbols.containsKey(moduleName)) {
-      Set<Symbol> symbols = searchTypeShedForModule(moduleName);
-      typeShedSymbols.put(moduleName, symbols);
+    Set<Symbol> symbols = moduleSymbols.get(moduleName);
+    if (symbols != null) {
       return symbols;
     }
-    return TypeShed.typeShedSymbols.get(moduleName);
+    synchronized (TypeShed.class) {
+      ModuleSymbolsCache cache = moduleSymbols;
+      symbols = cache.get(moduleName);
+      if (symbols == null) {
+        if (modulesInProgress.contains(moduleName)) {
+          return new HashSet<>();
+        }
+        symbols = searchTypeShedForModule(moduleName);
+        cache.put(moduleName, symbols);
+      }
+      return symbols;
+    }
+  }
+
+  /**
+   * Releases the symbols of the stub modules loaded so far. Builtin symbols are kept, as they are referenced by the
+   * types computed by the analyzer.
+   */
+  public static synchronized void reset() {
+    moduleSymbols = new ModuleSymbolsCache(moduleSymbols.usesSoftReferences());
+  }
+
+  /**
+   * Long-lived processes can let the garbage collector reclaim the symbols of stub modules when memory runs low:
+   * they are then loaded again when needed.
+   */
+  public static synchronized void useSoftReferences(boolean softReferences) {
+    if (moduleSymbols.usesSoftReferences() != softReferences) {
+      moduleSymbols = new ModuleSymbolsCache(softReferences);
+    }
+  }
+
+  // visible for testing
+  static int numberOfLoadedModules() {
+    return moduleSymbols.size();
   }
 
   @CheckForNull
@@ -187,8 +274,9 @@ public class TypeShed {
   }
 
   private static Set<Symbol> searchTypeShedForModule(String moduleName) {
-    if (modulesInProgress.contains(moduleName)) {
-      return new HashSet<>();
+    TypeShedIndex typeShedIndex = index();
+    if (typeShedIndex != null) {
+      return typeShedIndex.symbolsForModule(moduleName, TypeShed::indexedModuleSymbols);
     }
     modulesInProgress.add(moduleName);
     Set<Symbol> customSymbols = new HashSet<>(getModuleSymbols(moduleName, CUSTOM_THIRD_PARTY, builtinGlobalSymbols).values());
@@ -214,6 +302,10 @@ public class TypeShed {
     return thirdPartySymbols;
   }
 
+  private static Collection<Symbol> indexedModuleSymbols(String moduleName) {
+    return moduleName.isEmpty() ? builtinSymbols().values() : symbolsForModule(moduleName);
+  }
+
   @Nullable
   private static ModuleDescription getResourceForModule(String moduleName, String categoryPath) {
     String[] moduleNameHierarchy = moduleName.split("\\.");
@@ -264,10 +356,57 @@ public class TypeShed {
 
   public static Collection<Symbol> stubFilesSymbols() {
     Set<Symbol> symbols = new HashSet<>(TypeShed.builtinSymbols().values());
-    typeShedSymbols.values().forEach(symbols::addAll);
+    moduleSymbols.values().forEach(symbols::addAll);
     return symbols;
   }
 
+  /**
+   * Binary form of symbols computed for project files. The stub file symbols they reference are not copied, they are
+   * resolved again by {@link #deserializeProjectSymbols(byte[])}.
+   */
+  public static byte[] serializeProjectSymbols(Collection<Symbol> symbols) {
+    return SymbolsSerializer.serialize(symbols, TypeShed::stubModuleName);
+  }
+
+  /**
+   * @throws IllegalStateException when the symbols were serialized with stub file symbols which do not exist anymore
+   */
+  public static Set<Symbol> deserializeProjectSymbols(byte[] bytes) {
+    return new HashSet<>(SymbolsSerializer.deserialize(bytes, 0, bytes.length, TypeShed::stubSymbol));
+  }
+
+  /**
+   * Module of the given symbol if it is a builtin symbol, or a global symbol of an already loaded stub module.
+   */
+  @CheckForNull
+  private static String stubModuleName(Symbol symbol) {
+    String fullyQualifiedName = symbol.fullyQualifiedName();
+    if (fullyQualifiedName == null) {
+      return null;
+    }
+    if (builtinSymbols().get(fullyQualifiedName) == symbol) {
+      return "";
+    }
+    int lastDot = fullyQualifiedName.lastIndexOf('.');
+    if (lastDot < 0) {
+      return null;
+    }
+    String moduleName = fullyQualifiedName.substring(0, lastDot);
+    Set<Symbol> symbols = moduleSymbols.get(moduleName);
+    if (symbols != null && symbols.stream().anyMatch(moduleSymbol -> moduleSymbol == symbol)) {
+      return moduleName;
+    }
+    return null;
+  }
+
+  @CheckForNull
+  private static Symbol stubSymbol(String moduleName, String fullyQualifiedName) {
+    if (moduleName.isEmpty()) {
+      return builtinSymbols().get(fullyQualifiedName);
+    }
+    return symbolsForModule(moduleName).stream().filter(symbol -> fullyQualifiedName.equals(symbol.fullyQualifiedName())).findFirst().orElse(null);
+  }
+
   static class ReturnTypeVisitor extends BaseTreeVisitor {
 
     @Override
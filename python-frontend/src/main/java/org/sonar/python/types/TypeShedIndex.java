@@ -0,0 +1,228 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.types;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
+import org.sonar.plugins.python.api.symbols.Symbol;
+
+/**
+ * Symbols of the stub files, computed at build time and stored in a single binary resource, so that analyses do not
+ * have to parse the stub files. The symbols of a module are only deserialized when they are requested. The builtin
+ * symbols and the symbols of other modules they reference are written as external references, resolved against the
+ * symbols of their module when read, so that modules share them as they do when stub files are parsed.
+ */
+class TypeShedIndex {
+
+  static final String RESOURCE_NAME = "typeshed.index";
+  private static final int MAGIC = 0x50595449;
+  private static final int VERSION = 3;
+  private static final String BUILTINS_MODULE = "";
+
+  private final byte[] bytes;
+  private final Entry builtins;
+  private final Map<String, Entry> modules;
+
+  private TypeShedIndex(byte[] bytes, Entry builtins, Map<String, Entry> modules) {
+    this.bytes = bytes;
+    this.builtins = builtins;
+    this.modules = modules;
+  }
+
+  /**
+   * Returns null when the given resource is missing or has not been generated by this version of the analyzer.
+   */
+  @CheckForNull
+  static TypeShedIndex load(@CheckForNull InputStream resource) throws IOException {
+    if (resource == null) {
+      return null;
+    }
+    byte[] bytes = readAllBytes(resource);
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+    if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+      return null;
+    }
+    int builtinsLength = in.readInt();
+    int numberOfModules = in.readInt();
+    Map<String, Integer> moduleLengths = new LinkedHashMap<>();
+    for (int i = 0; i < numberOfModules; i++) {
+      moduleLengths.put(in.readUTF(), in.readInt());
+    }
+    int offset = bytes.length - in.available();
+    Entry builtins = new Entry(offset, builtinsLength);
+    offset += builtinsLength;
+    Map<String, Entry> modules = new HashMap<>();
+    for (Map.Entry<String, Integer> moduleLength : moduleLengths.entrySet()) {
+      modules.put(moduleLength.getKey(), new Entry(offset, moduleLength.getValue()));
+      offset += moduleLength.getValue();
+    }
+    return new TypeShedIndex(bytes, builtins, modules);
+  }
+
+  static byte[] write(Collection<Symbol> builtinSymbols, Map<String, Set<Symbol>> symbolsByModule) throws IOException {
+    byte[] serializedBuiltins = SymbolsSerializer.serialize(builtinSymbols);
+    ExternalReferences externalReferences = new ExternalReferences(builtinSymbols, symbolsByModule);
+    Map<String, byte[]> serializedModules = new LinkedHashMap<>();
+    symbolsByModule.forEach((moduleName, symbols) -> serializedModules.put(moduleName,
+      SymbolsSerializer.serialize(symbols, symbol -> externalReferences.ownerModule(moduleName, symbol))));
+
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(result);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(serializedBuiltins.length);
+    out.writeInt(serializedModules.size());
+    for (Map.Entry<String, byte[]> serializedModule : serializedModules.entrySet()) {
+      out.writeUTF(serializedModule.getKey());
+      out.writeInt(serializedModule.getValue().length);
+    }
+    out.write(serializedBuiltins);
+    for (byte[] serializedModule : serializedModules.values()) {
+      out.write(serializedModule);
+    }
+    out.flush();
+    return result.toByteArray();
+  }
+
+  Map<String, Symbol> builtinSymbols() {
+    Map<String, Symbol> result = new HashMap<>();
+    for (Symbol symbol : SymbolsSerializer.deserialize(bytes, builtins.offset, builtins.length)) {
+      result.put(symbol.fullyQualifiedName(), symbol);
+    }
+    return result;
+  }
+
+  /**
+   * @param moduleSymbols returns the symbols of the given module, or the builtin symbols for the empty module name:
+   *                      the returned symbols reference them
+   */
+  Set<Symbol> symbolsForModule(String moduleName, Function<String, Collection<Symbol>> moduleSymbols) {
+    Entry entry = modules.get(moduleName);
+    if (entry == null) {
+      return new HashSet<>();
+    }
+    Map<String, Map<String, Symbol>> symbolsByFqnByModule = new HashMap<>();
+    return new HashSet<>(SymbolsSerializer.deserialize(bytes, entry.offset, entry.length,
+      (externalModule, fullyQualifiedName) -> symbolsByFqnByModule
+        .computeIfAbsent(externalModule, name -> symbolsByFqn(moduleSymbols.apply(name)))
+        .get(fullyQualifiedName)));
+  }
+
+  private static Map<String, Symbol> symbolsByFqn(Collection<Symbol> symbols) {
+    Map<String, Symbol> result = new HashMap<>();
+    for (Symbol symbol : symbols) {
+      if (symbol.fullyQualifiedName() != null) {
+        result.putIfAbsent(symbol.fullyQualifiedName(), symbol);
+      }
+    }
+    return result;
+  }
+
+  Set<String> moduleNames() {
+    return modules.keySet();
+  }
+
+  private static byte[] readAllBytes(InputStream resource) throws IOException {
+    try (InputStream in = resource) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
+    }
+  }
+
+  /**
+   * Modules owning the symbols which are written as external references: the builtin symbols, and the global symbols
+   * of the other modules whose fully qualified name is unique in their module. A module does not reference a module
+   * which references it, directly or not, so that reading a module never requires reading it again.
+   */
+  private static class ExternalReferences {
+    private final Map<Symbol, String> ownerModules = new IdentityHashMap<>();
+    private final Map<String, Set<String>> referencedModules = new HashMap<>();
+
+    private ExternalReferences(Collection<Symbol> builtinSymbols, Map<String, Set<Symbol>> symbolsByModule) {
+      builtinSymbols.forEach(symbol -> ownerModules.put(symbol, BUILTINS_MODULE));
+      symbolsByModule.forEach((moduleName, symbols) -> symbols.stream()
+        .filter(symbol -> symbol.fullyQualifiedName() != null)
+        .collect(Collectors.groupingBy(Symbol::fullyQualifiedName))
+        .values().stream()
+        .filter(symbolsWithSameFqn -> symbolsWithSameFqn.size() == 1)
+        .forEach(symbolsWithSameFqn -> ownerModules.putIfAbsent(symbolsWithSameFqn.get(0), moduleName)));
+    }
+
+    /**
+     * Returns null when the given symbol has to be written in the given module.
+     */
+    @CheckForNull
+    private String ownerModule(String moduleName, Symbol symbol) {
+      String ownerModule = ownerModules.get(symbol);
+      if (ownerModule == null || ownerModule.equals(moduleName)) {
+        return null;
+      }
+      if (ownerModule.equals(BUILTINS_MODULE)) {
+        return ownerModule;
+      }
+      Set<String> modulesReferencedByModule = referencedModules.computeIfAbsent(moduleName, name -> new HashSet<>());
+      if (!modulesReferencedByModule.contains(ownerModule)) {
+        if (references(ownerModule, moduleName, new HashSet<>())) {
+          return null;
+        }
+        modulesReferencedByModule.add(ownerModule);
+      }
+      return ownerModule;
+    }
+
+    private boolean references(String moduleName, String otherModuleName, Set<String> visitedModules) {
+      if (moduleName.equals(otherModuleName)) {
+        return true;
+      }
+      return visitedModules.add(moduleName) && referencedModules.getOrDefault(moduleName, Collections.emptySet()).stream()
+        .anyMatch(referencedModule -> references(referencedModule, otherModuleName, visitedModules));
+    }
+  }
+
+  private static class Entry {
+    private final int offset;
+    private final int length;
+
+    private Entry(int offset, int length) {
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+}
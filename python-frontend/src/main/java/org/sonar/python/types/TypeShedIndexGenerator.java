@@ -0,0 +1,131 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.types;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.plugins.python.api.symbols.Symbol;
+
+/**
+ * Build-time generation of the {@link TypeShedIndex}: the symbols of all the bundled stub files are computed by parsing
+ * them, then serialized next to the stub files. The time needed to load the index is compared with the time needed to
+ * parse the stub files.
+ */
+public class TypeShedIndexGenerator {
+
+  private static final Logger LOG = Loggers.get(TypeShedIndexGenerator.class);
+  private static final List<String> CATEGORIES = Arrays.asList(
+    "custom",
+    "typeshed/stdlib/2and3",
+    "typeshed/stdlib/2",
+    "typeshed/stdlib/3",
+    "typeshed/third_party/2and3",
+    "typeshed/third_party/2",
+    "typeshed/third_party/3");
+
+  private TypeShedIndexGenerator() {
+  }
+
+  /**
+   * @param args the directory containing the compiled classes and resources of the frontend
+   */
+  public static void main(String[] args) throws IOException {
+    Path typesDirectory = Paths.get(args[0]).resolve(TypeShed.class.getPackage().getName().replace('.', '/'));
+    Set<String> moduleNames = new TreeSet<>();
+    for (String category : CATEGORIES) {
+      moduleNames.addAll(moduleNames(typesDirectory.resolve(category)));
+    }
+
+    TypeShed.disableIndex();
+    long startTime = System.nanoTime();
+    Map<String, Symbol> builtinSymbols = TypeShed.builtinSymbols();
+    Map<String, Set<Symbol>> symbolsByModule = new LinkedHashMap<>();
+    for (String moduleName : moduleNames) {
+      symbolsByModule.put(moduleName, TypeShed.symbolsForModule(moduleName));
+    }
+    long parsingTime = System.nanoTime() - startTime;
+
+    byte[] index = TypeShedIndex.write(builtinSymbols.values(), symbolsByModule);
+    Files.write(typesDirectory.resolve(TypeShedIndex.RESOURCE_NAME), index);
+
+    startTime = System.nanoTime();
+    TypeShedIndex loadedIndex = TypeShedIndex.load(Files.newInputStream(typesDirectory.resolve(TypeShedIndex.RESOURCE_NAME)));
+    if (loadedIndex == null) {
+      throw new IllegalStateException("Unable to load the generated index");
+    }
+    Map<String, Symbol> loadedBuiltinSymbols = loadedIndex.builtinSymbols();
+    Map<String, Set<Symbol>> loadedSymbolsByModule = new HashMap<>();
+    for (String moduleName : loadedIndex.moduleNames()) {
+      loadedSymbols(loadedIndex, moduleName, loadedBuiltinSymbols, loadedSymbolsByModule);
+    }
+    long loadingTime = System.nanoTime() - startTime;
+
+    LOG.info(String.format("Indexed %d stub modules in %d bytes: parsing takes %d ms, loading the index takes %d ms",
+      moduleNames.size(), index.length, parsingTime / 1_000_000, loadingTime / 1_000_000));
+  }
+
+  private static Collection<Symbol> loadedSymbols(TypeShedIndex index, String moduleName, Map<String, Symbol> builtinSymbols,
+    Map<String, Set<Symbol>> loadedSymbolsByModule) {
+    if (moduleName.isEmpty()) {
+      return builtinSymbols.values();
+    }
+    Set<Symbol> symbols = loadedSymbolsByModule.get(moduleName);
+    if (symbols == null) {
+      symbols = index.symbolsForModule(moduleName, name -> loadedSymbols(index, name, builtinSymbols, loadedSymbolsByModule));
+      loadedSymbolsByModule.put(moduleName, symbols);
+    }
+    return symbols;
+  }
+
+  private static Set<String> moduleNames(Path categoryDirectory) throws IOException {
+    if (!Files.isDirectory(categoryDirectory)) {
+      return new TreeSet<>();
+    }
+    try (Stream<Path> files = Files.walk(categoryDirectory)) {
+      return files
+        .filter(file -> file.getFileName().toString().endsWith(".pyi"))
+        .map(file -> moduleName(categoryDirectory.relativize(file)))
+        .collect(Collectors.toCollection(TreeSet::new));
+    }
+  }
+
+  private static String moduleName(Path relativePath) {
+    String path = relativePath.toString().replace('\\', '/');
+    path = path.substring(0, path.length() - ".pyi".length());
+    if (path.endsWith("/__init__")) {
+      path = path.substring(0, path.length() - "/__init__".length());
+    }
+    return path.replace('/', '.');
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python;
+
+import com.sonar.sslr.api.RecognitionException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.sonar.plugins.python.api.PythonFile;
+import org.sonar.plugins.python.api.PythonSubscriptionCheck;
+import org.sonar.plugins.python.api.tree.FileInput;
+import org.sonar.plugins.python.api.tree.FunctionDef;
+import org.sonar.plugins.python.api.tree.Tree;
+import org.sonar.python.semantic.ProjectLevelSymbolTable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.python.PythonTestUtils.pythonFile;
+
+public class AnalyzedFileContextTest {
+
+  @Test
+  public void symbols_and_shared_control_flow_graphs() {
+    FileInput fileInput = PythonTestUtils.parse("def foo(): pass");
+    AnalyzedFileContext context = new AnalyzedFileContext(fileInput, pythonFile("my_module.py"), null, "my_package", ProjectLevelSymbolTable.empty(), null);
+    FunctionDef functionDef = (FunctionDef) PythonTestUtils.getAllDescendant(fileInput, t -> t.is(Tree.Kind.FUNCDEF)).get(0);
+    assertThat(functionDef.name().symbol().fullyQualifiedName()).isEqualTo("my_package.my_module.foo");
+    assertThat(context.rootTree()).isSameAs(fileInput);
+    assertThat(context.parsingException()).isNull();
+    // the control flow graph of the function is built by the type inference
+    assertThat(context.cfgCache().computations()).isEqualTo(1);
+    assertThat(context.complexities()).isSameAs(context.complexities());
+    assertThat(context.complexities().complexity(functionDef)).isEqualTo(1);
+  }
+
+  @Test
+  public void parsing_error() {
+    PythonFile pythonFile = Mockito.mock(PythonFile.class);
+    RecognitionException parsingException = new RecognitionException(1, "error");
+    AnalyzedFileContext context = new AnalyzedFileContext(pythonFile, parsingException);
+    assertThat(context.rootTree()).isNull();
+    assertThat(context.parsingException()).isSameAs(parsingException);
+    assertThat(context.cfgCache().computations()).isZero();
+    assertThat(context.complexities()).isNull();
+  }
+
+  @Test
+  public void context_of_subscription_context() {
+    FileInput fileInput = PythonTestUtils.parse("x = 1");
+    AnalyzedFileContext context = new AnalyzedFileContext(fileInput, pythonFile("my_module.py"), null, "", ProjectLevelSymbolTable.empty(), null);
+    List<AnalyzedFileContext> contexts = new ArrayList<>();
+    SubscriptionVisitor.analyze(Collections.singletonList(new PythonSubscriptionCheck() {
+      @Override
+      public void initialize(Context initContext) {
+        initContext.registerSyntaxNodeConsumer(Tree.Kind.FILE_INPUT, ctx -> contexts.add(AnalyzedFileContext.of(ctx)));
+      }
+    }), context);
+    assertThat(contexts).containsExactly(context);
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.Test;
+import org.sonar.plugins.python.api.PythonSubscriptionCheck;
+import org.sonar.plugins.python.api.PythonVisitorContext;
+import org.sonar.plugins.python.api.tree.Tree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExecutionProfilerTest {
+
+  @Test
+  public void phases() {
+    ExecutionProfiler profiler = new ExecutionProfiler();
+    assertThat(profiler.measurePhase(ExecutionProfiler.PARSE, () -> "tree")).isEqualTo("tree");
+    profiler.measurePhase(ExecutionProfiler.PARSE, ExecutionProfiler::new);
+    profiler.measurePhase(ExecutionProfiler.TREE, () -> sleep(20));
+    assertThat(ExecutionProfiler.measurePhase(null, ExecutionProfiler.CPD, () -> 42)).isEqualTo(42);
+    ExecutionProfiler.measurePhase(null, ExecutionProfiler.CPD, () -> {});
+
+    List<String> lines = Arrays.asList(profiler.report().split("\n"));
+    assertThat(lines.get(0)).startsWith("Phase").contains("Time (ms)", "Calls", "Allocated (KB)");
+    // sorted by decreasing time
+    assertThat(lines.get(1)).startsWith("tree").matches(".* 1 +\\d+$");
+    assertThat(lines.get(2)).startsWith("parse").matches(".* 2 +\\d+$");
+    assertThat(lines.get(3)).isEmpty();
+    assertThat(lines.get(4)).startsWith("Rule");
+    assertThat(profiler.report()).doesNotContain("cpd");
+  }
+
+  @Test
+  public void rules_of_subscription_checks() {
+    PythonSubscriptionCheck check = new PythonSubscriptionCheck() {
+      @Override
+      public void initialize(Context context) {
+        context.registerSyntaxNodeConsumer(Tree.Kind.FUNCDEF, ctx -> sleep(1));
+      }
+    };
+    PythonSubscriptionCheck unregisteredCheck = new PythonSubscriptionCheck() {
+      @Override
+      public void initialize(Context context) {
+        // no subscription
+      }
+    };
+    ExecutionProfiler profiler = new ExecutionProfiler();
+    profiler.register(check, "python:S42");
+    assertThat(profiler.ruleKey(check)).isEqualTo("python:S42");
+    assertThat(profiler.ruleKey(unregisteredCheck)).isEqualTo(unregisteredCheck.getClass().getName());
+
+    PythonVisitorContext context = TestPythonVisitorRunner.createContext(new File("src/test/resources/file.py"));
+    SubscriptionVisitor.analyze(Arrays.asList(check, unregisteredCheck), context, profiler);
+    SubscriptionVisitor.analyze(Collections.singletonList(check), context, null);
+
+    String report = profiler.report();
+    // initialization, one call per function of the file and end of the file
+    assertThat(report).containsPattern("python:S42 +\\d+ +4 +\\d+");
+    assertThat(report).containsPattern(Pattern.quote(unregisteredCheck.getClass().getName()) + " +\\d+ +2 +\\d+");
+
+    profiler.unregister(check);
+    assertThat(profiler.ruleKey(check)).isEqualTo(check.getClass().getName());
+  }
+
+  @Test
+  public void phases_of_subscription_checks() {
+    PythonSubscriptionCheck visitor = new PythonSubscriptionCheck() {
+      @Override
+      public void initialize(Context context) {
+        context.registerSyntaxNodeConsumer(Tree.Kind.FUNCDEF, ctx -> sleep(1));
+      }
+    };
+    ExecutionProfiler profiler = new ExecutionProfiler();
+    profiler.registerPhase(visitor, ExecutionProfiler.METRICS);
+    assertThat(profiler.phase(visitor)).isEqualTo(ExecutionProfiler.METRICS);
+
+    PythonVisitorContext context = TestPythonVisitorRunner.createContext(new File("src/test/resources/file.py"));
+    SubscriptionVisitor.analyze(Collections.singletonList(visitor), context, profiler);
+
+    String report = profiler.report();
+    String phases = report.substring(0, report.indexOf("Rule"));
+    String rules = report.substring(report.indexOf("Rule"));
+    // initialization, one call per function of the file and end of the file
+    assertThat(phases).containsPattern("metrics +\\d+ +4 +\\d+");
+    assertThat(rules).doesNotContain("metrics").doesNotContain(visitor.getClass().getName());
+
+    profiler.unregister(visitor);
+    assertThat(profiler.phase(visitor)).isNull();
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python;
+
+import com.sonar.sslr.api.RecognitionException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.sonar.plugins.python.api.PythonFile;
+import org.sonar.plugins.python.api.PythonVisitorContext;
+import org.sonar.plugins.python.api.SubscriptionContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LineIndexTest {
+
+  @Test
+  public void lines() {
+    LineIndex lines = new LineIndex("first\nsecond\r\nthird\r\rlast");
+    assertThat(lines.content()).isEqualTo("first\nsecond\r\nthird\r\rlast");
+    assertThat(lines.lineCount()).isEqualTo(5);
+    assertThat(lines(lines)).containsExactly("first", "second", "third", "", "last");
+    assertThat(lines.lineLength(2)).isEqualTo(6);
+    assertThat(lines.lineStartOffset(3)).isEqualTo(14);
+  }
+
+  @Test
+  public void same_lines_as_split() {
+    for (String content : Arrays.asList("", "\n", "a\n", "\r\n\r\n", "a\r", "\n\ra", " x = 1 \t\n\n  y\r\n", "a\n\r\nb")) {
+      assertThat(lines(new LineIndex(content))).as(content).containsExactly(content.split("\r\n|\n|\r", -1));
+    }
+  }
+
+  @Test
+  public void offsets() {
+    LineIndex lines = new LineIndex("ab\r\ncd\ne");
+    assertThat(lines.offset(1, 1)).isEqualTo(1);
+    assertThat(lines.offset(2, 0)).isEqualTo(4);
+    assertThat(lines.offset(3, 0)).isEqualTo(7);
+
+    assertThat(lines.lineOf(0)).isEqualTo(1);
+    // line terminators belong to their line
+    assertThat(lines.lineOf(3)).isEqualTo(1);
+    assertThat(lines.lineOf(4)).isEqualTo(2);
+    assertThat(lines.lineOf(7)).isEqualTo(3);
+    assertThat(lines.lineOf(8)).isEqualTo(3);
+    assertThat(lines.columnOf(5)).isEqualTo(1);
+    assertThat(lines.columnOf(7)).isEqualTo(0);
+  }
+
+  @Test
+  public void many_lines() {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      content.append("line").append(i).append('\n');
+    }
+    LineIndex lines = new LineIndex(content.toString());
+    assertThat(lines.lineCount()).isEqualTo(101);
+    assertThat(lines.line(42).toString()).isEqualTo("line41");
+    assertThat(lines.lineOf(lines.offset(77, 3))).isEqualTo(77);
+    assertThat(lines.line(101).length()).isZero();
+  }
+
+  @Test
+  public void lines_of_other_subscription_contexts() {
+    PythonFile pythonFile = Mockito.mock(PythonFile.class);
+    Mockito.when(pythonFile.content()).thenReturn("a\nb");
+    SubscriptionContext ctx = Mockito.mock(SubscriptionContext.class);
+    Mockito.when(ctx.pythonFile()).thenReturn(pythonFile);
+
+    assertThat(lines(LineIndex.of(ctx))).containsExactly("a", "b");
+  }
+
+  @Test
+  public void lines_of_visitor_contexts() {
+    PythonFile pythonFile = Mockito.mock(PythonFile.class);
+    Mockito.when(pythonFile.content()).thenReturn("a\nb");
+    PythonVisitorContext visitorContext = new PythonVisitorContext(pythonFile, new RecognitionException(1, "error"));
+    assertThat(lines(LineIndex.of(visitorContext))).containsExactly("a", "b");
+
+    AnalyzedFileContext fileContext = new AnalyzedFileContext(pythonFile, new RecognitionException(1, "error"));
+    assertThat(LineIndex.of(fileContext)).isSameAs(LineIndex.of(fileContext));
+    assertThat(lines(LineIndex.of(fileContext))).containsExactly("a", "b");
+  }
+
+  private static List<String> lines(LineIndex lines) {
+    List<String> result = new ArrayList<>();
+    for (int line = 1; line <= lines.lineCount(); line++) {
+      result.add(lines.line(line).toString());
+    }
+    return result;
+  }
+}
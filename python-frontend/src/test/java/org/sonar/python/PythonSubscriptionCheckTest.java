@@ -20,6 +20,7 @@
 package org.sonar.python;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import org.junit.Test;
@@ -28,11 +29,14 @@ import org.sonar.plugins.python.api.PythonCheck;
 import org.sonar.plugins.python.api.PythonSubscriptionCheck;
 import org.sonar.plugins.python.api.PythonVisitorContext;
 import org.sonar.plugins.python.api.PythonCheck.PreciseIssue;
+import org.sonar.plugins.python.api.cfg.ControlFlowGraph;
 import org.sonar.plugins.python.api.tree.FunctionDef;
 import org.sonar.plugins.python.api.tree.Name;
 import org.sonar.plugins.python.api.tree.Token;
 import org.sonar.plugins.python.api.tree.Tree;
 import org.sonar.plugins.python.api.tree.Trivia;
+import org.sonar.python.cfg.CfgCache;
+import org.sonar.python.cfg.fixpoint.LiveVariablesAnalysis;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -153,6 +157,42 @@ public class PythonSubscriptionCheckTest {
     assertThat(issues.get(0).primaryLocation().startLine()).isEqualTo(8);
   }
 
+  @Test
+  public void test_cfg_shared_between_checks() {
+    List<FunctionDef> functionDefs = new ArrayList<>();
+    List<ControlFlowGraph> cfgs = new ArrayList<>();
+    List<LiveVariablesAnalysis> analyses = new ArrayList<>();
+    List<PythonSubscriptionCheck> checks = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      checks.add(new TestPythonCheck() {
+        @Override
+        public void initialize(Context context) {
+          context.registerSyntaxNodeConsumer(Tree.Kind.FUNCDEF, ctx -> {
+            FunctionDef functionDef = (FunctionDef) ctx.syntaxNode();
+            ControlFlowGraph cfg = CfgCache.of(ctx).cfg(functionDef);
+            functionDefs.add(functionDef);
+            cfgs.add(cfg);
+            analyses.add(CfgCache.of(ctx).liveVariables(cfg));
+          });
+        }
+      });
+    }
+    PythonVisitorContext context = TestPythonVisitorRunner.createContext(FILE);
+    CfgCache cfgCache = ((AnalyzedFileContext) context).cfgCache();
+    // control flow graphs of both functions are built by the type inference
+    assertThat(cfgCache.computations()).isEqualTo(2);
+
+    SubscriptionVisitor.analyze(checks, context);
+    assertThat(cfgs).hasSize(4).doesNotContainNull();
+    assertThat(cfgs.get(1)).isSameAs(cfgs.get(0));
+    assertThat(cfgs.get(3)).isSameAs(cfgs.get(2)).isNotSameAs(cfgs.get(0));
+    assertThat(analyses.get(1)).isSameAs(analyses.get(0));
+    assertThat(analyses.get(3)).isSameAs(analyses.get(2));
+    assertThat(cfgCache.computations()).isEqualTo(4);
+    assertThat(cfgCache.savedComputations()).isEqualTo(6);
+    assertThat(cfgCache.cfg(functionDefs.get(0))).isSameAs(cfgs.get(0));
+  }
+
   private abstract static class TestPythonCheck extends PythonSubscriptionCheck {
 
   }
@@ -0,0 +1,118 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.cfg;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.sonar.plugins.python.api.PythonFile;
+import org.sonar.plugins.python.api.SubscriptionContext;
+import org.sonar.plugins.python.api.cfg.ControlFlowGraph;
+import org.sonar.plugins.python.api.tree.FileInput;
+import org.sonar.plugins.python.api.tree.FunctionDef;
+import org.sonar.plugins.python.api.tree.Tree;
+import org.sonar.python.PythonTestUtils;
+import org.sonar.python.cfg.fixpoint.DefinedVariablesAnalysis;
+import org.sonar.python.cfg.fixpoint.LiveVariablesAnalysis;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CfgCacheTest {
+
+  private final PythonFile file = Mockito.mock(PythonFile.class, "file1.py");
+
+  @Test
+  public void control_flow_graphs_are_built_once() {
+    FileInput fileInput = PythonTestUtils.parse(
+      "def f(p):",
+      "  x = p",
+      "  return x",
+      "y = f(1)");
+    FunctionDef functionDef = PythonTestUtils.getFirstDescendant(fileInput, t -> t.is(Tree.Kind.FUNCDEF));
+    CfgCache cache = new CfgCache(file);
+
+    ControlFlowGraph functionCfg = cache.cfg(functionDef);
+    ControlFlowGraph moduleCfg = cache.cfg(fileInput);
+    assertThat(functionCfg).isNotNull();
+    assertThat(moduleCfg).isNotNull().isNotSameAs(functionCfg);
+    assertThat(cache.computations()).isEqualTo(2);
+    assertThat(cache.savedComputations()).isZero();
+
+    assertThat(cache.cfg(functionDef)).isSameAs(functionCfg);
+    assertThat(cache.cfg(fileInput)).isSameAs(moduleCfg);
+    assertThat(cache.computations()).isEqualTo(2);
+    assertThat(cache.savedComputations()).isEqualTo(2);
+  }
+
+  @Test
+  public void dataflow_analyses_are_computed_once() {
+    FileInput fileInput = PythonTestUtils.parse(
+      "def f(p):",
+      "  x = p",
+      "  return x");
+    FunctionDef functionDef = PythonTestUtils.getFirstDescendant(fileInput, t -> t.is(Tree.Kind.FUNCDEF));
+    CfgCache cache = new CfgCache(file);
+    ControlFlowGraph cfg = cache.cfg(functionDef);
+
+    LiveVariablesAnalysis liveVariables = cache.liveVariables(cfg);
+    DefinedVariablesAnalysis definedVariables = cache.definedVariables(cfg, functionDef.localVariables());
+    assertThat(cache.liveVariables(cfg)).isSameAs(liveVariables);
+    assertThat(cache.definedVariables(cfg, functionDef.localVariables())).isSameAs(definedVariables);
+    assertThat(liveVariables.getReadSymbols()).extracting("name").containsExactlyInAnyOrder("p", "x");
+    assertThat(cache.computations()).isEqualTo(3);
+    assertThat(cache.savedComputations()).isEqualTo(2);
+  }
+
+  @Test
+  public void failures_are_cached() {
+    FileInput fileInput = PythonTestUtils.parse(
+      "def f():",
+      "  continue");
+    FunctionDef functionDef = PythonTestUtils.getFirstDescendant(fileInput, t -> t.is(Tree.Kind.FUNCDEF));
+    CfgCache cache = new CfgCache(file);
+
+    assertThat(cache.cfg(functionDef)).isNull();
+    assertThat(cache.cfg(functionDef)).isNull();
+    assertThat(cache.computations()).isEqualTo(1);
+    assertThat(cache.savedComputations()).isEqualTo(1);
+  }
+
+  @Test
+  public void clear_keeps_counters() {
+    FileInput fileInput = PythonTestUtils.parse("x = 1");
+    CfgCache cache = new CfgCache(file);
+    ControlFlowGraph cfg = cache.cfg(fileInput);
+    cache.cfg(fileInput);
+    cache.clear();
+
+    assertThat(cache.cfg(fileInput)).isNotNull().isNotSameAs(cfg);
+    assertThat(cache.computations()).isEqualTo(2);
+    assertThat(cache.savedComputations()).isEqualTo(1);
+  }
+
+  @Test
+  public void no_shared_cache_for_other_subscription_contexts() {
+    SubscriptionContext ctx = Mockito.mock(SubscriptionContext.class);
+    Mockito.when(ctx.pythonFile()).thenReturn(file);
+    CfgCache cache = CfgCache.of(ctx);
+
+    assertThat(cache.cfg(PythonTestUtils.parse("x = 1"))).isNotNull();
+    assertThat(CfgCache.of(ctx)).isNotSameAs(cache);
+  }
+}
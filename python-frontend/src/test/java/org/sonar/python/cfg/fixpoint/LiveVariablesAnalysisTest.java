@@ -23,6 +23,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.sonar.plugins.python.api.cfg.CfgValidator;
@@ -212,6 +213,23 @@ public class LiveVariablesAnalysisTest {
     fun.localVariables().forEach(symbol -> assertThat(analysis.getLiveVariables(cfg.start()).isSymbolUsedInBlock(symbol)).isTrue());
   }
 
+  @Test
+  public void large_function() {
+    int size = 300;
+    StringBuilder code = new StringBuilder("def f(p):\n  x0 = 0\n");
+    for (int i = 1; i <= size; i++) {
+      code.append("  if p: x").append(i).append(" = x").append(i - 1).append("\n");
+    }
+    code.append("  return x").append(size).append("\n");
+    FunctionDef fun = (FunctionDef) PythonTestUtils.parse(code.toString()).statements().statements().get(0);
+    ControlFlowGraph cfg = ControlFlowGraph.build(fun, file);
+    LiveVariablesAnalysis analysis = LiveVariablesAnalysis.analyze(cfg);
+    // each variable but x0 may be read before being assigned
+    Set<String> expectedLiveIn = IntStream.rangeClosed(1, size).mapToObj(i -> "x" + i).collect(Collectors.toSet());
+    assertThat(analysis.getLiveVariables(cfg.start()).getIn()).extracting(Symbol::name).containsExactlyInAnyOrder(expectedLiveIn.toArray(new String[0]));
+    assertThat(analysis.getLiveVariables(cfg.end()).getIn()).isEmpty();
+  }
+
 
   private void verifyLiveVariableAnalysis(String... lines) {
     verifyLiveVariableAnalysisWithArgs("", lines);
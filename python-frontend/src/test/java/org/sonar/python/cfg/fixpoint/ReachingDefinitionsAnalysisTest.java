@@ -64,6 +64,19 @@ public class ReachingDefinitionsAnalysisTest {
     assertThat(analysis.valuesAtLocation(x)).extracting(ReachingDefinitionsAnalysisTest::getValueAsString).containsExactlyInAnyOrder("1", "2");
   }
 
+  @Test
+  public void valuesAtLocation_large_function() {
+    int size = 300;
+    String[] lines = new String[size + 2];
+    lines[0] = "x = 0";
+    for (int i = 1; i <= size; i++) {
+      lines[i] = "if p: x = " + i;
+    }
+    lines[size + 1] = "x";
+    Name x = (Name) lastExpressionInFunction(lines);
+    assertThat(analysis.valuesAtLocation(x)).hasSize(size + 1);
+  }
+
   @Test
   public void valuesAtLocation_outside_function() {
     Name x = (Name) lastExpression("x = 42; x");
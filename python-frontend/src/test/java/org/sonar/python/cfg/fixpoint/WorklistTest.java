@@ -0,0 +1,104 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.cfg.fixpoint;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.sonar.plugins.python.api.PythonFile;
+import org.sonar.plugins.python.api.cfg.CfgBlock;
+import org.sonar.plugins.python.api.cfg.ControlFlowGraph;
+import org.sonar.plugins.python.api.tree.FileInput;
+import org.sonar.plugins.python.api.tree.FunctionDef;
+import org.sonar.python.PythonTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WorklistTest {
+
+  private final PythonFile file = Mockito.mock(PythonFile.class, "file1.py");
+
+  @Test
+  public void reverse_postorder() {
+    ControlFlowGraph cfg = cfg(
+      "def f():",
+      "  a()",
+      "  while p():",
+      "    b()",
+      "  c()",
+      "  return",
+      "  d()");
+    List<CfgBlock> order = popAll(Worklist.forward(cfg));
+    assertThat(order).containsExactlyInAnyOrder(cfg.blocks().toArray(new CfgBlock[0]));
+    assertThat(order.get(0)).isSameAs(cfg.start());
+    CfgBlock unreachable = order.get(order.size() - 1);
+    assertThat(unreachable.predecessors()).isEmpty();
+    assertThat(unreachable).isNotSameAs(cfg.start());
+    for (CfgBlock block : order) {
+      if (block != cfg.start() && block != unreachable) {
+        // except along back edges, predecessors come first
+        assertThat(block.predecessors().stream().anyMatch(p -> order.indexOf(p) < order.indexOf(block))).isTrue();
+      }
+    }
+  }
+
+  @Test
+  public void postorder() {
+    ControlFlowGraph cfg = cfg(
+      "def f():",
+      "  if p():",
+      "    a()",
+      "  b()");
+    List<CfgBlock> order = popAll(Worklist.backward(cfg));
+    assertThat(order).containsExactlyInAnyOrder(cfg.blocks().toArray(new CfgBlock[0]));
+    assertThat(order.get(0)).isSameAs(cfg.end());
+    assertThat(order.get(order.size() - 1)).isSameAs(cfg.start());
+  }
+
+  @Test
+  public void pending_blocks_are_not_duplicated() {
+    ControlFlowGraph cfg = cfg(
+      "def f():",
+      "  if p():",
+      "    a()",
+      "  b()");
+    Worklist worklist = Worklist.forward(cfg);
+    CfgBlock start = worklist.pop();
+    worklist.push(cfg.end());
+    worklist.push(start);
+    worklist.push(start);
+    assertThat(popAll(worklist)).hasSize(cfg.blocks().size()).startsWith(start);
+    assertThat(worklist.isEmpty()).isTrue();
+  }
+
+  private ControlFlowGraph cfg(String... lines) {
+    FileInput fileInput = PythonTestUtils.parse(lines);
+    return ControlFlowGraph.build((FunctionDef) fileInput.statements().statements().get(0), file);
+  }
+
+  private static List<CfgBlock> popAll(Worklist worklist) {
+    List<CfgBlock> blocks = new ArrayList<>();
+    while (!worklist.isEmpty()) {
+      blocks.add(worklist.pop());
+    }
+    return blocks;
+  }
+}
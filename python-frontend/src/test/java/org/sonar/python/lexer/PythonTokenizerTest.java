@@ -0,0 +1,154 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.lexer;
+
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.Trivia;
+import com.sonar.sslr.impl.Lexer;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Test;
+import org.sonar.python.api.PythonTokenType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PythonTokenizerTest {
+
+  private static final List<String> FRAGMENTS = Arrays.asList(
+    " ", "  ", "\t", "\f", "\u000B", "\n", "\r", "\r\n", "\\\n", "\\\r\n", "\\", "#", "# comment", "'", "\"", "'''", "\"\"\"",
+    "r", "b", "f", "u", "R", "B", "F", "U", "rb", "Br", "fR", "ur", "x", "if", "def", "None", "print", "_", "é", "日本", "\uD835\uDC00",
+    "\u0301", "\u00A0", "\u2028", "\uFFFF", "\uD800", "0", "1", "07", "08", "0o17", "0x1f", "0b101", "0_0", "1_000", "1.", ".5", "1e5",
+    "1E-3", "1e", "1j", "1L", "0L", ".", "..", "...", "e", "j", "_1", "(", ")", "[", "]", "{", "}", "{{", "}}", "+", "-", "*", "**", "/",
+    "//", "%", "<<", ">>=", "<>", "!=", "!", "?", "$", "`", ":", ":=", "->", ",", ";", "@", "@=", "=", "==", "~", "^", "&", "|");
+
+  private final LexerState lexerState = new LexerState();
+  private final Lexer lexer = PythonLexer.create(lexerState);
+  private final Lexer fStringLexer = PythonLexer.fStringLexer(lexerState);
+  private final LexerState tokenizerState = new LexerState();
+  private final PythonTokenizer tokenizer = PythonTokenizer.create(tokenizerState);
+  private final PythonTokenizer fStringTokenizer = PythonTokenizer.fStringTokenizer(tokenizerState);
+
+  @Test
+  public void same_tokens_as_sslr_lexer() {
+    assertSameTokens("");
+    assertSameTokens("x = 1\n");
+    assertSameTokens("def f(a,\n      b):\n  # comment\n\n\tif a:\n\t\treturn b\n  \n# dedent\nz = f'{a}' \\\n  + rb'''x\n''' + 0x_1f + 1_000.5e-3j\n");
+    assertSameTokens("class A:\n    def m(self):\n        pass\n  x = 1\n");
+    assertSameTokens("x = (1 +\n  # comment in brackets\n  2)\n]\n  y\r\n\r  z\r");
+    assertSameTokens("s = 'unterminated\nb = b'''unterminated\nr = r'''unterminated\nf'escaped \\' quote' + u'\\\\'");
+    assertSameTokens("café = 日本 + \uD835\uDC00x + x\u0301 + \u00A0 + $ + ? + !x");
+    assertSameTokens("07 08 0o17 0b2 0x 0_0L 00 1e 1e+ 1._5 .e5 1E_ 1jL 0L 1__0 1_");
+    assertSameTokens("a\u000B\fb\n\u000B  c\n\t \tx\n        y\n");
+    assertSameTokens("'a\uFFFFb' r'a\uFFFFb'\n\uFFFF");
+    assertSameTokens("# only a comment");
+    assertSameTokens("x = 1\n  # trailing comment");
+  }
+
+  @Test
+  public void same_tokens_as_sslr_f_string_lexer() {
+    assertSameFStringTokens("", 1, 0);
+    assertSameFStringTokens("hello {name!r:>{width}} {{literal}} #", 3, 5);
+    assertSameFStringTokens("{a['x'] + f(b,\n  c)}\n\t}{ # {x}", 1, 2);
+    assertSameFStringTokens("{x:{'{'}}}\uFFFF{y}", 10, 0);
+  }
+
+  @Test
+  public void same_tokens_as_sslr_lexer_on_random_sources() {
+    Random random = new Random(42);
+    for (int i = 0; i < 5_000; i++) {
+      StringBuilder source = new StringBuilder();
+      int fragments = random.nextInt(30);
+      for (int j = 0; j < fragments; j++) {
+        source.append(FRAGMENTS.get(random.nextInt(FRAGMENTS.size())));
+      }
+      assertSameTokens(source.toString());
+      assertSameFStringTokens(source.toString(), 1 + random.nextInt(3), random.nextInt(3));
+    }
+  }
+
+  /**
+   * Python sources of the tests and the type stubs, and the ruling sources when the its/sources git submodule is
+   * checked out. Their strings are also lexed as f-strings.
+   */
+  @Test
+  public void same_tokens_as_sslr_lexer_on_python_files() throws IOException {
+    List<Path> directories = Arrays.asList(Paths.get("src/test/resources"), Paths.get("src/main/resources/org/sonar/python/types"),
+      Paths.get("../python-checks/src/test/resources"), Paths.get("../its/sources"));
+    List<Path> files = new ArrayList<>();
+    for (Path directory : directories) {
+      if (Files.isDirectory(directory)) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+          paths.filter(path -> path.toString().endsWith(".py") || path.toString().endsWith(".pyi")).sorted().forEach(files::add);
+        }
+      }
+    }
+    assertThat(files).isNotEmpty();
+    for (Path file : files) {
+      String source = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+      for (Token token : assertSameTokens(source)) {
+        if (token.getType() == PythonTokenType.STRING) {
+          assertSameFStringTokens(token.getValue(), token.getLine(), token.getColumn());
+        }
+      }
+    }
+  }
+
+  private List<Token> assertSameTokens(String source) {
+    lexerState.reset();
+    List<Token> expected = lexer.lex(source);
+    tokenizerState.reset();
+    List<Token> actual = tokenizer.lex(source);
+    assertThat(describe(actual)).as(source).isEqualTo(describe(expected));
+    assertThat(describe(tokenizerState)).as(source).isEqualTo(describe(lexerState));
+    return actual;
+  }
+
+  private void assertSameFStringTokens(String source, int initialLine, int initialColumn) {
+    lexerState.reset(initialLine, initialColumn);
+    List<Token> expected = fStringLexer.lex(source);
+    tokenizerState.reset(initialLine, initialColumn);
+    List<Token> actual = fStringTokenizer.lex(source);
+    assertThat(describe(actual)).as(source).isEqualTo(describe(expected));
+    assertThat(describe(tokenizerState)).as(source).isEqualTo(describe(lexerState));
+  }
+
+  private static List<String> describe(List<Token> tokens) {
+    return tokens.stream().map(PythonTokenizerTest::describe).collect(Collectors.toList());
+  }
+
+  private static String describe(Token token) {
+    return token.getType() + " " + token.getValue() + " " + token.getOriginalValue() + " " + token.getLine() + ":" + token.getColumn()
+      + " " + token.isGeneratedCode() + " " + token.getURI()
+      + token.getTrivia().stream().map(Trivia::getToken).map(PythonTokenizerTest::describe).collect(Collectors.joining(", ", " [", "]"));
+  }
+
+  private static String describe(LexerState state) {
+    return state.indentationStack + " " + state.brackets + " " + state.joined;
+  }
+}
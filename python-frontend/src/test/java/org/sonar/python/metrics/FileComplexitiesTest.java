@@ -0,0 +1,162 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.metrics;
+
+import com.sonar.sslr.api.RecognitionException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.sonar.plugins.python.api.PythonVisitorContext;
+import org.sonar.plugins.python.api.SubscriptionContext;
+import org.sonar.plugins.python.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.python.api.tree.ClassDef;
+import org.sonar.plugins.python.api.tree.FileInput;
+import org.sonar.plugins.python.api.tree.FunctionDef;
+import org.sonar.plugins.python.api.tree.Tree;
+import org.sonar.python.AnalyzedFileContext;
+import org.sonar.python.TestPythonVisitorRunner;
+import org.sonar.python.parser.PythonParser;
+import org.sonar.python.tree.PythonTreeMaker;
+import org.sonar.python.tree.TreeUtils;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.fest.assertions.Fail.fail;
+
+public class FileComplexitiesTest {
+
+  @Test
+  public void nested_functions_and_classes() {
+    FileInput fileInput = parse(
+      "def outer(a, b):",
+      "  if a and b: pass",
+      "  def inner():",
+      "    while a: pass",
+      "  class C:",
+      "    x = 1 if a else 2",
+      "    def method(self):",
+      "      for i in b: pass",
+      "  return inner");
+    FileComplexities complexities = FileComplexities.compute(fileInput);
+    FunctionDef outer = (FunctionDef) fileInput.statements().statements().get(0);
+    FunctionDef inner = (FunctionDef) outer.body().statements().get(1);
+    ClassDef classDef = (ClassDef) outer.body().statements().get(2);
+    FunctionDef method = (FunctionDef) classDef.body().statements().get(1);
+
+    assertThat(complexities.complexity(fileInput)).isEqualTo(ComplexityVisitor.complexity(fileInput)).isEqualTo(8);
+    assertThat(complexities.complexity(outer)).isEqualTo(ComplexityVisitor.complexity(outer)).isEqualTo(4);
+    assertThat(complexities.complexity(inner)).isEqualTo(ComplexityVisitor.complexity(inner)).isEqualTo(2);
+    assertThat(complexities.complexity(classDef)).isEqualTo(ComplexityVisitor.complexity(classDef)).isEqualTo(3);
+    assertThat(complexities.complexity(method)).isEqualTo(ComplexityVisitor.complexity(method)).isEqualTo(2);
+    assertThat(complexities.functionComplexities()).containsExactly(4, 2, 2);
+
+    assertThat(complexities.cognitiveComplexity(fileInput)).isEqualTo(CognitiveComplexityVisitor.complexity(fileInput, null));
+    assertThat(complexities.cognitiveComplexity(outer)).isEqualTo(CognitiveComplexityVisitor.complexity(outer, null));
+  }
+
+  @Test
+  public void unsupported_trees() {
+    FileInput fileInput = parse(
+      "def outer():",
+      "  def inner(): pass",
+      "x = 1");
+    FileComplexities complexities = FileComplexities.compute(fileInput);
+    FunctionDef outer = (FunctionDef) fileInput.statements().statements().get(0);
+    Tree inner = outer.body().statements().get(0);
+    assertThat(complexities.cognitiveComplexity(outer)).isEqualTo(0);
+    try {
+      complexities.cognitiveComplexity(inner);
+      fail("nested functions have no cognitive complexity");
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage()).isEqualTo("No cognitive complexity for tree of kind FUNCDEF");
+    }
+    try {
+      complexities.complexity(fileInput.statements());
+      fail("statements have no complexity");
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage()).isEqualTo("No complexity for tree of kind STATEMENT_LIST");
+    }
+  }
+
+  @Test
+  public void complexities_of_other_subscription_contexts() {
+    FileInput fileInput = parse(
+      "def f(a):",
+      "  if a: pass");
+    FunctionDef functionDef = (FunctionDef) fileInput.statements().statements().get(0);
+    SubscriptionContext ctx = Mockito.mock(SubscriptionContext.class);
+    Mockito.when(ctx.syntaxNode()).thenReturn(functionDef);
+
+    FileComplexities complexities = FileComplexities.of(ctx);
+    assertThat(complexities.complexity(functionDef)).isEqualTo(2);
+    assertThat(complexities.complexity(fileInput)).isEqualTo(2);
+  }
+
+  @Test
+  public void same_complexities_as_visitors() throws IOException {
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(Paths.get("../python-checks/src/test/resources/checks"))) {
+      files = paths.filter(path -> path.toString().endsWith(".py")).sorted().collect(Collectors.toList());
+    }
+    for (Path file : files) {
+      PythonVisitorContext context;
+      try {
+        context = TestPythonVisitorRunner.createContext(file.toFile());
+      } catch (RecognitionException e) {
+        continue;
+      }
+      FileInput fileInput = context.rootTree();
+      FileComplexities complexities = ((AnalyzedFileContext) context).complexities();
+      assertThat(complexities.complexity(fileInput)).as(file.toString()).isEqualTo(ComplexityVisitor.complexity(fileInput));
+      assertThat(complexities.cognitiveComplexity(fileInput)).as(file.toString()).isEqualTo(CognitiveComplexityVisitor.complexity(fileInput, null));
+      List<Tree> trees = new ArrayList<>();
+      fileInput.accept(new BaseTreeVisitor() {
+        @Override
+        public void visitFunctionDef(FunctionDef functionDef) {
+          trees.add(functionDef);
+          super.visitFunctionDef(functionDef);
+        }
+
+        @Override
+        public void visitClassDef(ClassDef classDef) {
+          trees.add(classDef);
+          super.visitClassDef(classDef);
+        }
+      });
+      for (Tree tree : trees) {
+        String location = file + ":" + tree.firstToken().line();
+        assertThat(complexities.complexity(tree)).as(location).isEqualTo(ComplexityVisitor.complexity(tree));
+        if (tree.is(Tree.Kind.FUNCDEF) && TreeUtils.firstAncestorOfKind(tree, Tree.Kind.FUNCDEF) == null) {
+          assertThat(complexities.cognitiveComplexity(tree)).as(location).isEqualTo(CognitiveComplexityVisitor.complexity(tree, null));
+        }
+      }
+    }
+  }
+
+  private static FileInput parse(String... lines) {
+    return new PythonTreeMaker().fileInput(PythonParser.create().parse(String.join("\n", lines) + "\n"));
+  }
+}
@@ -19,8 +19,21 @@
  */
 package org.sonar.python.metrics;
 
+import com.sonar.sslr.api.RecognitionException;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.junit.Test;
+import org.sonar.plugins.python.api.PythonVisitorContext;
+import org.sonar.plugins.python.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.python.api.tree.FileInput;
+import org.sonar.plugins.python.api.tree.FunctionDef;
 import org.sonar.python.TestPythonVisitorRunner;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -58,6 +71,36 @@ public class FileMetricsTest {
     assertThat(metrics("function-complexities.py").functionComplexities()).containsExactly(3, 1);
   }
 
+  @Test
+  public void same_complexities_as_complexity_visitor() throws IOException {
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(Paths.get("../python-checks/src/test/resources/checks"))) {
+      files = paths.filter(path -> path.toString().endsWith(".py")).sorted().collect(Collectors.toList());
+    }
+    assertThat(files).isNotEmpty();
+    for (Path file : files) {
+      PythonVisitorContext context;
+      try {
+        context = TestPythonVisitorRunner.createContext(file.toFile());
+      } catch (RecognitionException e) {
+        continue;
+      }
+      FileInput fileInput = context.rootTree();
+      FileMetrics metrics = new FileMetrics(context);
+      List<Integer> functionComplexities = new ArrayList<>();
+      fileInput.accept(new BaseTreeVisitor() {
+        @Override
+        public void visitFunctionDef(FunctionDef functionDef) {
+          functionComplexities.add(ComplexityVisitor.complexity(functionDef));
+          super.visitFunctionDef(functionDef);
+        }
+      });
+      assertThat(metrics.complexity()).as(file.toString()).isEqualTo(ComplexityVisitor.complexity(fileInput));
+      assertThat(metrics.functionComplexities()).as(file.toString()).isEqualTo(functionComplexities);
+      assertThat(metrics.cognitiveComplexity()).as(file.toString()).isEqualTo(CognitiveComplexityVisitor.complexity(fileInput, null));
+    }
+  }
+
   private static FileMetrics metrics(String fileName) {
     File baseDir = new File("src/test/resources/metrics/");
     File file = new File(baseDir, fileName);
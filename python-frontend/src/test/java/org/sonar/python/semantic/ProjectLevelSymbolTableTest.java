@@ -20,16 +20,31 @@
 package org.sonar.python.semantic;
 
 import com.google.common.base.Functions;
+import com.sonar.sslr.api.RecognitionException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
 import org.junit.Test;
+import org.sonar.plugins.python.api.LocationInFile;
+import org.sonar.plugins.python.api.PythonFile;
+import org.sonar.plugins.python.api.symbols.AmbiguousSymbol;
 import org.sonar.plugins.python.api.symbols.ClassSymbol;
+import org.sonar.plugins.python.api.symbols.FunctionSymbol;
 import org.sonar.plugins.python.api.symbols.Symbol;
 import org.sonar.plugins.python.api.symbols.Usage;
 import org.sonar.plugins.python.api.tree.CallExpression;
@@ -39,8 +54,11 @@ import org.sonar.plugins.python.api.tree.ImportFrom;
 import org.sonar.plugins.python.api.tree.QualifiedExpression;
 import org.sonar.plugins.python.api.tree.Tree;
 import org.sonar.python.PythonTestUtils;
+import org.sonar.python.types.InferredTypes;
+import org.sonar.python.types.TypeShed;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.sonar.python.PythonTestUtils.parse;
 import static org.sonar.python.PythonTestUtils.parseWithoutSymbols;
 import static org.sonar.python.PythonTestUtils.pythonFile;
@@ -613,4 +631,199 @@ public class ProjectLevelSymbolTableTest {
     ImportFrom importFrom = ((ImportFrom) PythonTestUtils.getAllDescendant(tree, t -> t.is(Tree.Kind.IMPORT_FROM)).get(0));
     assertThat(importFrom.hasUnresolvedWildcardImport()).isTrue();
   }
+
+  @Test
+  public void recording_lookups() {
+    SymbolImpl xSymbol = new SymbolImpl("x", "mod.x");
+    Map<String, Set<Symbol>> globalSymbols = Collections.singletonMap("mod", Collections.singleton(xSymbol));
+    Set<String> lookedUpModules = new HashSet<>();
+    ProjectLevelSymbolLookup projectLevelSymbolTable = from(globalSymbols).recordingLookups(lookedUpModules);
+    parse(
+      new SymbolTableBuilder("my_package", pythonFile("my_module.py"), projectLevelSymbolTable),
+      "from mod import x",
+      "import unknown.module",
+      "x"
+    );
+    assertThat(lookedUpModules).contains("mod", "unknown").doesNotContain("my_package.my_module");
+
+    lookedUpModules.clear();
+    assertThat(projectLevelSymbolTable.getSymbol("mod.x")).isSameAs(xSymbol);
+    assertThat(projectLevelSymbolTable.getSymbol("other")).isNull();
+    assertThat(projectLevelSymbolTable.getSymbol(null)).isNull();
+    assertThat(projectLevelSymbolTable.getSymbolsFromModule("mod")).containsExactly(xSymbol);
+    assertThat(projectLevelSymbolTable.getSymbolsFromModule(null)).isNull();
+    assertThat(lookedUpModules).containsExactlyInAnyOrder("mod", "");
+  }
+
+  @Test
+  public void recording_lookups_of_the_modules_providing_symbols() {
+    // the name of a symbol does not always start with the name of the module exporting it
+    ClassSymbolImpl classSymbol = new ClassSymbolImpl("A", "lib.A");
+    SymbolImpl xSymbol = new SymbolImpl("x", "lib.x");
+    ProjectLevelSymbolTable table = new ProjectLevelSymbolTable();
+    table.addModule("pkg.first", Collections.singleton(classSymbol));
+    table.addModule("pkg.second", new HashSet<>(Arrays.asList(new ClassSymbolImpl("A", "lib.A"), xSymbol)));
+    Set<String> lookedUpModules = new HashSet<>();
+    ProjectLevelSymbolLookup lookup = table.recordingLookups(lookedUpModules);
+
+    assertThat(lookup.getSymbol("lib.A").kind()).isEqualTo(Symbol.Kind.AMBIGUOUS);
+    assertThat(lookedUpModules).containsExactlyInAnyOrder("pkg.first", "pkg.second");
+
+    lookedUpModules.clear();
+    assertThat(lookup.getSymbol("lib.x")).isSameAs(xSymbol);
+    assertThat(lookup.getSymbol("lib.y")).isNull();
+    assertThat(lookedUpModules).containsExactlyInAnyOrder("pkg.second", "lib");
+  }
+
+  @Test
+  public void ambiguous_symbols_follow_order_of_modules() {
+    SymbolImpl first = new SymbolImpl("x", "mod.x");
+    ClassSymbolImpl second = new ClassSymbolImpl("x", "mod.x");
+    FunctionSymbolImpl third = new FunctionSymbolImpl("x", "mod.x", false, false, false, false, Collections.emptyList(), Collections.emptyList());
+    ProjectLevelSymbolTable projectLevelSymbolTable = new ProjectLevelSymbolTable();
+    projectLevelSymbolTable.addModule("a", Collections.singleton(first));
+    projectLevelSymbolTable.addModule("b", Collections.singleton(third));
+    projectLevelSymbolTable.addModule("c", Collections.singleton(second));
+    // replacing a module moves it after the other modules
+    projectLevelSymbolTable.addModule("b", Collections.singleton(third));
+
+    Symbol symbol = projectLevelSymbolTable.getSymbol("mod.x");
+    assertThat(symbol.kind()).isEqualTo(Symbol.Kind.AMBIGUOUS);
+    assertThat(((AmbiguousSymbol) symbol).alternatives()).containsExactly(first, second, third);
+  }
+
+  @Test
+  public void frozen_table() {
+    ProjectLevelSymbolTable projectLevelSymbolTable = new ProjectLevelSymbolTable();
+    projectLevelSymbolTable.addModule(parseWithoutSymbols("x = 1", "class A: pass"), "", pythonFile("mod.py"));
+    projectLevelSymbolTable.freeze();
+    projectLevelSymbolTable.freeze();
+
+    assertThat(projectLevelSymbolTable.getSymbol("mod.A").kind()).isEqualTo(Symbol.Kind.CLASS);
+    Set<Symbol> symbols = projectLevelSymbolTable.getSymbolsFromModule("mod");
+    assertThat(symbols).extracting(Symbol::name).containsExactlyInAnyOrder("x", "A");
+    assertThatThrownBy(symbols::clear).isInstanceOf(UnsupportedOperationException.class);
+    assertThatThrownBy(() -> projectLevelSymbolTable.addModule("other", Collections.emptySet()))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Modules cannot be added to a frozen project level symbol table");
+  }
+
+  @Test
+  public void serialized_modules() {
+    FileInput tree = parseWithoutSymbols(
+      "from typing import List",
+      "x: int = 42",
+      "class MyError(ValueError):",
+      "  attr = None",
+      "  def method(self, p: str, *args, key=None) -> List[int]: ...",
+      "class Derived(MyError, Unknown): pass",
+      "def fn(a: int, /, b, *, c: float = 1.0) -> str: ...",
+      "async def coroutine(): ...",
+      "if x:",
+      "  def ambiguous(): ...",
+      "else:",
+      "  def ambiguous(a): ..."
+    );
+    ProjectLevelSymbolTable projectLevelSymbolTable = new ProjectLevelSymbolTable();
+    projectLevelSymbolTable.addModule(tree, "pkg", pythonFile("mod.py"));
+    Set<Symbol> symbols = projectLevelSymbolTable.getSymbolsFromModule("pkg.mod");
+    byte[] serializedModule = TypeShed.serializeProjectSymbols(symbols);
+
+    ProjectLevelSymbolTable reloaded = new ProjectLevelSymbolTable();
+    reloaded.addModule("pkg.mod", TypeShed.deserializeProjectSymbols(serializedModule));
+    Set<Symbol> reloadedSymbols = reloaded.getSymbolsFromModule("pkg.mod");
+    assertThat(reloadedSymbols).doesNotContainAnyElementsOf(symbols);
+    assertThat(reloadedSymbols.stream().map(ProjectLevelSymbolTableTest::describe).sorted().collect(Collectors.toList()))
+      .isEqualTo(symbols.stream().map(ProjectLevelSymbolTableTest::describe).sorted().collect(Collectors.toList()));
+
+    FunctionSymbol fn = (FunctionSymbol) reloaded.getSymbol("pkg.mod.fn");
+    assertThat(fn.parameters().get(0).declaredType()).isEqualTo(InferredTypes.INT);
+    ClassSymbol derived = (ClassSymbol) reloaded.getSymbol("pkg.mod.Derived");
+    assertThat(derived.canBeOrExtend("ValueError")).isTrue();
+    assertThat(derived.hasUnresolvedTypeHierarchy()).isTrue();
+    assertThat(derived.resolveMember("method").map(Symbol::fullyQualifiedName)).contains("pkg.mod.MyError.method");
+  }
+
+  @Test
+  public void declarations_only_symbols_are_the_same_as_with_complete_symbol_table() throws IOException {
+    // its/sources is the ruling corpus, only available when the git submodule is checked out
+    List<Path> directories = Arrays.asList(Paths.get("src/test/resources"), Paths.get("../python-checks/src/test/resources"), Paths.get("../its/sources"));
+    List<Path> files = new ArrayList<>();
+    for (Path directory : directories) {
+      if (Files.isDirectory(directory)) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+          paths.filter(path -> path.toString().endsWith(".py")).sorted().forEach(files::add);
+        }
+      }
+    }
+    int comparedFiles = 0;
+    for (Path file : files) {
+      String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+      FileInput declarationsTree;
+      FileInput completeTree;
+      try {
+        declarationsTree = parseWithoutSymbols(content);
+        completeTree = parseWithoutSymbols(content);
+      } catch (RecognitionException e) {
+        // python 2 or invalid code
+        continue;
+      }
+      PythonFile pythonFile = pythonFile(file.getFileName().toString());
+      Set<Symbol> declarationsSymbols = ProjectLevelSymbolTable.exportedSymbols(declarationsTree, "pkg", pythonFile);
+      Set<Symbol> completeSymbols = ProjectLevelSymbolTable.exportedSymbols(completeTree, "pkg", pythonFile, new SymbolTableBuilder("pkg", pythonFile));
+      assertThat(declarationsSymbols.stream().map(ProjectLevelSymbolTableTest::describe).sorted().collect(Collectors.toList()))
+        .as(file.toString())
+        .isEqualTo(completeSymbols.stream().map(ProjectLevelSymbolTableTest::describe).sorted().collect(Collectors.toList()));
+      comparedFiles++;
+    }
+    assertThat(comparedFiles).isGreaterThan(100);
+  }
+
+  private static String describe(Symbol symbol) {
+    StringBuilder description = new StringBuilder();
+    describe(symbol, description, Collections.newSetFromMap(new IdentityHashMap<>()));
+    return description.toString();
+  }
+
+  private static void describe(Symbol symbol, StringBuilder description, Set<Symbol> describedClasses) {
+    description.append(symbol.kind()).append(' ').append(symbol.name()).append(' ').append(symbol.fullyQualifiedName())
+      .append(' ').append(symbol.annotatedTypeName()).append(' ').append(((SymbolImpl) symbol).inferredType());
+    if (symbol.is(Symbol.Kind.CLASS)) {
+      ClassSymbolImpl classSymbol = (ClassSymbolImpl) symbol;
+      description.append(" location=").append(describe(classSymbol.definitionLocation()))
+        .append(" decorators=").append(classSymbol.hasDecorators())
+        .append(" metaclass=").append(classSymbol.hasMetaClass()).append(classSymbol.metaclassFQN())
+        .append(" unresolvedHierarchy=").append(classSymbol.hasUnresolvedTypeHierarchy());
+      if (describedClasses.add(classSymbol)) {
+        description.append(" superClasses=[");
+        classSymbol.superClasses().forEach(superClass -> describe(superClass, description.append(' '), describedClasses));
+        description.append("] members=[");
+        classSymbol.declaredMembers().stream().sorted(Comparator.comparing(Symbol::name))
+          .forEach(member -> describe(member, description.append(' '), describedClasses));
+        description.append(']');
+      }
+    } else if (symbol.is(Symbol.Kind.FUNCTION)) {
+      FunctionSymbolImpl functionSymbol = (FunctionSymbolImpl) symbol;
+      description.append(" location=").append(describe(functionSymbol.definitionLocation()))
+        .append(" decorators=").append(functionSymbol.decorators())
+        .append(" flags=").append(functionSymbol.hasVariadicParameter()).append(functionSymbol.isInstanceMethod())
+        .append(functionSymbol.isAsynchronous()).append(functionSymbol.hasDecorators()).append(functionSymbol.isStub())
+        .append(" returnType=").append(functionSymbol.annotatedReturnTypeName()).append(' ').append(functionSymbol.declaredReturnType())
+        .append(" owner=").append(functionSymbol.owner() == null ? null : functionSymbol.owner().fullyQualifiedName());
+      for (FunctionSymbol.Parameter parameter : functionSymbol.parameters()) {
+        description.append(" parameter=").append(parameter.name()).append(' ').append(parameter.declaredType())
+          .append(parameter.hasDefaultValue()).append(parameter.isVariadic()).append(parameter.isKeywordOnly())
+          .append(parameter.isPositionalOnly()).append(describe(parameter.location()));
+      }
+    } else if (symbol.is(Symbol.Kind.AMBIGUOUS)) {
+      description.append(" alternatives=[");
+      ((AmbiguousSymbol) symbol).alternatives().stream().map(ProjectLevelSymbolTableTest::describe).sorted()
+        .forEach(alternative -> description.append(' ').append(alternative));
+      description.append(']');
+    }
+  }
+
+  private static String describe(@Nullable LocationInFile location) {
+    return location == null ? "null" : (location.fileId() + ":" + location.startLine() + ":" + location.startLineOffset() + ":" + location.endLine() + ":" + location.endLineOffset());
+  }
 }
@@ -0,0 +1,88 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.tree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+import org.sonar.plugins.python.api.tree.Token;
+import org.sonar.plugins.python.api.tree.Tree;
+import org.sonar.python.parser.PythonParser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrentTreeMakingTest {
+
+  private static final int NUMBER_OF_FILES = 1000;
+  private static final int NUMBER_OF_THREADS = 8;
+
+  @Test
+  public void concurrent_parsing_gives_same_trees_as_sequential_parsing() throws Exception {
+    List<String> sources = IntStream.range(0, NUMBER_OF_FILES).mapToObj(ConcurrentTreeMakingTest::source).collect(Collectors.toList());
+    PythonParser parser = PythonParser.create();
+    List<String> expected = sources.stream().map(source -> treeAsString(parser, source)).collect(Collectors.toList());
+
+    ThreadLocal<PythonParser> parsers = ThreadLocal.withInitial(PythonParser::create);
+    ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+    try {
+      List<Future<String>> futures = new ArrayList<>();
+      for (String source : sources) {
+        futures.add(executor.submit(() -> treeAsString(parsers.get(), source)));
+      }
+      for (int i = 0; i < NUMBER_OF_FILES; i++) {
+        assertThat(futures.get(i).get()).isEqualTo(expected.get(i));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static String source(int index) {
+    StringBuilder source = new StringBuilder();
+    for (int line = 0; line < 1 + index % 3; line++) {
+      source.append("x").append(line).append(" = f'{a").append(index).append("!r:>{width}} and {b[").append(line).append("]}'\n")
+        .append("def f").append(line).append("(p):\n")
+        .append("  return F\"{p + ").append(index).append(":{fmt}} {f'{nested}'}\" + f'''\n  {p.attr}'''\n");
+    }
+    return source.toString();
+  }
+
+  private static String treeAsString(PythonParser parser, String source) {
+    StringBuilder builder = new StringBuilder();
+    appendTree(new PythonTreeMaker().fileInput(parser.parse(source)), builder);
+    return builder.toString();
+  }
+
+  private static void appendTree(Tree tree, StringBuilder builder) {
+    builder.append(tree.getKind());
+    if (tree.is(Tree.Kind.TOKEN)) {
+      Token token = (Token) tree;
+      builder.append(':').append(token.value()).append('@').append(token.line()).append(',').append(token.column());
+    }
+    builder.append('(');
+    tree.children().forEach(child -> appendTree(child, builder));
+    builder.append(')');
+  }
+}
@@ -0,0 +1,252 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.tree;
+
+import com.sonar.sslr.api.RecognitionException;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Test;
+import org.sonar.plugins.python.api.tree.FileInput;
+import org.sonar.python.api.PythonTokenType;
+import org.sonar.python.lexer.LexerState;
+import org.sonar.python.lexer.PythonTokenizer;
+import org.sonar.python.parser.PythonParser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.fail;
+
+public class PythonTreeParserTest {
+
+  private static final Set<String> IGNORED_FIELDS = new HashSet<>(Arrays.asList("parent", "childs", "firstToken", "lastToken", "fileTokens"));
+
+  private final PythonParser sslrParser = PythonParser.create();
+  private final PythonTreeParser parser = new PythonTreeParser();
+
+  @Test
+  public void syntax_errors_are_reported_by_sslr_parser() {
+    assertThatThrownBy(() -> parser.parse("if a\n  pass"))
+      .isInstanceOf(RecognitionException.class)
+      .hasMessageContaining("Parse error at line 1 column 4");
+    assertThatThrownBy(() -> parser.parse("f(a+1=2)"))
+      .isInstanceOf(RecognitionException.class)
+      .hasMessage("Parse error at line 1: Keyword argument must be a name.");
+    assertThat(parser.parse("x = 1").statements().statements()).hasSize(1);
+  }
+
+  @Test
+  public void statements() {
+    assertSameResult("");
+    assertSameResult("\n\n# comment\n");
+    assertSameResult("pass");
+    assertSameResult("x = 1; y = 2;\nz = 3 ;");
+    assertSameResult("a = b = yield c\nd = yield\ne: int = 1\nf: int\ng += 1\nh |= yield i\nj, k = *l, m\n");
+    assertSameResult("print\nprint a, b,\nprint >>f, a, b,\nprint >>f\nprint = 1\nprint(a)\nprint >>f,");
+    assertSameResult("exec a\nexec a in b\nexec a in b, c\nexec(a)\nexec = 1\nexec");
+    assertSameResult("assert a\nassert a, b\ndel a, b[0]\nreturn\nreturn a, *b\nyield\nyield from a\nbreak\ncontinue");
+    assertSameResult("raise\nraise a\nraise a from b\nraise a, b\nraise a, b, c");
+    assertSameResult("import a, b.c as d\nfrom . import a\nfrom .. a import (b, c as d,)\nfrom a import *\nfrom a import b,");
+    assertSameResult("global a, b\nnonlocal c\n");
+    assertSameResult("if a:\n  pass\nelif b: pass\nelif c := d:\n  pass\nelse:\n  pass");
+    assertSameResult("while a: pass\nelse: pass\nfor a, b in c, d:\n  pass\nelse:\n  pass\nasync for a in b: pass");
+    assertSameResult("try:\n  pass\nexcept:\n  pass\nexcept A: pass\nexcept A as e: pass\nexcept A, e: pass\nelse: pass\nfinally: pass\n");
+    assertSameResult("try: pass\nfinally: pass");
+    assertSameResult("with a: pass\nwith a as b, c as (d, e): pass\nasync with a: pass");
+    assertSameResult("@a\n@b.c(d, e=1)\n@f()\nclass A(B, metaclass=C):\n  '''doc'''\n  def f(self): pass\n  class B:\n    def g(): pass\n  async def h(): pass\n");
+    assertSameResult("def f():\n  def g(): pass\n  if a:\n    if b:\n      pass");
+    assertSameResult("class A(): pass\nclass B: x = 1; y = 2");
+  }
+
+  @Test
+  public void parameters() {
+    assertSameResult("def f(a, b=1, *args, c, d=2, **kwargs) -> int: pass");
+    assertSameResult("def f(a: int, b: str = '', /, c=1, *, d, **e,): pass");
+    assertSameResult("def f(*, a): pass\ndef f(*a, **b): pass\ndef f(**a,): pass\ndef f(*a,): pass\ndef f(a,): pass");
+    assertSameResult("def f(a, (b, c), (d, (e,)) = 1): pass");
+    assertSameResult("lambda: 1\nlambda ,: 1\nlambda x,: 1\nlambda x, y=1, *z, **w: 1\nlambda *, a: 1\nlambda (a, b), c: 1\nlambda a, /, b: 1");
+    assertSameResult("lambda **a: 1\nlambda **a,: 1\nlambda *a, b, **c: 1\nlambda a, **b: 1\nlambda a, *: 1");
+    assertSameResult("[x for x in y if lambda: 1]\n[x for x in y if lambda: 1 if a else b]");
+  }
+
+  @Test
+  public void expressions() {
+    assertSameResult("a if b else c if d else e\nnot a and b or c\na < b <= c is not d in e not in f is g");
+    assertSameResult("a | b ^ c & d << e >> f + g - h * i / j // k % l @ m\n-a ** -b\n+~a");
+    assertSameResult("await a\nawait a.b(c)[d] ** 2\nawait\nawait = 1");
+    assertSameResult("a.b(c)(d)[e][f:g][h, i:j:k][::][l,]");
+    assertSameResult("(a)\n()\n(a,)\n(a, *b)\n(yield)\n(yield a)\n(x for x in y)\n(x := 1)\n((x) := 1)\n(x.y := 1)");
+    assertSameResult("[]\n[a]\n[a, *b,]\n[x for x in y for z in w if v]\n[x async for x in y]\n[x := 1, y]");
+    assertSameResult("{}\n{a}\n{a, *b,}\n{a: b, **c,}\n{**a}\n{a: b for a in c}\n{a for a in b}\n{**a for a in b}");
+    assertSameResult("`a`\n`a, b`\n...\nNone\n1\n1.5j\n'a' \"b\"\nu'a' b'c'");
+    assertSameResult("f(a, *b, **c, d=1, e:=2)\nf(x for x in y)\nf(x for x in y, 1)\nf(a+1=2)\nf(a if b else c=1)\nf(a,)");
+    assertSameResult("f((x for x in y), 1)\nf(1, x for x in y)");
+    assertSameResult("x = a if b\nx = [a for b in c if d]\nx = [a for b in c if d else e]");
+  }
+
+  @Test
+  public void f_strings() {
+    assertSameResult("f'{a}'\nf'{a!r} {b=} {c:>{d}}'\nf'{a b} {c}'\nf'{c} {a b}'\nf'{a!x}'\nf'{{a}}'\nf'{a:{b:{c}}}'");
+    assertSameResult("f'{a:}'\nf'{a:{'\nf'{'\nf'{a:{b c}}'\nf'''{\na\n}'''\nf'{lambda x: 1}'\nf'{x if y else z}'");
+    assertSameResult("x = f'{a}' 'b' f'{c}'\nx = rf'{a}\\n'");
+  }
+
+  @Test
+  public void invalid_code() {
+    assertSameResult("a = ");
+    assertSameResult("if a\n  pass");
+    assertSameResult("def f(:\n  pass");
+    assertSameResult("x = (1,\ny = 2");
+    assertSameResult("class A:\npass");
+    assertSameResult("a b");
+    assertSameResult("try:\n  pass\n");
+    assertSameResult("  a = 1");
+    assertSameResult("f(**)");
+    assertSameResult("x = {a: }");
+    assertSameResult("import");
+    assertSameResult("from a import");
+    assertSameResult("lambda x y: 1");
+  }
+
+  @Test
+  public void same_trees_as_tree_maker_on_python_files() throws IOException {
+    List<Path> directories = Arrays.asList(Paths.get("src/test/resources"), Paths.get("src/main/resources/org/sonar/python/types"),
+      Paths.get("../python-checks/src/test/resources"), Paths.get("../its/sources"));
+    List<Path> files = new ArrayList<>();
+    for (Path directory : directories) {
+      if (Files.isDirectory(directory)) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+          paths.filter(path -> path.toString().endsWith(".py") || path.toString().endsWith(".pyi")).sorted().forEach(files::add);
+        }
+      }
+    }
+    assertThat(files).isNotEmpty();
+    for (Path file : files) {
+      assertSameResult(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void same_results_as_tree_maker_on_invalid_code() throws IOException {
+    String source = new String(Files.readAllBytes(Paths.get("src/test/resources/metrics/cognitive-complexities.py")), StandardCharsets.UTF_8);
+    LexerState lexerState = new LexerState();
+    lexerState.reset();
+    List<String> tokens = PythonTokenizer.create(lexerState).lex(source).stream()
+      .filter(token -> token.getType() != PythonTokenType.NEWLINE && token.getType() != PythonTokenType.INDENT && token.getType() != PythonTokenType.DEDENT)
+      .map(token -> token.getLine() + ":" + token.getColumn() + ":" + token.getValue().length())
+      .collect(Collectors.toList());
+    String[] lines = source.split("\n", -1);
+    Random random = new Random(42);
+    for (int i = 0; i < 1000; i++) {
+      // remove a random token of a random line
+      String[] position = tokens.get(random.nextInt(tokens.size() - 1)).split(":");
+      int line = Integer.parseInt(position[0]) - 1;
+      int column = Integer.parseInt(position[1]);
+      int length = Integer.parseInt(position[2]);
+      if (line < lines.length && column + length <= lines[line].length()) {
+        String[] mutated = lines.clone();
+        mutated[line] = lines[line].substring(0, column) + lines[line].substring(column + length);
+        assertSameResult(String.join("\n", mutated));
+      }
+    }
+  }
+
+  private void assertSameResult(String source) {
+    FileInput expected = null;
+    RuntimeException expectedError = null;
+    try {
+      expected = new PythonTreeMaker().fileInput(sslrParser.parse(source));
+    } catch (RuntimeException e) {
+      expectedError = e;
+    }
+    FileInput actual = null;
+    RecognitionException actualError = null;
+    try {
+      actual = parser.parseDirectly(source);
+    } catch (RecognitionException e) {
+      actualError = e;
+    }
+    if (expectedError == null) {
+      assertThat(actualError).as(source).isNull();
+      assertThat(actual).as(source).isNotNull();
+      assertSameTree(expected, actual, source, "root");
+    } else if (actual != null || actualError != null) {
+      // not a syntax error: PythonTreeMaker rejected the tree
+      assertThat(actualError).as(source).isNotNull();
+      if (expectedError instanceof RecognitionException) {
+        assertThat(actualError.getLine()).as(source).isEqualTo(((RecognitionException) expectedError).getLine());
+        assertThat(actualError.getMessage()).as(source).isEqualTo(expectedError.getMessage());
+      }
+    }
+  }
+
+  private static void assertSameTree(Object expected, Object actual, String source, String path) {
+    if (expected == null || actual == null) {
+      assertThat(actual).as(source + "\n" + path).isSameAs(expected);
+      return;
+    }
+    if (!(expected instanceof List)) {
+      assertThat(actual.getClass()).as(source + "\n" + path).isEqualTo(expected.getClass());
+    }
+    if (expected instanceof com.sonar.sslr.api.Token) {
+      assertThat(describe((com.sonar.sslr.api.Token) actual)).as(source + "\n" + path).isEqualTo(describe((com.sonar.sslr.api.Token) expected));
+    } else if (expected instanceof List) {
+      List<?> expectedList = (List<?>) expected;
+      assertThat(actual).as(source + "\n" + path).isInstanceOf(List.class);
+      List<?> actualList = (List<?>) actual;
+      assertThat(actualList).as(source + "\n" + path).hasSameSizeAs(expectedList);
+      for (int i = 0; i < expectedList.size(); i++) {
+        assertSameTree(expectedList.get(i), actualList.get(i), source, path + "[" + i + "]");
+      }
+    } else if (expected.getClass().getName().startsWith("org.sonar.python") && !(expected instanceof Enum)) {
+      for (Class<?> type = expected.getClass(); type != Object.class; type = type.getSuperclass()) {
+        for (Field field : type.getDeclaredFields()) {
+          if (!Modifier.isStatic(field.getModifiers()) && !IGNORED_FIELDS.contains(field.getName())) {
+            field.setAccessible(true);
+            try {
+              assertSameTree(field.get(expected), field.get(actual), source, path + "." + field.getName());
+            } catch (IllegalAccessException e) {
+              fail(e.getMessage());
+            }
+          }
+        }
+      }
+    } else {
+      assertThat(actual).as(source + "\n" + path).isEqualTo(expected);
+    }
+  }
+
+  private static String describe(com.sonar.sslr.api.Token token) {
+    return token.getType() + " " + token.getValue() + " " + token.getLine() + ":" + token.getColumn();
+  }
+
+}
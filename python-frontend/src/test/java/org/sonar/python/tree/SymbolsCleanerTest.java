@@ -0,0 +1,95 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.tree;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.sonar.plugins.python.api.symbols.Symbol;
+import org.sonar.plugins.python.api.tree.ClassDef;
+import org.sonar.plugins.python.api.tree.FileInput;
+import org.sonar.plugins.python.api.tree.FunctionDef;
+import org.sonar.plugins.python.api.tree.Name;
+import org.sonar.plugins.python.api.tree.Tree;
+import org.sonar.python.PythonTestUtils;
+import org.sonar.python.semantic.SymbolTableBuilder;
+import org.sonar.python.types.InferredTypes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SymbolsCleanerTest {
+
+  private static final String[] CODE = {
+    "x = 42",
+    "class A:",
+    "  y = x",
+    "  def __init__(self):",
+    "    self.z = [i for i in range(x)]",
+    "def foo(p):",
+    "  l = lambda a: {k: v for k, v in p}",
+    "  return f'{x}' + l(p)"
+  };
+
+  @Test
+  public void clean() {
+    FileInput fileInput = PythonTestUtils.parse(CODE);
+    SymbolsCleaner.clean(fileInput);
+
+    assertThat(fileInput.globalVariables()).isEmpty();
+    List<Name> names = descendants(fileInput, Name.class);
+    assertThat(names).isNotEmpty();
+    assertThat(names).allSatisfy(name -> {
+      assertThat(name.symbol()).isNull();
+      assertThat(name.usage()).isNull();
+      assertThat(name.type()).isEqualTo(InferredTypes.anyType());
+    });
+    assertThat(descendants(fileInput, FunctionDef.class)).allSatisfy(functionDef -> {
+      assertThat(functionDef.localVariables()).isEmpty();
+      assertThat(((FunctionDefImpl) functionDef).functionSymbol()).isNull();
+    });
+    assertThat(descendants(fileInput, ClassDef.class)).allSatisfy(classDef -> {
+      assertThat(classDef.classFields()).isEmpty();
+      assertThat(classDef.instanceFields()).isEmpty();
+    });
+  }
+
+  @Test
+  public void symbols_are_not_accumulated_when_computed_again() {
+    FileInput fileInput = PythonTestUtils.parse(CODE);
+    SymbolsCleaner.clean(fileInput);
+    new SymbolTableBuilder(PythonTestUtils.pythonFile("")).visitFileInput(fileInput);
+
+    FileInput freshFileInput = PythonTestUtils.parse(CODE);
+    assertThat(usagesBySymbolName(fileInput)).isEqualTo(usagesBySymbolName(freshFileInput));
+    assertThat(descendants(fileInput, FunctionDef.class).stream().map(f -> f.localVariables().size()).collect(Collectors.toList()))
+      .isEqualTo(descendants(freshFileInput, FunctionDef.class).stream().map(f -> f.localVariables().size()).collect(Collectors.toList()));
+  }
+
+  private static Map<String, Integer> usagesBySymbolName(FileInput fileInput) {
+    return fileInput.globalVariables().stream().collect(Collectors.toMap(Symbol::name, s -> s.usages().size()));
+  }
+
+  private static <T extends Tree> List<T> descendants(Tree tree, Class<T> clazz) {
+    return PythonTestUtils.getAllDescendant(tree, clazz::isInstance).stream()
+      .map(clazz::cast)
+      .collect(Collectors.toList());
+  }
+}
@@ -20,14 +20,21 @@
 package org.sonar.python.tree;
 
 import com.sonar.sslr.api.AstNode;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.junit.Test;
 import org.sonar.plugins.python.api.symbols.Symbol;
 import org.sonar.plugins.python.api.tree.AnyParameter;
+import org.sonar.plugins.python.api.tree.BinaryExpression;
 import org.sonar.plugins.python.api.tree.CallExpression;
 import org.sonar.plugins.python.api.tree.ClassDef;
 import org.sonar.plugins.python.api.tree.Expression;
@@ -40,6 +47,7 @@ import org.sonar.plugins.python.api.tree.NumericLiteral;
 import org.sonar.plugins.python.api.tree.PassStatement;
 import org.sonar.plugins.python.api.tree.RegularArgument;
 import org.sonar.plugins.python.api.tree.Statement;
+import org.sonar.plugins.python.api.tree.StringLiteral;
 import org.sonar.plugins.python.api.tree.Token;
 import org.sonar.plugins.python.api.tree.Tree;
 import org.sonar.plugins.python.api.tree.Tree.Kind;
@@ -49,6 +57,7 @@ import org.sonar.python.api.PythonTokenType;
 import org.sonar.python.parser.PythonParser;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.sonar.python.PythonTestUtils.lastExpression;
 
 public class TreeUtilsTest {
@@ -102,6 +111,54 @@ public class TreeUtilsTest {
 
   }
 
+  @Test
+  public void tokens_of_f_strings() {
+    FileInput fileInput = parse("x = f'{a + b}' 'c'\n");
+    StringLiteral stringLiteral = PythonTestUtils.getLastDescendant(fileInput, t -> t.is(Kind.STRING_LITERAL));
+    assertThat(TreeUtils.tokens(stringLiteral)).extracting(Token::value).containsExactly("f'{a + b}'", "'c'");
+    assertThat(TreeUtils.tokens(fileInput)).extracting(Token::value).containsExactly("x", "=", "f'{a + b}'", "'c'", "\n", "EOF");
+    // expressions of f-strings are not part of the tokens of the file
+    BinaryExpression plus = PythonTestUtils.getLastDescendant(fileInput, t -> t.is(Kind.PLUS));
+    assertThat(TreeUtils.tokens(plus)).extracting(Token::value).containsExactly("a", "+", "b");
+  }
+
+  @Test
+  public void tokens_of_trees_of_a_file() throws IOException {
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(Paths.get("../python-checks/src/test/resources/checks"))) {
+      files = paths.filter(path -> path.toString().endsWith(".py")).sorted().collect(Collectors.toList());
+    }
+    PythonParser parser = PythonParser.create();
+    PythonTreeParser treeParser = new PythonTreeParser();
+    for (Path file : files) {
+      String source = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+      FileInput fileInput = treeParser.parseDirectly(source);
+      if (fileInput == null) {
+        continue;
+      }
+      assertSameTokensAsChildren(fileInput);
+      assertSameTokensAsChildren(new PythonTreeMaker().fileInput(parser.parse(source)));
+    }
+    List<Token> tokens = TreeUtils.tokens(parse("pass"));
+    assertThatThrownBy(() -> tokens.add(tokens.get(0))).isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  private static void assertSameTokensAsChildren(Tree tree) {
+    assertThat(TreeUtils.tokens(tree)).as(tree.getKind().toString()).containsExactlyElementsOf(childrenTokens(tree));
+    if (!tree.is(Kind.STRING_ELEMENT)) {
+      tree.children().forEach(TreeUtilsTest::assertSameTokensAsChildren);
+    }
+  }
+
+  private static List<Token> childrenTokens(Tree tree) {
+    if (tree.is(Kind.TOKEN)) {
+      return Collections.singletonList((Token) tree);
+    } else if (tree.is(Kind.STRING_ELEMENT)) {
+      return Collections.singletonList(tree.firstToken());
+    }
+    return tree.children().stream().flatMap(child -> childrenTokens(child).stream()).collect(Collectors.toList());
+  }
+
   @Test
   public void non_whitespace_tokens() {
     FileInput parsed = parse("if foo:\n  pass");
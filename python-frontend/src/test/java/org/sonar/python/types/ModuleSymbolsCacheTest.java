@@ -0,0 +1,54 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.types;
+
+import java.util.Collections;
+import java.util.Set;
+import org.junit.Test;
+import org.sonar.plugins.python.api.symbols.Symbol;
+import org.sonar.python.semantic.SymbolImpl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ModuleSymbolsCacheTest {
+
+  private final Set<Symbol> symbols = Collections.singleton(new SymbolImpl("x", "mod.x"));
+
+  @Test
+  public void strong_references() {
+    ModuleSymbolsCache cache = new ModuleSymbolsCache(false);
+    assertThat(cache.usesSoftReferences()).isFalse();
+    assertThat(cache.get("mod")).isNull();
+    cache.put("mod", symbols);
+    assertThat(cache.get("mod")).isSameAs(symbols);
+    assertThat(cache.values()).containsExactly(symbols);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void soft_references() {
+    ModuleSymbolsCache cache = new ModuleSymbolsCache(true);
+    assertThat(cache.usesSoftReferences()).isTrue();
+    cache.put("mod", symbols);
+    // symbols are strongly reachable from this test: they cannot be reclaimed
+    assertThat(cache.get("mod")).isSameAs(symbols);
+    assertThat(cache.values()).containsExactly(symbols);
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.types;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Test;
+import org.sonar.plugins.python.api.LocationInFile;
+import org.sonar.plugins.python.api.symbols.AmbiguousSymbol;
+import org.sonar.plugins.python.api.symbols.ClassSymbol;
+import org.sonar.plugins.python.api.symbols.FunctionSymbol;
+import org.sonar.plugins.python.api.symbols.Symbol;
+import org.sonar.python.semantic.AmbiguousSymbolImpl;
+import org.sonar.python.semantic.ClassSymbolImpl;
+import org.sonar.python.semantic.FunctionSymbolImpl;
+import org.sonar.python.semantic.SymbolImpl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SymbolsSerializerTest {
+
+  @Test
+  public void classes_and_functions() {
+    ClassSymbolImpl base = new ClassSymbolImpl("Base", "mod.Base", new LocationInFile(null, 1, 6, 1, 10), true, true, "abc.ABCMeta");
+    base.addSuperClass(base);
+    base.setHasSuperClassWithoutSymbol();
+    ClassSymbolImpl derived = new ClassSymbolImpl("Derived", "mod.Derived");
+    derived.addSuperClass(base);
+    FunctionSymbolImpl method = new FunctionSymbolImpl("meth", "mod.Derived.meth", null, Collections.singletonList("staticmethod"),
+      true, false, true, true, false, "mod.Base");
+    method.addParameter("p", InferredTypes.runtimeType(base), true, false, true, false, new LocationInFile(null, 3, 2, 3, 3));
+    method.addParameter(null, InferredTypes.anyType(), false, true, false, true, null);
+    SymbolImpl field = new SymbolImpl("field", "mod.Derived.field", "int");
+    derived.addMembers(Arrays.asList(method, field));
+    method.setDeclaredReturnType(InferredTypes.or(InferredTypes.runtimeType(base), InferredTypes.runtimeType(derived)));
+
+    List<Symbol> symbols = roundTrip(derived, base);
+    assertThat(symbols).hasSize(2);
+    ClassSymbolImpl derivedCopy = (ClassSymbolImpl) symbols.get(0);
+    ClassSymbolImpl baseCopy = (ClassSymbolImpl) symbols.get(1);
+
+    assertThat(derivedCopy.name()).isEqualTo("Derived");
+    assertThat(derivedCopy.fullyQualifiedName()).isEqualTo("mod.Derived");
+    assertThat(derivedCopy.definitionLocation()).isNull();
+    assertThat(derivedCopy.superClasses()).containsExactly(baseCopy);
+    assertThat(baseCopy.superClasses()).containsExactly(baseCopy);
+    assertThat(baseCopy.hasDecorators()).isTrue();
+    assertThat(baseCopy.hasMetaClass()).isTrue();
+    assertThat(baseCopy.metaclassFQN()).isEqualTo("abc.ABCMeta");
+    assertThat(baseCopy.hasSuperClassWithoutSymbol()).isTrue();
+    assertThat(baseCopy.definitionLocation().startLineOffset()).isEqualTo(6);
+    assertThat(baseCopy.definitionLocation().fileId()).isNull();
+
+    FunctionSymbolImpl methodCopy = (FunctionSymbolImpl) derivedCopy.resolveMember("meth").get();
+    assertThat(methodCopy.owner()).isSameAs(derivedCopy);
+    assertThat(methodCopy.decorators()).containsExactly("staticmethod");
+    assertThat(methodCopy.hasVariadicParameter()).isTrue();
+    assertThat(methodCopy.isInstanceMethod()).isFalse();
+    assertThat(methodCopy.isAsynchronous()).isTrue();
+    assertThat(methodCopy.hasDecorators()).isTrue();
+    assertThat(methodCopy.isStub()).isFalse();
+    assertThat(methodCopy.annotatedReturnTypeName()).isEqualTo("mod.Base");
+    assertThat(methodCopy.declaredReturnType()).isEqualTo(method.declaredReturnType());
+
+    List<FunctionSymbol.Parameter> parameters = methodCopy.parameters();
+    assertThat(parameters).hasSize(2);
+    assertThat(parameters.get(0).name()).isEqualTo("p");
+    assertThat(((RuntimeType) parameters.get(0).declaredType()).getTypeClass()).isSameAs(baseCopy);
+    assertThat(parameters.get(0).hasDefaultValue()).isTrue();
+    assertThat(parameters.get(0).isKeywordOnly()).isTrue();
+    assertThat(parameters.get(0).location().startLine()).isEqualTo(3);
+    assertThat(parameters.get(1).name()).isNull();
+    assertThat(parameters.get(1).declaredType()).isEqualTo(InferredTypes.anyType());
+    assertThat(parameters.get(1).isVariadic()).isTrue();
+    assertThat(parameters.get(1).isPositionalOnly()).isTrue();
+    assertThat(parameters.get(1).location()).isNull();
+
+    Symbol fieldCopy = derivedCopy.resolveMember("field").get();
+    assertThat(fieldCopy.kind()).isEqualTo(Symbol.Kind.OTHER);
+    assertThat(fieldCopy.annotatedTypeName()).isEqualTo("int");
+  }
+
+  @Test
+  public void ambiguous_and_module_symbols() {
+    ClassSymbolImpl classSymbol = new ClassSymbolImpl("A", "mod.A");
+    FunctionSymbolImpl functionSymbol = new FunctionSymbolImpl("A", "mod.A", false, false, false, false, Collections.emptyList(), Collections.emptyList());
+    AmbiguousSymbolImpl ambiguousSymbol = new AmbiguousSymbolImpl("A", "mod.A", new HashSet<>(Arrays.asList(classSymbol, functionSymbol)));
+    SymbolImpl moduleSymbol = new SymbolImpl("mod", "mod");
+    moduleSymbol.addChildSymbol(ambiguousSymbol);
+    moduleSymbol.setInferredType(InferredTypes.runtimeType(classSymbol));
+    SymbolImpl overriddenMember = new FunctionSymbolImpl("f", "mod.f", false, false, false, false, Collections.emptyList(), Collections.emptyList());
+    overriddenMember.setKind(Symbol.Kind.OTHER);
+
+    List<Symbol> symbols = roundTrip(moduleSymbol, overriddenMember);
+    SymbolImpl moduleCopy = (SymbolImpl) symbols.get(0);
+    assertThat(moduleCopy.getChildrenSymbolByName()).containsOnlyKeys("A");
+    AmbiguousSymbol ambiguousCopy = (AmbiguousSymbol) moduleCopy.getChildrenSymbolByName().get("A");
+    assertThat(ambiguousCopy.kind()).isEqualTo(Symbol.Kind.AMBIGUOUS);
+    assertThat(ambiguousCopy.alternatives()).extracting(Symbol::kind).containsExactlyInAnyOrder(Symbol.Kind.CLASS, Symbol.Kind.FUNCTION);
+    ClassSymbol classCopy = (ClassSymbol) ambiguousCopy.alternatives().stream().filter(s -> s.is(Symbol.Kind.CLASS)).findFirst().get();
+    assertThat(((RuntimeType) moduleCopy.inferredType()).getTypeClass()).isSameAs(classCopy);
+    FunctionSymbolImpl functionCopy = (FunctionSymbolImpl) ambiguousCopy.alternatives().stream().filter(s -> s.is(Symbol.Kind.FUNCTION)).findFirst().get();
+    assertThat(functionCopy.isStub()).isTrue();
+    assertThat(functionCopy.owner()).isNull();
+
+    assertThat(symbols.get(1)).isInstanceOf(FunctionSymbolImpl.class);
+    assertThat(symbols.get(1).kind()).isEqualTo(Symbol.Kind.OTHER);
+  }
+
+  @Test
+  public void builtins() {
+    ClassSymbol intClass = TypeShed.typeShedClass("int");
+    List<Symbol> symbols = roundTrip(TypeShed.typeShedClass("bool"), intClass);
+    ClassSymbol boolCopy = (ClassSymbol) symbols.get(0);
+    assertThat(boolCopy.superClasses()).containsExactly(symbols.get(1));
+    assertThat(boolCopy.canBeOrExtend("int")).isTrue();
+    assertThat(((ClassSymbol) symbols.get(1)).declaredMembers()).extracting(Symbol::name)
+      .containsExactlyInAnyOrder(intClass.declaredMembers().stream().map(Symbol::name).toArray(String[]::new));
+    assertThat(InferredTypes.runtimeType(symbols.get(1))).isEqualTo(InferredTypes.INT);
+  }
+
+  @Test
+  public void external_symbols() {
+    ClassSymbol intClass = TypeShed.typeShedClass("int");
+    FunctionSymbolImpl function = new FunctionSymbolImpl("f", "mod.f", false, false, false, false, Collections.emptyList(), Collections.emptyList());
+    function.setDeclaredReturnType(InferredTypes.runtimeType(intClass));
+    byte[] bytes = SymbolsSerializer.serialize(Collections.singletonList(function), symbol -> symbol == intClass ? "" : null);
+
+    List<Symbol> symbols = SymbolsSerializer.deserialize(bytes, 0, bytes.length, (moduleName, fullyQualifiedName) -> TypeShed.builtinSymbols().get(fullyQualifiedName));
+    FunctionSymbolImpl functionCopy = (FunctionSymbolImpl) symbols.get(0);
+    assertThat(functionCopy).isNotSameAs(function);
+    assertThat(((RuntimeType) functionCopy.declaredReturnType()).getTypeClass()).isSameAs(intClass);
+    assertThat(intClass.declaredMembers()).isNotEmpty();
+
+    assertThatThrownBy(() -> SymbolsSerializer.deserialize(bytes, 0, bytes.length, (moduleName, fullyQualifiedName) -> null))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Unable to resolve external symbol int");
+    assertThatThrownBy(() -> SymbolsSerializer.deserialize(bytes, 0, bytes.length))
+      .isInstanceOf(IllegalStateException.class);
+  }
+
+  private static List<Symbol> roundTrip(Symbol... symbols) {
+    byte[] bytes = SymbolsSerializer.serialize(Arrays.asList(symbols));
+    return SymbolsSerializer.deserialize(bytes, 0, bytes.length);
+  }
+}
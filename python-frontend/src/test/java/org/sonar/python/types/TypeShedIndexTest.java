@@ -0,0 +1,189 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.python.types;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.sonar.plugins.python.api.symbols.AmbiguousSymbol;
+import org.sonar.plugins.python.api.symbols.ClassSymbol;
+import org.sonar.plugins.python.api.symbols.Symbol;
+import org.sonar.python.semantic.ClassSymbolImpl;
+import org.sonar.python.semantic.SymbolImpl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TypeShedIndexTest {
+
+  @Test
+  public void write_and_load() throws IOException {
+    Map<String, Set<Symbol>> symbolsByModule = new HashMap<>();
+    symbolsByModule.put("mod", new HashSet<>(Collections.singletonList(new SymbolImpl("x", "mod.x"))));
+    symbolsByModule.put("pkg.other", Collections.emptySet());
+    byte[] bytes = TypeShedIndex.write(Collections.singletonList(new ClassSymbolImpl("int", "int")), symbolsByModule);
+
+    TypeShedIndex index = TypeShedIndex.load(new ByteArrayInputStream(bytes));
+    assertThat(index).isNotNull();
+    assertThat(index.moduleNames()).containsExactlyInAnyOrder("mod", "pkg.other");
+    Map<String, Symbol> builtins = index.builtinSymbols();
+    assertThat(builtins).containsOnlyKeys("int");
+    assertThat(builtins.get("int").kind()).isEqualTo(Symbol.Kind.CLASS);
+    Function<String, Collection<Symbol>> moduleSymbols = name -> builtins.values();
+    assertThat(index.symbolsForModule("mod", moduleSymbols)).extracting(Symbol::fullyQualifiedName).containsExactly("mod.x");
+    assertThat(index.symbolsForModule("pkg.other", moduleSymbols)).isEmpty();
+    assertThat(index.symbolsForModule("unknown", moduleSymbols)).isEmpty();
+    // each call returns new symbols
+    assertThat(index.symbolsForModule("mod", moduleSymbols)).doesNotContainAnyElementsOf(index.symbolsForModule("mod", moduleSymbols));
+  }
+
+  @Test
+  public void symbols_of_builtins_and_other_modules_are_referenced() throws IOException {
+    ClassSymbolImpl intClass = new ClassSymbolImpl("int", "int");
+    ClassSymbolImpl a = new ClassSymbolImpl("A", "a.A");
+    a.addSuperClass(intClass);
+    ClassSymbolImpl b = new ClassSymbolImpl("B", "b.B");
+    b.addSuperClass(a);
+    Map<String, Set<Symbol>> symbolsByModule = new LinkedHashMap<>();
+    symbolsByModule.put("a", new HashSet<>(Collections.singletonList(a)));
+    symbolsByModule.put("b", new HashSet<>(Collections.singletonList(b)));
+    byte[] bytes = TypeShedIndex.write(Collections.singletonList(intClass), symbolsByModule);
+
+    Loader loader = new Loader(TypeShedIndex.load(new ByteArrayInputStream(bytes)));
+    ClassSymbol loadedA = (ClassSymbol) loader.symbols("a").iterator().next();
+    ClassSymbol loadedB = (ClassSymbol) loader.symbols("b").iterator().next();
+    assertThat(loadedA.superClasses()).containsExactly(loader.builtins.get("int"));
+    assertThat(loadedB.superClasses()).hasSize(1);
+    assertThat(loadedB.superClasses().get(0)).isSameAs(loadedA);
+  }
+
+  @Test
+  public void modules_referencing_each_other() throws IOException {
+    ClassSymbolImpl a1 = new ClassSymbolImpl("A1", "a.A1");
+    ClassSymbolImpl b = new ClassSymbolImpl("B", "b.B");
+    b.addSuperClass(a1);
+    ClassSymbolImpl a2 = new ClassSymbolImpl("A2", "a.A2");
+    a2.addSuperClass(b);
+    Map<String, Set<Symbol>> symbolsByModule = new LinkedHashMap<>();
+    symbolsByModule.put("a", new HashSet<>(Arrays.asList(a1, a2)));
+    symbolsByModule.put("b", new HashSet<>(Collections.singletonList(b)));
+    byte[] bytes = TypeShedIndex.write(Collections.emptyList(), symbolsByModule);
+
+    // "a" references "b", so "b" contains a copy of the symbol of "a" it references
+    Loader loader = new Loader(TypeShedIndex.load(new ByteArrayInputStream(bytes)));
+    Map<String, Symbol> loadedA = new HashMap<>();
+    loader.symbols("a").forEach(symbol -> loadedA.put(symbol.name(), symbol));
+    ClassSymbol loadedB = (ClassSymbol) loader.symbols("b").iterator().next();
+    assertThat(((ClassSymbol) loadedA.get("A2")).superClasses()).containsExactly(loadedB);
+    assertThat(loadedB.superClasses()).extracting(Symbol::fullyQualifiedName).containsExactly("a.A1");
+    assertThat(loadedB.superClasses().get(0)).isNotSameAs(loadedA.get("A1"));
+  }
+
+  @Test
+  public void missing_or_invalid_resource() throws IOException {
+    assertThat(TypeShedIndex.load(null)).isNull();
+    assertThat(TypeShedIndex.load(new ByteArrayInputStream(new byte[] {0, 0, 0, 1, 0, 0, 0, 1}))).isNull();
+  }
+
+  @Test
+  public void bundled_index_is_consistent_with_stub_files() throws IOException {
+    // the index is generated at build time, from the same stub files
+    TypeShedIndex index = TypeShedIndex.load(TypeShed.class.getResourceAsStream(TypeShedIndex.RESOURCE_NAME));
+    assertThat(index).isNotNull();
+    assertThat(index.moduleNames()).contains("typing", "lxml.etree", "django.http.response");
+
+    Map<String, Map<String, String>> indexedDescriptions = new HashMap<>();
+    TypeShed.enableIndex();
+    TypeShed.reset();
+    index.moduleNames().forEach(moduleName -> indexedDescriptions.put(moduleName, descriptions(TypeShed.symbolsForModule(moduleName))));
+    assertThat(indexedDescriptions.get("typing")).isNotEmpty();
+
+    TypeShed.disableIndex();
+    TypeShed.reset();
+    try {
+      for (String moduleName : index.moduleNames()) {
+        assertThat(indexedDescriptions.get(moduleName))
+          .as(moduleName)
+          .isEqualTo(descriptions(TypeShed.symbolsForModule(moduleName)));
+      }
+    } finally {
+      TypeShed.enableIndex();
+      TypeShed.reset();
+    }
+  }
+
+  private static Map<String, String> descriptions(Collection<Symbol> symbols) {
+    Map<String, String> descriptions = new TreeMap<>();
+    symbols.forEach(symbol -> descriptions.put(symbol.name(), description(symbol)));
+    return descriptions;
+  }
+
+  private static String description(Symbol symbol) {
+    if (symbol.is(Symbol.Kind.CLASS)) {
+      return symbol.kind() + ((ClassSymbol) symbol).superClasses().stream()
+        .map(Symbol::fullyQualifiedName)
+        .sorted()
+        .collect(Collectors.joining(", ", "(", ")"));
+    }
+    if (symbol.is(Symbol.Kind.AMBIGUOUS)) {
+      return symbol.kind() + ((AmbiguousSymbol) symbol).alternatives().stream()
+        .map(TypeShedIndexTest::description)
+        .sorted()
+        .collect(Collectors.joining(", ", "[", "]"));
+    }
+    return symbol.kind().toString();
+  }
+
+  /**
+   * Reads each module once, as {@link TypeShed} does.
+   */
+  private static class Loader {
+    private final TypeShedIndex index;
+    private final Map<String, Symbol> builtins;
+    private final Map<String, Set<Symbol>> symbolsByModule = new HashMap<>();
+
+    private Loader(TypeShedIndex index) {
+      this.index = index;
+      this.builtins = index.builtinSymbols();
+    }
+
+    private Collection<Symbol> symbols(String moduleName) {
+      if (moduleName.isEmpty()) {
+        return builtins.values();
+      }
+      Set<Symbol> symbols = symbolsByModule.get(moduleName);
+      if (symbols == null) {
+        symbols = index.symbolsForModule(moduleName, this::symbols);
+        symbolsByModule.put(moduleName, symbols);
+      }
+      return symbols;
+    }
+  }
+}
@@ -19,9 +19,14 @@
  */
 package org.sonar.python.types;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.junit.Test;
@@ -231,4 +236,55 @@ public class TypeShedTest {
       .containsAll(mathSymbols)
       .containsAll(djangoHttpSymbols);
   }
+
+  @Test
+  public void module_symbols_are_computed_once() throws Exception {
+    TypeShed.reset();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Set<Symbol>>> futures = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        futures.add(executor.submit(() -> TypeShed.symbolsForModule("django.http")));
+      }
+      Set<Symbol> djangoHttpSymbols = futures.get(0).get();
+      assertThat(djangoHttpSymbols).isNotEmpty();
+      for (Future<Set<Symbol>> future : futures) {
+        assertThat(future.get()).isSameAs(djangoHttpSymbols);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void reset() {
+    Set<Symbol> djangoHttpSymbols = TypeShed.symbolsForModule("django.http");
+    assertThat(TypeShed.numberOfLoadedModules()).isPositive();
+    Map<String, Symbol> builtins = TypeShed.builtinSymbols();
+
+    TypeShed.reset();
+    assertThat(TypeShed.numberOfLoadedModules()).isZero();
+    assertThat(TypeShed.stubFilesSymbols()).doesNotContainAnyElementsOf(djangoHttpSymbols);
+    assertThat(TypeShed.builtinSymbols()).isSameAs(builtins);
+    Set<Symbol> reloadedSymbols = TypeShed.symbolsForModule("django.http");
+    assertThat(reloadedSymbols).isNotSameAs(djangoHttpSymbols);
+    assertThat(reloadedSymbols).extracting(Symbol::fullyQualifiedName)
+      .containsExactlyInAnyOrder(djangoHttpSymbols.stream().map(Symbol::fullyQualifiedName).toArray(String[]::new));
+  }
+
+  @Test
+  public void soft_references() {
+    Set<Symbol> djangoHttpSymbols = TypeShed.symbolsForModule("django.http");
+    TypeShed.useSoftReferences(false);
+    assertThat(TypeShed.symbolsForModule("django.http")).isSameAs(djangoHttpSymbols);
+    try {
+      TypeShed.useSoftReferences(true);
+      assertThat(TypeShed.numberOfLoadedModules()).isZero();
+      Set<Symbol> softlyReferencedSymbols = TypeShed.symbolsForModule("django.http");
+      assertThat(TypeShed.symbolsForModule("django.http")).isSameAs(softlyReferencedSymbols);
+      assertThat(TypeShed.stubFilesSymbols()).containsAll(softlyReferencedSymbols);
+    } finally {
+      TypeShed.useSoftReferences(false);
+    }
+  }
 }
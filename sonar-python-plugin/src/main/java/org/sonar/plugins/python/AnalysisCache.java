@@ -0,0 +1,225 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import javax.annotation.CheckForNull;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Results of the files analyzed by the previous analysis, persisted in the working directory so that files which did
+ * not change are not analyzed again. The results of a file are reused when the content and the package of the file did
+ * not change, nor the modules of the project looked up in the project level symbol table while analyzing it. The whole
+ * cache is discarded when the plugin or the active rules change.
+ */
+class AnalysisCache {
+
+  private static final Logger LOG = Loggers.get(AnalysisCache.class);
+  static final String FILE_NAME = "python-analysis-cache.bin";
+  private static final int FORMAT_VERSION = 1;
+
+  private final String configuration;
+  private final Map<String, Entry> previousEntries;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final AtomicInteger hits = new AtomicInteger();
+
+  private AnalysisCache(String configuration, Map<String, Entry> previousEntries) {
+    this.configuration = configuration;
+    this.previousEntries = previousEntries;
+  }
+
+  /**
+   * Reads the cache written by a previous analysis, if any, and if it was written with the same configuration.
+   */
+  static AnalysisCache load(Path path, String configuration) {
+    if (!path.toFile().isFile()) {
+      return new AnalysisCache(configuration, Collections.emptyMap());
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      if (in.readInt() != FORMAT_VERSION || !configuration.equals(in.readUTF())) {
+        LOG.debug("Python analysis cache is discarded: the plugin or the active rules changed");
+        return new AnalysisCache(configuration, Collections.emptyMap());
+      }
+      int numberOfEntries = in.readInt();
+      Map<String, Entry> previousEntries = new HashMap<>();
+      for (int i = 0; i < numberOfEntries; i++) {
+        String fileKey = in.readUTF();
+        previousEntries.put(fileKey, Entry.read(in));
+      }
+      return new AnalysisCache(configuration, previousEntries);
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Unable to read Python analysis cache " + path + ", all files will be analyzed", e);
+      return new AnalysisCache(configuration, Collections.emptyMap());
+    }
+  }
+
+  /**
+   * Returns the results saved by the previous analysis for the given file, if the file and the modules it depends on
+   * have the same fingerprints. The returned results are kept for the next analysis.
+   */
+  @CheckForNull
+  FileResults get(String fileKey, String fileFingerprint, UnaryOperator<String> moduleFingerprints) {
+    Entry entry = previousEntries.get(fileKey);
+    if (entry == null || !entry.fileFingerprint.equals(fileFingerprint)) {
+      return null;
+    }
+    for (Map.Entry<String, String> dependency : entry.dependencies.entrySet()) {
+      if (!dependency.getValue().equals(moduleFingerprints.apply(dependency.getKey()))) {
+        return null;
+      }
+    }
+    try {
+      FileResults results = FileResults.read(new DataInputStream(new ByteArrayInputStream(entry.results)));
+      entries.put(fileKey, entry);
+      hits.incrementAndGet();
+      return results;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  void put(String fileKey, String fileFingerprint, Map<String, String> dependencies, FileResults results) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      results.write(out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    entries.put(fileKey, new Entry(fileFingerprint, dependencies, bytes.toByteArray()));
+  }
+
+  /**
+   * Number of files whose results were found in the cache.
+   */
+  int hits() {
+    return hits.get();
+  }
+
+  /**
+   * Writes the results of the files analyzed or found in the cache by this analysis, replacing the previous cache.
+   */
+  void save(Path path) {
+    try {
+      Path temporaryFile = Files.createTempFile(path.getParent(), FILE_NAME, ".tmp");
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(configuration);
+        out.writeInt(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+          out.writeUTF(entry.getKey());
+          entry.getValue().write(out);
+        }
+      }
+      Files.move(temporaryFile, path, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      LOG.warn("Unable to save Python analysis cache " + path, e);
+    }
+  }
+
+  static String fingerprint(String... parts) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      for (String part : parts) {
+        digest.update(part.getBytes(StandardCharsets.UTF_8));
+        // separator, so that ("ab", "c") and ("a", "bc") have different fingerprints
+        digest.update((byte) 0);
+      }
+      return Base64.getEncoder().encodeToString(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Identifies the code of the plugin: snapshot versions can change without changing their version number, while the
+   * plugin jar is copied by the scanner to a location depending on its hash.
+   */
+  static String pluginFingerprint() {
+    CodeSource codeSource = AnalysisCache.class.getProtectionDomain().getCodeSource();
+    if (codeSource != null) {
+      try {
+        File location = new File(codeSource.getLocation().toURI());
+        return location.getPath() + ":" + location.length() + ":" + location.lastModified();
+      } catch (URISyntaxException | IllegalArgumentException e) {
+        LOG.debug("Unable to locate Python plugin: " + e.getMessage());
+      }
+    }
+    return String.valueOf(AnalysisCache.class.getPackage().getImplementationVersion());
+  }
+
+  private static class Entry {
+    private final String fileFingerprint;
+    private final Map<String, String> dependencies;
+    private final byte[] results;
+
+    private Entry(String fileFingerprint, Map<String, String> dependencies, byte[] results) {
+      this.fileFingerprint = fileFingerprint;
+      this.dependencies = dependencies;
+      this.results = results;
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+      out.writeUTF(fileFingerprint);
+      out.writeInt(dependencies.size());
+      for (Map.Entry<String, String> dependency : dependencies.entrySet()) {
+        out.writeUTF(dependency.getKey());
+        out.writeUTF(dependency.getValue());
+      }
+      out.writeInt(results.length);
+      out.write(results);
+    }
+
+    private static Entry read(DataInputStream in) throws IOException {
+      String fileFingerprint = in.readUTF();
+      int numberOfDependencies = in.readInt();
+      Map<String, String> dependencies = new HashMap<>();
+      for (int i = 0; i < numberOfDependencies; i++) {
+        dependencies.put(in.readUTF(), in.readUTF());
+      }
+      byte[] results = new byte[in.readInt()];
+      in.readFully(results);
+      return new Entry(fileFingerprint, dependencies, results);
+    }
+  }
+}
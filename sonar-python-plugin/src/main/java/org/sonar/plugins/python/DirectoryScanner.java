@@ -20,41 +20,128 @@
 package org.sonar.plugins.python;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
-import org.apache.commons.io.FileUtils;
+import java.util.stream.Collectors;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.filefilter.IOFileFilter;
-import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.sonar.api.utils.WildcardPattern;
 
+/**
+ * Finds the files of a base directory matching a pattern. Only the directory named by the literal directories at the start
+ * of the pattern is walked, and its subdirectories which can't contain matching files are skipped.
+ */
 public class DirectoryScanner {
 
+  private static final String ANY_DIRECTORIES = "**";
+
   private final File baseDir;
   private final WildcardPattern pattern;
+  private final DirectoryWalkCache walkCache;
 
   public DirectoryScanner(File baseDir, WildcardPattern pattern) {
+    this(baseDir, pattern, new DirectoryWalkCache());
+  }
+
+  public DirectoryScanner(File baseDir, WildcardPattern pattern, DirectoryWalkCache walkCache) {
     this.baseDir = baseDir;
     this.pattern = pattern;
+    this.walkCache = walkCache;
   }
 
   public List<File> getIncludedFiles() {
-    final String baseDirAbsolutePath = baseDir.getAbsolutePath();
-    IOFileFilter fileFilter = new IOFileFilter() {
+    Path base = baseDir.getAbsoluteFile().toPath().normalize();
+    return walkCache.includedFiles(base, pattern.toString(), () -> scan(base));
+  }
+
+  private List<File> scan(Path base) {
+    List<String> segments = Arrays.stream(pattern.toString().split("/")).filter(segment -> !segment.isEmpty()).collect(Collectors.toList());
+    if (segments.isEmpty()) {
+      return new ArrayList<>();
+    }
+    // the last segment is the file name: the walk starts at the deepest directory of the pattern without wildcard
+    int literalDirectories = 0;
+    Path root = base;
+    while (literalDirectories < segments.size() - 1 && !isWildcard(segments.get(literalDirectories))) {
+      root = root.resolve(segments.get(literalDirectories));
+      literalDirectories++;
+    }
+    root = root.normalize();
+    if (!root.startsWith(base) || !Files.isDirectory(root)) {
+      return new ArrayList<>();
+    }
 
-      @Override
-      public boolean accept(File dir, String name) {
-        return accept(new File(dir, name));
+    List<String> remainingSegments = segments.subList(literalDirectories, segments.size());
+    List<Path> candidates = walk(root, remainingSegments.get(0).contains(ANY_DIRECTORIES) ? Collections.emptyList() : remainingSegments);
+    List<File> includedFiles = new ArrayList<>();
+    for (Path candidate : candidates) {
+      String relativePath = base.relativize(candidate).toString();
+      if (pattern.match(FilenameUtils.separatorsToUnix(relativePath))) {
+        includedFiles.add(new File(baseDir, relativePath));
       }
+    }
+    return includedFiles;
+  }
+
+  private static boolean isWildcard(String segment) {
+    return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0;
+  }
+
+  /**
+   * Returns the files under the root, skipping the directories which don't match the pattern segments at their depth.
+   * Without segments, the whole tree is walked.
+   */
+  private static List<Path> walk(Path root, List<String> segments) {
+    List<Path> files = new ArrayList<>();
+    try {
+      Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+          if (segments.isEmpty() || dir.equals(root)) {
+            return FileVisitResult.CONTINUE;
+          }
+          return mayContainMatches(segments, root.relativize(dir).getNameCount(), dir.getFileName().toString())
+            ? FileVisitResult.CONTINUE
+            : FileVisitResult.SKIP_SUBTREE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+          if (!attrs.isDirectory()) {
+            files.add(file);
+          }
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+          // unreadable files and directories, and symbolic link cycles, are ignored
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to list the files of " + root, e);
+    }
+    return files;
+  }
 
-      @Override
-      public boolean accept(File file) {
-        String path = file.getAbsolutePath();
-        path = path.substring(Math.min(baseDirAbsolutePath.length(), path.length()));
-        return pattern.match(FilenameUtils.separatorsToUnix(path));
+  private static boolean mayContainMatches(List<String> segments, int depth, String name) {
+    for (int i = 0; i < Math.min(depth, segments.size()); i++) {
+      if (segments.get(i).contains(ANY_DIRECTORIES)) {
+        return true;
       }
-    };
-    return new ArrayList<>(FileUtils.listFiles(baseDir, fileFilter, TrueFileFilter.INSTANCE));
+    }
+    // a directory needs at least one more segment for the name of the files it contains
+    return depth < segments.size() && WildcardPattern.create(segments.get(depth - 1)).match(name);
   }
 
 }
@@ -0,0 +1,51 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.sonar.api.batch.ScannerSide;
+
+/**
+ * Files matched by the report patterns resolved by {@link DirectoryScanner}, shared by the report sensors of an analysis: a
+ * pattern which can't be restricted to some subdirectories, like "**&#47;coverage.xml", then walks the project only once.
+ * Only the matched report files are kept, not all the files found by the walks.
+ */
+@ScannerSide
+public class DirectoryWalkCache {
+
+  private final Map<Path, Map<String, List<File>>> includedFilesByBaseDirectory = new HashMap<>();
+
+  /**
+   * Returns the files of the given normalized absolute base directory matching the pattern, computing them with the given
+   * function unless the same pattern has already been resolved in this directory.
+   */
+  synchronized List<File> includedFiles(Path baseDirectory, String pattern, Supplier<List<File>> scan) {
+    List<File> includedFiles = includedFilesByBaseDirectory
+      .computeIfAbsent(baseDirectory, directory -> new HashMap<>())
+      .computeIfAbsent(pattern, key -> scan.get());
+    return new ArrayList<>(includedFiles);
+  }
+}
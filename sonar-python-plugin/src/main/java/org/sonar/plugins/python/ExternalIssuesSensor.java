@@ -22,8 +22,10 @@ package org.sonar.plugins.python;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.sonar.api.batch.fs.InputFile;
@@ -46,6 +48,9 @@ public abstract class ExternalIssuesSensor implements Sensor {
   private static final Long DEFAULT_CONSTANT_DEBT_MINUTES = 5L;
   protected static final String PYLINT_LEGACY_KEY = "sonar.python.pylint.reportPath";
 
+  // input files of the report paths resolved during an execution, the paths which can't be resolved are kept with the unresolved input files
+  private final Map<String, InputFile> resolvedInputFiles = new HashMap<>();
+
   @Override
   public void describe(SensorDescriptor descriptor) {
     descriptor
@@ -56,6 +61,7 @@ public abstract class ExternalIssuesSensor implements Sensor {
 
   @Override
   public void execute(SensorContext context) {
+    resolvedInputFiles.clear();
     Set<String> unresolvedInputFiles = new HashSet<>();
     List<File> reportFiles = ExternalReportProvider.getReportFiles(context, reportPathKey());
     if (reportFiles.isEmpty() && context.config().hasKey(PYLINT_LEGACY_KEY)) {
@@ -64,6 +70,7 @@ public abstract class ExternalIssuesSensor implements Sensor {
     }
     reportFiles.forEach(report -> importExternalReport(report, context, unresolvedInputFiles));
     logUnresolvedInputFiles(unresolvedInputFiles);
+    resolvedInputFiles.clear();
   }
 
   private void importExternalReport(File reportPath, SensorContext context, Set<String> unresolvedInputFiles) {
@@ -91,7 +98,11 @@ public abstract class ExternalIssuesSensor implements Sensor {
   }
 
   protected void saveIssue(SensorContext context, TextReportReader.Issue issue, Set<String> unresolvedInputFiles, String linterKey) {
-    InputFile inputFile = context.fileSystem().inputFile(context.fileSystem().predicates().hasPath(issue.filePath));
+    if (unresolvedInputFiles.contains(issue.filePath)) {
+      return;
+    }
+    InputFile inputFile = resolvedInputFiles.computeIfAbsent(issue.filePath,
+      path -> context.fileSystem().inputFile(context.fileSystem().predicates().hasPath(path)));
     if (inputFile == null) {
       unresolvedInputFiles.add(issue.filePath);
       return;
@@ -0,0 +1,572 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.TextRange;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.cpd.NewCpdTokens;
+import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
+import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.api.batch.sensor.issue.NewIssue;
+import org.sonar.api.batch.sensor.issue.NewIssueLocation;
+import org.sonar.api.batch.sensor.symbol.NewSymbol;
+import org.sonar.api.batch.sensor.symbol.NewSymbolTable;
+import org.sonar.api.issue.NoSonarFilter;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.FileLinesContext;
+import org.sonar.api.measures.FileLinesContextFactory;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.plugins.python.api.IssueLocation;
+import org.sonar.plugins.python.api.PythonCheck.PreciseIssue;
+import org.sonar.python.LineIndex;
+import org.sonar.python.metrics.FileLinesVisitor;
+import org.sonar.python.metrics.FileMetrics;
+
+/**
+ * Results of the analysis of one file: analysis error, measures, duplication tokens, issues, symbol references and
+ * highlighting. They are computed without interacting with the sensor context and saved on it afterwards, possibly by a
+ * later analysis when they are read from the {@link AnalysisCache}.
+ */
+class FileResults {
+
+  private static final Logger LOG = Loggers.get(FileResults.class);
+
+  private static final List<Metric<Integer>> METRICS = Arrays.asList(CoreMetrics.NCLOC, CoreMetrics.STATEMENTS, CoreMetrics.FUNCTIONS,
+    CoreMetrics.CLASSES, CoreMetrics.COMPLEXITY, CoreMetrics.COGNITIVE_COMPLEXITY, CoreMetrics.COMMENT_LINES);
+  private static final TypeOfText[] TYPES_OF_TEXT = TypeOfText.values();
+
+  private boolean hasAnalysisError;
+  private int analysisErrorLine;
+  @Nullable
+  private String analysisErrorMessage;
+  private boolean hasSyntaxTree;
+  private int[] metricValues = new int[0];
+  private Set<Integer> linesWithNoSonar = Collections.emptySet();
+  private Set<Integer> linesOfCode = Collections.emptySet();
+  private Set<Integer> executableLines = Collections.emptySet();
+  private final List<CpdToken> cpdTokens = new ArrayList<>();
+  private final List<Issue> issues = new ArrayList<>();
+  private final List<List<int[]>> symbols = new ArrayList<>();
+  private final List<Highlight> highlights = new ArrayList<>();
+
+  void setAnalysisError(int line, @Nullable String message) {
+    hasAnalysisError = true;
+    analysisErrorLine = line;
+    analysisErrorMessage = message;
+  }
+
+  void setMeasures(FileMetrics fileMetrics) {
+    FileLinesVisitor fileLinesVisitor = fileMetrics.fileLinesVisitor();
+    hasSyntaxTree = true;
+    linesWithNoSonar = fileLinesVisitor.getLinesWithNoSonar();
+    linesOfCode = fileLinesVisitor.getLinesOfCode();
+    executableLines = fileLinesVisitor.getExecutableLines();
+    metricValues = new int[] {
+      linesOfCode.size(),
+      fileMetrics.numberOfStatements(),
+      fileMetrics.numberOfFunctions(),
+      fileMetrics.numberOfClasses(),
+      fileMetrics.complexity(),
+      fileMetrics.cognitiveComplexity(),
+      fileLinesVisitor.getCommentLineCount()
+    };
+  }
+
+  void addIssue(@Nullable RuleKey ruleKey, PreciseIssue preciseIssue) {
+    List<Location> secondaryLocations = new ArrayList<>();
+    preciseIssue.secondaryLocations().forEach(location -> secondaryLocations.add(new Location(location)));
+    issues.add(new Issue(ruleKey, preciseIssue.cost(), new Location(preciseIssue.primaryLocation()), secondaryLocations));
+  }
+
+  /**
+   * Records the duplication tokens added to the returned instance.
+   */
+  NewCpdTokens cpdTokens() {
+    return new NewCpdTokens() {
+      @Override
+      public NewCpdTokens onFile(InputFile inputFile) {
+        return this;
+      }
+
+      @Override
+      public NewCpdTokens addToken(TextRange range, String image) {
+        return addToken(range.start().line(), range.start().lineOffset(), range.end().line(), range.end().lineOffset(), image);
+      }
+
+      @Override
+      public NewCpdTokens addToken(int startLine, int startLineOffset, int endLine, int endLineOffset, String image) {
+        cpdTokens.add(new CpdToken(new int[] {startLine, startLineOffset, endLine, endLineOffset}, image));
+        return this;
+      }
+
+      @Override
+      public void save() {
+        // tokens are saved with the other results
+      }
+    };
+  }
+
+  /**
+   * Records the symbols and references added to the returned instance. Offsets in the content are converted to lines and
+   * line offsets with the given lines of the file.
+   */
+  NewSymbolTable symbolTable(LineIndex lines) {
+    return new NewSymbolTable() {
+      @Override
+      public NewSymbolTable onFile(InputFile inputFile) {
+        return this;
+      }
+
+      @Override
+      public NewSymbol newSymbol(int startOffset, int endOffset) {
+        return newSymbol(lines.lineOf(startOffset), lines.columnOf(startOffset), lines.lineOf(endOffset), lines.columnOf(endOffset));
+      }
+
+      @Override
+      public NewSymbol newSymbol(TextRange range) {
+        return newSymbol(range.start().line(), range.start().lineOffset(), range.end().line(), range.end().lineOffset());
+      }
+
+      @Override
+      public NewSymbol newSymbol(int startLine, int startLineOffset, int endLine, int endLineOffset) {
+        List<int[]> ranges = new ArrayList<>();
+        ranges.add(new int[] {startLine, startLineOffset, endLine, endLineOffset});
+        symbols.add(ranges);
+        return new SymbolRecorder(ranges, lines);
+      }
+
+      @Override
+      public void save() {
+        // symbols are saved with the other results
+      }
+    };
+  }
+
+  /**
+   * Records the highlighting added to the returned instance. Offsets in the content are converted to lines and line
+   * offsets with the given lines of the file.
+   */
+  NewHighlighting highlighting(LineIndex lines) {
+    return new NewHighlighting() {
+      @Override
+      public NewHighlighting onFile(InputFile inputFile) {
+        return this;
+      }
+
+      @Override
+      public NewHighlighting highlight(int startOffset, int endOffset, TypeOfText typeOfText) {
+        return highlight(lines.lineOf(startOffset), lines.columnOf(startOffset), lines.lineOf(endOffset), lines.columnOf(endOffset), typeOfText);
+      }
+
+      @Override
+      public NewHighlighting highlight(TextRange range, TypeOfText typeOfText) {
+        return highlight(range.start().line(), range.start().lineOffset(), range.end().line(), range.end().lineOffset(), typeOfText);
+      }
+
+      @Override
+      public NewHighlighting highlight(int startLine, int startLineOffset, int endLine, int endLineOffset, TypeOfText typeOfText) {
+        highlights.add(new Highlight(new int[] {startLine, startLineOffset, endLine, endLineOffset}, typeOfText));
+        return this;
+      }
+
+      @Override
+      public void save() {
+        // highlighting is saved with the other results
+      }
+    };
+  }
+
+  void save(SensorContext context, InputFile inputFile, NoSonarFilter noSonarFilter, FileLinesContextFactory fileLinesContextFactory) {
+    if (hasAnalysisError) {
+      context.newAnalysisError()
+        .onFile(inputFile)
+        .at(inputFile.newPointer(analysisErrorLine, 0))
+        .message(analysisErrorMessage)
+        .save();
+    }
+    if (hasSyntaxTree) {
+      saveMeasures(context, inputFile, noSonarFilter, fileLinesContextFactory);
+    }
+    saveIssues(context, inputFile);
+    if (hasSyntaxTree) {
+      NewSymbolTable newSymbolTable = context.newSymbolTable().onFile(inputFile);
+      for (List<int[]> ranges : symbols) {
+        int[] declaration = ranges.get(0);
+        NewSymbol newSymbol = newSymbolTable.newSymbol(declaration[0], declaration[1], declaration[2], declaration[3]);
+        for (int[] reference : ranges.subList(1, ranges.size())) {
+          newSymbol.newReference(reference[0], reference[1], reference[2], reference[3]);
+        }
+      }
+      newSymbolTable.save();
+      NewHighlighting newHighlighting = context.newHighlighting().onFile(inputFile);
+      for (Highlight highlight : highlights) {
+        int[] range = highlight.range;
+        newHighlighting.highlight(range[0], range[1], range[2], range[3], highlight.typeOfText);
+      }
+      newHighlighting.save();
+    }
+  }
+
+  private void saveMeasures(SensorContext context, InputFile inputFile, NoSonarFilter noSonarFilter, FileLinesContextFactory fileLinesContextFactory) {
+    NewCpdTokens newCpdTokens = context.newCpdTokens().onFile(inputFile);
+    for (CpdToken cpdToken : cpdTokens) {
+      int[] range = cpdToken.range;
+      newCpdTokens.addToken(range[0], range[1], range[2], range[3], cpdToken.image);
+    }
+    newCpdTokens.save();
+    noSonarFilter.noSonarInFile(inputFile, linesWithNoSonar);
+
+    for (int i = 0; i < METRICS.size(); i++) {
+      context.<Integer>newMeasure()
+        .withValue(metricValues[i])
+        .forMetric(METRICS.get(i))
+        .on(inputFile)
+        .save();
+    }
+
+    FileLinesContext fileLinesContext = fileLinesContextFactory.createFor(inputFile);
+    for (int line : linesOfCode) {
+      fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, line, 1);
+    }
+    for (int line : executableLines) {
+      fileLinesContext.setIntValue(CoreMetrics.EXECUTABLE_LINES_DATA_KEY, line, 1);
+    }
+    fileLinesContext.save();
+  }
+
+  private void saveIssues(SensorContext context, InputFile inputFile) {
+    for (Issue issue : issues) {
+      NewIssue newIssue = context
+        .newIssue()
+        .forRule(issue.ruleKey);
+
+      if (issue.cost != null) {
+        newIssue.gap(issue.cost.doubleValue());
+      }
+
+      NewIssueLocation primaryLocation = newLocation(inputFile, newIssue, issue.primaryLocation);
+      newIssue.at(primaryLocation);
+
+      Deque<NewIssueLocation> secondaryLocationsFlow = new ArrayDeque<>();
+
+      for (Location secondaryLocation : issue.secondaryLocations) {
+        String fileId = secondaryLocation.fileId;
+        if (fileId != null) {
+          InputFile issueLocationFile = component(fileId, context);
+          if (issueLocationFile != null) {
+            secondaryLocationsFlow.addFirst(newLocation(issueLocationFile, newIssue, secondaryLocation));
+          }
+        } else {
+          newIssue.addLocation(newLocation(inputFile, newIssue, secondaryLocation));
+        }
+      }
+
+      // secondary locations on multiple files are only supported using flows
+      if (!secondaryLocationsFlow.isEmpty()) {
+        secondaryLocationsFlow.addFirst(primaryLocation);
+        newIssue.addFlow(secondaryLocationsFlow);
+      }
+      newIssue.save();
+    }
+  }
+
+  @CheckForNull
+  private static InputFile component(String fileId, SensorContext sensorContext) {
+    InputFile inputFile = sensorContext.fileSystem().inputFile(sensorContext.fileSystem().predicates().is(new File(fileId)));
+    if (inputFile == null) {
+      LOG.debug("Failed to find InputFile for {}", fileId);
+    }
+    return inputFile;
+  }
+
+  private static NewIssueLocation newLocation(InputFile inputFile, NewIssue issue, Location location) {
+    NewIssueLocation newLocation = issue.newLocation()
+      .on(inputFile);
+    if (location.startLine != IssueLocation.UNDEFINED_LINE) {
+      TextRange range;
+      if (location.startLineOffset == IssueLocation.UNDEFINED_OFFSET) {
+        range = inputFile.selectLine(location.startLine);
+      } else {
+        range = inputFile.newRange(location.startLine, location.startLineOffset, location.endLine, location.endLineOffset);
+      }
+      newLocation.at(range);
+    }
+
+    String message = location.message;
+    if (message != null) {
+      newLocation.message(message);
+    }
+    return newLocation;
+  }
+
+  void write(DataOutputStream out) throws IOException {
+    out.writeBoolean(hasAnalysisError);
+    out.writeInt(analysisErrorLine);
+    writeNullableString(out, analysisErrorMessage);
+    out.writeBoolean(hasSyntaxTree);
+    writeInts(out, metricValues);
+    writeLines(out, linesWithNoSonar);
+    writeLines(out, linesOfCode);
+    writeLines(out, executableLines);
+    out.writeInt(cpdTokens.size());
+    for (CpdToken cpdToken : cpdTokens) {
+      writeInts(out, cpdToken.range);
+      writeString(out, cpdToken.image);
+    }
+    out.writeInt(issues.size());
+    for (Issue issue : issues) {
+      writeNullableString(out, issue.ruleKey == null ? null : issue.ruleKey.toString());
+      out.writeInt(issue.cost == null ? -1 : issue.cost);
+      issue.primaryLocation.write(out);
+      out.writeInt(issue.secondaryLocations.size());
+      for (Location location : issue.secondaryLocations) {
+        location.write(out);
+      }
+    }
+    out.writeInt(symbols.size());
+    for (List<int[]> ranges : symbols) {
+      out.writeInt(ranges.size());
+      for (int[] range : ranges) {
+        writeInts(out, range);
+      }
+    }
+    out.writeInt(highlights.size());
+    for (Highlight highlight : highlights) {
+      writeInts(out, highlight.range);
+      out.writeByte(highlight.typeOfText.ordinal());
+    }
+  }
+
+  static FileResults read(DataInputStream in) throws IOException {
+    FileResults results = new FileResults();
+    results.hasAnalysisError = in.readBoolean();
+    results.analysisErrorLine = in.readInt();
+    results.analysisErrorMessage = readNullableString(in);
+    results.hasSyntaxTree = in.readBoolean();
+    results.metricValues = readInts(in);
+    results.linesWithNoSonar = readLines(in);
+    results.linesOfCode = readLines(in);
+    results.executableLines = readLines(in);
+    int numberOfCpdTokens = in.readInt();
+    for (int i = 0; i < numberOfCpdTokens; i++) {
+      results.cpdTokens.add(new CpdToken(readInts(in), readString(in)));
+    }
+    int numberOfIssues = in.readInt();
+    for (int i = 0; i < numberOfIssues; i++) {
+      String ruleKey = readNullableString(in);
+      int cost = in.readInt();
+      Location primaryLocation = Location.read(in);
+      int numberOfSecondaryLocations = in.readInt();
+      List<Location> secondaryLocations = new ArrayList<>(numberOfSecondaryLocations);
+      for (int j = 0; j < numberOfSecondaryLocations; j++) {
+        secondaryLocations.add(Location.read(in));
+      }
+      results.issues.add(new Issue(ruleKey == null ? null : RuleKey.parse(ruleKey), cost < 0 ? null : cost, primaryLocation, secondaryLocations));
+    }
+    int numberOfSymbols = in.readInt();
+    for (int i = 0; i < numberOfSymbols; i++) {
+      int numberOfRanges = in.readInt();
+      List<int[]> ranges = new ArrayList<>(numberOfRanges);
+      for (int j = 0; j < numberOfRanges; j++) {
+        ranges.add(readInts(in));
+      }
+      results.symbols.add(ranges);
+    }
+    int numberOfHighlights = in.readInt();
+    for (int i = 0; i < numberOfHighlights; i++) {
+      results.highlights.add(new Highlight(readInts(in), TYPES_OF_TEXT[in.readByte()]));
+    }
+    return results;
+  }
+
+  private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+    out.writeInt(values.length);
+    for (int value : values) {
+      out.writeInt(value);
+    }
+  }
+
+  private static int[] readInts(DataInputStream in) throws IOException {
+    int[] values = new int[in.readInt()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = in.readInt();
+    }
+    return values;
+  }
+
+  private static void writeLines(DataOutputStream out, Set<Integer> lines) throws IOException {
+    out.writeInt(lines.size());
+    for (int line : lines) {
+      out.writeInt(line);
+    }
+  }
+
+  private static Set<Integer> readLines(DataInputStream in) throws IOException {
+    int size = in.readInt();
+    Set<Integer> lines = new HashSet<>();
+    for (int i = 0; i < size; i++) {
+      lines.add(in.readInt());
+    }
+    return lines;
+  }
+
+  static void writeString(DataOutputStream out, String value) throws IOException {
+    // DataOutputStream.writeUTF is limited to 64KB, which long string literals can exceed
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeNullableString(DataOutputStream out, @Nullable String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      writeString(out, value);
+    }
+  }
+
+  @CheckForNull
+  private static String readNullableString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? readString(in) : null;
+  }
+
+  private static class SymbolRecorder implements NewSymbol {
+    private final List<int[]> ranges;
+    private final LineIndex lines;
+
+    private SymbolRecorder(List<int[]> ranges, LineIndex lines) {
+      this.ranges = ranges;
+      this.lines = lines;
+    }
+
+    @Override
+    public NewSymbol newReference(int startOffset, int endOffset) {
+      return newReference(lines.lineOf(startOffset), lines.columnOf(startOffset), lines.lineOf(endOffset), lines.columnOf(endOffset));
+    }
+
+    @Override
+    public NewSymbol newReference(TextRange range) {
+      return newReference(range.start().line(), range.start().lineOffset(), range.end().line(), range.end().lineOffset());
+    }
+
+    @Override
+    public NewSymbol newReference(int startLine, int startLineOffset, int endLine, int endLineOffset) {
+      ranges.add(new int[] {startLine, startLineOffset, endLine, endLineOffset});
+      return this;
+    }
+  }
+
+  private static class CpdToken {
+    private final int[] range;
+    private final String image;
+
+    private CpdToken(int[] range, String image) {
+      this.range = range;
+      this.image = image;
+    }
+  }
+
+  private static class Highlight {
+    private final int[] range;
+    private final TypeOfText typeOfText;
+
+    private Highlight(int[] range, TypeOfText typeOfText) {
+      this.range = range;
+      this.typeOfText = typeOfText;
+    }
+  }
+
+  private static class Issue {
+    @Nullable
+    private final RuleKey ruleKey;
+    @Nullable
+    private final Integer cost;
+    private final Location primaryLocation;
+    private final List<Location> secondaryLocations;
+
+    private Issue(@Nullable RuleKey ruleKey, @Nullable Integer cost, Location primaryLocation, List<Location> secondaryLocations) {
+      this.ruleKey = ruleKey;
+      this.cost = cost;
+      this.primaryLocation = primaryLocation;
+      this.secondaryLocations = secondaryLocations;
+    }
+  }
+
+  private static class Location {
+    private final int startLine;
+    private final int startLineOffset;
+    private final int endLine;
+    private final int endLineOffset;
+    @Nullable
+    private final String message;
+    @Nullable
+    private final String fileId;
+
+    private Location(IssueLocation location) {
+      this(location.startLine(), location.startLineOffset(), location.endLine(), location.endLineOffset(), location.message(), location.fileId());
+    }
+
+    private Location(int startLine, int startLineOffset, int endLine, int endLineOffset, @Nullable String message, @Nullable String fileId) {
+      this.startLine = startLine;
+      this.startLineOffset = startLineOffset;
+      this.endLine = endLine;
+      this.endLineOffset = endLineOffset;
+      this.message = message;
+      this.fileId = fileId;
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+      out.writeInt(startLine);
+      out.writeInt(startLineOffset);
+      out.writeInt(endLine);
+      out.writeInt(endLineOffset);
+      writeNullableString(out, message);
+      writeNullableString(out, fileId);
+    }
+
+    private static Location read(DataInputStream in) throws IOException {
+      return new Location(in.readInt(), in.readInt(), in.readInt(), in.readInt(), readNullableString(in), readNullableString(in));
+    }
+  }
+}
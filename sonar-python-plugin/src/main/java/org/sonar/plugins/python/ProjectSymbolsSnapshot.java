@@ -0,0 +1,130 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Serialized symbols exported by the modules of the project, persisted in the working directory so that the project
+ * level symbol table can be built without parsing the files which did not change. The symbols of a file are reused when
+ * its content and its package did not change. The whole snapshot is discarded when the plugin changes.
+ */
+class ProjectSymbolsSnapshot {
+
+  private static final Logger LOG = Loggers.get(ProjectSymbolsSnapshot.class);
+  static final String FILE_NAME = "python-project-symbols.bin";
+  private static final int FORMAT_VERSION = 1;
+
+  private final String pluginFingerprint;
+  private final Map<String, Entry> previousEntries;
+  private final Map<String, Entry> entries = new HashMap<>();
+
+  private ProjectSymbolsSnapshot(String pluginFingerprint, Map<String, Entry> previousEntries) {
+    this.pluginFingerprint = pluginFingerprint;
+    this.previousEntries = previousEntries;
+  }
+
+  /**
+   * Reads the snapshot written by a previous analysis, if any, and if it was written by the same plugin.
+   */
+  static ProjectSymbolsSnapshot load(Path path, String pluginFingerprint) {
+    if (!path.toFile().isFile()) {
+      return new ProjectSymbolsSnapshot(pluginFingerprint, Collections.emptyMap());
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      if (in.readInt() != FORMAT_VERSION || !pluginFingerprint.equals(in.readUTF())) {
+        LOG.debug("Python project symbols snapshot is discarded: the plugin changed");
+        return new ProjectSymbolsSnapshot(pluginFingerprint, Collections.emptyMap());
+      }
+      int numberOfEntries = in.readInt();
+      Map<String, Entry> previousEntries = new HashMap<>();
+      for (int i = 0; i < numberOfEntries; i++) {
+        String fileKey = in.readUTF();
+        String fileFingerprint = in.readUTF();
+        byte[] symbols = new byte[in.readInt()];
+        in.readFully(symbols);
+        previousEntries.put(fileKey, new Entry(fileFingerprint, symbols));
+      }
+      return new ProjectSymbolsSnapshot(pluginFingerprint, previousEntries);
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Unable to read Python project symbols snapshot " + path + ", all files will be parsed", e);
+      return new ProjectSymbolsSnapshot(pluginFingerprint, Collections.emptyMap());
+    }
+  }
+
+  /**
+   * Returns the symbols saved by the previous analysis for the given file, if the file has the same fingerprint.
+   */
+  @CheckForNull
+  byte[] get(String fileKey, String fileFingerprint) {
+    Entry entry = previousEntries.get(fileKey);
+    return entry != null && entry.fileFingerprint.equals(fileFingerprint) ? entry.symbols : null;
+  }
+
+  void put(String fileKey, String fileFingerprint, byte[] symbols) {
+    entries.put(fileKey, new Entry(fileFingerprint, symbols));
+  }
+
+  /**
+   * Writes the symbols of the files put in this snapshot, replacing the previous snapshot.
+   */
+  void save(Path path) {
+    try {
+      Path temporaryFile = Files.createTempFile(path.getParent(), FILE_NAME, ".tmp");
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(pluginFingerprint);
+        out.writeInt(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+          out.writeUTF(entry.getKey());
+          out.writeUTF(entry.getValue().fileFingerprint);
+          out.writeInt(entry.getValue().symbols.length);
+          out.write(entry.getValue().symbols);
+        }
+      }
+      Files.move(temporaryFile, path, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      LOG.warn("Unable to save Python project symbols snapshot " + path, e);
+    }
+  }
+
+  private static class Entry {
+    private final String fileFingerprint;
+    private final byte[] symbols;
+
+    private Entry(String fileFingerprint, byte[] symbols) {
+      this.fileFingerprint = fileFingerprint;
+      this.symbols = symbols;
+    }
+  }
+}
@@ -19,8 +19,10 @@
  */
 package org.sonar.plugins.python;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -33,12 +35,14 @@ import org.sonar.plugins.python.api.PythonCustomRuleRepository;
 public class PythonChecks {
   private final CheckFactory checkFactory;
   private List<Checks<PythonCheck>> checksByRepository = new ArrayList<>();
+  private final List<Map.Entry<String, Iterable<Class>>> checkClassesByRepository = new ArrayList<>();
 
   PythonChecks(CheckFactory checkFactory) {
     this.checkFactory = checkFactory;
   }
   public PythonChecks addChecks(String repositoryKey, Iterable<Class> checkClass) {
     checksByRepository.add(checkFactory.<PythonCheck>create(repositoryKey).addAnnotatedChecks(checkClass));
+    checkClassesByRepository.add(new AbstractMap.SimpleImmutableEntry<>(repositoryKey, checkClass));
 
     return this;
   }
@@ -57,6 +61,15 @@ public class PythonChecks {
     return checksByRepository.stream().flatMap(c -> c.all().stream()).collect(Collectors.toList());
   }
 
+  /**
+   * Creates new instances of the same checks, for instance to be used by another thread than the one using this instance.
+   */
+  public PythonChecks copy() {
+    PythonChecks copy = new PythonChecks(checkFactory);
+    checkClassesByRepository.forEach(entry -> copy.addChecks(entry.getKey(), entry.getValue()));
+    return copy;
+  }
+
   @Nullable
   public RuleKey ruleKey(PythonCheck check) {
     return checksByRepository.stream().map(c -> c.ruleKey(check)).filter(Objects::nonNull).findFirst().orElse(null);
@@ -94,9 +94,12 @@ public class PythonHighlighter extends PythonSubscriptionCheck {
   private Set<Token> docStringTokens;
 
   public PythonHighlighter(SensorContext context, InputFile inputFile) {
+    this(context.newHighlighting().onFile(inputFile));
+  }
+
+  public PythonHighlighter(NewHighlighting newHighlighting) {
     docStringTokens = new HashSet<>();
-    newHighlighting = context.newHighlighting();
-    newHighlighting.onFile(inputFile);
+    this.newHighlighting = newHighlighting;
   }
 
   @Override
@@ -117,29 +120,36 @@ public class PythonHighlighter extends PythonSubscriptionCheck {
       return;
     }
     for (Tree stringElement : docString.children()) {
-      highlight(stringElement.firstToken(), TypeOfText.STRUCTURED_COMMENT);
       docStringTokens.add(stringElement.firstToken());
     }
   }
 
   private void visitToken(Token token) {
+    highlightToken(newHighlighting, token, docStringTokens.contains(token));
+  }
+
+  /**
+   * Highlights a token and the comments preceding it. Shared with {@link PythonLexerHighlighter}, which only differs in the way
+   * docstrings are detected.
+   */
+  static void highlightToken(NewHighlighting newHighlighting, Token token, boolean isDocstring) {
     if (token.type().equals(PythonTokenType.NUMBER)) {
-      highlight(token, TypeOfText.CONSTANT);
+      highlight(newHighlighting, token, TypeOfText.CONSTANT);
 
     } else if (token.type() instanceof PythonKeyword) {
-      highlight(token, TypeOfText.KEYWORD);
+      highlight(newHighlighting, token, TypeOfText.KEYWORD);
 
-    } else if (token.type().equals(PythonTokenType.STRING) && !docStringTokens.contains(token)) {
-      highlight(token, TypeOfText.STRING);
+    } else if (token.type().equals(PythonTokenType.STRING)) {
+      highlight(newHighlighting, token, isDocstring ? TypeOfText.STRUCTURED_COMMENT : TypeOfText.STRING);
 
     } else if (token.type().equals(IDENTIFIER) && isPython3Keyword(token.value())) {
       // async and await are keywords starting python 3.5, however, for compatibility with previous versions, we cannot consider them as real keywords
-      highlight(token, TypeOfText.KEYWORD);
+      highlight(newHighlighting, token, TypeOfText.KEYWORD);
 
     }
 
     for (Trivia trivia : token.trivia()) {
-      highlight(trivia.token(), TypeOfText.COMMENT);
+      highlight(newHighlighting, trivia.token(), TypeOfText.COMMENT);
     }
   }
 
@@ -152,7 +162,7 @@ public class PythonHighlighter extends PythonSubscriptionCheck {
     newHighlighting.save();
   }
 
-  private void highlight(Token token, TypeOfText typeOfText) {
+  private static void highlight(NewHighlighting newHighlighting, Token token, TypeOfText typeOfText) {
     TokenLocation tokenLocation = new TokenLocation(token);
     newHighlighting.highlight(tokenLocation.startLine(), tokenLocation.startLineOffset(), tokenLocation.endLine(), tokenLocation.endLineOffset(), typeOfText);
   }
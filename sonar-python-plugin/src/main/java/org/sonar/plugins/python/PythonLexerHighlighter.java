@@ -0,0 +1,122 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
+import java.util.List;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
+import org.sonar.python.api.PythonKeyword;
+import org.sonar.python.api.PythonPunctuator;
+import org.sonar.python.api.PythonTokenType;
+import org.sonar.python.lexer.LexerState;
+import org.sonar.python.lexer.PythonTokenizer;
+import org.sonar.python.tree.TokenImpl;
+
+/**
+ * Colors Python code like {@link PythonHighlighter}, from the tokens of the lexer only: the file is not parsed, so files
+ * with syntax errors are highlighted as well.
+ * <p>
+ * Docstrings are detected on the tokens: a sequence of string literals is a docstring when it is a whole statement which
+ * starts the file or the body of a function or class definition, i.e. when it is the first token of the file or
+ * the first token after the colon of a "def" or "class" header, possibly on the next line, and when it is followed by the end
+ * of the statement. Unlike {@link PythonHighlighter}, the expressions nested in f-strings are not highlighted: the whole
+ * f-string is colored as a string.
+ */
+public class PythonLexerHighlighter {
+
+  private final NewHighlighting newHighlighting;
+
+  public PythonLexerHighlighter(SensorContext context, InputFile inputFile) {
+    this(context.newHighlighting().onFile(inputFile));
+  }
+
+  public PythonLexerHighlighter(NewHighlighting newHighlighting) {
+    this.newHighlighting = newHighlighting;
+  }
+
+  public void highlight(String content) {
+    LexerState lexerState = new LexerState();
+    lexerState.reset();
+    List<Token> tokens = PythonTokenizer.create(lexerState).lexFile(content);
+    boolean[] docstrings = new boolean[tokens.size()];
+    markDocstring(tokens, 0, docstrings);
+    for (int i = 0; i < tokens.size(); i++) {
+      TokenType type = tokens.get(i).getType();
+      if (type == PythonKeyword.DEF || type == PythonKeyword.CLASS) {
+        int colon = bodyColon(tokens, i);
+        if (colon >= 0) {
+          markDocstring(tokens, firstBodyToken(tokens, colon), docstrings);
+        }
+      }
+    }
+    for (int i = 0; i < tokens.size(); i++) {
+      PythonHighlighter.highlightToken(newHighlighting, new TokenImpl(tokens.get(i)), docstrings[i]);
+    }
+    newHighlighting.save();
+  }
+
+  /**
+   * Index of the colon ending the header of the definition starting at the given index, or -1 if the header is not complete:
+   * the colons of the annotations are nested in the parameters and can't be at bracket depth 0.
+   */
+  private static int bodyColon(List<Token> tokens, int definition) {
+    int depth = 0;
+    for (int i = definition + 1; i < tokens.size(); i++) {
+      TokenType type = tokens.get(i).getType();
+      if (type == PythonPunctuator.LPARENTHESIS || type == PythonPunctuator.LBRACKET || type == PythonPunctuator.LCURLYBRACE) {
+        depth++;
+      } else if (type == PythonPunctuator.RPARENTHESIS || type == PythonPunctuator.RBRACKET || type == PythonPunctuator.RCURLYBRACE) {
+        depth--;
+      } else if (type == PythonPunctuator.COLON && depth == 0) {
+        return i;
+      } else if (type == PythonTokenType.NEWLINE || type == GenericTokenType.EOF) {
+        return -1;
+      }
+    }
+    return -1;
+  }
+
+  private static int firstBodyToken(List<Token> tokens, int colon) {
+    if (isType(tokens, colon + 1, PythonTokenType.NEWLINE) && isType(tokens, colon + 2, PythonTokenType.INDENT)) {
+      return colon + 3;
+    }
+    return colon + 1;
+  }
+
+  private static void markDocstring(List<Token> tokens, int start, boolean[] docstrings) {
+    int end = start;
+    while (isType(tokens, end, PythonTokenType.STRING)) {
+      end++;
+    }
+    if (end > start && (isType(tokens, end, PythonTokenType.NEWLINE) || isType(tokens, end, PythonPunctuator.SEMICOLON) || isType(tokens, end, GenericTokenType.EOF))) {
+      for (int i = start; i < end; i++) {
+        docstrings[i] = true;
+      }
+    }
+  }
+
+  private static boolean isType(List<Token> tokens, int index, TokenType type) {
+    return index < tokens.size() && tokens.get(index).getType() == type;
+  }
+}
@@ -72,7 +72,7 @@ public class PythonPlugin implements Plugin {
 
     SonarRuntime sonarRuntime = context.getRuntime();
     if (sonarRuntime.getProduct() != SonarProduct.SONARLINT) {
-      context.addExtension(DefaultAnalysisWarningsWrapper.class);
+      context.addExtensions(DefaultAnalysisWarningsWrapper.class, DirectoryWalkCache.class);
       addCoberturaExtensions(context);
       addXUnitExtensions(context);
       addPylintExtensions(context);
@@ -38,11 +38,17 @@ public abstract class PythonReportSensor implements Sensor {
   protected final Configuration conf;
   private final AnalysisWarningsWrapper analysisWarnings;
   private final String reportType;
+  private final DirectoryWalkCache walkCache;
 
   public PythonReportSensor(Configuration conf, AnalysisWarningsWrapper analysisWarnings, String reportType) {
+    this(conf, analysisWarnings, reportType, new DirectoryWalkCache());
+  }
+
+  public PythonReportSensor(Configuration conf, AnalysisWarningsWrapper analysisWarnings, String reportType, DirectoryWalkCache walkCache) {
     this.conf = conf;
     this.analysisWarnings = analysisWarnings;
     this.reportType = reportType;
+    this.walkCache = walkCache;
   }
 
   @Override
@@ -58,7 +64,7 @@ public abstract class PythonReportSensor implements Sensor {
     String reportPathPropertyKey = reportPathKey();
     String reportPath = conf.get(reportPathPropertyKey).orElse(defaultReportPath());
     try {
-      List<File> reports = getReports(conf, context.fileSystem().baseDir().getPath(), reportPathPropertyKey, reportPath);
+      List<File> reports = getReports(conf, context.fileSystem().baseDir().getPath(), reportPathPropertyKey, reportPath, walkCache);
       processReports(context, reports);
     } catch (Exception e) {
       LOG.warn("Cannot read report '{}', the following exception occurred: {}", reportPath, e.getMessage());
@@ -66,10 +72,10 @@ public abstract class PythonReportSensor implements Sensor {
     }
   }
 
-  public static List<File> getReports(Configuration conf, String baseDirPath, String reportPathPropertyKey, String reportPath) {
+  public static List<File> getReports(Configuration conf, String baseDirPath, String reportPathPropertyKey, String reportPath, DirectoryWalkCache walkCache) {
     LOG.debug("Using pattern '{}' to find reports", reportPath);
 
-    DirectoryScanner scanner = new DirectoryScanner(new File(baseDirPath), WildcardPattern.create(reportPath));
+    DirectoryScanner scanner = new DirectoryScanner(new File(baseDirPath), WildcardPattern.create(reportPath), walkCache);
     List<File> includedFiles = scanner.getIncludedFiles();
 
     if (includedFiles.isEmpty()) {
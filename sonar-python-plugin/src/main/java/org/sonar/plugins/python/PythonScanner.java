@@ -23,75 +23,132 @@ import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.RecognitionException;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayDeque;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.sonar.api.SonarProduct;
 import org.sonar.api.batch.fs.InputFile;
-import org.sonar.api.batch.fs.TextRange;
 import org.sonar.api.batch.sensor.SensorContext;
-import org.sonar.api.batch.sensor.issue.NewIssue;
-import org.sonar.api.batch.sensor.issue.NewIssueLocation;
 import org.sonar.api.issue.NoSonarFilter;
-import org.sonar.api.measures.CoreMetrics;
-import org.sonar.api.measures.FileLinesContext;
 import org.sonar.api.measures.FileLinesContextFactory;
-import org.sonar.api.measures.Metric;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
-import org.sonar.plugins.python.api.IssueLocation;
 import org.sonar.plugins.python.api.PythonCheck;
 import org.sonar.plugins.python.api.PythonCheck.PreciseIssue;
 import org.sonar.plugins.python.api.PythonFile;
 import org.sonar.plugins.python.api.PythonSubscriptionCheck;
 import org.sonar.plugins.python.api.PythonVisitorContext;
+import org.sonar.plugins.python.api.symbols.Symbol;
 import org.sonar.plugins.python.api.tree.FileInput;
 import org.sonar.plugins.python.cpd.PythonCpdAnalyzer;
+import org.sonar.python.AnalyzedFileContext;
+import org.sonar.python.ExecutionProfiler;
 import org.sonar.python.SubscriptionVisitor;
-import org.sonar.python.metrics.FileLinesVisitor;
 import org.sonar.python.metrics.FileMetrics;
 import org.sonar.python.parser.PythonParser;
+import org.sonar.python.semantic.ProjectLevelSymbolLookup;
 import org.sonar.python.semantic.ProjectLevelSymbolTable;
+import org.sonar.python.semantic.SymbolUtils;
 import org.sonar.python.tree.PythonTreeMaker;
+import org.sonar.python.tree.PythonTreeParser;
+import org.sonar.python.tree.SymbolsCleaner;
+import org.sonar.python.types.TypeShed;
 
 import static org.sonar.python.semantic.SymbolUtils.pythonPackageName;
 
 public class PythonScanner extends Scanner {
 
   private static final Logger LOG = Loggers.get(PythonScanner.class);
-
-  private final PythonParser parser;
-  private final Map<InputFile, String> packageNames = new HashMap<>();
+  static final String THREADS_PROPERTY_NAME = "sonar.python.analysis.threads";
+  static final String TREE_CACHE_SIZE_PROPERTY_NAME = "sonar.python.analysis.treeCacheSize";
+  static final String ANALYSIS_CACHE_PROPERTY_NAME = "sonar.python.analysis.cache";
+  static final String DIRECT_TREE_PARSER_PROPERTY_NAME = "sonar.python.analysis.directTreeParser";
+
+  private final boolean directTreeParser;
+  private final FileParser parser;
+  private final Map<InputFile, String> packageNames = new ConcurrentHashMap<>();
   private final PythonChecks checks;
   private final FileLinesContextFactory fileLinesContextFactory;
   private final NoSonarFilter noSonarFilter;
   private final PythonCpdAnalyzer cpdAnalyzer;
   private final ProjectLevelSymbolTable projectLevelSymbolTable = new ProjectLevelSymbolTable();
-
+  private final File workingDirectory;
+  private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+  private final SyntaxTreeCache treeCache;
+  private final AtomicLong cfgComputations = new AtomicLong();
+  private final AtomicLong savedCfgComputations = new AtomicLong();
+  @Nullable
+  private final ExecutionProfiler profiler;
+  @Nullable
+  private final AnalysisCache analysisCache;
+  @Nullable
+  private final ProjectSymbolsSnapshot symbolsSnapshot;
+  private int reusedModules = 0;
+  private final AtomicLong symbolsReloadTime = new AtomicLong();
+  private final Map<InputFile, String> fileFingerprints = new ConcurrentHashMap<>();
+  private final Map<String, SortedSet<String>> moduleFingerprints = new ConcurrentHashMap<>();
 
   public PythonScanner(
     SensorContext context, PythonChecks checks,
     FileLinesContextFactory fileLinesContextFactory, NoSonarFilter noSonarFilter, List<InputFile> files
+  ) {
+    this(context, checks, fileLinesContextFactory, noSonarFilter, files, null);
+  }
+
+  public PythonScanner(
+    SensorContext context, PythonChecks checks,
+    FileLinesContextFactory fileLinesContextFactory, NoSonarFilter noSonarFilter, List<InputFile> files, @Nullable ExecutionProfiler profiler
   ) {
     super(context);
+    this.profiler = profiler;
+    registerRuleKeys(checks);
     this.checks = checks;
     this.fileLinesContextFactory = fileLinesContextFactory;
     this.noSonarFilter = noSonarFilter;
     this.cpdAnalyzer = new PythonCpdAnalyzer(context);
-    this.parser = PythonParser.create();
+    this.directTreeParser = context.config().getBoolean(DIRECT_TREE_PARSER_PROPERTY_NAME).orElse(false);
+    this.parser = new FileParser();
+    this.workingDirectory = getWorkingDirectory(context);
+    this.treeCache = new SyntaxTreeCache(treeCacheSize(context));
+    boolean useAnalysisCache = workingDirectory != null && context.config().getBoolean(ANALYSIS_CACHE_PROPERTY_NAME).orElse(false);
+    this.analysisCache = useAnalysisCache
+      ? AnalysisCache.load(analysisCachePath(), AnalysisCache.fingerprint(AnalysisCache.pluginFingerprint(), activeRules(context)))
+      : null;
+    long startTime = System.currentTimeMillis();
+    this.symbolsSnapshot = useAnalysisCache ? ProjectSymbolsSnapshot.load(symbolsSnapshotPath(), AnalysisCache.pluginFingerprint()) : null;
+    symbolsReloadTime.addAndGet(System.currentTimeMillis() - startTime);
+
+    if (numberOfThreads() > 1) {
+      // builtin symbols are lazily loaded: make sure this happens before worker threads start using them
+      TypeShed.builtinSymbols();
+    }
 
     // computes "globalSymbolsByModuleName"
-    long startTime = System.currentTimeMillis();
+    startTime = System.currentTimeMillis();
     GlobalSymbolsScanner globalSymbolsStep = new GlobalSymbolsScanner(context);
     globalSymbolsStep.execute(files, context);
+    projectLevelSymbolTable.freeze();
     long stopTime = System.currentTimeMillis() - startTime;
     LOG.debug("Time to build the project level symbol table: " + stopTime + "ms");
+    if (symbolsSnapshot != null) {
+      LOG.info(String.format("%d/%d modules were unchanged, their symbols were reloaded from the project symbols snapshot in %d ms",
+        reusedModules, files.size(), symbolsReloadTime.get()));
+      symbolsSnapshot.save(symbolsSnapshotPath());
+    }
   }
 
   @Override
@@ -99,39 +156,160 @@ public class PythonScanner extends Scanner {
     return "rules execution";
   }
 
+  private void registerRuleKeys(PythonChecks pythonChecks) {
+    if (profiler != null) {
+      for (PythonCheck check : pythonChecks.all()) {
+        RuleKey ruleKey = pythonChecks.ruleKey(check);
+        if (ruleKey != null) {
+          profiler.register(check, ruleKey.toString());
+        }
+      }
+    }
+  }
+
+  @Override
+  void execute(List<InputFile> files, SensorContext context) {
+    super.execute(files, context);
+    int lookups = treeCache.hits() + treeCache.misses();
+    if (lookups > 0) {
+      LOG.debug(String.format("Syntax tree cache hit ratio: %d/%d (%d%%)", treeCache.hits(), lookups, 100 * treeCache.hits() / lookups));
+    }
+    LOG.debug(String.format("Control flow graphs and dataflow analyses: %d computed, %d computations saved", cfgComputations.get(), savedCfgComputations.get()));
+    if (analysisCache != null) {
+      LOG.info(String.format("%d/%d source files were unchanged, their results were loaded from the analysis cache", analysisCache.hits(), files.size()));
+      analysisCache.save(analysisCachePath());
+    }
+  }
+
+  private Path analysisCachePath() {
+    return workingDirectory.toPath().resolve(AnalysisCache.FILE_NAME);
+  }
+
+  private Path symbolsSnapshotPath() {
+    return workingDirectory.toPath().resolve(ProjectSymbolsSnapshot.FILE_NAME);
+  }
+
+  private static String activeRules(SensorContext context) {
+    return context.activeRules().findAll().stream()
+      .map(rule -> rule.ruleKey() + ":" + rule.templateRuleKey() + ":" + new TreeMap<>(rule.params()))
+      .sorted()
+      .collect(Collectors.joining("\n"));
+  }
+
+  private String moduleFingerprint(String moduleName) {
+    SortedSet<String> fingerprints = moduleFingerprints.get(moduleName);
+    return fingerprints == null ? "" : String.join(",", fingerprints);
+  }
+
+  /**
+   * Maximum memory, in bytes, used to keep the syntax trees between the computation of the project level symbol table
+   * and the execution of the rules. Defaults to a quarter of the maximum heap size; can be set in megabytes, 0 disabling the cache.
+   */
+  private static long treeCacheSize(SensorContext context) {
+    return context.config().getLong(TREE_CACHE_SIZE_PROPERTY_NAME)
+      .map(megabytes -> megabytes * 1024 * 1024)
+      .orElse(Runtime.getRuntime().maxMemory() / 4);
+  }
+
+  @Override
+  int numberOfThreads() {
+    return context.config().getInt(THREADS_PROPERTY_NAME).orElse(1);
+  }
+
   @Override
   protected void scanFile(InputFile inputFile) {
+    analyzeFile(inputFile, parser, checks).run();
+  }
+
+  @Override
+  Runnable analyzeFile(InputFile inputFile) {
+    Worker worker = workers.get();
+    return analyzeFile(inputFile, worker.parser, worker.checks);
+  }
+
+  private Runnable analyzeFile(InputFile inputFile, FileParser fileParser, PythonChecks pythonChecks) {
+    String fileFingerprint = fileFingerprints.get(inputFile);
+    if (analysisCache != null && fileFingerprint != null) {
+      FileResults cachedResults = analysisCache.get(inputFile.key(), fileFingerprint, this::moduleFingerprint);
+      if (cachedResults != null) {
+        treeCache.evict(inputFile);
+        return () -> cachedResults.save(context, inputFile, noSonarFilter, fileLinesContextFactory);
+      }
+    }
+    Set<String> dependencies = new HashSet<>();
+    ProjectLevelSymbolLookup symbolTable = analysisCache == null ? projectLevelSymbolTable : projectLevelSymbolTable.recordingLookups(dependencies);
+    FileResults results = new FileResults();
     PythonFile pythonFile = SonarQubePythonFile.create(inputFile);
-    PythonVisitorContext visitorContext;
+    AnalyzedFileContext visitorContext;
+    FileMetrics fileMetrics = null;
     try {
-      AstNode astNode = parser.parse(pythonFile.content());
-      FileInput parse = new PythonTreeMaker().fileInput(astNode);
-      visitorContext = new PythonVisitorContext(parse, pythonFile, getWorkingDirectory(context), packageNames.get(inputFile), projectLevelSymbolTable);
-      saveMeasures(inputFile, visitorContext);
+      String content = pythonFile.content();
+      FileInput parse = treeCache.remove(inputFile, content);
+      if (parse == null) {
+        parse = fileParser.parse(content);
+      } else {
+        // symbols computed for the project level symbol table are computed again, with this table
+        FileInput cachedTree = parse;
+        ExecutionProfiler.measurePhase(profiler, ExecutionProfiler.SYMBOLS, () -> SymbolsCleaner.clean(cachedTree));
+      }
+      visitorContext = new AnalyzedFileContext(parse, pythonFile, workingDirectory, packageNames.get(inputFile), symbolTable, profiler);
+      fileMetrics = new FileMetrics();
     } catch (RecognitionException e) {
-      visitorContext = new PythonVisitorContext(pythonFile, e);
+      visitorContext = new AnalyzedFileContext(pythonFile, e);
+      results.setAnalysisError(e.getLine(), e.getMessage());
       LOG.error("Unable to parse file: " + inputFile.toString());
       LOG.error(e.getMessage());
-      context.newAnalysisError()
-        .onFile(inputFile)
-        .at(inputFile.newPointer(e.getLine(), 0))
-        .message(e.getMessage())
-        .save();
     }
     List<PythonSubscriptionCheck> checksBasedOnTree = new ArrayList<>();
-    for (PythonCheck check : checks.all()) {
+    // metrics, CPD tokens, symbol references and highlighting are computed in the same tree traversal as the rules
+    Map<PythonSubscriptionCheck, String> fileVisitors = new LinkedHashMap<>();
+    if (fileMetrics != null) {
+      fileVisitors.put(fileMetrics.visitor(), ExecutionProfiler.METRICS);
+      fileVisitors.put(cpdAnalyzer.visitor(results.cpdTokens()), ExecutionProfiler.CPD);
+      fileVisitors.put(new SymbolVisitor(results.symbolTable(visitorContext.lines())), ExecutionProfiler.HIGHLIGHTING);
+      fileVisitors.put(new PythonHighlighter(results.highlighting(visitorContext.lines())), ExecutionProfiler.HIGHLIGHTING);
+      checksBasedOnTree.addAll(fileVisitors.keySet());
+    }
+    for (PythonCheck check : pythonChecks.all()) {
       if (check instanceof PythonSubscriptionCheck) {
         checksBasedOnTree.add((PythonSubscriptionCheck) check);
+      } else if (profiler != null) {
+        PythonVisitorContext checkContext = visitorContext;
+        profiler.measureRule(profiler.ruleKey(check), () -> check.scanFile(checkContext));
       } else {
         check.scanFile(visitorContext);
       }
     }
-    SubscriptionVisitor.analyze(checksBasedOnTree, visitorContext);
-    saveIssues(inputFile, visitorContext.getIssues());
+    if (profiler == null) {
+      SubscriptionVisitor.analyze(checksBasedOnTree, visitorContext, null);
+    } else {
+      fileVisitors.forEach(profiler::registerPhase);
+      try {
+        SubscriptionVisitor.analyze(checksBasedOnTree, visitorContext, profiler);
+      } finally {
+        fileVisitors.keySet().forEach(profiler::unregister);
+      }
+    }
+    cfgComputations.addAndGet(visitorContext.cfgCache().computations());
+    savedCfgComputations.addAndGet(visitorContext.cfgCache().savedComputations());
+    // all rules have left the file: control flow graphs don't need to be kept until the results are saved
+    visitorContext.cfgCache().clear();
+
+    recordResults(results, visitorContext, fileMetrics, pythonChecks);
+    if (analysisCache != null && fileFingerprint != null) {
+      Map<String, String> dependencyFingerprints = new HashMap<>();
+      dependencies.forEach(moduleName -> dependencyFingerprints.put(moduleName, moduleFingerprint(moduleName)));
+      analysisCache.put(inputFile.key(), fileFingerprint, dependencyFingerprints, results);
+    }
+    return () -> results.save(context, inputFile, noSonarFilter, fileLinesContextFactory);
+  }
 
-    if (visitorContext.rootTree() != null) {
-      new SymbolVisitor(context.newSymbolTable().onFile(inputFile)).visitFileInput(visitorContext.rootTree());
-      new PythonHighlighter(context, inputFile).scanFile(visitorContext);
+  private static void recordResults(FileResults results, PythonVisitorContext visitorContext, @Nullable FileMetrics fileMetrics, PythonChecks pythonChecks) {
+    if (fileMetrics != null) {
+      results.setMeasures(fileMetrics);
+    }
+    for (PreciseIssue issue : visitorContext.getIssues()) {
+      results.addIssue(pythonChecks.ruleKey(issue.check()), issue);
     }
   }
 
@@ -145,108 +323,40 @@ public class PythonScanner extends Scanner {
     LOG.warn("Unable to analyze file: " + file.toString(), e);
   }
 
-  private void saveIssues(InputFile inputFile, List<PreciseIssue> issues) {
-    for (PreciseIssue preciseIssue : issues) {
-      RuleKey ruleKey = checks.ruleKey(preciseIssue.check());
-      NewIssue newIssue = context
-        .newIssue()
-        .forRule(ruleKey);
-
-      Integer cost = preciseIssue.cost();
-      if (cost != null) {
-        newIssue.gap(cost.doubleValue());
-      }
-
-      NewIssueLocation primaryLocation = newLocation(inputFile, newIssue, preciseIssue.primaryLocation());
-      newIssue.at(primaryLocation);
-
-      Deque<NewIssueLocation> secondaryLocationsFlow = new ArrayDeque<>();
-
-      for (IssueLocation secondaryLocation : preciseIssue.secondaryLocations()) {
-        String fileId = secondaryLocation.fileId();
-        if (fileId != null) {
-          InputFile issueLocationFile = component(fileId, context);
-          if (issueLocationFile != null) {
-            secondaryLocationsFlow.addFirst(newLocation(issueLocationFile, newIssue, secondaryLocation));
-          }
-        } else {
-          newIssue.addLocation(newLocation(inputFile, newIssue, secondaryLocation));
-        }
-      }
-
-      // secondary locations on multiple files are only supported using flows
-      if (!secondaryLocationsFlow.isEmpty()) {
-        secondaryLocationsFlow.addFirst(primaryLocation);
-        newIssue.addFlow(secondaryLocationsFlow);
+  /**
+   * Builds the syntax tree of a file, either with the SSLR parser and {@link PythonTreeMaker} or, when
+   * {@value #DIRECT_TREE_PARSER_PROPERTY_NAME} is enabled, directly from the tokens with {@link PythonTreeParser}.
+   * Not thread-safe, like the parsers it delegates to.
+   */
+  private class FileParser {
+    @Nullable
+    private final PythonParser sslrParser = directTreeParser ? null : PythonParser.create();
+    @Nullable
+    private final PythonTreeParser treeParser = directTreeParser ? new PythonTreeParser() : null;
+
+    private FileInput parse(String content) {
+      if (treeParser != null) {
+        return ExecutionProfiler.measurePhase(profiler, ExecutionProfiler.PARSE, () -> treeParser.parse(content));
       }
-      newIssue.save();
+      AstNode astNode = ExecutionProfiler.measurePhase(profiler, ExecutionProfiler.PARSE, () -> sslrParser.parse(content));
+      return ExecutionProfiler.measurePhase(profiler, ExecutionProfiler.TREE, () -> new PythonTreeMaker().fileInput(astNode));
     }
   }
 
-  @CheckForNull
-  private static InputFile component(String fileId, SensorContext sensorContext) {
-    InputFile inputFile = sensorContext.fileSystem().inputFile(sensorContext.fileSystem().predicates().is(new File(fileId)));
-    if (inputFile == null) {
-      LOG.debug("Failed to find InputFile for {}", fileId);
-    }
-    return inputFile;
-  }
+  /**
+   * Parser and check instances confined to one of the threads used when files are analyzed concurrently.
+   */
+  private class Worker {
+    private final FileParser parser = new FileParser();
+    private final PythonChecks checks = PythonScanner.this.checks.copy();
 
-  private static NewIssueLocation newLocation(InputFile inputFile, NewIssue issue, IssueLocation location) {
-    NewIssueLocation newLocation = issue.newLocation()
-      .on(inputFile);
-    if (location.startLine() != IssueLocation.UNDEFINED_LINE) {
-      TextRange range;
-      if (location.startLineOffset() == IssueLocation.UNDEFINED_OFFSET) {
-        range = inputFile.selectLine(location.startLine());
-      } else {
-        range = inputFile.newRange(location.startLine(), location.startLineOffset(), location.endLine(), location.endLineOffset());
-      }
-      newLocation.at(range);
+    private Worker() {
+      registerRuleKeys(checks);
     }
-
-    String message = location.message();
-    if (message != null) {
-      newLocation.message(message);
-    }
-    return newLocation;
-  }
-
-  private void saveMeasures(InputFile inputFile, PythonVisitorContext visitorContext) {
-    FileMetrics fileMetrics = new FileMetrics(visitorContext);
-    FileLinesVisitor fileLinesVisitor = fileMetrics.fileLinesVisitor();
-
-    cpdAnalyzer.pushCpdTokens(inputFile, visitorContext);
-    noSonarFilter.noSonarInFile(inputFile, fileLinesVisitor.getLinesWithNoSonar());
-
-    Set<Integer> linesOfCode = fileLinesVisitor.getLinesOfCode();
-    saveMetricOnFile(inputFile, CoreMetrics.NCLOC, linesOfCode.size());
-    saveMetricOnFile(inputFile, CoreMetrics.STATEMENTS, fileMetrics.numberOfStatements());
-    saveMetricOnFile(inputFile, CoreMetrics.FUNCTIONS, fileMetrics.numberOfFunctions());
-    saveMetricOnFile(inputFile, CoreMetrics.CLASSES, fileMetrics.numberOfClasses());
-    saveMetricOnFile(inputFile, CoreMetrics.COMPLEXITY, fileMetrics.complexity());
-    saveMetricOnFile(inputFile, CoreMetrics.COGNITIVE_COMPLEXITY, fileMetrics.cognitiveComplexity());
-    saveMetricOnFile(inputFile, CoreMetrics.COMMENT_LINES, fileLinesVisitor.getCommentLineCount());
-
-    FileLinesContext fileLinesContext = fileLinesContextFactory.createFor(inputFile);
-    for (int line : linesOfCode) {
-      fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, line, 1);
-    }
-    for (int line : fileLinesVisitor.getExecutableLines()) {
-      fileLinesContext.setIntValue(CoreMetrics.EXECUTABLE_LINES_DATA_KEY, line, 1);
-    }
-    fileLinesContext.save();
-  }
-
-  private void saveMetricOnFile(InputFile inputFile, Metric<Integer> metric, Integer value) {
-    context.<Integer>newMeasure()
-      .withValue(value)
-      .forMetric(metric)
-      .on(inputFile)
-      .save();
   }
 
   private class GlobalSymbolsScanner extends Scanner {
+    private final ThreadLocal<FileParser> parsers = ThreadLocal.withInitial(FileParser::new);
 
     private GlobalSymbolsScanner(SensorContext context) {
       super(context);
@@ -257,14 +367,78 @@ public class PythonScanner extends Scanner {
       return "global symbols computation";
     }
 
+    @Override
+    int numberOfThreads() {
+      return PythonScanner.this.numberOfThreads();
+    }
+
     @Override
     protected void scanFile(InputFile inputFile) throws IOException {
-      AstNode astNode = parser.parse(inputFile.contents());
-      FileInput astRoot = new PythonTreeMaker().fileInput(astNode);
+      collectModuleSymbols(inputFile, parser).run();
+    }
+
+    @Override
+    Runnable analyzeFile(InputFile inputFile) throws IOException {
+      return collectModuleSymbols(inputFile, parsers.get());
+    }
+
+    /**
+     * Computes the symbols of a module, which only depend on the file. They are added to the project level symbol
+     * table by the returned action, in the order of the input files, which makes the table independent of the
+     * number of threads.
+     */
+    private Runnable collectModuleSymbols(InputFile inputFile, FileParser fileParser) throws IOException {
+      String content = inputFile.contents();
       String packageName = pythonPackageName(inputFile.file(), context.fileSystem().baseDir());
       packageNames.put(inputFile, packageName);
-      PythonFile pythonFile = SonarQubePythonFile.create(inputFile);
-      projectLevelSymbolTable.addModule(astRoot, packageName, pythonFile);
+      String moduleName = SymbolUtils.fullyQualifiedModuleName(packageName, inputFile.filename());
+      String fileFingerprint = analysisCache != null ? AnalysisCache.fingerprint(packageName, content) : null;
+      if (fileFingerprint != null) {
+        fileFingerprints.put(inputFile, fileFingerprint);
+        moduleFingerprints.computeIfAbsent(moduleName, name -> new ConcurrentSkipListSet<>()).add(fileFingerprint);
+      }
+      if (symbolsSnapshot != null && fileFingerprint != null) {
+        Runnable reloadedModule = reloadModule(inputFile, moduleName, fileFingerprint);
+        if (reloadedModule != null) {
+          return reloadedModule;
+        }
+      }
+      FileInput astRoot = fileParser.parse(content);
+      Set<Symbol> symbols = ProjectLevelSymbolTable.exportedSymbols(astRoot, packageName, SonarQubePythonFile.create(inputFile));
+      byte[] serializedSymbols = symbolsSnapshot != null ? TypeShed.serializeProjectSymbols(symbols) : null;
+      return () -> {
+        projectLevelSymbolTable.addModule(moduleName, symbols);
+        treeCache.put(inputFile, content, astRoot);
+        if (serializedSymbols != null && fileFingerprint != null) {
+          symbolsSnapshot.put(inputFile.key(), fileFingerprint, serializedSymbols);
+        }
+      };
+    }
+
+    /**
+     * Symbols of an unchanged file found in the snapshot: the file will be parsed when the rules are executed.
+     */
+    @CheckForNull
+    private Runnable reloadModule(InputFile inputFile, String moduleName, String fileFingerprint) {
+      byte[] serializedSymbols = symbolsSnapshot.get(inputFile.key(), fileFingerprint);
+      if (serializedSymbols == null) {
+        return null;
+      }
+      long startTime = System.currentTimeMillis();
+      Set<Symbol> symbols;
+      try {
+        symbols = TypeShed.deserializeProjectSymbols(serializedSymbols);
+      } catch (IllegalStateException e) {
+        LOG.debug("Unable to reload the symbols of " + inputFile + " from the project symbols snapshot: " + e.getMessage());
+        return null;
+      } finally {
+        symbolsReloadTime.addAndGet(System.currentTimeMillis() - startTime);
+      }
+      return () -> {
+        projectLevelSymbolTable.addModule(moduleName, symbols);
+        symbolsSnapshot.put(inputFile.key(), fileFingerprint, serializedSymbols);
+        reusedModules++;
+      };
     }
 
     @Override
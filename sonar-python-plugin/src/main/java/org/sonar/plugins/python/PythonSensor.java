@@ -19,13 +19,15 @@
  */
 package org.sonar.plugins.python;
 
-import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.api.RecognitionException;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import javax.annotation.Nullable;
+import org.sonar.api.SonarProduct;
 import org.sonar.api.batch.fs.FilePredicates;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputFile.Type;
@@ -39,15 +41,16 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.plugins.python.api.PythonCustomRuleRepository;
 import org.sonar.plugins.python.api.PythonFile;
-import org.sonar.plugins.python.api.PythonVisitorContext;
-import org.sonar.plugins.python.api.tree.FileInput;
+import org.sonar.python.ExecutionProfiler;
 import org.sonar.python.checks.CheckList;
-import org.sonar.python.parser.PythonParser;
-import org.sonar.python.semantic.ProjectLevelSymbolTable;
-import org.sonar.python.tree.PythonTreeMaker;
+import org.sonar.python.types.TypeShed;
 
 public final class PythonSensor implements Sensor {
 
+  private static final Logger LOG = Loggers.get(PythonSensor.class);
+  static final String PROFILING_PROPERTY_NAME = "sonar.python.analysis.profiling";
+  static final String PROFILING_REPORT_FILE_NAME = "python-analysis-profiling.txt";
+
   private final PythonChecks checks;
   private final FileLinesContextFactory fileLinesContextFactory;
   private final NoSonarFilter noSonarFilter;
@@ -80,10 +83,28 @@ public final class PythonSensor implements Sensor {
   public void execute(SensorContext context) {
     List<InputFile> mainFiles = getInputFiles(Type.MAIN, context);
     List<InputFile> testFiles = getInputFiles(Type.TEST, context);
-    PythonScanner scanner = new PythonScanner(context, checks, fileLinesContextFactory, noSonarFilter, mainFiles);
+    if (context.runtime().getProduct() == SonarProduct.SONARLINT) {
+      // stub files symbols are kept between analyses, as long as memory allows
+      TypeShed.useSoftReferences(true);
+    }
+    ExecutionProfiler profiler = context.config().getBoolean(PROFILING_PROPERTY_NAME).orElse(false) ? new ExecutionProfiler() : null;
+    PythonScanner scanner = new PythonScanner(context, checks, fileLinesContextFactory, noSonarFilter, mainFiles, profiler);
     scanner.execute(mainFiles, context);
     if (!testFiles.isEmpty()) {
-      new TestHighlightingScanner(context).execute(testFiles, context);
+      new TestHighlightingScanner(context, profiler).execute(testFiles, context);
+    }
+    if (profiler != null) {
+      saveProfilingReport(profiler, context);
+    }
+  }
+
+  private static void saveProfilingReport(ExecutionProfiler profiler, SensorContext context) {
+    Path reportPath = context.fileSystem().workDir().toPath().resolve(PROFILING_REPORT_FILE_NAME);
+    try {
+      Files.write(reportPath, profiler.report().getBytes(StandardCharsets.UTF_8));
+      LOG.info("Python analysis profiling report saved to " + reportPath);
+    } catch (IOException e) {
+      LOG.warn("Unable to save Python analysis profiling report to " + reportPath, e);
     }
   }
 
@@ -98,10 +119,12 @@ public final class PythonSensor implements Sensor {
   private static class TestHighlightingScanner extends Scanner {
 
     private static final Logger LOG = Loggers.get(TestHighlightingScanner.class);
-    private final PythonParser parser = PythonParser.create();
+    @Nullable
+    private final ExecutionProfiler profiler;
 
-    TestHighlightingScanner(SensorContext context) {
+    TestHighlightingScanner(SensorContext context, @Nullable ExecutionProfiler profiler) {
       super(context);
+      this.profiler = profiler;
     }
 
     @Override
@@ -110,18 +133,20 @@ public final class PythonSensor implements Sensor {
     }
 
     @Override
-    protected void scanFile(InputFile inputFile) throws IOException {
-      try {
-        PythonFile pythonFile = SonarQubePythonFile.create(inputFile);
-        AstNode astNode = parser.parse(pythonFile.content());
-        FileInput parse = new PythonTreeMaker().fileInput(astNode);
-        // omitting package and symbols info as it's not required for highlighting
-        PythonVisitorContext visitorContext = new PythonVisitorContext(parse, pythonFile, context.fileSystem().workDir(), "", ProjectLevelSymbolTable.empty());
-        new PythonHighlighter(context, inputFile).scanFile(visitorContext);
-      } catch (RecognitionException e) {
-        LOG.error("Unable to parse file: " + inputFile.toString());
-        LOG.error(e.getMessage());
-      }
+    protected void scanFile(InputFile inputFile) {
+      highlight(inputFile);
+    }
+
+    @Override
+    Runnable analyzeFile(InputFile inputFile) {
+      // highlighting is saved while the file is lexed: it is entirely done by the action executed on the calling thread
+      return () -> highlight(inputFile);
+    }
+
+    private void highlight(InputFile inputFile) {
+      // test files are not parsed: highlighting only requires their tokens
+      PythonFile pythonFile = SonarQubePythonFile.create(inputFile);
+      ExecutionProfiler.measurePhase(profiler, ExecutionProfiler.HIGHLIGHTING, () -> new PythonLexerHighlighter(context, inputFile).highlight(pythonFile.content()));
     }
 
     @Override
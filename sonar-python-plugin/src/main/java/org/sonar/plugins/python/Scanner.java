@@ -20,8 +20,17 @@
 package org.sonar.plugins.python;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.SensorContext;
@@ -43,29 +52,129 @@ abstract class Scanner {
     LOG.info("Starting " + this.name());
     List<String> filenames = files.stream().map(InputFile::toString).collect(Collectors.toList());
     progressReport.start(filenames);
+    int numberOfThreads = numberOfThreads();
+    boolean completed;
+    if (numberOfThreads > 1 && files.size() > 1) {
+      LOG.debug("Using " + numberOfThreads + " threads for " + this.name());
+      completed = executeConcurrently(files, context, progressReport, numberOfThreads);
+    } else {
+      completed = executeSequentially(files, context, progressReport);
+    }
+    if (completed) {
+      progressReport.stop();
+    }
+  }
+
+  private boolean executeSequentially(List<InputFile> files, SensorContext context, ProgressReport progressReport) {
     for (InputFile file : files) {
       if (context.isCancelled()) {
         progressReport.cancel();
-        return;
+        return false;
       }
       try {
         this.scanFile(file);
       } catch (Exception e) {
-        this.processException(e, file);
-        if (context.config().getBoolean(FAIL_FAST_PROPERTY_NAME).orElse(false)) {
-          throw new IllegalStateException("Exception when analyzing " + file, e);
-        }
+        handleException(e, file, context);
       } finally {
         progressReport.nextFile();
       }
     }
+    return true;
+  }
+
+  /**
+   * Files are analyzed by a pool of worker threads, while the results are saved on the calling thread, in the order of
+   * the input files. At most two files per worker are analyzed ahead of the file being saved, to bound memory usage.
+   */
+  private boolean executeConcurrently(List<InputFile> files, SensorContext context, ProgressReport progressReport, int numberOfThreads) {
+    ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads, new WorkerThreadFactory(this.name()));
+    Deque<PendingFile> pendingFiles = new ArrayDeque<>();
+    Iterator<InputFile> filesIterator = files.iterator();
+    try {
+      while (filesIterator.hasNext() || !pendingFiles.isEmpty()) {
+        while (filesIterator.hasNext() && pendingFiles.size() < 2 * numberOfThreads) {
+          InputFile file = filesIterator.next();
+          pendingFiles.add(new PendingFile(file, executor.submit(() -> this.analyzeFile(file))));
+        }
+        PendingFile pendingFile = pendingFiles.remove();
+        if (context.isCancelled()) {
+          progressReport.cancel();
+          return false;
+        }
+        try {
+          pendingFile.result.get().run();
+        } catch (ExecutionException e) {
+          handleException(e.getCause(), pendingFile.file, context);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          progressReport.cancel();
+          return false;
+        } catch (Exception e) {
+          handleException(e, pendingFile.file, context);
+        } finally {
+          progressReport.nextFile();
+        }
+      }
+      return true;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void handleException(Throwable throwable, InputFile file, SensorContext context) {
+    if (throwable instanceof Error) {
+      throw (Error) throwable;
+    }
+    Exception e = (Exception) throwable;
+    this.processException(e, file);
+    if (context.config().getBoolean(FAIL_FAST_PROPERTY_NAME).orElse(false)) {
+      throw new IllegalStateException("Exception when analyzing " + file, e);
+    }
+  }
 
-    progressReport.stop();
+  /**
+   * When greater than 1, files are analyzed concurrently with {@link #analyzeFile(InputFile)} instead of {@link #scanFile(InputFile)}.
+   */
+  int numberOfThreads() {
+    return 1;
   }
 
+  /**
+   * Analyzes the file without interacting with the sensor context, as it is called concurrently from worker threads.
+   * The returned action saves the results of the analysis and is executed on the thread which called
+   * {@link #execute(List, SensorContext)}, in the order of the input files.
+   */
+  abstract Runnable analyzeFile(InputFile file) throws IOException;
+
   abstract String name();
 
   abstract void scanFile(InputFile file) throws IOException;
 
   abstract void processException(Exception e, InputFile file);
+
+  private static class PendingFile {
+    private final InputFile file;
+    private final Future<Runnable> result;
+
+    PendingFile(InputFile file, Future<Runnable> result) {
+      this.file = file;
+      this.result = result;
+    }
+  }
+
+  private static class WorkerThreadFactory implements ThreadFactory {
+    private final String namePrefix;
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    WorkerThreadFactory(String scannerName) {
+      this.namePrefix = scannerName + " worker ";
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, namePrefix + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
 }
@@ -57,17 +57,23 @@ public abstract class SonarQubePythonFile implements PythonFile {
 
   private static class Sq62File extends SonarQubePythonFile {
 
+    // read once: the parser and several checks request the content of the file
+    private String content = null;
+
     public Sq62File(InputFile inputFile) {
       super(inputFile);
     }
 
     @Override
     public String content() {
-      try {
-        return inputFile().contents();
-      } catch (IOException e) {
-        throw new IllegalStateException("Could not read content of input file " + inputFile(), e);
+      if (content == null) {
+        try {
+          content = inputFile().contents();
+        } catch (IOException e) {
+          throw new IllegalStateException("Could not read content of input file " + inputFile(), e);
+        }
       }
+      return content;
     }
 
   }
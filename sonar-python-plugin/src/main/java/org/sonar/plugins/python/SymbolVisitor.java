@@ -20,10 +20,14 @@
 package org.sonar.plugins.python;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import org.sonar.api.batch.sensor.symbol.NewSymbol;
 import org.sonar.api.batch.sensor.symbol.NewSymbolTable;
+import org.sonar.plugins.python.api.PythonSubscriptionCheck;
+import org.sonar.plugins.python.api.PythonVisitorContext;
+import org.sonar.plugins.python.api.SubscriptionContext;
 import org.sonar.plugins.python.api.tree.ClassDef;
 import org.sonar.plugins.python.api.tree.ComprehensionExpression;
 import org.sonar.plugins.python.api.tree.FileInput;
@@ -32,10 +36,10 @@ import org.sonar.plugins.python.api.tree.LambdaExpression;
 import org.sonar.plugins.python.api.tree.Tree;
 import org.sonar.plugins.python.api.symbols.Symbol;
 import org.sonar.plugins.python.api.symbols.Usage;
-import org.sonar.plugins.python.api.tree.BaseTreeVisitor;
+import org.sonar.python.SubscriptionVisitor;
 import org.sonar.python.tree.DictCompExpressionImpl;
 
-public class SymbolVisitor extends BaseTreeVisitor {
+public class SymbolVisitor extends PythonSubscriptionCheck {
 
   private final NewSymbolTable newSymbolTable;
 
@@ -44,40 +48,32 @@ public class SymbolVisitor extends BaseTreeVisitor {
   }
 
   @Override
-  public void visitClassDef(ClassDef classDef) {
-    classDef.classFields().forEach(this::handleSymbol);
-    classDef.instanceFields().forEach(this::handleSymbol);
-    super.visitClassDef(classDef);
+  public void scanFile(PythonVisitorContext visitorContext) {
+    SubscriptionVisitor.analyze(Collections.singletonList(this), visitorContext);
   }
 
   @Override
-  public void visitFunctionDef(FunctionDef functionDef) {
-    functionDef.localVariables().forEach(this::handleSymbol);
-    super.visitFunctionDef(functionDef);
+  public void initialize(Context context) {
+    context.registerSyntaxNodeConsumer(Tree.Kind.FILE_INPUT, ctx -> ((FileInput) ctx.syntaxNode()).globalVariables().forEach(this::handleSymbol));
+    context.registerSyntaxNodeConsumer(Tree.Kind.CLASSDEF, ctx -> {
+      ClassDef classDef = (ClassDef) ctx.syntaxNode();
+      classDef.classFields().forEach(this::handleSymbol);
+      classDef.instanceFields().forEach(this::handleSymbol);
+    });
+    context.registerSyntaxNodeConsumer(Tree.Kind.FUNCDEF, ctx -> ((FunctionDef) ctx.syntaxNode()).localVariables().forEach(this::handleSymbol));
+    context.registerSyntaxNodeConsumer(Tree.Kind.LAMBDA, ctx -> ((LambdaExpression) ctx.syntaxNode()).localVariables().forEach(this::handleSymbol));
+    context.registerSyntaxNodeConsumer(Tree.Kind.LIST_COMPREHENSION, this::visitComprehension);
+    context.registerSyntaxNodeConsumer(Tree.Kind.SET_COMPREHENSION, this::visitComprehension);
+    context.registerSyntaxNodeConsumer(Tree.Kind.GENERATOR_EXPR, this::visitComprehension);
+    context.registerSyntaxNodeConsumer(Tree.Kind.DICT_COMPREHENSION, ctx -> ((DictCompExpressionImpl) ctx.syntaxNode()).localVariables().forEach(this::handleSymbol));
   }
 
-  @Override
-  public void visitLambda(LambdaExpression lambdaExpression) {
-    lambdaExpression.localVariables().forEach(this::handleSymbol);
-    super.visitLambda(lambdaExpression);
-  }
-
-  @Override
-  public void visitPyListOrSetCompExpression(ComprehensionExpression tree) {
-    tree.localVariables().forEach(this::handleSymbol);
-    super.visitPyListOrSetCompExpression(tree);
-  }
-
-  @Override
-  public void visitDictCompExpression(DictCompExpressionImpl tree) {
-    tree.localVariables().forEach(this::handleSymbol);
-    super.visitDictCompExpression(tree);
+  private void visitComprehension(SubscriptionContext ctx) {
+    ((ComprehensionExpression) ctx.syntaxNode()).localVariables().forEach(this::handleSymbol);
   }
 
   @Override
-  public void visitFileInput(FileInput fileInput) {
-    fileInput.globalVariables().forEach(this::handleSymbol);
-    super.visitFileInput(fileInput);
+  public void leaveFile() {
     newSymbolTable.save();
   }
 
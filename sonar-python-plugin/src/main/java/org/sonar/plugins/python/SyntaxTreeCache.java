@@ -0,0 +1,110 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.plugins.python.api.tree.FileInput;
+
+/**
+ * Keeps the syntax trees built while computing the project level symbol table, so that they can be analyzed by the
+ * rules without being parsed again. The memory retained by the cache is estimated from the size of the source code
+ * and bounded: trees which do not fit in the budget are not cached and will be parsed again.
+ */
+class SyntaxTreeCache {
+
+  // rough estimate of the memory retained by the syntax tree, per character of source code
+  static final long BYTES_PER_CHARACTER = 64;
+
+  private final Map<InputFile, Entry> entries = new ConcurrentHashMap<>();
+  private final long maxSize;
+  private final AtomicLong size = new AtomicLong();
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+
+  SyntaxTreeCache(long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  void put(InputFile inputFile, String content, FileInput fileInput) {
+    long entrySize = content.length() * BYTES_PER_CHARACTER;
+    if (size.addAndGet(entrySize) > maxSize) {
+      size.addAndGet(-entrySize);
+      return;
+    }
+    entries.put(inputFile, new Entry(hash(content), entrySize, fileInput));
+  }
+
+  /**
+   * Returns the syntax tree of the given file if it was cached and if the content of the file did not change since
+   * then. The tree is removed from the cache: it can be retrieved only once.
+   */
+  @CheckForNull
+  FileInput remove(InputFile inputFile, String content) {
+    Entry entry = entries.remove(inputFile);
+    if (entry != null) {
+      size.addAndGet(-entry.size);
+      if (entry.hash.equals(hash(content))) {
+        hits.incrementAndGet();
+        return entry.fileInput;
+      }
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Removes the syntax tree of a file which does not need to be analyzed.
+   */
+  void evict(InputFile inputFile) {
+    Entry entry = entries.remove(inputFile);
+    if (entry != null) {
+      size.addAndGet(-entry.size);
+    }
+  }
+
+  int hits() {
+    return hits.get();
+  }
+
+  int misses() {
+    return misses.get();
+  }
+
+  private static String hash(String content) {
+    return content.length() + ":" + content.hashCode();
+  }
+
+  private static class Entry {
+    private final String hash;
+    private final long size;
+    private final FileInput fileInput;
+
+    private Entry(String hash, long size, FileInput fileInput) {
+      this.hash = hash;
+      this.size = size;
+      this.fileInput = fileInput;
+    }
+  }
+}
@@ -19,13 +19,22 @@
  */
 package org.sonar.plugins.python;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Scanner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.utils.log.Logger;
@@ -36,67 +45,173 @@ import org.sonar.api.utils.log.Loggers;
  */
 public class TextReportReader {
 
-  private static final Pattern DEFAULT_PATTERN = Pattern.compile("(.+):(\\d+):(\\d+): (\\S+[^:]):? (.*)");
-  private static final Pattern LEGACY_PATTERN = Pattern.compile("(.+):(\\d+): \\[(.*)\\] (.*)");
   private static final Logger LOG = Loggers.get(TextReportReader.class);
   public static final int COLUMN_ZERO_BASED = 0;
   public static final int COLUMN_ONE_BASED = 1;
 
+  private static final int BATCH_SIZE = 1_000;
+  private static final int MAX_PENDING_BATCHES = 8;
+  private static final List<Issue> END_OF_REPORT = Collections.emptyList();
+
   private final int reportOffset;
 
   public TextReportReader(int columnStartIndex) {
     this.reportOffset = columnStartIndex;
   }
 
-  public List<Issue> parse(File report, FileSystem fileSystem) throws IOException {
-    List<Issue> issues = new ArrayList<>();
-    try (Scanner scanner = new Scanner(report.toPath(), fileSystem.encoding().name())) {
-      while (scanner.hasNextLine()) {
-        Issue issue = parseLine(scanner.nextLine());
+  /**
+   * Reads the issues of the report on a separate thread while the calling thread consumes them. The issues are passed by
+   * batches through a bounded queue, so the memory used doesn't depend on the size of the report.
+   */
+  public void parse(File report, FileSystem fileSystem, Consumer<Issue> consumer) throws IOException {
+    BlockingQueue<List<Issue>> batches = new ArrayBlockingQueue<>(MAX_PENDING_BATCHES);
+    ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "Report reader " + report.getName());
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      Future<Void> reading = executor.submit(() -> read(report, fileSystem.encoding(), batches));
+      List<Issue> batch = batches.take();
+      while (batch != END_OF_REPORT) {
+        batch.forEach(consumer);
+        batch = batches.take();
+      }
+      reading.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while reading " + report, e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private Void read(File report, Charset charset, BlockingQueue<List<Issue>> batches) throws IOException, InterruptedException {
+    // malformed input is replaced rather than reported, like with java.util.Scanner
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(report.toPath()), charset))) {
+      List<Issue> batch = new ArrayList<>(BATCH_SIZE);
+      String line;
+      while ((line = reader.readLine()) != null) {
+        Issue issue = parseLine(line);
         if (issue != null) {
-          issues.add(issue);
+          batch.add(issue);
+          if (batch.size() == BATCH_SIZE) {
+            batches.put(batch);
+            batch = new ArrayList<>(BATCH_SIZE);
+          }
         }
       }
+      if (!batch.isEmpty()) {
+        batches.put(batch);
+      }
+    } catch (IOException | RuntimeException e) {
+      // the consumer waits for the end of the report: the reading is only interrupted once the consumer has stopped
+      batches.put(END_OF_REPORT);
+      throw e;
     }
-    return issues;
+    batches.put(END_OF_REPORT);
+    return null;
   }
 
+  @Nullable
   private Issue parseLine(String line) {
     if (line.length() > 0) {
-      Matcher m = TextReportReader.DEFAULT_PATTERN.matcher(line);
-      if (m.matches()) {
-        return extractDefaultStyleIssue(m);
+      Issue issue = parseDefaultStyleIssue(line);
+      if (issue == null) {
+        issue = parseLegacyStyleIssue(line);
       }
-      m = TextReportReader.LEGACY_PATTERN.matcher(line);
-      if (m.matches()) {
-        return extractLegacyStyleIssue(m);
+      if (issue == null) {
+        LOG.debug("Cannot parse the line: {}", line);
       }
-      LOG.debug("Cannot parse the line: {}", line);
+      return issue;
     }
     return null;
   }
 
-  private Issue extractDefaultStyleIssue(Matcher m) {
-    String filePath = m.group(1);
-    int lineNumber = Integer.parseInt(m.group(2));
-    int columnNumber = Integer.parseInt(m.group(3));
-    // Flake8 column numbering starts at 1
-    columnNumber -= this.reportOffset;
-    String ruleKey = m.group(4);
-    String message = m.group(5);
-    return new Issue(filePath, ruleKey, message, lineNumber, columnNumber);
+  /**
+   * Matches the line as the regular expression "(.+):(\d+):(\d+): (\S+[^:]):? (.*)" would. As the file path is greedy,
+   * its end is the last colon after which the rest of the line matches.
+   */
+  @Nullable
+  private Issue parseDefaultStyleIssue(String line) {
+    for (int pathEnd = line.lastIndexOf(':'); pathEnd > 0; pathEnd = line.lastIndexOf(':', pathEnd - 1)) {
+      int lineNumberEnd = digitsEnd(line, pathEnd + 1);
+      if (lineNumberEnd < 0 || !line.startsWith(":", lineNumberEnd)) {
+        continue;
+      }
+      int columnNumberEnd = digitsEnd(line, lineNumberEnd + 1);
+      if (columnNumberEnd < 0 || !line.startsWith(": ", columnNumberEnd)) {
+        continue;
+      }
+      int ruleKeyStart = columnNumberEnd + 2;
+      int nonSpaceEnd = ruleKeyStart;
+      while (nonSpaceEnd < line.length() && !isSpace(line.charAt(nonSpaceEnd))) {
+        nonSpaceEnd++;
+      }
+      // the rule key is at least one non-space character followed by any character but a colon
+      for (int ruleKeyEnd = nonSpaceEnd + 1; ruleKeyEnd > ruleKeyStart + 1; ruleKeyEnd--) {
+        if (ruleKeyEnd > line.length() || line.charAt(ruleKeyEnd - 1) == ':') {
+          continue;
+        }
+        int messageStart = line.startsWith(": ", ruleKeyEnd) ? (ruleKeyEnd + 2) : (line.startsWith(" ", ruleKeyEnd) ? (ruleKeyEnd + 1) : -1);
+        if (messageStart >= 0) {
+          int lineNumber = Integer.parseInt(line.substring(pathEnd + 1, lineNumberEnd));
+          // Flake8 column numbering starts at 1
+          int columnNumber = Integer.parseInt(line.substring(lineNumberEnd + 1, columnNumberEnd)) - this.reportOffset;
+          return new Issue(line.substring(0, pathEnd), line.substring(ruleKeyStart, ruleKeyEnd), line.substring(messageStart), lineNumber, columnNumber);
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Matches the line as the regular expression "(.+):(\d+): \[(.*)\] (.*)" would.
+   */
+  @Nullable
+  private static Issue parseLegacyStyleIssue(String line) {
+    int bracketEnd = line.lastIndexOf("] ");
+    for (int pathEnd = line.lastIndexOf(':'); pathEnd > 0; pathEnd = line.lastIndexOf(':', pathEnd - 1)) {
+      int lineNumberEnd = digitsEnd(line, pathEnd + 1);
+      if (lineNumberEnd < 0 || !line.startsWith(": [", lineNumberEnd) || bracketEnd < lineNumberEnd + 3) {
+        continue;
+      }
+      int lineNumber = Integer.parseInt(line.substring(pathEnd + 1, lineNumberEnd));
+      String ruleKey = line.substring(lineNumberEnd + 3, bracketEnd);
+      int keyLastIndex = ruleKey.indexOf("(");
+      if (keyLastIndex > 0) {
+        ruleKey = ruleKey.substring(0, keyLastIndex);
+      }
+      return new Issue(line.substring(0, pathEnd), ruleKey, line.substring(bracketEnd + 2), lineNumber, null);
+    }
+    return null;
   }
 
-  private static Issue extractLegacyStyleIssue(Matcher m) {
-    String filePath = m.group(1);
-    int lineNumber = Integer.parseInt(m.group(2));
-    String ruleKey = m.group(3);
-    int keyLastIndex = ruleKey.indexOf("(");
-    if (keyLastIndex > 0) {
-      ruleKey = ruleKey.substring(0, keyLastIndex);
+  /**
+   * Index following the digits starting at the given index, or -1 if there's no digit at this index.
+   */
+  private static int digitsEnd(String line, int start) {
+    int end = start;
+    while (end < line.length() && line.charAt(end) >= '0' && line.charAt(end) <= '9') {
+      end++;
     }
-    String message = m.group(4);
-    return new Issue(filePath, ruleKey, message, lineNumber, null);
+    return end > start ? end : -1;
+  }
+
+  /**
+   * Whitespace as defined by "\s" in regular expressions.
+   */
+  private static boolean isSpace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
   }
 
   public static class Issue {
@@ -23,17 +23,22 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.function.Consumer;
-import java.util.stream.Stream;
 import javax.annotation.Nullable;
-import org.sonarsource.analyzer.commons.internal.json.simple.JSONArray;
-import org.sonarsource.analyzer.commons.internal.json.simple.JSONObject;
+import org.sonarsource.analyzer.commons.internal.json.simple.parser.ContentHandler;
 import org.sonarsource.analyzer.commons.internal.json.simple.parser.JSONParser;
 import org.sonarsource.analyzer.commons.internal.json.simple.parser.ParseException;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+/**
+ * Reads the "results" of a Bandit JSON report as parsing events, so that only the result being read is kept in memory.
+ */
 public class BanditJsonReportReader {
 
+  // nesting of the containers: root object, "results" array, result object
+  private static final int ROOT_DEPTH = 1;
+  private static final int RESULT_DEPTH = 3;
+
   private final JSONParser jsonParser = new JSONParser();
   private final Consumer<Issue> consumer;
 
@@ -61,25 +66,115 @@ public class BanditJsonReportReader {
   }
 
   private void read(InputStream in) throws IOException, ParseException {
-    JSONObject rootObject = (JSONObject) jsonParser.parse(new InputStreamReader(in, UTF_8));
-    JSONArray files = (JSONArray) rootObject.get("results");
-    if (files != null) {
-      ((Stream<JSONObject>) files.stream()).forEach(this::onResult);
+    jsonParser.parse(new InputStreamReader(in, UTF_8), new ResultHandler());
+  }
+
+  private class ResultHandler implements ContentHandler {
+
+    private int depth = 0;
+    private boolean inResults = false;
+    @Nullable
+    private String currentKey;
+    @Nullable
+    private Issue currentIssue;
+
+    @Override
+    public void startJSON() {
+      depth = 0;
+      inResults = false;
+    }
+
+    @Override
+    public void endJSON() {
+      // nothing to do
+    }
+
+    @Override
+    public boolean startObject() {
+      depth++;
+      if (depth == RESULT_DEPTH && inResults) {
+        currentIssue = new Issue();
+      }
+      return true;
+    }
+
+    @Override
+    public boolean endObject() {
+      if (depth == RESULT_DEPTH && currentIssue != null) {
+        consumer.accept(currentIssue);
+        currentIssue = null;
+      }
+      depth--;
+      return true;
+    }
+
+    @Override
+    public boolean startObjectEntry(String key) {
+      if (depth == ROOT_DEPTH) {
+        inResults = "results".equals(key);
+      } else if (depth == RESULT_DEPTH) {
+        currentKey = key;
+      }
+      return true;
+    }
+
+    @Override
+    public boolean endObjectEntry() {
+      if (depth == ROOT_DEPTH) {
+        inResults = false;
+      } else if (depth == RESULT_DEPTH) {
+        currentKey = null;
+      }
+      return true;
+    }
+
+    @Override
+    public boolean startArray() {
+      depth++;
+      return true;
+    }
+
+    @Override
+    public boolean endArray() {
+      depth--;
+      return true;
+    }
+
+    @Override
+    public boolean primitive(@Nullable Object value) {
+      if (depth == RESULT_DEPTH && currentIssue != null && currentKey != null) {
+        onResultEntry(currentIssue, currentKey, value);
+      }
+      return true;
     }
   }
 
-  private void onResult(JSONObject result) {
-    Issue issue = new Issue();
-    issue.ruleKey = (String) result.get("test_id");
-    issue.filePath = (String) result.get("filename");
-    issue.message = (String) result.get("issue_text");
-    issue.lineNumber = toInteger(result.get("line_number"));
-    issue.severity = (String) result.get("issue_severity");
-    issue.confidence = (String) result.get("issue_confidence");
-    consumer.accept(issue);
+  private static void onResultEntry(Issue issue, String key, @Nullable Object value) {
+    switch (key) {
+      case "test_id":
+        issue.ruleKey = (String) value;
+        break;
+      case "filename":
+        issue.filePath = (String) value;
+        break;
+      case "issue_text":
+        issue.message = (String) value;
+        break;
+      case "line_number":
+        issue.lineNumber = toInteger(value);
+        break;
+      case "issue_severity":
+        issue.severity = (String) value;
+        break;
+      case "issue_confidence":
+        issue.confidence = (String) value;
+        break;
+      default:
+        break;
+    }
   }
 
-  private static Integer toInteger(Object value) {
+  private static Integer toInteger(@Nullable Object value) {
     if (value instanceof Number) {
       return ((Number) value).intValue();
     }
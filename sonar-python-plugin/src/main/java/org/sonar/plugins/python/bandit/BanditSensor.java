@@ -53,9 +53,10 @@ public class BanditSensor extends ExternalIssuesSensor {
 
   @Override
   protected void importReport(File reportPath, SensorContext context, Set<String> unresolvedInputFiles) throws IOException, ParseException {
-    InputStream in = new FileInputStream(reportPath);
     LOG.info("Importing {}", reportPath);
-    BanditJsonReportReader.read(in, issue -> saveIssue(context, issue, unresolvedInputFiles));
+    try (InputStream in = new FileInputStream(reportPath)) {
+      BanditJsonReportReader.read(in, issue -> saveIssue(context, issue, unresolvedInputFiles));
+    }
   }
 
 
@@ -20,19 +20,22 @@
 package org.sonar.plugins.python.coverage;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import javax.xml.stream.XMLStreamException;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang.StringUtils;
 import org.codehaus.staxmate.in.SMInputCursor;
+import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
-import org.sonar.api.batch.sensor.SensorContext;
-import org.sonar.api.batch.sensor.coverage.NewCoverage;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.plugins.python.EmptyReportException;
@@ -42,14 +45,30 @@ public class CoberturaParser {
 
   private static final Logger LOG = Loggers.get(CoberturaParser.class);
 
+  private final File defaultBaseDirectory;
+  // input files by normalized absolute path: the file names of the report are resolved without accessing the file system
+  private final Map<Path, InputFile> inputFilesByPath;
   private int unresolvedFilenameCount;
 
-  public void parseReport(File xmlFile, SensorContext context, final Map<InputFile, NewCoverage> coverageData) throws XMLStreamException {
+  /**
+   * The parser only reads the given index of the input files, which can be shared by parsers running concurrently.
+   */
+  public CoberturaParser(File defaultBaseDirectory, Map<Path, InputFile> inputFilesByPath) {
+    this.defaultBaseDirectory = defaultBaseDirectory;
+    this.inputFilesByPath = inputFilesByPath;
+  }
+
+  public static Map<Path, InputFile> indexInputFiles(FileSystem fileSystem) {
+    Map<Path, InputFile> inputFilesByPath = new HashMap<>();
+    fileSystem.inputFiles(fileSystem.predicates().all()).forEach(inputFile -> inputFilesByPath.put(normalizedPath(inputFile), inputFile));
+    return inputFilesByPath;
+  }
+
+  void parseReport(File xmlFile, final Map<InputFile, FileCoverage> coverageData) throws XMLStreamException {
     LOG.info("Parsing report '{}'", xmlFile);
     unresolvedFilenameCount = 0;
 
     StaxParser parser = new StaxParser(rootCursor -> {
-      File defaultBaseDirectory = context.fileSystem().baseDir();
       List<File> baseDirectories = Collections.singletonList(defaultBaseDirectory);
       try {
         rootCursor.advance();
@@ -62,7 +81,7 @@ public class CoberturaParser {
         if ("sources".equals(cursor.getLocalName())) {
           baseDirectories = extractBaseDirectories(cursor, defaultBaseDirectory);
         } else if ("packages".equals(cursor.getLocalName())) {
-          collectFileMeasures(cursor.descendantElementCursor("class"), context, coverageData, baseDirectories);
+          collectFileMeasures(cursor.descendantElementCursor("class"), coverageData, baseDirectories);
         }
       }
     });
@@ -92,13 +111,13 @@ public class CoberturaParser {
     return baseDirectories;
   }
 
-  private void collectFileMeasures(SMInputCursor classCursor, SensorContext context, Map<InputFile, NewCoverage> coverageData, List<File> baseDirectories)
+  private void collectFileMeasures(SMInputCursor classCursor, Map<InputFile, FileCoverage> coverageData, List<File> baseDirectories)
     throws XMLStreamException {
     while (classCursor.getNext() != null) {
       String filename = FilenameUtils.normalize(classCursor.getAttrValue("filename"));
-      InputFile inputFile = resolve(context, baseDirectories, filename);
+      InputFile inputFile = resolve(baseDirectories, filename);
       if (inputFile != null) {
-        NewCoverage coverage = coverageData.computeIfAbsent(inputFile, f -> context.newCoverage().onFile(f));
+        FileCoverage coverage = coverageData.computeIfAbsent(inputFile, f -> new FileCoverage());
         collectFileData(classCursor, coverage);
       } else {
         classCursor.advance();
@@ -107,30 +126,42 @@ public class CoberturaParser {
   }
 
   @Nullable
-  private InputFile resolve(SensorContext context, List<File> baseDirectories, String filename) {
-    String absolutePath;
+  private InputFile resolve(List<File> baseDirectories, String filename) {
     File file = new File(filename);
     if (file.isAbsolute()) {
-      if (!file.exists()) {
+      InputFile inputFile = inputFilesByPath.get(normalizedPath(file));
+      if (inputFile == null && !file.exists()) {
         logUnresolvedFile("Cannot resolve the file path '{}' of the coverage report, the file does not exist in all <source>.", filename);
       }
-      absolutePath = file.getAbsolutePath();
-    } else {
-      List<File> fileList = baseDirectories.stream()
-        .map(base -> new File(base, filename))
-        .filter(File::exists)
-        .collect(Collectors.toList());
-      if (fileList.isEmpty()) {
-        logUnresolvedFile("Cannot resolve the file path '{}' of the coverage report, the file does not exist in all <source>.", filename);
-        return null;
-      }
-      if (fileList.size() > 1) {
-        logUnresolvedFile("Cannot resolve the file path '{}' of the coverage report, ambiguity, the file exists in several <source>.", filename);
-        return null;
-      }
-      absolutePath = fileList.get(0).getAbsolutePath();
+      return inputFile;
     }
-    return context.fileSystem().inputFile(context.fileSystem().predicates().hasAbsolutePath(absolutePath));
+    List<InputFile> inputFiles = baseDirectories.stream()
+      .map(base -> inputFilesByPath.get(normalizedPath(new File(base, filename))))
+      .filter(Objects::nonNull)
+      .collect(Collectors.toList());
+    if (inputFiles.size() == 1) {
+      return inputFiles.get(0);
+    }
+    if (inputFiles.size() > 1) {
+      logUnresolvedFile("Cannot resolve the file path '{}' of the coverage report, ambiguity, the file exists in several <source>.", filename);
+      return null;
+    }
+    // the file is not part of the analysis: the file system tells whether it is missing or ambiguous
+    long existingFiles = baseDirectories.stream().map(base -> new File(base, filename)).filter(File::exists).count();
+    if (existingFiles == 0) {
+      logUnresolvedFile("Cannot resolve the file path '{}' of the coverage report, the file does not exist in all <source>.", filename);
+    } else if (existingFiles > 1) {
+      logUnresolvedFile("Cannot resolve the file path '{}' of the coverage report, ambiguity, the file exists in several <source>.", filename);
+    }
+    return null;
+  }
+
+  private static Path normalizedPath(File file) {
+    return file.getAbsoluteFile().toPath().normalize();
+  }
+
+  private static Path normalizedPath(InputFile inputFile) {
+    return Paths.get(inputFile.uri()).normalize();
   }
 
   private void logUnresolvedFile(String message, String filename) {
@@ -140,7 +171,7 @@ public class CoberturaParser {
     }
   }
 
-  private static void collectFileData(SMInputCursor classCursor, NewCoverage coverage) throws XMLStreamException {
+  private static void collectFileData(SMInputCursor classCursor, FileCoverage coverage) throws XMLStreamException {
     SMInputCursor line = classCursor.childElementCursor("lines").advance().childElementCursor("line");
     while (line.getNext() != null) {
       int lineId = Integer.parseInt(line.getAttrValue("number"));
@@ -0,0 +1,97 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python.coverage;
+
+import java.util.Arrays;
+import org.sonar.api.batch.sensor.coverage.NewCoverage;
+
+/**
+ * Coverage of a file collected from one or several reports, indexed by line number, before it is saved with a single
+ * {@link NewCoverage}. Within a report, the first values given for a line are kept, like {@link NewCoverage} does.
+ * Over several reports, the hits of a line are summed while the numbers of conditions and of covered conditions are
+ * the maximum, as the scanner does when several coverages of a file are saved.
+ */
+class FileCoverage {
+
+  private static final int NO_HITS = -1;
+  private static final int INITIAL_LINES = 64;
+
+  private int[] hits = new int[0];
+  private int[] conditions = new int[0];
+  private int[] coveredConditions = new int[0];
+
+  void lineHits(int line, int lineHits) {
+    ensureCapacity(line);
+    if (hits[line] == NO_HITS) {
+      hits[line] = lineHits;
+    }
+  }
+
+  void conditions(int line, int lineConditions, int lineCoveredConditions) {
+    ensureCapacity(line);
+    if (conditions[line] == 0) {
+      conditions[line] = lineConditions;
+      coveredConditions[line] = lineCoveredConditions;
+    }
+  }
+
+  /**
+   * Adds the coverage of the file read from another report.
+   */
+  void merge(FileCoverage other) {
+    if (other.hits.length > hits.length) {
+      ensureCapacity(other.hits.length - 1);
+    }
+    for (int line = 1; line < other.hits.length; line++) {
+      if (other.hits[line] != NO_HITS) {
+        hits[line] = hits[line] == NO_HITS ? other.hits[line] : (hits[line] + other.hits[line]);
+      }
+      conditions[line] = Math.max(conditions[line], other.conditions[line]);
+      coveredConditions[line] = Math.max(coveredConditions[line], other.coveredConditions[line]);
+    }
+  }
+
+  void save(NewCoverage coverage) {
+    for (int line = 1; line < hits.length; line++) {
+      if (hits[line] != NO_HITS) {
+        coverage.lineHits(line, hits[line]);
+      }
+      if (conditions[line] > 0) {
+        coverage.conditions(line, conditions[line], coveredConditions[line]);
+      }
+    }
+    coverage.save();
+  }
+
+  private void ensureCapacity(int line) {
+    if (line < 1) {
+      throw new IllegalStateException("Line number must be strictly positive: " + line);
+    }
+    if (line < hits.length) {
+      return;
+    }
+    int length = Math.max(Math.max(line + 1, 2 * hits.length), INITIAL_LINES);
+    int previousLength = hits.length;
+    hits = Arrays.copyOf(hits, length);
+    Arrays.fill(hits, previousLength, length, NO_HITS);
+    conditions = Arrays.copyOf(conditions, length);
+    coveredConditions = Arrays.copyOf(coveredConditions, length);
+  }
+}
@@ -20,23 +20,28 @@
 package org.sonar.plugins.python.coverage;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import javax.xml.stream.XMLStreamException;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.Sensor;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.SensorDescriptor;
-import org.sonar.api.batch.sensor.coverage.NewCoverage;
 import org.sonar.api.config.Configuration;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.plugins.python.DirectoryWalkCache;
 import org.sonar.plugins.python.EmptyReportException;
 import org.sonar.plugins.python.Python;
 import org.sonar.plugins.python.warnings.AnalysisWarningsWrapper;
@@ -54,9 +59,15 @@ public class PythonCoverageSensor implements Sensor {
   public static final String REPORT_PATH_KEY = "sonar.python.coverage.reportPath";
 
   private final AnalysisWarningsWrapper analysisWarnings;
+  private final DirectoryWalkCache walkCache;
 
   public PythonCoverageSensor(AnalysisWarningsWrapper analysisWarnings) {
+    this(analysisWarnings, new DirectoryWalkCache());
+  }
+
+  public PythonCoverageSensor(AnalysisWarningsWrapper analysisWarnings, DirectoryWalkCache walkCache) {
     this.analysisWarnings = analysisWarnings;
+    this.walkCache = walkCache;
   }
 
   @Override
@@ -73,24 +84,20 @@ public class PythonCoverageSensor implements Sensor {
 
     warnDeprecatedPropertyUsage(config);
 
-    HashSet<InputFile> filesCovered = new HashSet<>();
     List<File> reports = getCoverageReports(baseDir, config);
     if (!reports.isEmpty()) {
       LOG.info("Python test coverage");
-      for (File report : uniqueAbsolutePaths(reports)) {
-        Map<InputFile, NewCoverage> coverageMeasures = parseReport(report, context);
-        saveMeasures(coverageMeasures, filesCovered);
-      }
+      saveMeasures(parseReports(uniqueAbsolutePaths(reports), context), context);
     }
   }
 
-  private static List<File> getCoverageReports(String baseDir, Configuration config) {
+  private List<File> getCoverageReports(String baseDir, Configuration config) {
     if (!config.hasKey(REPORT_PATHS_KEY)) {
-      return getReports(config, baseDir, REPORT_PATHS_KEY, DEFAULT_REPORT_PATH);
+      return getReports(config, baseDir, REPORT_PATHS_KEY, DEFAULT_REPORT_PATH, walkCache);
     }
 
     return Arrays.stream(config.getStringArray(REPORT_PATHS_KEY))
-      .flatMap(path -> getReports(config, baseDir, REPORT_PATHS_KEY, path).stream())
+      .flatMap(path -> getReports(config, baseDir, REPORT_PATHS_KEY, path, walkCache).stream())
       .collect(Collectors.toList());
   }
 
@@ -108,11 +115,50 @@ public class PythonCoverageSensor implements Sensor {
       .collect(Collectors.toCollection(LinkedHashSet::new));
   }
 
-  private static Map<InputFile, NewCoverage> parseReport(File report, SensorContext context) {
-    Map<InputFile, NewCoverage> coverageMeasures = new HashMap<>();
+  /**
+   * Reports are parsed concurrently, as they only share the read-only index of the input files. The coverage of each file is
+   * merged over all the reports before being saved.
+   */
+  private static Map<InputFile, FileCoverage> parseReports(Set<File> reports, SensorContext context) {
+    File baseDirectory = context.fileSystem().baseDir();
+    Map<Path, InputFile> inputFilesByPath = CoberturaParser.indexInputFiles(context.fileSystem());
+    Map<InputFile, FileCoverage> coverageByFile = new LinkedHashMap<>();
+    int numberOfThreads = Math.min(reports.size(), Runtime.getRuntime().availableProcessors());
+    if (numberOfThreads <= 1) {
+      reports.forEach(report -> merge(coverageByFile, parseReport(report, baseDirectory, inputFilesByPath)));
+      return coverageByFile;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
     try {
-      CoberturaParser parser = new CoberturaParser();
-      parser.parseReport(report, context, coverageMeasures);
+      List<Future<Map<InputFile, FileCoverage>>> results = reports.stream()
+        .map(report -> executor.submit(() -> parseReport(report, baseDirectory, inputFilesByPath)))
+        .collect(Collectors.toList());
+      for (Future<Map<InputFile, FileCoverage>> result : results) {
+        merge(coverageByFile, result.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while parsing coverage reports", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    } finally {
+      executor.shutdownNow();
+    }
+    return coverageByFile;
+  }
+
+  private static Map<InputFile, FileCoverage> parseReport(File report, File baseDirectory, Map<Path, InputFile> inputFilesByPath) {
+    Map<InputFile, FileCoverage> coverageMeasures = new HashMap<>();
+    try {
+      CoberturaParser parser = new CoberturaParser(baseDirectory, inputFilesByPath);
+      parser.parseReport(report, coverageMeasures);
     } catch (EmptyReportException e) {
       LOG.warn("The report '{}' seems to be empty, ignoring. '{}'", report, e);
     } catch (XMLStreamException e) {
@@ -121,15 +167,20 @@ public class PythonCoverageSensor implements Sensor {
     return coverageMeasures;
   }
 
-  private static void saveMeasures(Map<InputFile, NewCoverage> coverageMeasures, HashSet<InputFile> coveredFiles) {
-    for (Map.Entry<InputFile, NewCoverage> entry : coverageMeasures.entrySet()) {
+  private static void merge(Map<InputFile, FileCoverage> coverageByFile, Map<InputFile, FileCoverage> reportCoverage) {
+    reportCoverage.forEach((inputFile, coverage) -> coverageByFile.merge(inputFile, coverage, (merged, other) -> {
+      merged.merge(other);
+      return merged;
+    }));
+  }
+
+  private static void saveMeasures(Map<InputFile, FileCoverage> coverageByFile, SensorContext context) {
+    for (Map.Entry<InputFile, FileCoverage> entry : coverageByFile.entrySet()) {
       InputFile inputFile = entry.getKey();
-      coveredFiles.add(inputFile);
       if (LOG.isDebugEnabled()) {
         LOG.debug("Saving coverage measures for file '{}'", inputFile.toString());
       }
-      entry.getValue()
-        .save();
+      entry.getValue().save(context.newCoverage().onFile(inputFile));
     }
   }
 }
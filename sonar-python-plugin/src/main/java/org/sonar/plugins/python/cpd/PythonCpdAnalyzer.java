@@ -21,15 +21,18 @@ package org.sonar.plugins.python.cpd;
 
 import com.sonar.sslr.api.GenericTokenType;
 import com.sonar.sslr.api.TokenType;
+import java.util.Collections;
 import java.util.List;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.cpd.NewCpdTokens;
+import org.sonar.plugins.python.api.PythonSubscriptionCheck;
 import org.sonar.plugins.python.api.PythonVisitorContext;
 import org.sonar.python.TokenLocation;
 import org.sonar.python.api.PythonTokenType;
 import org.sonar.plugins.python.api.tree.Token;
 import org.sonar.plugins.python.api.tree.Tree;
+import org.sonar.python.SubscriptionVisitor;
 import org.sonar.python.tree.TreeUtils;
 
 public class PythonCpdAnalyzer {
@@ -41,22 +44,54 @@ public class PythonCpdAnalyzer {
   }
 
   public void pushCpdTokens(InputFile inputFile, PythonVisitorContext visitorContext) {
-    Tree root = visitorContext.rootTree();
-    if (root != null) {
-      NewCpdTokens cpdTokens = context.newCpdTokens().onFile(inputFile);
-      List<Token> tokens = TreeUtils.tokens(root);
-      for (int i = 0; i < tokens.size(); i++) {
-        Token token = tokens.get(i);
-        TokenType currentTokenType = token.type();
-        TokenType nextTokenType = i + 1 < tokens.size() ? tokens.get(i + 1).type() : GenericTokenType.EOF;
-        // INDENT/DEDENT could not be completely ignored during CPD see https://docs.python.org/3/reference/lexical_analysis.html#indentation
-        // Just taking into account DEDENT is enough, but because the DEDENT token has an empty value, it's the
-        // preceding new line which is added in its place to create a difference
-        if (isNewLineWithIndentationChange(currentTokenType, nextTokenType) || !isIgnoredType(currentTokenType)) {
-          TokenLocation location = new TokenLocation(token);
-          cpdTokens.addToken(location.startLine(), location.startLineOffset(), location.endLine(), location.endLineOffset(), token.value());
+    if (visitorContext.rootTree() != null) {
+      pushCpdTokens(context.newCpdTokens().onFile(inputFile), visitorContext);
+    }
+  }
+
+  public void pushCpdTokens(NewCpdTokens cpdTokens, PythonVisitorContext visitorContext) {
+    if (visitorContext.rootTree() != null) {
+      SubscriptionVisitor.analyze(Collections.singletonList(visitor(cpdTokens)), visitorContext);
+    }
+  }
+
+  /**
+   * Returns a visitor which collects the CPD tokens of a file and saves them when leaving it,
+   * so that they can be computed in the same tree traversal as the other file level visitors.
+   */
+  public PythonSubscriptionCheck visitor(NewCpdTokens cpdTokens) {
+    return new CpdVisitor(cpdTokens);
+  }
+
+  private static class CpdVisitor extends PythonSubscriptionCheck {
+
+    private final NewCpdTokens cpdTokens;
+
+    CpdVisitor(NewCpdTokens cpdTokens) {
+      this.cpdTokens = cpdTokens;
+    }
+
+    @Override
+    public void initialize(Context context) {
+      context.registerSyntaxNodeConsumer(Tree.Kind.FILE_INPUT, ctx -> {
+        List<Token> tokens = TreeUtils.tokens(ctx.syntaxNode());
+        for (int i = 0; i < tokens.size(); i++) {
+          Token token = tokens.get(i);
+          TokenType currentTokenType = token.type();
+          TokenType nextTokenType = i + 1 < tokens.size() ? tokens.get(i + 1).type() : GenericTokenType.EOF;
+          // INDENT/DEDENT could not be completely ignored during CPD see https://docs.python.org/3/reference/lexical_analysis.html#indentation
+          // Just taking into account DEDENT is enough, but because the DEDENT token has an empty value, it's the
+          // preceding new line which is added in its place to create a difference
+          if (isNewLineWithIndentationChange(currentTokenType, nextTokenType) || !isIgnoredType(currentTokenType)) {
+            TokenLocation location = new TokenLocation(token);
+            cpdTokens.addToken(location.startLine(), location.startLineOffset(), location.endLine(), location.endLineOffset(), token.value());
+          }
         }
-      }
+      });
+    }
+
+    @Override
+    public void leaveFile() {
       cpdTokens.save();
     }
   }
@@ -36,6 +36,7 @@ import org.sonar.api.config.Configuration;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.plugins.python.DirectoryWalkCache;
 import org.sonar.plugins.python.PythonReportSensor;
 import org.sonar.plugins.python.parser.StaxParser;
 import org.sonar.plugins.python.warnings.AnalysisWarningsWrapper;
@@ -50,7 +51,11 @@ public class PythonXUnitSensor extends PythonReportSensor {
   private final FileSystem fileSystem;
 
   public PythonXUnitSensor(Configuration conf, FileSystem fileSystem, AnalysisWarningsWrapper analysisWarnings) {
-    super(conf, analysisWarnings, "XUnit");
+    this(conf, fileSystem, analysisWarnings, new DirectoryWalkCache());
+  }
+
+  public PythonXUnitSensor(Configuration conf, FileSystem fileSystem, AnalysisWarningsWrapper analysisWarnings, DirectoryWalkCache walkCache) {
+    super(conf, analysisWarnings, "XUnit", walkCache);
     this.fileSystem = fileSystem;
   }
 
@@ -0,0 +1,133 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AnalysisCacheTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  private final Map<String, String> moduleFingerprints = new HashMap<>();
+
+  @Test
+  public void results_are_reused_when_file_and_dependencies_are_unchanged() throws IOException {
+    Path path = temporaryFolder.newFolder().toPath().resolve(AnalysisCache.FILE_NAME);
+    moduleFingerprints.put("mod", "mod1");
+    AnalysisCache cache = AnalysisCache.load(path, "config");
+    assertThat(cache.get("main.py", "main1", this::moduleFingerprint)).isNull();
+    cache.put("main.py", "main1", Collections.singletonMap("mod", "mod1"), new FileResults());
+    cache.put("other.py", "other1", Collections.singletonMap("missing", ""), new FileResults());
+    cache.save(path);
+
+    AnalysisCache reloaded = AnalysisCache.load(path, "config");
+    assertThat(reloaded.get("main.py", "main1", this::moduleFingerprint)).isNotNull();
+    assertThat(reloaded.get("other.py", "other1", this::moduleFingerprint)).isNotNull();
+    assertThat(reloaded.hits()).isEqualTo(2);
+
+    // modified file
+    assertThat(reloaded.get("main.py", "main2", this::moduleFingerprint)).isNull();
+    // modified dependency
+    moduleFingerprints.put("mod", "mod2");
+    assertThat(reloaded.get("main.py", "main1", this::moduleFingerprint)).isNull();
+    // dependency which did not exist
+    moduleFingerprints.put("missing", "missing1");
+    assertThat(reloaded.get("other.py", "other1", this::moduleFingerprint)).isNull();
+    assertThat(reloaded.hits()).isEqualTo(2);
+  }
+
+  @Test
+  public void only_files_of_last_analysis_are_kept() throws IOException {
+    Path path = temporaryFolder.newFolder().toPath().resolve(AnalysisCache.FILE_NAME);
+    AnalysisCache cache = AnalysisCache.load(path, "config");
+    cache.put("deleted.py", "deleted1", Collections.emptyMap(), new FileResults());
+    cache.put("main.py", "main1", Collections.emptyMap(), new FileResults());
+    cache.save(path);
+
+    cache = AnalysisCache.load(path, "config");
+    assertThat(cache.get("main.py", "main1", this::moduleFingerprint)).isNotNull();
+    cache.save(path);
+
+    cache = AnalysisCache.load(path, "config");
+    assertThat(cache.get("deleted.py", "deleted1", this::moduleFingerprint)).isNull();
+    assertThat(cache.get("main.py", "main1", this::moduleFingerprint)).isNotNull();
+  }
+
+  @Test
+  public void different_configuration() throws IOException {
+    Path path = temporaryFolder.newFolder().toPath().resolve(AnalysisCache.FILE_NAME);
+    AnalysisCache cache = AnalysisCache.load(path, "config1");
+    cache.put("main.py", "main1", Collections.emptyMap(), new FileResults());
+    cache.save(path);
+
+    assertThat(AnalysisCache.load(path, "config2").get("main.py", "main1", this::moduleFingerprint)).isNull();
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).contains("Python analysis cache is discarded: the plugin or the active rules changed");
+  }
+
+  @Test
+  public void corrupted_cache() throws IOException {
+    Path path = temporaryFolder.newFolder().toPath().resolve(AnalysisCache.FILE_NAME);
+    AnalysisCache previousCache = AnalysisCache.load(path, "config");
+    previousCache.put("main.py", "main1", Collections.emptyMap(), new FileResults());
+    previousCache.save(path);
+    byte[] bytes = Files.readAllBytes(path);
+    Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+
+    AnalysisCache cache = AnalysisCache.load(path, "config");
+    assertThat(cache.get("main.py", "main1", this::moduleFingerprint)).isNull();
+    assertThat(logTester.logs(LoggerLevel.WARN)).contains("Unable to read Python analysis cache " + path + ", all files will be analyzed");
+  }
+
+  @Test
+  public void unwritable_cache() throws IOException {
+    File directory = temporaryFolder.newFolder();
+    Path path = directory.toPath().resolve("missing").resolve(AnalysisCache.FILE_NAME);
+    AnalysisCache.load(path, "config").save(path);
+    assertThat(logTester.logs(LoggerLevel.WARN)).contains("Unable to save Python analysis cache " + path);
+  }
+
+  @Test
+  public void fingerprints() {
+    assertThat(AnalysisCache.fingerprint("ab", "c")).isEqualTo(AnalysisCache.fingerprint("ab", "c")).isNotEqualTo(AnalysisCache.fingerprint("a", "bc"));
+    assertThat(AnalysisCache.pluginFingerprint()).isNotEmpty();
+  }
+
+  private String moduleFingerprint(String moduleName) {
+    return moduleFingerprints.getOrDefault(moduleName, "");
+  }
+}
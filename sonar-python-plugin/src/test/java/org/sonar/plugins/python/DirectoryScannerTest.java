@@ -20,17 +20,20 @@
 package org.sonar.plugins.python;
 
 import java.io.File;
-import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.io.FilenameUtils;
+import org.junit.Rule;
 import org.junit.Test;
-import org.mockito.invocation.InvocationOnMock;
-import org.mockito.stubbing.Answer;
+import org.junit.rules.TemporaryFolder;
 import org.sonar.api.utils.WildcardPattern;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Matchers.any;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
 
 public class DirectoryScannerTest {
 
@@ -38,6 +41,9 @@ public class DirectoryScannerTest {
 
   private final File baseDir = new File("src/test/resources/org/sonar/plugins/python/scanner").getAbsoluteFile();
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @Test
   public void noMatchedFile() {
     assertThat(scan("dir/xxx")).isEmpty();
@@ -55,20 +61,58 @@ public class DirectoryScannerTest {
   }
 
   @Test
-  public void shouldNotFailWhenChildPathIsUnexpectedlyShorterThanBaseDirPath() {
-    File dir = mock(File.class);
-    final File matchingFile = new File("/matching/file");
-    when(dir.getAbsolutePath()).thenReturn("/a/somewhat/long/path");
-    when(dir.isDirectory()).thenReturn(true);
-    when(dir.listFiles(any(FileFilter.class))).thenAnswer(new Answer<File[]>() {
-      @Override
-      public File[] answer(InvocationOnMock invocation) throws Throwable {
-        FileFilter filter = (FileFilter) invocation.getArguments()[0];
-        filter.accept(new File("/short/path"));
-        return new File[] {matchingFile};
+  public void patternOutsideOfBaseDir() {
+    assertThat(scan("../scanner/dir/f1.txt")).isEmpty();
+    assertThat(scan("../**/f1.txt")).isEmpty();
+  }
+
+  @Test
+  public void missingDirectory() {
+    assertThat(scan("missing/*.txt")).isEmpty();
+    assertThat(scan("*.txt", new File(baseDir, "missing"))).isEmpty();
+  }
+
+  @Test
+  public void sameFilesAsExhaustiveMatching() throws IOException {
+    File root = temporaryFolder.getRoot();
+    for (String path : Arrays.asList("a.xml", "reports/a.xml", "reports/b.txt", "reports/x/a.xml", "reports/x/y/a.xml", "other/reports/a.xml",
+      "node_modules/lib/reports/a.xml", "build/coverage-1.xml", "build/x/coverage-2.xml")) {
+      File file = new File(root, path);
+      file.getParentFile().mkdirs();
+      assertThat(file.createNewFile()).isTrue();
+    }
+    DirectoryWalkCache walkCache = new DirectoryWalkCache();
+    for (String pattern : Arrays.asList("a.xml", "*.xml", "reports/*.xml", "reports/*/a.xml", "*/reports/*.xml", "reports/**/a.xml", "**/reports/*.xml",
+      "**/a.xml", "**/*coverage-*.xml", "build/**", "*/x/**/*.xml", "reports/x?/a.xml", "/reports/a.xml")) {
+      WildcardPattern wildcardPattern = WildcardPattern.create(pattern);
+      List<File> expected;
+      try (Stream<Path> paths = Files.walk(root.toPath())) {
+        expected = paths
+          .filter(Files::isRegularFile)
+          .filter(path -> wildcardPattern.match(FilenameUtils.separatorsToUnix(root.toPath().relativize(path).toString())))
+          .map(Path::toFile)
+          .collect(Collectors.toList());
       }
-    });
-    assertThat(scan("xxx", dir)).containsOnly(matchingFile);
+      assertThat(new DirectoryScanner(root, wildcardPattern, walkCache).getIncludedFiles()).as(pattern).containsOnlyElementsOf(expected).hasSameSizeAs(expected);
+    }
+  }
+
+  @Test
+  public void matchedFilesAreShared() throws IOException {
+    File root = temporaryFolder.getRoot();
+    assertThat(new File(root, "dir/a.xml").getParentFile().mkdirs()).isTrue();
+    assertThat(new File(root, "dir/a.xml").createNewFile()).isTrue();
+    DirectoryWalkCache walkCache = new DirectoryWalkCache();
+    assertThat(new DirectoryScanner(root, WildcardPattern.create("**/a.xml"), walkCache).getIncludedFiles()).containsOnly(new File(root, "dir/a.xml"));
+
+    assertThat(new File(root, "a.xml").createNewFile()).isTrue();
+    assertThat(new File(root, "dir/b.xml").createNewFile()).isTrue();
+    assertThat(new DirectoryScanner(root, WildcardPattern.create("**/a.xml"), walkCache).getIncludedFiles()).containsOnly(new File(root, "dir/a.xml"));
+    assertThat(new DirectoryScanner(root, WildcardPattern.create("**/b.xml"), walkCache).getIncludedFiles()).containsOnly(new File(root, "dir/b.xml"));
+    assertThat(new DirectoryScanner(new File(root, "dir"), WildcardPattern.create("**/a.xml"), walkCache).getIncludedFiles())
+      .containsOnly(new File(new File(root, "dir"), "a.xml"));
+    assertThat(new DirectoryScanner(root, WildcardPattern.create("**/a.xml"), new DirectoryWalkCache()).getIncludedFiles())
+      .containsOnly(new File(root, "a.xml"), new File(root, "dir/a.xml"));
   }
 
   private List<File> scan(String pattern) {
@@ -0,0 +1,81 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.issue.NoSonarFilter;
+import org.sonar.api.measures.FileLinesContext;
+import org.sonar.api.measures.FileLinesContextFactory;
+import org.sonar.plugins.python.api.PythonVisitorContext;
+import org.sonar.python.LineIndex;
+import org.sonar.python.TestPythonVisitorRunner;
+import org.sonar.python.metrics.FileMetrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FileResultsTest {
+
+  private static final String CONTENT = "x = 1\r\ny = x\n";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void offsets_are_converted_to_lines_and_line_offsets() throws IOException {
+    File file = temporaryFolder.newFile("mod.py");
+    Files.write(file.toPath(), CONTENT.getBytes(StandardCharsets.UTF_8));
+    PythonVisitorContext visitorContext = TestPythonVisitorRunner.createContext(file);
+    FileResults results = new FileResults();
+    results.setMeasures(new FileMetrics(visitorContext));
+    LineIndex lines = new LineIndex(CONTENT);
+
+    results.symbolTable(lines).newSymbol(0, 1).newReference(11, 12);
+    results.highlighting(lines).highlight(4, 5, TypeOfText.CONSTANT);
+
+    SensorContextTester context = SensorContextTester.create(temporaryFolder.getRoot());
+    InputFile inputFile = TestInputFileBuilder.create("moduleKey", "mod.py")
+      .setModuleBaseDir(temporaryFolder.getRoot().toPath())
+      .setCharset(StandardCharsets.UTF_8)
+      .initMetadata(CONTENT)
+      .build();
+    FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
+    when(fileLinesContextFactory.createFor(Mockito.any(InputFile.class))).thenReturn(mock(FileLinesContext.class));
+    results.save(context, inputFile, new NoSonarFilter(), fileLinesContextFactory);
+
+    assertThat(context.referencesForSymbolAt(inputFile.key(), 1, 0))
+      .extracting(range -> range.start().line() + ":" + range.start().lineOffset() + "-" + range.end().line() + ":" + range.end().lineOffset())
+      .containsExactly("2:4-2:5");
+    assertThat(context.highlightingTypeAt(inputFile.key(), 1, 4)).containsExactly(TypeOfText.CONSTANT);
+    assertThat(context.highlightingTypeAt(inputFile.key(), 1, 3)).isEmpty();
+  }
+}
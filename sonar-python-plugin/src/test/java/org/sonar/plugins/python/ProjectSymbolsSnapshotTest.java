@@ -0,0 +1,97 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProjectSymbolsSnapshotTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  @Test
+  public void symbols_are_reused_when_file_is_unchanged() throws IOException {
+    Path path = temporaryFolder.newFolder().toPath().resolve(ProjectSymbolsSnapshot.FILE_NAME);
+    ProjectSymbolsSnapshot snapshot = ProjectSymbolsSnapshot.load(path, "plugin");
+    assertThat(snapshot.get("main.py", "main1")).isNull();
+    snapshot.put("main.py", "main1", new byte[] {1, 2, 3});
+    snapshot.put("deleted.py", "deleted1", new byte[0]);
+    snapshot.save(path);
+
+    ProjectSymbolsSnapshot reloaded = ProjectSymbolsSnapshot.load(path, "plugin");
+    assertThat(reloaded.get("main.py", "main1")).containsExactly(1, 2, 3);
+    assertThat(reloaded.get("deleted.py", "deleted1")).isEmpty();
+    // modified file
+    assertThat(reloaded.get("main.py", "main2")).isNull();
+
+    // only the files put by the last analysis are kept
+    reloaded.put("main.py", "main1", new byte[] {1, 2, 3});
+    reloaded.save(path);
+    reloaded = ProjectSymbolsSnapshot.load(path, "plugin");
+    assertThat(reloaded.get("main.py", "main1")).containsExactly(1, 2, 3);
+    assertThat(reloaded.get("deleted.py", "deleted1")).isNull();
+  }
+
+  @Test
+  public void different_plugin() throws IOException {
+    Path path = temporaryFolder.newFolder().toPath().resolve(ProjectSymbolsSnapshot.FILE_NAME);
+    ProjectSymbolsSnapshot snapshot = ProjectSymbolsSnapshot.load(path, "plugin1");
+    snapshot.put("main.py", "main1", new byte[] {1});
+    snapshot.save(path);
+
+    assertThat(ProjectSymbolsSnapshot.load(path, "plugin2").get("main.py", "main1")).isNull();
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).contains("Python project symbols snapshot is discarded: the plugin changed");
+  }
+
+  @Test
+  public void corrupted_snapshot() throws IOException {
+    Path path = temporaryFolder.newFolder().toPath().resolve(ProjectSymbolsSnapshot.FILE_NAME);
+    ProjectSymbolsSnapshot previousSnapshot = ProjectSymbolsSnapshot.load(path, "plugin");
+    previousSnapshot.put("main.py", "main1", new byte[] {1, 2, 3});
+    previousSnapshot.save(path);
+    byte[] bytes = Files.readAllBytes(path);
+    Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+
+    assertThat(ProjectSymbolsSnapshot.load(path, "plugin").get("main.py", "main1")).isNull();
+    assertThat(logTester.logs(LoggerLevel.WARN)).contains("Unable to read Python project symbols snapshot " + path + ", all files will be parsed");
+  }
+
+  @Test
+  public void unwritable_snapshot() throws IOException {
+    File directory = temporaryFolder.newFolder();
+    Path path = directory.toPath().resolve("missing").resolve(ProjectSymbolsSnapshot.FILE_NAME);
+    ProjectSymbolsSnapshot.load(path, "plugin").save(path);
+    assertThat(logTester.logs(LoggerLevel.WARN)).contains("Unable to save Python project symbols snapshot " + path);
+  }
+}
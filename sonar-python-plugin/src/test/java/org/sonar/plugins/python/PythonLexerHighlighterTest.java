@@ -0,0 +1,197 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import com.sonar.sslr.api.RecognitionException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.TextRange;
+import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
+import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.plugins.python.api.PythonVisitorContext;
+import org.sonar.python.TestPythonVisitorRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PythonLexerHighlighterTest {
+
+  @Test
+  public void same_highlighting_as_tree_highlighter() throws IOException {
+    File file = new File("src/test/resources/org/sonar/plugins/python/pythonHighlighter.py");
+    assertThat(lexerHighlighting(file)).isEqualTo(treeHighlighting(file));
+  }
+
+  @Test
+  public void same_highlighting_as_tree_highlighter_on_checks_resources() throws IOException {
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(Paths.get("../python-checks/src/test/resources/checks"))) {
+      files = paths.filter(path -> path.toString().endsWith(".py")).sorted().collect(Collectors.toList());
+    }
+    for (Path file : files) {
+      List<Highlight> treeHighlighting;
+      try {
+        treeHighlighting = treeHighlighting(file.toFile());
+      } catch (RecognitionException e) {
+        continue;
+      }
+      // the tree highlighter also colors the expressions nested in f-strings
+      List<Highlight> outermost = treeHighlighting.stream()
+        .filter(highlight -> treeHighlighting.stream().noneMatch(other -> other != highlight && other.contains(highlight)))
+        .collect(Collectors.toList());
+      assertThat(lexerHighlighting(file.toFile())).as(file.toString()).isEqualTo(outermost);
+    }
+  }
+
+  @Test
+  public void docstrings() {
+    assertThat(highlighting("'''module'''\n'not a docstring'\n")).containsExactly(
+      new Highlight(1, 0, 1, 12, TypeOfText.STRUCTURED_COMMENT),
+      new Highlight(2, 0, 2, 17, TypeOfText.STRING));
+    assertThat(highlighting("def f(a: int = {1: 2}) -> str: 'doc'; 'other'\n")).contains(
+      new Highlight(1, 31, 1, 36, TypeOfText.STRUCTURED_COMMENT),
+      new Highlight(1, 38, 1, 45, TypeOfText.STRING));
+    assertThat(highlighting("class A(B):\n  # comment\n\n  'a' 'b'\n")).contains(
+      new Highlight(4, 2, 4, 5, TypeOfText.STRUCTURED_COMMENT),
+      new Highlight(4, 6, 4, 9, TypeOfText.STRUCTURED_COMMENT));
+    assertThat(highlighting("def f():\n  'a'.strip()\n")).contains(new Highlight(2, 2, 2, 5, TypeOfText.STRING));
+    assertThat(highlighting("def f():\n  x = 1\n  'a'\n")).contains(new Highlight(3, 2, 3, 5, TypeOfText.STRING));
+    assertThat(highlighting("'doc'")).containsExactly(new Highlight(1, 0, 1, 5, TypeOfText.STRUCTURED_COMMENT));
+  }
+
+  @Test
+  public void syntax_error() {
+    assertThat(highlighting("def f(:\n  return 'a' # comment\n")).containsExactly(
+      new Highlight(1, 0, 1, 3, TypeOfText.KEYWORD),
+      new Highlight(2, 2, 2, 8, TypeOfText.KEYWORD),
+      new Highlight(2, 9, 2, 12, TypeOfText.STRING),
+      new Highlight(2, 13, 2, 22, TypeOfText.COMMENT));
+  }
+
+  private static List<Highlight> treeHighlighting(File file) {
+    PythonVisitorContext context = TestPythonVisitorRunner.createContext(file);
+    RecordingHighlighting recording = new RecordingHighlighting();
+    new PythonHighlighter(recording).scanFile(context);
+    return recording.sorted();
+  }
+
+  private static List<Highlight> lexerHighlighting(File file) throws IOException {
+    return highlighting(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+  }
+
+  private static List<Highlight> highlighting(String content) {
+    RecordingHighlighting recording = new RecordingHighlighting();
+    new PythonLexerHighlighter(recording).highlight(content);
+    assertThat(recording.saved).isTrue();
+    return recording.sorted();
+  }
+
+  private static class RecordingHighlighting implements NewHighlighting {
+
+    private final List<Highlight> highlights = new ArrayList<>();
+    private boolean saved = false;
+
+    @Override
+    public NewHighlighting onFile(InputFile inputFile) {
+      return this;
+    }
+
+    @Override
+    public NewHighlighting highlight(int startOffset, int endOffset, TypeOfText typeOfText) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NewHighlighting highlight(TextRange range, TypeOfText typeOfText) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NewHighlighting highlight(int startLine, int startLineOffset, int endLine, int endLineOffset, TypeOfText typeOfText) {
+      highlights.add(new Highlight(startLine, startLineOffset, endLine, endLineOffset, typeOfText));
+      return this;
+    }
+
+    @Override
+    public void save() {
+      saved = true;
+    }
+
+    List<Highlight> sorted() {
+      return highlights.stream().sorted().collect(Collectors.toList());
+    }
+  }
+
+  private static class Highlight implements Comparable<Highlight> {
+
+    private final int startLine;
+    private final int startLineOffset;
+    private final int endLine;
+    private final int endLineOffset;
+    private final TypeOfText typeOfText;
+
+    Highlight(int startLine, int startLineOffset, int endLine, int endLineOffset, TypeOfText typeOfText) {
+      this.startLine = startLine;
+      this.startLineOffset = startLineOffset;
+      this.endLine = endLine;
+      this.endLineOffset = endLineOffset;
+      this.typeOfText = typeOfText;
+    }
+
+    boolean contains(Highlight other) {
+      return comparePositions(startLine, startLineOffset, other.startLine, other.startLineOffset) <= 0
+        && comparePositions(other.endLine, other.endLineOffset, endLine, endLineOffset) <= 0;
+    }
+
+    private static int comparePositions(int line, int lineOffset, int otherLine, int otherLineOffset) {
+      return line != otherLine ? Integer.compare(line, otherLine) : Integer.compare(lineOffset, otherLineOffset);
+    }
+
+    @Override
+    public int compareTo(Highlight other) {
+      int start = comparePositions(startLine, startLineOffset, other.startLine, other.startLineOffset);
+      return start != 0 ? start : comparePositions(endLine, endLineOffset, other.endLine, other.endLineOffset);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Highlight && toString().equals(other.toString());
+    }
+
+    @Override
+    public int hashCode() {
+      return toString().hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return startLine + ":" + startLineOffset + "-" + endLine + ":" + endLineOffset + " " + typeOfText;
+    }
+  }
+}
@@ -37,7 +37,7 @@ public class PythonPluginTest {
   public void testGetExtensions() {
     Version v79 = Version.create(7, 9);
     SonarRuntime runtime = SonarRuntimeImpl.forSonarQube(v79, SonarQubeSide.SERVER, SonarEdition.DEVELOPER);
-    assertThat(extensions(runtime)).hasSize(21);
+    assertThat(extensions(runtime)).hasSize(22);
     assertThat(extensions(runtime)).contains(DefaultAnalysisWarningsWrapper.class);
     assertThat(extensions(SonarRuntimeImpl.forSonarLint(v79))).hasSize(5);
   }
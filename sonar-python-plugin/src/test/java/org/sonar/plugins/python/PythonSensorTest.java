@@ -25,10 +25,12 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.junit.Before;
 import org.junit.Test;
@@ -46,6 +48,7 @@ import org.sonar.api.batch.rule.ActiveRules;
 import org.sonar.api.batch.rule.CheckFactory;
 import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
 import org.sonar.api.batch.rule.internal.NewActiveRule;
+import org.sonar.api.batch.sensor.cpd.internal.TokensLine;
 import org.sonar.api.batch.sensor.error.AnalysisError;
 import org.sonar.api.batch.sensor.internal.DefaultSensorDescriptor;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
@@ -314,7 +317,8 @@ public class PythonSensorTest {
     context.fileSystem().add(inputFile3);
     sensor().execute(context);
     assertThat(logTester.logs()).contains("Starting test sources highlighting");
-    assertThat(logTester.logs()).contains("Unable to parse file: parse_error.py");
+    // test files are only lexed: syntax errors don't prevent their highlighting
+    assertThat(logTester.logs()).doesNotContain("Unable to parse file: parse_error.py");
     assertThat(logTester.logs()).contains("Unable to highlight test file: file2.py");
     assertThat(context.highlightingTypeAt(inputFile1.key(), 1, 2)).isNotEmpty();
   }
@@ -362,6 +366,284 @@ public class PythonSensorTest {
       .hasCauseInstanceOf(FileNotFoundException.class);
   }
 
+  @Test
+  public void concurrent_analysis_has_same_results_as_sequential_analysis() {
+    activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, ONE_STATEMENT_PER_LINE_RULE_KEY))
+        .build())
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, "S134"))
+        .build())
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, "S930"))
+        .build())
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, "ParsingError"))
+        .build())
+      .build();
+    List<String> fileNames = Arrays.asList(FILE_1, FILE_2, "main.py", "mod.py", "symbolVisitor.py", "parse_error.py");
+    fileNames.forEach(this::inputFile);
+    sensor().execute(context);
+    List<String> sequentialIssues = issuesAsStrings(context.allIssues());
+
+    SensorContextTester concurrentContext = SensorContextTester.create(baseDir);
+    concurrentContext.fileSystem().setWorkDir(workDir);
+    concurrentContext.setSettings(new MapSettings().setProperty(PythonScanner.THREADS_PROPERTY_NAME, "4"));
+    fileNames.forEach(name -> concurrentContext.fileSystem().add(createInputFile(name)));
+    sensor().execute(concurrentContext);
+
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).contains("Using 4 threads for global symbols computation", "Using 4 threads for rules execution");
+    assertThat(sequentialIssues).contains("python:S930 main.py Range[from [line=3, lineOffset=4] to [line=3, lineOffset=7]] Remove 1 unexpected arguments; 'add' expects 2 positional arguments.");
+    assertThat(issuesAsStrings(concurrentContext.allIssues())).containsExactlyElementsOf(sequentialIssues);
+    assertThat(concurrentContext.allAnalysisErrors()).hasSameSizeAs(context.allAnalysisErrors());
+    for (String fileName : fileNames) {
+      String key = "moduleKey:" + fileName;
+      assertThat(concurrentContext.measures(key)).hasSameSizeAs(context.measures(key));
+      assertThat(cpdTokensAsStrings(concurrentContext, key)).isEqualTo(cpdTokensAsStrings(context, key));
+    }
+    assertThat(concurrentContext.measure("moduleKey:" + FILE_1, CoreMetrics.NCLOC).value()).isEqualTo(22);
+    assertThat(concurrentContext.highlightingTypeAt("moduleKey:" + FILE_1, 15, 2)).hasSize(1);
+    verifyUsages(concurrentContext, "moduleKey:" + FILE_2, 5, 12, reference(6, 19, 6, 20));
+  }
+
+  @Test
+  public void direct_tree_parser_gives_same_results() {
+    activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, "S930"))
+        .build())
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, "ParsingError"))
+        .build())
+      .build();
+    List<String> fileNames = Arrays.asList(FILE_1, FILE_2, "main.py", "mod.py", "symbolVisitor.py", "parse_error.py");
+    fileNames.forEach(this::inputFile);
+    sensor().execute(context);
+
+    SensorContextTester directContext = SensorContextTester.create(baseDir);
+    directContext.fileSystem().setWorkDir(workDir);
+    directContext.setSettings(new MapSettings().setProperty(PythonScanner.DIRECT_TREE_PARSER_PROPERTY_NAME, "true"));
+    fileNames.forEach(name -> directContext.fileSystem().add(createInputFile(name)));
+    sensor().execute(directContext);
+
+    assertThat(issuesAsStrings(directContext.allIssues())).containsExactlyElementsOf(issuesAsStrings(context.allIssues()));
+    assertThat(directContext.allAnalysisErrors()).hasSameSizeAs(context.allAnalysisErrors());
+    for (String fileName : fileNames) {
+      String key = "moduleKey:" + fileName;
+      assertThat(directContext.measures(key)).hasSameSizeAs(context.measures(key));
+      assertThat(cpdTokensAsStrings(directContext, key)).isEqualTo(cpdTokensAsStrings(context, key));
+    }
+    verifyUsages(directContext, "moduleKey:" + FILE_2, 5, 12, reference(6, 19, 6, 20));
+  }
+
+  @Test
+  public void control_flow_graphs_are_shared_between_rules() {
+    activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, "S1854"))
+        .build())
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, "S1226"))
+        .build())
+      .build();
+    inputFile("mod.py");
+    sensor().execute(context);
+    // the control flow graph built by the type inference is reused by both rules, which share the live variables analysis
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).contains("Control flow graphs and dataflow analyses: 2 computed, 3 computations saved");
+  }
+
+  @Test
+  public void profiling_report() throws IOException {
+    activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, "S1854"))
+        .build())
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, "ParsingError"))
+        .build())
+      .build();
+    inputFile("mod.py");
+    context.setSettings(new MapSettings().setProperty(PythonSensor.PROFILING_PROPERTY_NAME, "true"));
+    sensor().execute(context);
+
+    Path reportPath = workDir.resolve(PythonSensor.PROFILING_REPORT_FILE_NAME);
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("Python analysis profiling report saved to " + reportPath);
+    String report = new String(Files.readAllBytes(reportPath), StandardCharsets.UTF_8);
+    String phases = report.substring(0, report.indexOf("\nRule"));
+    String rules = report.substring(report.indexOf("\nRule"));
+    for (String phase : Arrays.asList("parse", "tree", "symbols", "type inference", "metrics", "cpd", "highlighting")) {
+      assertThat(phases).containsPattern("\\n" + phase + " +\\d+ +\\d+ +\\d+");
+      assertThat(rules).doesNotContain("\n" + phase + " ");
+    }
+    assertThat(rules).containsPattern("python:S1854 +\\d+ +\\d+ +\\d+");
+    assertThat(rules).containsPattern("python:ParsingError +\\d+ +1 +\\d+");
+  }
+
+  @Test
+  public void no_profiling_report_by_default() {
+    activeRules = new ActiveRulesBuilder().build();
+    inputFile("mod.py");
+    sensor().execute(context);
+    assertThat(workDir.resolve(PythonSensor.PROFILING_REPORT_FILE_NAME)).doesNotExist();
+  }
+
+  @Test
+  public void analysis_cache_reuses_results_of_unchanged_files() {
+    activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, ONE_STATEMENT_PER_LINE_RULE_KEY))
+        .build())
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, "S930"))
+        .build())
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, "ParsingError"))
+        .build())
+      .build();
+    MapSettings settings = new MapSettings().setProperty(PythonScanner.ANALYSIS_CACHE_PROPERTY_NAME, "true");
+    List<String> fileNames = Arrays.asList(FILE_1, FILE_2, "main.py", "mod.py", "parse_error.py");
+    fileNames.forEach(this::inputFile);
+    context.setSettings(settings);
+    sensor().execute(context);
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("0/5 source files were unchanged, their results were loaded from the analysis cache");
+    assertThat(issuesAsStrings(context.allIssues())).contains("python:S930 main.py Range[from [line=3, lineOffset=4] to [line=3, lineOffset=7]] Remove 1 unexpected arguments; 'add' expects 2 positional arguments.");
+
+    SensorContextTester cachedContext = SensorContextTester.create(baseDir);
+    cachedContext.fileSystem().setWorkDir(workDir);
+    cachedContext.setSettings(settings);
+    fileNames.forEach(name -> cachedContext.fileSystem().add(createInputFile(name)));
+    sensor().execute(cachedContext);
+
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("5/5 source files were unchanged, their results were loaded from the analysis cache");
+    assertThat(issuesAsStrings(cachedContext.allIssues())).containsExactlyElementsOf(issuesAsStrings(context.allIssues()));
+    assertThat(cachedContext.allAnalysisErrors()).hasSameSizeAs(context.allAnalysisErrors());
+    for (String fileName : fileNames) {
+      String key = "moduleKey:" + fileName;
+      assertThat(measuresAsStrings(cachedContext, key)).isEqualTo(measuresAsStrings(context, key));
+      assertThat(cpdTokensAsStrings(cachedContext, key)).isEqualTo(cpdTokensAsStrings(context, key));
+    }
+    assertThat(cachedContext.highlightingTypeAt("moduleKey:" + FILE_1, 15, 2)).isEqualTo(context.highlightingTypeAt("moduleKey:" + FILE_1, 15, 2)).hasSize(1);
+    verifyUsages(cachedContext, "moduleKey:" + FILE_2, 5, 12, reference(6, 19, 6, 20));
+
+    // main.py depends on the modified module: its results are computed again
+    SensorContextTester modifiedContext = SensorContextTester.create(baseDir);
+    modifiedContext.fileSystem().setWorkDir(workDir);
+    modifiedContext.setSettings(settings);
+    fileNames.stream().filter(name -> !name.equals("mod.py")).forEach(name -> modifiedContext.fileSystem().add(createInputFile(name)));
+    modifiedContext.fileSystem().add(TestInputFileBuilder.create("moduleKey", "mod.py")
+      .setModuleBaseDir(baseDir.toPath())
+      .setCharset(StandardCharsets.UTF_8)
+      .setType(Type.MAIN)
+      .setLanguage(Python.KEY)
+      .setContents("def add(p1, p2, p3):\n    return p1 + p2 + p3\n")
+      .build());
+    sensor().execute(modifiedContext);
+
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("3/5 source files were unchanged, their results were loaded from the analysis cache");
+    assertThat(issuesAsStrings(modifiedContext.allIssues()).stream().filter(issue -> issue.startsWith("python:S930 main.py"))).isEmpty();
+  }
+
+  @Test
+  public void project_symbols_snapshot_reuses_symbols_of_unchanged_modules() throws IOException {
+    activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, "S930"))
+        .build())
+      .build();
+    MapSettings settings = new MapSettings().setProperty(PythonScanner.ANALYSIS_CACHE_PROPERTY_NAME, "true");
+    List<String> fileNames = Arrays.asList(FILE_1, FILE_2, "main.py", "mod.py", "parse_error.py");
+    fileNames.forEach(this::inputFile);
+    context.setSettings(settings);
+    sensor().execute(context);
+    assertThat(logTester.logs(LoggerLevel.INFO).stream().filter(log -> log.startsWith("0/5 modules were unchanged, their symbols were reloaded from the project symbols snapshot in "))).hasSize(1);
+    assertThat(workDir.resolve(ProjectSymbolsSnapshot.FILE_NAME)).exists();
+
+    // rules are executed again, with the symbols of the project reloaded from the snapshot
+    Files.delete(workDir.resolve(AnalysisCache.FILE_NAME));
+    SensorContextTester reloadedContext = SensorContextTester.create(baseDir);
+    reloadedContext.fileSystem().setWorkDir(workDir);
+    reloadedContext.setSettings(settings);
+    fileNames.forEach(name -> reloadedContext.fileSystem().add(createInputFile(name)));
+    sensor().execute(reloadedContext);
+
+    assertThat(logTester.logs(LoggerLevel.INFO).stream().filter(log -> log.startsWith("4/5 modules were unchanged, their symbols were reloaded from the project symbols snapshot in "))).hasSize(1);
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("0/5 source files were unchanged, their results were loaded from the analysis cache");
+    assertThat(issuesAsStrings(reloadedContext.allIssues()))
+      .contains("python:S930 main.py Range[from [line=3, lineOffset=4] to [line=3, lineOffset=7]] Remove 1 unexpected arguments; 'add' expects 2 positional arguments.")
+      .containsExactlyElementsOf(issuesAsStrings(context.allIssues()));
+    verifyUsages(reloadedContext, "moduleKey:" + FILE_2, 5, 12, reference(6, 19, 6, 20));
+  }
+
+  @Test
+  public void analysis_without_syntax_tree_cache_has_same_results() {
+    activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, ONE_STATEMENT_PER_LINE_RULE_KEY))
+        .build())
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, "S930"))
+        .build())
+      .build();
+    List<String> fileNames = Arrays.asList(FILE_1, FILE_2, "main.py", "mod.py", "parse_error.py");
+    fileNames.forEach(this::inputFile);
+    sensor().execute(context);
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).contains("Syntax tree cache hit ratio: 4/5 (80%)");
+    logTester.clear();
+
+    SensorContextTester uncachedContext = SensorContextTester.create(baseDir);
+    uncachedContext.fileSystem().setWorkDir(workDir);
+    uncachedContext.setSettings(new MapSettings().setProperty(PythonScanner.TREE_CACHE_SIZE_PROPERTY_NAME, "0"));
+    fileNames.forEach(name -> uncachedContext.fileSystem().add(createInputFile(name)));
+    sensor().execute(uncachedContext);
+
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).contains("Syntax tree cache hit ratio: 0/5 (0%)");
+    assertThat(issuesAsStrings(uncachedContext.allIssues())).containsExactlyElementsOf(issuesAsStrings(context.allIssues()));
+    for (String fileName : fileNames) {
+      String key = "moduleKey:" + fileName;
+      assertThat(uncachedContext.measures(key)).hasSameSizeAs(context.measures(key));
+      assertThat(cpdTokensAsStrings(uncachedContext, key)).isEqualTo(cpdTokensAsStrings(context, key));
+    }
+    verifyUsages(context, "moduleKey:" + FILE_2, 5, 12, reference(6, 19, 6, 20));
+  }
+
+  @Test
+  public void concurrent_analysis_exception_should_fail_analysis_if_configured_so() throws IOException {
+    DefaultInputFile inputFile = spy(createInputFile(FILE_1));
+    when(inputFile.contents()).thenThrow(FileNotFoundException.class);
+    context.fileSystem().add(inputFile);
+    inputFile(FILE_2);
+
+    activeRules = new ActiveRulesBuilder().build();
+    context.setSettings(new MapSettings()
+      .setProperty("sonar.internal.analysis.failFast", "true")
+      .setProperty(PythonScanner.THREADS_PROPERTY_NAME, "2"));
+
+    assertThatThrownBy(() -> sensor().execute(context))
+      .isInstanceOf(IllegalStateException.class)
+      .hasCauseInstanceOf(FileNotFoundException.class);
+  }
+
+  @Test
+  public void concurrent_analysis_exception_does_not_fail_analysis() throws IOException {
+    DefaultInputFile inputFile = spy(createInputFile(FILE_1));
+    when(inputFile.contents()).thenThrow(RuntimeException.class);
+    context.fileSystem().add(inputFile);
+    inputFile(FILE_2);
+
+    activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, ONE_STATEMENT_PER_LINE_RULE_KEY))
+        .build())
+      .build();
+    context.setSettings(new MapSettings().setProperty(PythonScanner.THREADS_PROPERTY_NAME, "2"));
+
+    sensor().execute(context);
+
+    assertThat(context.allIssues()).hasSize(1);
+    assertThat(context.measure("moduleKey:" + FILE_2, CoreMetrics.NCLOC)).isNotNull();
+  }
+
   @Test
   public void parse_error() {
     inputFile("parse_error.py");
@@ -426,10 +708,37 @@ public class PythonSensorTest {
   }
 
   private void verifyUsages(String componentKey, int line, int offset, TextRange... trs) {
+    verifyUsages(context, componentKey, line, offset, trs);
+  }
+
+  private static void verifyUsages(SensorContextTester context, String componentKey, int line, int offset, TextRange... trs) {
     Collection<TextRange> textRanges = context.referencesForSymbolAt(componentKey, line, offset);
     assertThat(textRanges).containsExactly(trs);
   }
 
+  @Nullable
+  private static List<String> cpdTokensAsStrings(SensorContextTester context, String componentKey) {
+    List<TokensLine> tokensLines = context.cpdTokens(componentKey);
+    if (tokensLines == null) {
+      return null;
+    }
+    return tokensLines.stream().map(line -> line.getStartLine() + ":" + line.getValue()).collect(Collectors.toList());
+  }
+
+  private static List<String> measuresAsStrings(SensorContextTester context, String componentKey) {
+    return context.measures(componentKey).stream()
+      .map(measure -> measure.metric().key() + "=" + measure.value())
+      .sorted()
+      .collect(Collectors.toList());
+  }
+
+  private static List<String> issuesAsStrings(Collection<Issue> issues) {
+    return issues.stream()
+      .map(issue -> issue.ruleKey() + " " + issue.primaryLocation().inputComponent() + " " + issue.primaryLocation().textRange() + " " + issue.primaryLocation().message())
+      .sorted()
+      .collect(Collectors.toList());
+  }
+
   private static TextRange reference(int lineStart, int columnStart, int lineEnd, int columnEnd) {
     return new DefaultTextRange(new DefaultTextPointer(lineStart, columnStart), new DefaultTextPointer(lineEnd, columnEnd));
   }
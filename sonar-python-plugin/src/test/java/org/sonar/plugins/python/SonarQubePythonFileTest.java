@@ -28,6 +28,8 @@ import org.sonar.plugins.python.api.PythonFile;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class SonarQubePythonFileTest {
@@ -42,6 +44,8 @@ public class SonarQubePythonFileTest {
     when(inputFile.contents()).thenReturn("Hello 6.2!");
     PythonFile pythonFile = SonarQubePythonFile.create(inputFile);
     assertThat(pythonFile.content()).isEqualTo("Hello 6.2!");
+    assertThat(pythonFile.content()).isEqualTo("Hello 6.2!");
+    verify(inputFile, times(1)).contents();
     assertThat(pythonFile.toString()).isEqualTo(inputFile.toString());
     assertThat(pythonFile.uri()).isEqualTo(inputFile.uri());
   }
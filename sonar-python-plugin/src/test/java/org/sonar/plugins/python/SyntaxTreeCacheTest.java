@@ -0,0 +1,92 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import org.junit.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.plugins.python.api.tree.FileInput;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class SyntaxTreeCacheTest {
+
+  private final InputFile inputFile = mock(InputFile.class);
+  private final FileInput fileInput = mock(FileInput.class);
+
+  @Test
+  public void tree_is_retrieved_once() {
+    SyntaxTreeCache cache = new SyntaxTreeCache(1000);
+    cache.put(inputFile, "x = 1", fileInput);
+    assertThat(cache.remove(inputFile, "x = 1")).isSameAs(fileInput);
+    assertThat(cache.remove(inputFile, "x = 1")).isNull();
+    assertThat(cache.hits()).isEqualTo(1);
+    assertThat(cache.misses()).isEqualTo(1);
+  }
+
+  @Test
+  public void modified_content() {
+    SyntaxTreeCache cache = new SyntaxTreeCache(1000);
+    cache.put(inputFile, "x = 1", fileInput);
+    assertThat(cache.remove(inputFile, "x = 2")).isNull();
+    assertThat(cache.hits()).isZero();
+    assertThat(cache.misses()).isEqualTo(1);
+  }
+
+  @Test
+  public void exceeded_budget() {
+    String content = "x = 1";
+    SyntaxTreeCache cache = new SyntaxTreeCache(content.length() * SyntaxTreeCache.BYTES_PER_CHARACTER);
+    InputFile otherFile = mock(InputFile.class);
+    cache.put(inputFile, content, fileInput);
+    cache.put(otherFile, content, mock(FileInput.class));
+    assertThat(cache.remove(otherFile, content)).isNull();
+    assertThat(cache.remove(inputFile, content)).isSameAs(fileInput);
+
+    // memory is released when a tree is retrieved
+    cache.put(otherFile, content, fileInput);
+    assertThat(cache.remove(otherFile, content)).isSameAs(fileInput);
+  }
+
+  @Test
+  public void evicted_tree() {
+    String content = "x = 1";
+    SyntaxTreeCache cache = new SyntaxTreeCache(content.length() * SyntaxTreeCache.BYTES_PER_CHARACTER);
+    cache.put(inputFile, content, fileInput);
+    cache.evict(inputFile);
+    cache.evict(inputFile);
+    assertThat(cache.remove(inputFile, content)).isNull();
+    assertThat(cache.hits()).isZero();
+
+    // memory is released when a tree is evicted
+    InputFile otherFile = mock(InputFile.class);
+    cache.put(inputFile, content, fileInput);
+    cache.evict(inputFile);
+    cache.put(otherFile, content, fileInput);
+    assertThat(cache.remove(otherFile, content)).isSameAs(fileInput);
+  }
+
+  @Test
+  public void disabled() {
+    SyntaxTreeCache cache = new SyntaxTreeCache(0);
+    cache.put(inputFile, "x = 1", fileInput);
+    assertThat(cache.remove(inputFile, "x = 1")).isNull();
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.plugins.python.TextReportReader.Issue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TextReportReaderTest {
+
+  // regular expressions previously used to parse the lines
+  private static final Pattern DEFAULT_PATTERN = Pattern.compile("(.+):(\\d+):(\\d+): (\\S+[^:]):? (.*)");
+  private static final Pattern LEGACY_PATTERN = Pattern.compile("(.+):(\\d+): \\[(.*)\\] (.*)");
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void same_issues_as_regular_expressions() throws IOException {
+    List<String> lines = Arrays.asList(
+      "************* Module src.main",
+      "",
+      "pylint/file1.py:1:0: C0114: Missing module docstring (missing-module-docstring)",
+      "pylint/file1.py:5:11: R0124: Redundant comparison - smth == smth (comparison-with-itself)",
+      "file.py:12:5: E231 missing whitespace after ','",
+      "file.py:12:5: E231  two spaces",
+      "file.py:12:5: E: message",
+      "file.py:12:5: E:: message",
+      "file.py:12:5: ab: : message",
+      "file.py:12:5: :: message",
+      "file.py:12:5: a\tb c",
+      "file.py:12:5: X",
+      "file.py:12:5: XY",
+      "file.py:12:5: XY ",
+      "file.py:12:5:E231 no space",
+      "C:\\project\\file.py:3:1: W291 trailing whitespace",
+      "dir:1:2/file.py:3:4: E1 message file.py:5:6: E2 other",
+      "file.py:3:4: E1 message with file.py:5:6: E2 other",
+      "file.py:3:4: E1 message with file.py:5:6:",
+      "file.py:1: [C0111(missing-docstring), ] Missing module docstring",
+      "file.py:1: [C0103(invalid-name), factorial] Invalid argument name \"n\"",
+      "file.py:1: [E1300] message",
+      "file.py:1: [(E1300)] message",
+      "file.py:1: [] message",
+      "file.py:1: [a] b] c] d",
+      "file.py:1: [a]",
+      "file.py:1: [E1] message with file.py:2: [E2] other",
+      "file.py:1: [E1] message file.py:2:3: E2 other",
+      ":1:2: E1 no path",
+      ":1: [E1] no path",
+      "file.py::2: E1 no line",
+      "file.py:1:: E1 no column",
+      "file.py:1:2: ",
+      "file.py:1:2:  ",
+      "file.py:1:2: \u00e9\u00e8 unicode",
+      "file.py:x:2: E1 message");
+    for (String line : lines) {
+      assertThat(toString(parse(line, TextReportReader.COLUMN_ONE_BASED))).as(line).isEqualTo(toString(parseWithRegularExpressions(line, TextReportReader.COLUMN_ONE_BASED)));
+    }
+  }
+
+  @Test
+  public void issues_are_read_by_batches() throws IOException {
+    File report = temporaryFolder.newFile("report.txt");
+    Files.write(report.toPath(), IntStream.range(1, 2502).mapToObj(i -> "file.py:" + i + ":0: C0114: Message " + i).collect(Collectors.toList()));
+    List<Issue> issues = new ArrayList<>();
+    new TextReportReader(TextReportReader.COLUMN_ZERO_BASED).parse(report, fileSystem(), issues::add);
+    assertThat(issues).hasSize(2501);
+    assertThat(issues.get(2500).lineNumber).isEqualTo(2501);
+    assertThat(issues.get(2500).message).isEqualTo("Message 2501");
+  }
+
+  @Test
+  public void exceptions_of_the_consumer_are_propagated() throws IOException {
+    File report = temporaryFolder.newFile("report.txt");
+    Files.write(report.toPath(), IntStream.range(1, 20000).mapToObj(i -> "file.py:" + i + ":0: C0114: Message").collect(Collectors.toList()));
+    TextReportReader reader = new TextReportReader(TextReportReader.COLUMN_ZERO_BASED);
+    DefaultFileSystem fileSystem = fileSystem();
+    assertThatThrownBy(() -> reader.parse(report, fileSystem, issue -> {
+      throw new IllegalStateException("consumer failure");
+    })).isInstanceOf(IllegalStateException.class).hasMessage("consumer failure");
+  }
+
+  @Test
+  public void missing_report() {
+    TextReportReader reader = new TextReportReader(TextReportReader.COLUMN_ZERO_BASED);
+    DefaultFileSystem fileSystem = fileSystem();
+    assertThatThrownBy(() -> reader.parse(new File(temporaryFolder.getRoot(), "missing.txt"), fileSystem, issue -> {
+    })).isInstanceOf(IOException.class);
+  }
+
+  private List<Issue> parse(String line, int columnStartIndex) throws IOException {
+    File report = temporaryFolder.newFile();
+    Files.write(report.toPath(), line.getBytes(StandardCharsets.UTF_8));
+    List<Issue> issues = new ArrayList<>();
+    new TextReportReader(columnStartIndex).parse(report, fileSystem(), issues::add);
+    return issues;
+  }
+
+  private DefaultFileSystem fileSystem() {
+    DefaultFileSystem fileSystem = new DefaultFileSystem(temporaryFolder.getRoot());
+    fileSystem.setEncoding(StandardCharsets.UTF_8);
+    return fileSystem;
+  }
+
+  private static List<Issue> parseWithRegularExpressions(String line, int columnStartIndex) {
+    List<Issue> issues = new ArrayList<>();
+    Matcher m = DEFAULT_PATTERN.matcher(line);
+    if (m.matches()) {
+      issues.add(new Issue(m.group(1), m.group(4), m.group(5), Integer.parseInt(m.group(2)), Integer.parseInt(m.group(3)) - columnStartIndex));
+      return issues;
+    }
+    m = LEGACY_PATTERN.matcher(line);
+    if (m.matches()) {
+      String ruleKey = m.group(3);
+      int keyLastIndex = ruleKey.indexOf("(");
+      if (keyLastIndex > 0) {
+        ruleKey = ruleKey.substring(0, keyLastIndex);
+      }
+      issues.add(new Issue(m.group(1), ruleKey, m.group(4), Integer.parseInt(m.group(2)), null));
+    }
+    return issues;
+  }
+
+  private static List<String> toString(List<Issue> issues) {
+    return issues.stream()
+      .map(issue -> String.join("|", issue.filePath, issue.ruleKey, issue.message, String.valueOf(issue.lineNumber), String.valueOf(issue.columnNumber)))
+      .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python.bandit;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.sonar.plugins.python.bandit.BanditJsonReportReader.Issue;
+import org.sonarsource.analyzer.commons.internal.json.simple.JSONArray;
+import org.sonarsource.analyzer.commons.internal.json.simple.JSONObject;
+import org.sonarsource.analyzer.commons.internal.json.simple.parser.JSONParser;
+import org.sonarsource.analyzer.commons.internal.json.simple.parser.ParseException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BanditJsonReportReaderTest {
+
+  private static final Path PROJECT_DIR = Paths.get("src", "test", "resources", "org", "sonar", "plugins", "python", "bandit");
+
+  @Test
+  public void same_issues_as_json_tree() throws IOException, ParseException {
+    for (String report : new String[] {"bandit-report.json", "bandit-report-with-errors.json", "bandit-report-with-file-and-line-errors.json", "bandit-report-empty.json"}) {
+      byte[] content = Files.readAllBytes(PROJECT_DIR.resolve(report));
+      assertThat(toString(read(content))).as(report).isEqualTo(toString(readJsonTree(content)));
+    }
+  }
+
+  @Test
+  public void only_fields_of_results_are_read() throws IOException, ParseException {
+    String report = "{" +
+      "\"metrics\": {\"results\": [{\"test_id\": \"B0\"}]}," +
+      "\"results\": [" +
+      "  {\"test_id\": \"B1\", \"filename\": \"a.py\", \"issue_text\": \"m1\", \"line_number\": 3, \"line_range\": [3, 4]," +
+      "   \"nested\": {\"test_id\": \"B9\", \"line_number\": 9}, \"issue_severity\": \"HIGH\", \"issue_confidence\": \"LOW\"}," +
+      "  {\"test_id\": \"B2\", \"line_number\": \"x\", \"more\": [{\"filename\": \"b.py\"}]}" +
+      "]," +
+      "\"errors\": [{\"test_id\": \"B3\"}]" +
+      "}";
+    assertThat(toString(read(report.getBytes(UTF_8)))).containsExactly(
+      "B1|a.py|m1|3|HIGH|LOW",
+      "B2|null|null|null|null|null");
+  }
+
+  @Test
+  public void issues_are_consumed_while_reading() throws IOException, ParseException {
+    int resultCount = 20_000;
+    GeneratedReport report = new GeneratedReport(resultCount);
+    List<Long> readBytesAtIssue = new ArrayList<>();
+    BanditJsonReportReader.read(report, issue -> readBytesAtIssue.add(report.readBytes));
+    assertThat(readBytesAtIssue).hasSize(resultCount);
+    assertThat(readBytesAtIssue.get(0)).isLessThan(report.readBytes / 100);
+  }
+
+  @Test
+  public void invalid_report() {
+    assertThatThrownBy(() -> read("invalid file".getBytes(UTF_8))).isInstanceOf(ParseException.class);
+  }
+
+  private static List<Issue> read(byte[] content) throws IOException, ParseException {
+    List<Issue> issues = new ArrayList<>();
+    BanditJsonReportReader.read(new ByteArrayInputStream(content), issues::add);
+    return issues;
+  }
+
+  // parsing previously used to read the reports
+  private static List<Issue> readJsonTree(byte[] content) throws IOException, ParseException {
+    List<Issue> issues = new ArrayList<>();
+    JSONObject rootObject = (JSONObject) new JSONParser().parse(new InputStreamReader(new ByteArrayInputStream(content), UTF_8));
+    JSONArray results = (JSONArray) rootObject.get("results");
+    if (results != null) {
+      for (Object element : results) {
+        JSONObject result = (JSONObject) element;
+        Issue issue = new Issue();
+        issue.ruleKey = (String) result.get("test_id");
+        issue.filePath = (String) result.get("filename");
+        issue.message = (String) result.get("issue_text");
+        Object lineNumber = result.get("line_number");
+        issue.lineNumber = lineNumber instanceof Number ? ((Number) lineNumber).intValue() : null;
+        issue.severity = (String) result.get("issue_severity");
+        issue.confidence = (String) result.get("issue_confidence");
+        issues.add(issue);
+      }
+    }
+    return issues;
+  }
+
+  private static List<String> toString(List<Issue> issues) {
+    return issues.stream()
+      .map(issue -> String.join("|", issue.ruleKey, issue.filePath, issue.message, String.valueOf(issue.lineNumber), issue.severity, issue.confidence))
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Report produced while it is read, so that its size doesn't depend on the available memory.
+   */
+  private static class GeneratedReport extends InputStream {
+
+    private final int resultCount;
+    private int nextResult = 0;
+    private byte[] chunk = "{\"errors\": [], \"results\": [".getBytes(UTF_8);
+    private int chunkIndex = 0;
+    private long readBytes = 0;
+
+    private GeneratedReport(int resultCount) {
+      this.resultCount = resultCount;
+    }
+
+    @Override
+    public int read() {
+      if (chunkIndex == chunk.length && !nextChunk()) {
+        return -1;
+      }
+      readBytes++;
+      return chunk[chunkIndex++] & 0xFF;
+    }
+
+    private boolean nextChunk() {
+      if (nextResult > resultCount) {
+        return false;
+      }
+      String text;
+      if (nextResult == resultCount) {
+        text = "]}";
+      } else {
+        text = (nextResult == 0 ? "" : ",") + "{\"code\": \"" + nextResult + " import subprocess\\n\", \"filename\": \"bandit/file" + nextResult + ".py\", " +
+          "\"issue_confidence\": \"HIGH\", \"issue_severity\": \"LOW\", \"issue_text\": \"Consider possible security implications.\", " +
+          "\"line_number\": 1, \"line_range\": [1], \"more_info\": \"https://bandit.readthedocs.io/en/latest/blacklists/\", \"test_id\": \"B404\", " +
+          "\"test_name\": \"blacklist\"}";
+      }
+      nextResult++;
+      chunk = text.getBytes(UTF_8);
+      chunkIndex = 0;
+      return true;
+    }
+  }
+}
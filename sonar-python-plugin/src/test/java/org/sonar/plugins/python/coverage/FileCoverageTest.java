@@ -0,0 +1,91 @@
+/*
+ * SonarQube Python Plugin
+ * Copyright (C) 2011-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.python.coverage;
+
+import org.junit.Test;
+import org.sonar.api.batch.sensor.coverage.NewCoverage;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class FileCoverageTest {
+
+  @Test
+  public void merged_coverage() {
+    FileCoverage coverage = new FileCoverage();
+    coverage.lineHits(1, 0);
+    coverage.lineHits(3, 2);
+    coverage.conditions(3, 2, 1);
+
+    FileCoverage other = new FileCoverage();
+    other.lineHits(1, 0);
+    other.lineHits(3, 1);
+    other.conditions(3, 2, 2);
+    other.lineHits(200, 4);
+    coverage.merge(other);
+
+    NewCoverage newCoverage = mock(NewCoverage.class);
+    coverage.save(newCoverage);
+    verify(newCoverage).lineHits(1, 0);
+    verify(newCoverage, never()).lineHits(2, 0);
+    verify(newCoverage).lineHits(3, 3);
+    verify(newCoverage).conditions(3, 2, 2);
+    verify(newCoverage).lineHits(200, 4);
+    verify(newCoverage, never()).conditions(1, 0, 0);
+    verify(newCoverage).save();
+  }
+
+  @Test
+  public void first_values_of_a_line_are_kept_within_a_report() {
+    FileCoverage coverage = new FileCoverage();
+    coverage.lineHits(1, 2);
+    coverage.conditions(1, 4, 1);
+    coverage.lineHits(1, 5);
+    coverage.conditions(1, 2, 2);
+    coverage.lineHits(2, 0);
+
+    NewCoverage newCoverage = mock(NewCoverage.class);
+    coverage.save(newCoverage);
+    verify(newCoverage).lineHits(1, 2);
+    verify(newCoverage).conditions(1, 4, 1);
+    verify(newCoverage).lineHits(2, 0);
+    verify(newCoverage, never()).lineHits(1, 5);
+    verify(newCoverage, never()).lineHits(1, 7);
+    verify(newCoverage, never()).conditions(1, 2, 2);
+  }
+
+  @Test
+  public void empty_coverage() {
+    NewCoverage newCoverage = mock(NewCoverage.class);
+    new FileCoverage().save(newCoverage);
+    verify(newCoverage, never()).lineHits(anyInt(), anyInt());
+    verify(newCoverage).save();
+  }
+
+  @Test
+  public void invalid_line() {
+    assertThatThrownBy(() -> new FileCoverage().lineHits(0, 1))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Line number must be strictly positive: 0");
+  }
+}
@@ -190,6 +190,20 @@ public class PythonCoverageSensorTest {
     assertThat(context.lineHits("moduleKey:sources/folder2/file2.py", 1)).isNull();
   }
 
+  @Test
+  public void file_not_part_of_the_analysis() {
+    context = SensorContextTester.create(moduleBaseDir);
+    context.setSettings(settings);
+    inputFile("sources/file1.py", Type.MAIN);
+    logTester.clear();
+    coverageSensor.execute(context);
+
+    assertThat(context.lineHits(FILE1_KEY, 1)).isEqualTo(1);
+    assertThat(context.lineHits(FILE2_KEY, 1)).isNull();
+    // sources/file2.py exists: it is ignored without being reported as unresolved
+    assertThat(logTester.logs(LoggerLevel.ERROR)).isEmpty();
+  }
+
   @Test
   public void test_unique_report() {
     settings.setProperty(PythonCoverageSensor.REPORT_PATHS_KEY, "*coverage.4.4.2*.xml");
@@ -262,6 +276,47 @@ public class PythonCoverageSensorTest {
     assertThat(context.coveredConditions(FILE4_KEY, 10)).isEqualTo(1);
   }
 
+  @Test
+  public void reports_of_the_same_files_are_merged() throws Exception {
+    Path copy = tmpDir.newFolder("shard").toPath().resolve("coverage.xml");
+    Files.copy(new File(moduleBaseDir, "coverage.xml").toPath(), copy);
+    settings.setProperty(PythonCoverageSensor.REPORT_PATHS_KEY, "coverage.xml," + copy.toAbsolutePath());
+    coverageSensor.execute(context);
+
+    Integer[] file1Expected = {2, null, null, 0, null, 0};
+    Integer[] file2Expected = {2, 6, 2, 0, 2, 2};
+    for (int line = 1; line <= 6; line++) {
+      assertThat(context.lineHits(FILE1_KEY, line)).isEqualTo(file1Expected[line - 1]);
+      assertThat(context.lineHits(FILE2_KEY, line)).isEqualTo(file2Expected[line - 1]);
+    }
+    assertThat(context.conditions(FILE2_KEY, 3)).isEqualTo(2);
+    assertThat(context.coveredConditions(FILE2_KEY, 3)).isEqualTo(1);
+  }
+
+  @Test
+  public void first_values_of_duplicate_classes_are_kept() {
+    settings.setProperty(PythonCoverageSensor.REPORT_PATHS_KEY, "coverage_with_duplicate_class.xml");
+    coverageSensor.execute(context);
+
+    assertThat(context.lineHits(FILE1_KEY, 1)).isEqualTo(1);
+    assertThat(context.lineHits(FILE1_KEY, 2)).isEqualTo(2);
+    assertThat(context.lineHits(FILE1_KEY, 4)).isEqualTo(1);
+    assertThat(context.conditions(FILE1_KEY, 4)).isEqualTo(2);
+    assertThat(context.coveredConditions(FILE1_KEY, 4)).isEqualTo(1);
+  }
+
+  @Test
+  public void reports_with_duplicate_classes_are_merged() throws Exception {
+    Path copy = tmpDir.newFolder("shard").toPath().resolve("coverage.xml");
+    Files.copy(new File(moduleBaseDir, "coverage_with_duplicate_class.xml").toPath(), copy);
+    settings.setProperty(PythonCoverageSensor.REPORT_PATHS_KEY, "coverage_with_duplicate_class.xml," + copy.toAbsolutePath());
+    coverageSensor.execute(context);
+
+    assertThat(context.lineHits(FILE1_KEY, 1)).isEqualTo(2);
+    assertThat(context.lineHits(FILE1_KEY, 2)).isEqualTo(4);
+    assertThat(context.conditions(FILE1_KEY, 4)).isEqualTo(2);
+  }
+
   @Test
   public void test_comma_separated_paths_with_deprecated_property() {
     settings.setProperty(PythonCoverageSensor.REPORT_PATHS_KEY, "");
@@ -115,6 +115,19 @@ public class PythonCpdAnalyzerTest {
     }
   }
 
+  @Test
+  public void f_strings() {
+    DefaultInputFile inputFile = inputFile("cpd_fstring.py");
+    PythonVisitorContext visitorContext = TestPythonVisitorRunner.createContext(inputFile.path().toFile());
+    cpdAnalyzer.pushCpdTokens(inputFile, visitorContext);
+    List<TokensLine> lines = context.cpdTokens("moduleKey:cpd_fstring.py");
+    List<String> values = lines.stream().map(TokensLine::getValue).collect(Collectors.toList());
+    assertThat(values).containsExactly(
+      "name=f\"{a!r:>{width}} {f'{b}'}\"",
+      "print(f\"\"\"\n{c +\n d}\"\"\"",
+      ",e)");
+  }
+
   private DefaultInputFile inputFile(String fileName) {
     File file = new File(BASE_DIR, fileName);
 
@@ -0,0 +1,4 @@
+name = f"{a!r:>{width}} {f'{b}'}"
+print(f"""
+{c +
+ d}""", e)